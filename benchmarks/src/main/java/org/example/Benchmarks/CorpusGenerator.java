@@ -0,0 +1,172 @@
+package org.example.Benchmarks;
+
+import java.util.Random;
+
+/**
+ * Seeded generator of C programs in the subset {@code Parser} accepts, shaped to stress different parts of
+ * the scanner and parser. The same seed, shape and size always produce the same text.
+ */
+public final class CorpusGenerator {
+    public enum Shape {
+        /** every statement surrounded by line and block comments */
+        COMMENT_HEAVY,
+        /** if/else chains and blocks nested {@link #nestingDepth} deep */
+        DEEP_NESTING,
+        /** assignments whose right-hand sides have hundreds of operands and parentheses */
+        LONG_EXPRESSIONS,
+        /** thousands of tiny functions */
+        MANY_FUNCTIONS,
+        /** a random mix of the shapes above, per function */
+        MIXED,
+        /** well-typed long arithmetic with branches and no division by zero, for running rather than parsing */
+        ARITHMETIC
+    }
+
+    private static final Shape[] MIXED_SHAPES = {Shape.COMMENT_HEAVY, Shape.DEEP_NESTING, Shape.LONG_EXPRESSIONS, Shape.MANY_FUNCTIONS};
+
+    private static final String[] TYPES = {"int", "char", "float", "double", "short", "long", "unsigned", "signed"};
+    private static final String[] OPERATORS = {"+", "-", "*", "/", "%", "<", ">", "<=", ">=", "==", "!=", "&&", "||", "&", "|", "^", "<<", ">>"};
+    private static final String[] ARITHMETIC_OPERATORS = {"+", "-", "*", "&", "|", "^", "+", "*"};
+    private static final String[] COMPARISONS = {"<", ">", "<=", ">=", "==", "!="};
+
+    private final Random random;
+    private final Shape shape;
+    private int nestingDepth = 32;
+    private int expressionOperands = 200;
+
+    public CorpusGenerator(long seed, Shape shape) {
+        this.random = new Random(seed);
+        this.shape = shape;
+    }
+
+    public CorpusGenerator nestingDepth(int depth) {
+        this.nestingDepth = depth;
+        return this;
+    }
+
+    public CorpusGenerator expressionOperands(int operands) {
+        this.expressionOperands = operands;
+        return this;
+    }
+
+    /** Generates whole functions until the program is at least {@code targetChars} long. */
+    public String generate(int targetChars) {
+        StringBuilder sb = new StringBuilder(targetChars + 1024);
+        int function = 0;
+        while (sb.length() < targetChars) {
+            Shape s = shape == Shape.MIXED ? MIXED_SHAPES[random.nextInt(MIXED_SHAPES.length)] : shape;
+            function(sb, "f" + function++, s);
+        }
+        return sb.toString();
+    }
+
+    private void function(StringBuilder sb, String name, Shape s) {
+        if (s == Shape.ARITHMETIC) {
+            arithmeticFunction(sb, name);
+            return;
+        }
+        sb.append(TYPES[random.nextInt(TYPES.length)]).append(' ').append(name).append("() {\n");
+        sb.append("    int a, b, c;\n");
+        switch (s) {
+            case COMMENT_HEAVY -> {
+                for (int i = 0; i < 20; i++) {
+                    sb.append("    // step ").append(i).append(": keep the running value in range\n");
+                    sb.append("    /* ").append("block comment ".repeat(1 + random.nextInt(6))).append("*/ ");
+                    assignment(sb, 4);
+                }
+            }
+            case DEEP_NESTING -> nested(sb, nestingDepth, 1);
+            case LONG_EXPRESSIONS -> {
+                for (int i = 0; i < 4; i++) {
+                    sb.append("    a = ");
+                    expression(sb, expressionOperands);
+                    sb.append(";\n");
+                }
+            }
+            case MANY_FUNCTIONS -> assignment(sb, 2);
+            default -> throw new IllegalStateException("unexpected shape " + s);
+        }
+        sb.append("    return a;\n}\n");
+    }
+
+    private void nested(StringBuilder sb, int depth, int indent) {
+        String pad = "    ".repeat(indent);
+        if (depth == 0) {
+            sb.append(pad);
+            assignment(sb, 3);
+            return;
+        }
+        sb.append(pad).append("if (a ").append(OPERATORS[random.nextInt(OPERATORS.length)]).append(' ').append(random.nextInt(100)).append(") {\n");
+        nested(sb, depth - 1, indent + 1);
+        sb.append(pad).append("} else {\n");
+        sb.append(pad).append("    ");
+        assignment(sb, 2);
+        sb.append(pad).append("}\n");
+    }
+
+    private void assignment(StringBuilder sb, int operands) {
+        sb.append("abc".charAt(random.nextInt(3))).append(" = ");
+        expression(sb, operands);
+        sb.append(";\n");
+    }
+
+    private void expression(StringBuilder sb, int operands) {
+        int open = 0;
+        for (int i = 0; i < operands; i++) {
+            if (i > 0) sb.append(' ').append(OPERATORS[random.nextInt(OPERATORS.length)]).append(' ');
+            if (i < operands - 1 && random.nextInt(8) == 0) {
+                sb.append('(');
+                open++;
+            }
+            operand(sb);
+            if (open > 0 && random.nextInt(6) == 0) {
+                sb.append(')');
+                open--;
+            }
+        }
+        sb.append(")".repeat(open));
+    }
+
+    private void operand(StringBuilder sb) {
+        switch (random.nextInt(6)) {
+            case 0 -> sb.append(random.nextInt(100000));
+            case 1 -> sb.append(random.nextInt(1000)).append('.').append(random.nextInt(100));
+            case 2 -> sb.append("0x").append(Integer.toHexString(random.nextInt(1 << 16)));
+            case 3 -> sb.append("'").append((char) ('a' + random.nextInt(26))).append("'");
+            default -> sb.append("abc".charAt(random.nextInt(3)));
+        }
+    }
+
+    private void arithmeticFunction(StringBuilder sb, String name) {
+        sb.append("long ").append(name).append("() {\n");
+        sb.append("    long a, b, c;\n    int i;\n");
+        for (int s = 0; s < 12; s++) {
+            if (random.nextInt(4) == 0) {
+                sb.append("    if (").append(arithmeticOperand()).append(' ').append(COMPARISONS[random.nextInt(COMPARISONS.length)])
+                  .append(' ').append(arithmeticOperand()).append(") {\n        ");
+                arithmeticAssignment(sb);
+                sb.append("    } else {\n        ");
+                arithmeticAssignment(sb);
+                sb.append("    }\n");
+            } else {
+                sb.append("    ");
+                arithmeticAssignment(sb);
+            }
+        }
+        sb.append("    return a ^ b ^ c;\n}\n");
+    }
+
+    // divisors are made odd, so nothing divides by zero
+    private void arithmeticAssignment(StringBuilder sb) {
+        sb.append("abci".charAt(random.nextInt(4))).append(" = ").append(arithmeticOperand());
+        for (int i = 1 + random.nextInt(6); i > 0; i--) {
+            sb.append(' ').append(ARITHMETIC_OPERATORS[random.nextInt(ARITHMETIC_OPERATORS.length)]).append(' ').append(arithmeticOperand());
+        }
+        if (random.nextInt(4) == 0) sb.append(" / (").append(arithmeticOperand()).append(" | 1)");
+        sb.append(";\n");
+    }
+
+    private String arithmeticOperand() {
+        return random.nextInt(3) == 0 ? String.valueOf(random.nextInt(1000)) : String.valueOf("abci".charAt(random.nextInt(4)));
+    }
+}
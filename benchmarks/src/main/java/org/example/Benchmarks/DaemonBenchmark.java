@@ -0,0 +1,70 @@
+package org.example.Benchmarks;
+
+import org.example.Driver.CompileDaemon;
+import org.example.Driver.DaemonClient;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/** One round trip to a warmed-up {@link CompileDaemon}: a batch compile of a small file, answered over its socket. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DaemonBenchmark {
+    private static final String SMALL_FILE = """
+            int square() { int x; x = 12; return x * x; }
+            int main() { int a; int b; a = 6; b = a * 7; if (b != 42) { return 1; } return 0; }
+            """;
+
+    private Path dir;
+    private Path socket;
+    private Thread serving;
+    private final String[] args = {"small.c"};
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("daemon-benchmark");
+        Files.writeString(dir.resolve("small.c"), SMALL_FILE);
+        socket = dir.resolve("daemon.sock");
+        CompileDaemon daemon = CompileDaemon.bind(socket).warmUp(20);
+        serving = Thread.ofPlatform().start(() -> {
+            try {
+                daemon.serve();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException, InterruptedException {
+        DaemonClient.stop(socket);
+        serving.join();
+        Files.deleteIfExists(dir.resolve("small.c"));
+        Files.deleteIfExists(dir);
+    }
+
+    @Benchmark
+    public int compileSmallFile() throws IOException {
+        return DaemonClient.send(socket, dir, args, OutputStream.nullOutputStream());
+    }
+}
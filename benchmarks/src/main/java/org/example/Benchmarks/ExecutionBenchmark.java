@@ -0,0 +1,101 @@
+package org.example.Benchmarks;
+
+import org.example.Bytecode.BytecodeCompiler;
+import org.example.Bytecode.CompiledProgram;
+import org.example.IR.IrEvaluator;
+import org.example.IR.IrFunction;
+import org.example.IR.Lowering;
+import org.example.IR.PassManager;
+import org.example.Interpreter.AstEvaluator;
+import org.example.Interpreter.Interpreter;
+import org.example.Parser.Parser;
+import org.example.Parser.TypeChecker;
+import org.example.Scanner.Scanner;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.invoke.MethodHandle;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Calling every function of one {@code ARITHMETIC} corpus once: walking the AST, evaluating the optimized IR
+ * instruction by instruction, with the {@link Interpreter}, and as compiled bytecode.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExecutionBenchmark {
+    @Param({"100000"})
+    public int sizeChars;
+
+    @Param({"42"})
+    public long seed;
+
+    private List<IrFunction> functions;
+    private String[] names;
+    private AstEvaluator walker;
+    private Interpreter interpreter;
+    private MethodHandle[] handles;
+    // a, b, c and i of every generated function
+    private final long[] inputs = {3, 5, 7, 11};
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        String code = new CorpusGenerator(seed, CorpusGenerator.Shape.ARITHMETIC).generate(sizeChars);
+        Parser parser = new Parser(Scanner.TokenizeToBuffer(code), true);
+        parser.parseProgram();
+        TypeChecker checker = new TypeChecker(parser.getAst()).check();
+        if (parser.hasErrors() || checker.hasErrors()) {
+            throw new IllegalStateException("generated corpus does not compile: " + parser.getErrors() + checker.getErrors());
+        }
+        walker = new AstEvaluator(parser.getAst(), checker);
+        functions = Lowering.lower(parser.getAst(), checker);
+        PassManager.standard().run(functions);
+        names = functions.stream().map(IrFunction::getName).toArray(String[]::new);
+        interpreter = new Interpreter(functions);
+        CompiledProgram program = new BytecodeCompiler().load("ExecutionBenchmark", functions);
+        handles = functions.stream().map(f -> program.handle(f.getName())).toArray(MethodHandle[]::new);
+    }
+
+    @Benchmark
+    public long walkAst() {
+        long sum = 0;
+        for (String name : names) sum += walker.invoke(name, inputs);
+        return sum;
+    }
+
+    @Benchmark
+    public long evaluateIr() {
+        long sum = 0;
+        for (IrFunction f : functions) sum += IrEvaluator.run(f, inputs);
+        return sum;
+    }
+
+    @Benchmark
+    public long interpret() {
+        long sum = 0;
+        for (int fn = 0; fn < names.length; fn++) sum += interpreter.run(fn, inputs);
+        return sum;
+    }
+
+    @Benchmark
+    public long bytecode() throws Throwable {
+        long sum = 0;
+        for (MethodHandle h : handles) sum += (long) h.invokeExact(inputs);
+        return sum;
+    }
+}
@@ -0,0 +1,74 @@
+package org.example.Benchmarks;
+
+import org.example.Parser.Parser;
+import org.example.Scanner.Scanner;
+import org.example.Tokens.Token;
+import org.example.Tokens.TokenBuffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParserBenchmark {
+    @Param({"MIXED", "COMMENT_HEAVY", "DEEP_NESTING", "LONG_EXPRESSIONS", "MANY_FUNCTIONS"})
+    public CorpusGenerator.Shape shape;
+
+    @Param({"1000000"})
+    public int sizeChars;
+
+    @Param({"42"})
+    public long seed;
+
+    private List<Token> tokenList;
+    private TokenBuffer tokenBuffer;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        String code = new CorpusGenerator(seed, shape).generate(sizeChars);
+        tokenList = Scanner.Tokenize(code);
+        tokenBuffer = Scanner.TokenizeToBuffer(code);
+        Parser check = new Parser(tokenBuffer);
+        check.parseProgram();
+        if (check.hasErrors()) {
+            throw new IllegalStateException("generated corpus does not parse: " + check.getErrors().get(0));
+        }
+    }
+
+    @Benchmark
+    public boolean parseProgramFromList() {
+        Parser parser = new Parser(tokenList);
+        parser.parseProgram();
+        return parser.hasErrors();
+    }
+
+    @Benchmark
+    public boolean parseProgramFromBuffer() {
+        Parser parser = new Parser(tokenBuffer);
+        parser.parseProgram();
+        return parser.hasErrors();
+    }
+
+    @Benchmark
+    public int parseProgramWithAst() {
+        Parser parser = new Parser(tokenBuffer, true);
+        parser.parseProgram();
+        return parser.getAst().size();
+    }
+}
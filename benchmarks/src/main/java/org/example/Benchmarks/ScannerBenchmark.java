@@ -0,0 +1,82 @@
+package org.example.Benchmarks;
+
+import org.example.Scanner.Scanner;
+import org.example.Tokens.Token;
+import org.example.Tokens.TokenBuffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ScannerBenchmark {
+    @Param({"MIXED", "COMMENT_HEAVY", "DEEP_NESTING", "LONG_EXPRESSIONS", "MANY_FUNCTIONS"})
+    public CorpusGenerator.Shape shape;
+
+    @Param({"1000000"})
+    public int sizeChars;
+
+    @Param({"42"})
+    public long seed;
+
+    private String code;
+    private Path file;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        code = new CorpusGenerator(seed, shape).generate(sizeChars);
+        file = Files.createTempFile("bench", ".c");
+        Files.writeString(file, code);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public List<Token> tokenize() {
+        return Scanner.Tokenize(code);
+    }
+
+    @Benchmark
+    public TokenBuffer tokenizeToBuffer() {
+        return Scanner.TokenizeToBuffer(code);
+    }
+
+    @Benchmark
+    public TokenBuffer tokenizeParallel() {
+        return Scanner.TokenizeParallel(code);
+    }
+
+    @Benchmark
+    public String getInputFile() throws IOException {
+        return Scanner.getInputFile(file.toString());
+    }
+
+    /** Reading and lexing the file, against {@link #getInputFile} followed by {@link #tokenizeToBuffer}. */
+    @Benchmark
+    public TokenBuffer mapAndTokenize() throws IOException {
+        return Scanner.TokenizeToBuffer(Scanner.mapInputFile(file));
+    }
+}
@@ -0,0 +1,73 @@
+package org.example.Benchmarks;
+
+import org.example.Parser.Ast;
+import org.example.Parser.Parser;
+import org.example.Parser.TypeChecker;
+import org.example.Scanner.Scanner;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/** Type checking one parsed corpus sequentially and on a fork-join pool of {@code threads} workers. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TypeCheckerBenchmark {
+    @Param({"MANY_FUNCTIONS", "MIXED"})
+    public CorpusGenerator.Shape shape;
+
+    @Param({"4000000"})
+    public int sizeChars;
+
+    @Param({"42"})
+    public long seed;
+
+    @Param({"4"})
+    public int threads;
+
+    private Ast ast;
+    private ForkJoinPool pool;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        String code = new CorpusGenerator(seed, shape).generate(sizeChars);
+        Parser parser = new Parser(Scanner.TokenizeToBuffer(code), true);
+        parser.parseProgram();
+        if (parser.hasErrors()) {
+            throw new IllegalStateException("generated corpus does not parse: " + parser.getErrors().get(0));
+        }
+        ast = parser.getAst();
+        pool = new ForkJoinPool(threads);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public int checkSequential() {
+        return new TypeChecker(ast).check().getErrorCount();
+    }
+
+    @Benchmark
+    public int checkParallel() {
+        return new TypeChecker(ast).check(pool).getErrorCount();
+    }
+}
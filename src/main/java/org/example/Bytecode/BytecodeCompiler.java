@@ -0,0 +1,373 @@
+package org.example.Bytecode;
+
+import org.example.IR.IrFunction;
+import org.example.IR.Kind;
+import org.example.IR.Op;
+import org.example.Metrics.Phase;
+import org.example.Metrics.PhaseEvent;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Compiles {@link IrFunction}s into static methods of one generated class and loads it as a hidden class, so the
+ * programs run as JIT-compiled Java code. Each function becomes {@code static long name(long[] inputs)}: its locals
+ * start out as {@code inputs} (register values, see {@link Kind}) and it returns its result the same way, so a
+ * compiled function behaves exactly like {@link org.example.IR.IrEvaluator#run} on the same function.
+ * <p>
+ * Every register gets its own JVM local of its kind. Each instruction loads its operands, computes and stores, so
+ * the operand stack is empty between instructions and every branch target shares one stack map frame.
+ */
+public final class BytecodeCompiler {
+    static final String PACKAGE = BytecodeCompiler.class.getPackageName().replace('.', '/');
+    static final String DESCRIPTOR = "([J)J";
+
+    // operand stack depth never exceeds two longs or doubles
+    private static final int MAX_STACK = 4;
+    // the largest code size whose branch offsets all fit the 16-bit branch instructions
+    private static final int MAX_CODE = Short.MAX_VALUE;
+
+    private Path dumpDirectory;
+
+    /** Also writes each generated class to {@code <directory>/<className>.class} for {@code javap}; null to stop. */
+    public BytecodeCompiler setDumpDirectory(Path directory) {
+        this.dumpDirectory = directory;
+        return this;
+    }
+
+    /** Compiles {@code functions} into class {@code className} and loads it. */
+    public CompiledProgram load(String className, List<IrFunction> functions) {
+        byte[] bytes = generate(className, functions);
+        if (dumpDirectory != null) {
+            try {
+                Files.createDirectories(dumpDirectory);
+                Files.write(dumpDirectory.resolve(className + ".class"), bytes);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup().defineHiddenClass(bytes, true);
+            return new CompiledProgram(lookup, functions);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /** The class file for {@code functions} as class {@code className} in this package, without loading it. */
+    public byte[] generate(String className, List<IrFunction> functions) {
+        if (!isJavaIdentifier(className)) throw new IllegalArgumentException("not a class name: " + className);
+        PhaseEvent event = PhaseEvent.begin(Phase.CODEGEN);
+        ClassWriter cw = new ClassWriter(PACKAGE + '/' + className);
+        Set<String> names = new HashSet<>();
+        for (IrFunction f : functions) {
+            if (!names.add(f.getName())) throw new IllegalArgumentException("function '" + f.getName() + "' is defined twice");
+            new MethodCompiler(cw, f).compile();
+        }
+        byte[] bytes = cw.toByteArray();
+        event.setBytes(bytes.length).finish();
+        return bytes;
+    }
+
+    private static boolean isJavaIdentifier(String s) {
+        if (s.isEmpty() || !Character.isJavaIdentifierStart(s.charAt(0))) return false;
+        for (int i = 1; i < s.length(); i++) {
+            if (!Character.isJavaIdentifierPart(s.charAt(i))) return false;
+        }
+        return true;
+    }
+
+    private static final class MethodCompiler {
+        private final ClassWriter cw;
+        private final IrFunction f;
+        private final ClassWriter.ByteVector code = new ClassWriter.ByteVector();
+        private final int[] slot;
+        private int maxLocals = 1;
+        // code offsets that need a stack map frame: branch targets and code after goto or return
+        private final BitSet frames = new BitSet();
+        // branches to IR instructions, patched once every instruction's offset is known
+        private int[] branchAt = new int[16];
+        private int[] branchTo = new int[16];
+        private int branches;
+
+        MethodCompiler(ClassWriter cw, IrFunction f) {
+            this.cw = cw;
+            this.f = f;
+            slot = new int[f.getRegisterCount()];
+            for (int r = 0; r < slot.length; r++) {
+                slot[r] = maxLocals;
+                maxLocals += f.kind(r) == Kind.I ? 1 : 2;
+            }
+            if (maxLocals > 0xFFFF) throw new IllegalArgumentException("function '" + f.getName() + "' has too many registers");
+        }
+
+        void compile() {
+            // locals from the inputs; temporaries zeroed so every register is initialized at every branch target
+            for (int r = 0; r < slot.length; r++) {
+                Kind kind = f.kind(r);
+                if (r < f.getVariableCount()) {
+                    code.u1(0x2A); // aload_0
+                    pushInt(r);
+                    code.u1(0x2F); // laload
+                    if (kind == Kind.I) code.u1(0x88); // l2i
+                    if (kind == Kind.D) invokeStatic("java/lang/Double", "longBitsToDouble", "(J)D");
+                } else {
+                    code.u1(kind == Kind.I ? 0x03 : kind == Kind.L ? 0x09 : 0x0E); // iconst_0, lconst_0, dconst_0
+                }
+                store(r);
+            }
+
+            int[] start = new int[f.size() + 1];
+            for (int i = 0; i < f.size(); i++) {
+                start[i] = code.length();
+                instruction(i);
+            }
+            // a target past the last instruction, or running off the end, returns 0 like a void function
+            start[f.size()] = code.length();
+            boolean fallsOff = f.size() == 0 || f.op(f.size() - 1) != Op.JUMP && f.op(f.size() - 1) != Op.RETURN;
+            for (int k = 0; k < branches; k++) fallsOff |= branchTo[k] == f.size();
+            if (fallsOff) {
+                frames.set(code.length());
+                code.u1(0x09).u1(0xAD); // lconst_0, lreturn
+            }
+            if (code.length() > MAX_CODE) {
+                throw new IllegalArgumentException("function '" + f.getName() + "' is too large for one method");
+            }
+            for (int k = 0; k < branches; k++) {
+                int target = start[branchTo[k]];
+                frames.set(target);
+                patch(branchAt[k], target);
+            }
+            frames.clear(code.length(), Integer.MAX_VALUE);
+
+            ClassWriter.ByteVector table = new ClassWriter.ByteVector();
+            int count = 0;
+            int previous = -1;
+            for (int at = frames.nextSetBit(0); at >= 0; at = frames.nextSetBit(at + 1)) {
+                if (count == 0) {
+                    fullFrame(table, at);
+                } else {
+                    int delta = at - previous - 1;
+                    if (delta < 64) table.u1(delta); // same_frame
+                    else table.u1(251).u2(delta); // same_frame_extended
+                }
+                previous = at;
+                count++;
+            }
+            cw.method(ClassWriter.ACC_PUBLIC | ClassWriter.ACC_STATIC, f.getName(), DESCRIPTOR, MAX_STACK, maxLocals,
+                    code, table, count);
+        }
+
+        // locals: the inputs array, then every register with its kind; the stack is empty
+        private void fullFrame(ClassWriter.ByteVector table, int offset) {
+            table.u1(255).u2(offset).u2(1 + slot.length);
+            table.u1(7).u2(cw.classRef("[J")); // Object_variable_info
+            for (int r = 0; r < slot.length; r++) {
+                Kind kind = f.kind(r);
+                table.u1(kind == Kind.I ? 1 : kind == Kind.L ? 4 : 3); // Integer, Long, Double
+            }
+            table.u2(0);
+        }
+
+        private void instruction(int i) {
+            Op op = f.op(i);
+            int dst = f.dst(i);
+            int a = f.a(i);
+            int b = f.b(i);
+            switch (op) {
+                case NOP -> {
+                }
+                case CONST -> {
+                    push(f.kind(dst), f.constant(a));
+                    store(dst);
+                }
+                case MOVE -> {
+                    load(a);
+                    store(dst);
+                }
+                case JUMP -> {
+                    branch(0xA7, a); // goto
+                    frames.set(code.length());
+                }
+                case JZ -> {
+                    load(a);
+                    branch(0x99, b); // ifeq
+                }
+                case RETURN -> {
+                    if (a < 0) {
+                        code.u1(0x09); // lconst_0
+                    } else {
+                        load(a);
+                        if (f.kind(a) == Kind.I) code.u1(0x85); // i2l
+                        if (f.kind(a) == Kind.D) invokeStatic("java/lang/Double", "doubleToRawLongBits", "(D)J");
+                    }
+                    code.u1(0xAD); // lreturn
+                    frames.set(code.length());
+                }
+                case EQ_I, NE_I, LT_I, LE_I, GT_I, GE_I, EQ_L, NE_L, LT_L, LE_L, GT_L, GE_L,
+                     EQ_D, NE_D, LT_D, LE_D, GT_D, GE_D -> compare(op, dst, a, b);
+                case NOT_I, NOT_L -> {
+                    // ~x is x ^ -1
+                    load(a);
+                    push(f.kind(a), -1);
+                    code.u1(op == Op.NOT_I ? 0x82 : 0x83); // ixor, lxor
+                    store(dst);
+                }
+                default -> {
+                    load(a);
+                    if (op.uses == 2) load(b);
+                    code.u1(opcode(op));
+                    if (op == Op.D2F) code.u1(0x8D); // f2d, so the rounded value is a double again
+                    store(dst);
+                }
+            }
+        }
+
+        // dst = a <op> b as 0 or 1: branch to the store of 1, else store 0 and skip it
+        private void compare(Op op, int dst, int a, int b) {
+            load(a);
+            load(b);
+            int relation = (op.ordinal() - Op.EQ_I.ordinal()) % 6; // EQ NE LT LE GT GE
+            int jump;
+            switch (op.operandKind()) {
+                case I -> jump = new int[]{0x9F, 0xA0, 0xA1, 0xA4, 0xA3, 0xA2}[relation]; // if_icmp<cond>
+                case L -> {
+                    code.u1(0x94); // lcmp
+                    jump = new int[]{0x99, 0x9A, 0x9B, 0x9E, 0x9D, 0x9C}[relation]; // if<cond>
+                }
+                default -> {
+                    // NaN compares false except for '!=': dcmpg makes it 1 for < and <=, dcmpl -1 for the rest
+                    code.u1(relation == 2 || relation == 3 ? 0x98 : 0x97);
+                    jump = new int[]{0x99, 0x9A, 0x9B, 0x9E, 0x9D, 0x9C}[relation];
+                }
+            }
+            int toTrue = code.length();
+            code.u1(jump).u2(0);
+            code.u1(0x03); // iconst_0
+            store(dst);
+            int toEnd = code.length();
+            code.u1(0xA7).u2(0); // goto
+            patch(toTrue, code.length());
+            frames.set(code.length());
+            code.u1(0x04); // iconst_1
+            store(dst);
+            patch(toEnd, code.length());
+            frames.set(code.length());
+        }
+
+        private static int opcode(Op op) {
+            return switch (op) {
+                case ADD_I -> 0x60;
+                case ADD_L -> 0x61;
+                case ADD_D -> 0x63;
+                case SUB_I -> 0x64;
+                case SUB_L -> 0x65;
+                case SUB_D -> 0x67;
+                case MUL_I -> 0x68;
+                case MUL_L -> 0x69;
+                case MUL_D -> 0x6B;
+                case DIV_I -> 0x6C;
+                case DIV_L -> 0x6D;
+                case DIV_D -> 0x6F;
+                case REM_I -> 0x70;
+                case REM_L -> 0x71;
+                case NEG_I -> 0x74;
+                case NEG_L -> 0x75;
+                case NEG_D -> 0x77;
+                case SHL_I -> 0x78;
+                case SHL_L -> 0x79;
+                case SHR_I -> 0x7A;
+                case SHR_L -> 0x7B;
+                case AND_I -> 0x7E;
+                case AND_L -> 0x7F;
+                case OR_I -> 0x80;
+                case OR_L -> 0x81;
+                case XOR_I -> 0x82;
+                case XOR_L -> 0x83;
+                case I2L -> 0x85;
+                case I2D -> 0x87;
+                case L2I -> 0x88;
+                case L2D -> 0x8A;
+                case D2I -> 0x8E;
+                case D2L -> 0x8F;
+                case D2F -> 0x90;
+                case I2B -> 0x91;
+                case I2S -> 0x93;
+                default -> throw new IllegalStateException("no opcode for " + op);
+            };
+        }
+
+        private void push(Kind kind, long bits) {
+            switch (kind) {
+                case I -> pushInt((int) bits);
+                case L -> {
+                    if (bits == 0 || bits == 1) code.u1(0x09 + (int) bits); // lconst_<n>
+                    else code.u1(0x14).u2(cw.longConstant(bits)); // ldc2_w
+                }
+                case D -> {
+                    if (bits == 0) code.u1(0x0E); // dconst_0
+                    else if (bits == Double.doubleToRawLongBits(1.0)) code.u1(0x0F); // dconst_1
+                    else code.u1(0x14).u2(cw.doubleConstant(bits)); // ldc2_w
+                }
+            }
+        }
+
+        private void pushInt(int v) {
+            if (v >= -1 && v <= 5) {
+                code.u1(0x03 + v); // iconst_<n>
+            } else if (v == (byte) v) {
+                code.u1(0x10).u1(v); // bipush
+            } else if (v == (short) v) {
+                code.u1(0x11).u2(v); // sipush
+            } else {
+                int index = cw.integer(v);
+                if (index < 256) code.u1(0x12).u1(index); // ldc
+                else code.u1(0x13).u2(index); // ldc_w
+            }
+        }
+
+        private void load(int r) {
+            Kind kind = f.kind(r);
+            localOp(kind == Kind.I ? 0x15 : kind == Kind.L ? 0x16 : 0x18, kind == Kind.I ? 0x1A : kind == Kind.L ? 0x1E : 0x26, slot[r]);
+        }
+
+        private void store(int r) {
+            Kind kind = f.kind(r);
+            localOp(kind == Kind.I ? 0x36 : kind == Kind.L ? 0x37 : 0x39, kind == Kind.I ? 0x3B : kind == Kind.L ? 0x3F : 0x47, slot[r]);
+        }
+
+        // <x>load_<n> for the first four slots, <x>load n up to 255, then wide
+        private void localOp(int opcode, int shortForm, int index) {
+            if (index < 4) code.u1(shortForm + index);
+            else if (index < 256) code.u1(opcode).u1(index);
+            else code.u1(0xC4).u1(opcode).u2(index);
+        }
+
+        private void invokeStatic(String owner, String name, String descriptor) {
+            code.u1(0xB8).u2(cw.methodRef(owner, name, descriptor));
+        }
+
+        private void branch(int opcode, int target) {
+            if (branches == branchAt.length) {
+                branchAt = Arrays.copyOf(branchAt, branches * 2);
+                branchTo = Arrays.copyOf(branchTo, branches * 2);
+            }
+            branchAt[branches] = code.length();
+            branchTo[branches++] = target;
+            code.u1(opcode).u2(0);
+        }
+
+        // branch offsets are relative to the branch instruction
+        private void patch(int at, int target) {
+            code.putU2(at + 1, target - at);
+        }
+    }
+}
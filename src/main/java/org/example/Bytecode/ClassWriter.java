@@ -0,0 +1,211 @@
+package org.example.Bytecode;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Just enough of the class file format (JVMS chapter 4) for {@link BytecodeCompiler}: a constant pool of the
+ * entry kinds it needs, no fields or interfaces, and static methods whose code and stack map table are
+ * assembled by the caller.
+ */
+final class ClassWriter {
+    /** Java 17: new enough for hidden classes, old enough for every JDK this project runs on. */
+    static final int MAJOR_VERSION = 61;
+
+    static final int ACC_PUBLIC = 0x0001;
+    static final int ACC_STATIC = 0x0008;
+    static final int ACC_FINAL = 0x0010;
+    static final int ACC_SUPER = 0x0020;
+
+    private static final int CONSTANT_UTF8 = 1;
+    private static final int CONSTANT_INTEGER = 3;
+    private static final int CONSTANT_LONG = 5;
+    private static final int CONSTANT_DOUBLE = 6;
+    private static final int CONSTANT_CLASS = 7;
+    private static final int CONSTANT_METHODREF = 10;
+    private static final int CONSTANT_NAME_AND_TYPE = 12;
+
+    private final ByteVector pool = new ByteVector();
+    private final Map<String, Integer> poolIndex = new HashMap<>();
+    // the next free index; long and double entries take two
+    private int poolCount = 1;
+    private final ByteVector methods = new ByteVector();
+    private int methodCount;
+    private final int thisClass;
+    private final int superClass;
+
+    ClassWriter(String internalName) {
+        thisClass = classRef(internalName);
+        superClass = classRef("java/lang/Object");
+    }
+
+    int utf8(String s) {
+        Integer index = poolIndex.get("U" + s);
+        if (index != null) return index;
+        pool.u1(CONSTANT_UTF8).utf8(s);
+        return add("U" + s, 1);
+    }
+
+    int classRef(String internalName) {
+        Integer index = poolIndex.get("C" + internalName);
+        if (index != null) return index;
+        int name = utf8(internalName);
+        pool.u1(CONSTANT_CLASS).u2(name);
+        return add("C" + internalName, 1);
+    }
+
+    int integer(int value) {
+        Integer index = poolIndex.get("I" + value);
+        if (index != null) return index;
+        pool.u1(CONSTANT_INTEGER).u4(value);
+        return add("I" + value, 1);
+    }
+
+    int longConstant(long value) {
+        Integer index = poolIndex.get("J" + value);
+        if (index != null) return index;
+        pool.u1(CONSTANT_LONG).u8(value);
+        return add("J" + value, 2);
+    }
+
+    /** A double constant by its raw bits, so every NaN and -0.0 keeps its own entry. */
+    int doubleConstant(long bits) {
+        Integer index = poolIndex.get("D" + bits);
+        if (index != null) return index;
+        pool.u1(CONSTANT_DOUBLE).u8(bits);
+        return add("D" + bits, 2);
+    }
+
+    int methodRef(String owner, String name, String descriptor) {
+        String key = "M" + owner + '.' + name + descriptor;
+        Integer index = poolIndex.get(key);
+        if (index != null) return index;
+        int ownerIndex = classRef(owner);
+        int nameAndType = nameAndType(name, descriptor);
+        pool.u1(CONSTANT_METHODREF).u2(ownerIndex).u2(nameAndType);
+        return add(key, 1);
+    }
+
+    private int nameAndType(String name, String descriptor) {
+        String key = "N" + name + ' ' + descriptor;
+        Integer index = poolIndex.get(key);
+        if (index != null) return index;
+        int nameIndex = utf8(name);
+        int descriptorIndex = utf8(descriptor);
+        pool.u1(CONSTANT_NAME_AND_TYPE).u2(nameIndex).u2(descriptorIndex);
+        return add(key, 1);
+    }
+
+    private int add(String key, int slots) {
+        int index = poolCount;
+        if (index + slots > 0xFFFF) throw new IllegalArgumentException("constant pool overflow");
+        poolIndex.put(key, index);
+        poolCount += slots;
+        return index;
+    }
+
+    /** Adds a method with a {@code Code} attribute, and a {@code StackMapTable} if {@code frameCount > 0}. */
+    void method(int access, String name, String descriptor, int maxStack, int maxLocals, ByteVector code,
+                ByteVector frames, int frameCount) {
+        int nameIndex = utf8(name);
+        int descriptorIndex = utf8(descriptor);
+        int codeName = utf8("Code");
+        int stackMapName = frameCount > 0 ? utf8("StackMapTable") : 0;
+        int stackMapLength = frameCount > 0 ? 2 + frames.length() : 0;
+        methods.u2(access).u2(nameIndex).u2(descriptorIndex).u2(1);
+        methods.u2(codeName).u4(2 + 2 + 4 + code.length() + 2 + 2 + (frameCount > 0 ? 6 + stackMapLength : 0));
+        methods.u2(maxStack).u2(maxLocals).u4(code.length()).bytes(code);
+        methods.u2(0); // exception table
+        if (frameCount > 0) {
+            methods.u2(1).u2(stackMapName).u4(stackMapLength).u2(frameCount).bytes(frames);
+        } else {
+            methods.u2(0);
+        }
+        methodCount++;
+    }
+
+    byte[] toByteArray() {
+        ByteVector out = new ByteVector();
+        out.u4(0xCAFEBABE).u2(0).u2(MAJOR_VERSION);
+        out.u2(poolCount).bytes(pool);
+        out.u2(ACC_PUBLIC | ACC_FINAL | ACC_SUPER).u2(thisClass).u2(superClass);
+        out.u2(0); // interfaces
+        out.u2(0); // fields
+        out.u2(methodCount).bytes(methods);
+        out.u2(0); // attributes
+        return out.toByteArray();
+    }
+
+    /** A growable big-endian byte array. */
+    static final class ByteVector {
+        private byte[] data = new byte[256];
+        private int length;
+
+        int length() {
+            return length;
+        }
+
+        ByteVector u1(int v) {
+            ensure(1);
+            data[length++] = (byte) v;
+            return this;
+        }
+
+        ByteVector u2(int v) {
+            ensure(2);
+            data[length++] = (byte) (v >>> 8);
+            data[length++] = (byte) v;
+            return this;
+        }
+
+        ByteVector u4(int v) {
+            return u2(v >>> 16).u2(v);
+        }
+
+        ByteVector u8(long v) {
+            return u4((int) (v >>> 32)).u4((int) v);
+        }
+
+        /** Overwrites the two bytes at {@code at}, e.g. a branch offset not known when it was emitted. */
+        void putU2(int at, int v) {
+            data[at] = (byte) (v >>> 8);
+            data[at + 1] = (byte) v;
+        }
+
+        ByteVector bytes(ByteVector other) {
+            ensure(other.length);
+            System.arraycopy(other.data, 0, data, length, other.length);
+            length += other.length;
+            return this;
+        }
+
+        // modified UTF-8 (JVMS 4.4.7); the names this writer sees are ASCII, but any string is encoded correctly
+        ByteVector utf8(String s) {
+            int start = length;
+            u2(0);
+            for (int i = 0; i < s.length(); i++) {
+                char c = s.charAt(i);
+                if (c >= 1 && c < 0x80) {
+                    u1(c);
+                } else if (c < 0x800) {
+                    u1(0xC0 | c >> 6).u1(0x80 | c & 0x3F);
+                } else {
+                    u1(0xE0 | c >> 12).u1(0x80 | c >> 6 & 0x3F).u1(0x80 | c & 0x3F);
+                }
+            }
+            int encoded = length - start - 2;
+            if (encoded > 0xFFFF) throw new IllegalArgumentException("string constant too long");
+            putU2(start, encoded);
+            return this;
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(data, length);
+        }
+
+        private void ensure(int n) {
+            if (length + n > data.length) data = Arrays.copyOf(data, Math.max(data.length * 2, length + n));
+        }
+    }
+}
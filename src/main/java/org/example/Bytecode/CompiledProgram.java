@@ -0,0 +1,65 @@
+package org.example.Bytecode;
+
+import org.example.IR.IrFunction;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/** A loaded class from {@link BytecodeCompiler}: one {@code (long[]) long} method handle per function. */
+public final class CompiledProgram {
+    private static final MethodType TYPE = MethodType.methodType(long.class, long[].class);
+
+    private final Class<?> generatedClass;
+    private final Map<String, MethodHandle> handles = new HashMap<>();
+    private final Map<String, Integer> variables = new HashMap<>();
+    private final List<String> names = new ArrayList<>();
+
+    CompiledProgram(MethodHandles.Lookup lookup, List<IrFunction> functions) throws IllegalAccessException {
+        generatedClass = lookup.lookupClass();
+        for (IrFunction f : functions) {
+            try {
+                handles.put(f.getName(), lookup.findStatic(generatedClass, f.getName(), TYPE));
+            } catch (NoSuchMethodException e) {
+                throw new IllegalStateException("generated class has no method " + f.getName(), e);
+            }
+            variables.put(f.getName(), f.getVariableCount());
+            names.add(f.getName());
+        }
+    }
+
+    /** The hidden class; it can be unloaded once this program and its handles are unreachable. */
+    public Class<?> getGeneratedClass() {
+        return generatedClass;
+    }
+
+    public List<String> getFunctionNames() {
+        return List.copyOf(names);
+    }
+
+    /** The compiled function, for {@code invokeExact(long[])}; the array must cover every local of the function. */
+    public MethodHandle handle(String name) {
+        MethodHandle handle = handles.get(name);
+        if (handle == null) throw new IllegalArgumentException("no function '" + name + "'");
+        return handle;
+    }
+
+    /** Calls the function with its first locals set to {@code inputs} (the rest 0), like {@code IrEvaluator.run}. */
+    public long invoke(String name, long... inputs) {
+        MethodHandle handle = handle(name);
+        int count = variables.get(name);
+        long[] locals = inputs.length >= count ? inputs : Arrays.copyOf(inputs, count);
+        try {
+            return (long) handle.invokeExact(locals);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
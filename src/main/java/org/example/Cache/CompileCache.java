@@ -0,0 +1,404 @@
+package org.example.Cache;
+
+import org.example.Scanner.SourceBytes;
+import org.example.Tokens.TokenBuffer;
+import org.example.Tokens.TokenKind;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * On-disk cache of a file's scanner tokens and parse diagnostics, addressed by a hash of its content, the
+ * compiler version and the options it was compiled with.
+ * <p>
+ * Each entry is one file, named by its key, that is memory-mapped on lookup. Layout (all numbers after the
+ * header are unsigned LEB128 varints):
+ * <pre>
+ *   int magic, int payload length, int CRC32 of payload
+ *   payload: key[32], source bytes, diagnostic count, (length, UTF-8)*, dependency count,
+ *            (path length, UTF-8 path, modified millis, size)*, token and comment count,
+ *            (kind byte, start - previous end, length)*
+ * </pre>
+ * A bad magic, length, checksum or key marks the entry corrupt: it is deleted and reported as a miss. An entry
+ * also misses when one of the headers it depends on changed size or modification time, or when a header now exists
+ * at a path that was searched and not found. When the cache grows
+ * past its byte limit, least recently used entries (by file modification time, which a hit refreshes) are deleted.
+ */
+public final class CompileCache {
+    public static final long DEFAULT_MAX_BYTES = 256L << 20;
+    /** Hash of the compiler's classes, so a changed compiler never reads stale entries. */
+    public static final String COMPILER_VERSION;
+
+    private static final int MAGIC = 0x434B5443;
+    private static final int HEADER_BYTES = 12;
+    private static final int KEY_BYTES = 32;
+    private static final String SUFFIX = ".tok";
+
+    // every class the compiler was loaded from: a hand-kept list misses the next class that shapes a diagnostic
+    static {
+        MessageDigest digest = sha256();
+        try {
+            Path source = Path.of(CompileCache.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+            if (Files.isDirectory(source)) {
+                try (Stream<Path> files = Files.walk(source)) {
+                    for (Path file : files.filter(f -> f.toString().endsWith(".class")).sorted().toList()) {
+                        digest.update(source.relativize(file).toString().getBytes(StandardCharsets.UTF_8));
+                        digest.update(Files.readAllBytes(file));
+                    }
+                }
+            } else {
+                digest.update(Files.readAllBytes(source));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (URISyntaxException e) {
+            throw new IllegalStateException("compiler classes are not in a file: " + e.getMessage(), e);
+        }
+        COMPILER_VERSION = HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * A header an entry was built from, as it was when the entry was stored, or a path that was searched for a header
+     * and must still not exist. An absent path has a size of -1.
+     */
+    public record Dependency(Path path, long modifiedMillis, long size) {
+        public static Dependency of(Path path) throws IOException {
+            return new Dependency(path, Files.getLastModifiedTime(path).toMillis(), Files.size(path));
+        }
+
+        public static Dependency absent(Path path) {
+            return new Dependency(path, -1, -1);
+        }
+
+        boolean isCurrent() {
+            if (size < 0) return !Files.exists(path);
+            try {
+                return Files.getLastModifiedTime(path).toMillis() == modifiedMillis && Files.size(path) == size;
+            } catch (IOException e) {
+                return false;
+            }
+        }
+    }
+
+    /** A cache hit. Diagnostics are decoded at once; tokens only when {@link #tokens} is called. */
+    public static final class Entry {
+        private final long sourceBytes;
+        private final List<String> diagnostics;
+        private final List<Dependency> dependencies;
+        private final ByteBuffer tokenData;
+
+        private Entry(long sourceBytes, List<String> diagnostics, List<Dependency> dependencies, ByteBuffer tokenData) {
+            this.sourceBytes = sourceBytes;
+            this.diagnostics = diagnostics;
+            this.dependencies = dependencies;
+            this.tokenData = tokenData;
+        }
+
+        public long sourceBytes() {
+            return sourceBytes;
+        }
+
+        public List<String> diagnostics() {
+            return diagnostics;
+        }
+
+        public List<Dependency> dependencies() {
+            return dependencies;
+        }
+
+        /** The stored tokens over {@code source}, which must be the text they were lexed from. */
+        public TokenBuffer tokens(CharSequence source) {
+            ByteBuffer in = tokenData.duplicate();
+            int count = readVarint(in);
+            TokenBuffer tokens = new TokenBuffer(source, Math.max(16, count));
+            int end = 0;
+            for (int i = 0; i < count; i++) {
+                TokenKind kind = TokenKind.of(in.get() & 0xFF);
+                int start = end + readVarint(in);
+                end = start + readVarint(in);
+                tokens.add(kind, start, end);
+            }
+            return tokens;
+        }
+    }
+
+    private final Path dir;
+    private final long maxBytes;
+    private final AtomicLong totalBytes = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder corrupt = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public CompileCache(Path dir) throws IOException {
+        this(dir, DEFAULT_MAX_BYTES);
+    }
+
+    public CompileCache(Path dir, long maxBytes) throws IOException {
+        if (maxBytes < 1) throw new IllegalArgumentException("maxBytes must be positive");
+        this.dir = Files.createDirectories(dir);
+        this.maxBytes = maxBytes;
+        long total = 0;
+        for (Path p : entryFiles()) total += Files.size(p);
+        totalBytes.set(total);
+    }
+
+    /** SHA-256 of the compiler version, {@code options} and {@code content}. */
+    public static byte[] key(byte[] content, String options) {
+        return key(SourceBytes.of(content), options);
+    }
+
+    /** Hashes {@code content} where it is, so a memory-mapped file is not copied onto the heap. */
+    public static byte[] key(SourceBytes content, String options) {
+        MessageDigest digest = sha256();
+        digest.update(COMPILER_VERSION.getBytes(StandardCharsets.US_ASCII));
+        digest.update((byte) 0);
+        digest.update(options.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+        digest.update(content.asByteBuffer());
+        return digest.digest();
+    }
+
+    /** The entry for {@code key}, or null if there is none, it is corrupt, or a header it used has changed. */
+    public Entry get(byte[] key) {
+        Path file = path(key);
+        Entry entry;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            entry = decode(mapped, key);
+        } catch (NoSuchFileException e) {
+            misses.increment();
+            return null;
+        } catch (IOException | RuntimeException e) {
+            entry = null;
+        }
+        if (entry == null) {
+            corrupt.increment();
+            misses.increment();
+            delete(file);
+            return null;
+        }
+        for (Dependency d : entry.dependencies) {
+            if (!d.isCurrent()) {
+                misses.increment();
+                return null;
+            }
+        }
+        hits.increment();
+        try {
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException ignored) {
+            // recency is best effort; the entry is still valid
+        }
+        return entry;
+    }
+
+    /** Stores an entry, replacing any entry under the same key, then evicts if the cache is over its limit. */
+    public void put(byte[] key, long sourceBytes, TokenBuffer tokens, List<String> diagnostics, List<Dependency> dependencies) throws IOException {
+        byte[] bytes = encode(key, sourceBytes, tokens, diagnostics, dependencies);
+        Path file = path(key);
+        Path temp = dir.resolve(file.getFileName() + "." + Long.toHexString(ThreadLocalRandom.current().nextLong()) + ".tmp");
+        Files.write(temp, bytes);
+        long replaced = Files.exists(file) ? Files.size(file) : 0;
+        try {
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+        if (totalBytes.addAndGet(bytes.length - replaced) > maxBytes) evict();
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    /** Entries found damaged and deleted. */
+    public long corruptEntries() {
+        return corrupt.sum();
+    }
+
+    public long evictions() {
+        return evictions.sum();
+    }
+
+    public long sizeBytes() {
+        return totalBytes.get();
+    }
+
+    // deletes least recently used entries until the cache is back under its limit
+    private synchronized void evict() throws IOException {
+        if (totalBytes.get() <= maxBytes) return;
+        record Aged(Path path, long modified, long size) {
+        }
+        List<Aged> entries = new ArrayList<>();
+        for (Path p : entryFiles()) {
+            try {
+                entries.add(new Aged(p, Files.getLastModifiedTime(p).toMillis(), Files.size(p)));
+            } catch (NoSuchFileException e) {
+                // removed by another thread
+            }
+        }
+        entries.sort((a, b) -> Long.compare(a.modified, b.modified));
+        for (Aged a : entries) {
+            if (totalBytes.get() <= maxBytes) break;
+            if (Files.deleteIfExists(a.path)) {
+                totalBytes.addAndGet(-a.size);
+                evictions.increment();
+            }
+        }
+    }
+
+    private List<Path> entryFiles() throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, "*" + SUFFIX)) {
+            for (Path p : stream) files.add(p);
+        }
+        return files;
+    }
+
+    private void delete(Path file) {
+        try {
+            long size = Files.size(file);
+            if (Files.deleteIfExists(file)) totalBytes.addAndGet(-size);
+        } catch (IOException ignored) {
+            // already gone
+        }
+    }
+
+    private Path path(byte[] key) {
+        return dir.resolve(HexFormat.of().formatHex(key) + SUFFIX);
+    }
+
+    static byte[] encode(byte[] key, long sourceBytes, TokenBuffer tokens, List<String> diagnostics, List<Dependency> dependencies) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(64 + tokens.size() * 3);
+        out.writeBytes(key);
+        writeVarint(out, sourceBytes);
+        writeVarint(out, diagnostics.size());
+        for (String d : diagnostics) writeString(out, d);
+        writeVarint(out, dependencies.size());
+        for (Dependency d : dependencies) {
+            writeString(out, d.path().toString());
+            writeVarint(out, d.modifiedMillis());
+            writeVarint(out, d.size());
+        }
+        // comments are written in source order between the tokens; adding them back routes them to the trivia again
+        writeVarint(out, tokens.size() + tokens.getTriviaCount());
+        int end = 0;
+        int trivia = 0;
+        for (int i = 0; i <= tokens.size(); i++) {
+            for (; trivia < tokens.getTriviaCount() && tokens.getTriviaOwner(trivia) == i; trivia++) {
+                out.write(tokens.getTriviaKind(trivia).ordinal());
+                writeVarint(out, tokens.getTriviaStart(trivia) - end);
+                writeVarint(out, tokens.getTriviaEnd(trivia) - tokens.getTriviaStart(trivia));
+                end = tokens.getTriviaEnd(trivia);
+            }
+            if (i == tokens.size()) break;
+            out.write(tokens.getKind(i).ordinal());
+            writeVarint(out, tokens.getStart(i) - end);
+            writeVarint(out, tokens.getEnd(i) - tokens.getStart(i));
+            end = tokens.getEnd(i);
+        }
+        byte[] payload = out.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        ByteBuffer file = ByteBuffer.allocate(HEADER_BYTES + payload.length);
+        file.putInt(MAGIC).putInt(payload.length).putInt((int) crc.getValue()).put(payload);
+        return file.array();
+    }
+
+    // null when the bytes are not a well-formed entry for key
+    static Entry decode(ByteBuffer in, byte[] key) {
+        if (in.remaining() < HEADER_BYTES || in.getInt() != MAGIC) return null;
+        int length = in.getInt();
+        int checksum = in.getInt();
+        if (length != in.remaining() || length < KEY_BYTES) return null;
+        CRC32 crc = new CRC32();
+        crc.update(in.duplicate());
+        if ((int) crc.getValue() != checksum) return null;
+        byte[] stored = new byte[KEY_BYTES];
+        in.get(stored);
+        if (!MessageDigest.isEqual(stored, key)) return null;
+        long sourceBytes = readVarlong(in);
+        int diagnosticCount = readVarint(in);
+        List<String> diagnostics = new ArrayList<>(diagnosticCount);
+        for (int i = 0; i < diagnosticCount; i++) diagnostics.add(readString(in));
+        int dependencyCount = readVarint(in);
+        List<Dependency> dependencies = new ArrayList<>(dependencyCount);
+        for (int i = 0; i < dependencyCount; i++) {
+            dependencies.add(new Dependency(Path.of(readString(in)), readVarlong(in), readVarlong(in)));
+        }
+        return new Entry(sourceBytes, List.copyOf(diagnostics), List.copyOf(dependencies), in.slice());
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarlong(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) return value;
+        }
+        throw new IllegalArgumentException("malformed varint");
+    }
+
+    private static int readVarint(ByteBuffer in) {
+        long value = readVarlong(in);
+        if (value > Integer.MAX_VALUE) throw new IllegalArgumentException("varint out of range");
+        return (int) value;
+    }
+
+    private static void writeString(ByteArrayOutputStream out, String s) {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        writeVarint(out, bytes.length);
+        out.writeBytes(bytes);
+    }
+
+    private static String readString(ByteBuffer in) {
+        byte[] bytes = new byte[readVarint(in)];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
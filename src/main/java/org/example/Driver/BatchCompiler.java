@@ -0,0 +1,370 @@
+package org.example.Driver;
+
+import org.example.Cache.CompileCache;
+import org.example.Parser.Parser;
+import org.example.Parser.TypeChecker;
+import org.example.Preprocessor.HeaderCache;
+import org.example.Preprocessor.Preprocessor;
+import org.example.Scanner.Scanner;
+import org.example.Scanner.SourceBytes;
+import org.example.Tokens.TokenBuffer;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Stream;
+
+/**
+ * Scans, preprocesses and parses many files in parallel and reports their diagnostics in a deterministic (sorted path) order.
+ * <p>
+ * Inputs may be files, directories (searched recursively for {@code .c}/{@code .h} files), glob patterns such as
+ * {@code src/**.c}, or {@code @list} files naming one input per line. Every file gets its own macros, but the
+ * lexed headers they include are cached once for the whole batch. With a {@link CompileCache}, files whose content,
+ * headers and options are unchanged since an earlier run are answered from disk without being lexed or parsed.
+ */
+public final class BatchCompiler {
+    /** Errors reported per file before its parse is stopped, unless {@code --max-errors} says otherwise. */
+    public static final int DEFAULT_MAX_ERRORS = 100;
+
+    private final int parallelism;
+    private final boolean virtualThreads;
+    private final int maxErrors;
+    private final List<Path> includePaths;
+    private final HeaderCache headers = new HeaderCache();
+    private CompileCache cache;
+
+    public record FileResult(Path path, long bytes, List<String> diagnostics) {
+        public boolean hasErrors() {
+            return !diagnostics.isEmpty();
+        }
+    }
+
+    public record Summary(List<FileResult> results, long elapsedNanos) {
+        public long totalBytes() {
+            return results.stream().mapToLong(FileResult::bytes).sum();
+        }
+
+        public long filesWithErrors() {
+            return results.stream().filter(FileResult::hasErrors).count();
+        }
+
+        public double filesPerSecond() {
+            return results.size() / seconds();
+        }
+
+        public double megabytesPerSecond() {
+            return totalBytes() / (1024.0 * 1024.0) / seconds();
+        }
+
+        private double seconds() {
+            return Math.max(elapsedNanos, 1) / 1e9;
+        }
+    }
+
+    public BatchCompiler(int parallelism, boolean virtualThreads) {
+        this(parallelism, virtualThreads, DEFAULT_MAX_ERRORS);
+    }
+
+    public BatchCompiler(int parallelism, boolean virtualThreads, int maxErrors) {
+        this(parallelism, virtualThreads, maxErrors, List.of());
+    }
+
+    /** {@code includePaths} are searched, in order, for {@code #include <...>} and unresolved {@code "..."} files. */
+    public BatchCompiler(int parallelism, boolean virtualThreads, int maxErrors, List<Path> includePaths) {
+        if (parallelism < 1) throw new IllegalArgumentException("parallelism must be at least 1");
+        if (maxErrors < 1) throw new IllegalArgumentException("maxErrors must be at least 1");
+        this.parallelism = parallelism;
+        this.virtualThreads = virtualThreads;
+        this.maxErrors = maxErrors;
+        this.includePaths = List.copyOf(includePaths);
+    }
+
+    /** Reuses and stores results in {@code cache}; null turns caching off. */
+    public BatchCompiler setCache(CompileCache cache) {
+        this.cache = cache;
+        return this;
+    }
+
+    /** The headers lexed so far, shared by every file this compiler preprocesses. */
+    public HeaderCache getHeaderCache() {
+        return headers;
+    }
+
+    /**
+     * Command-line entry: {@code [-j N | --jobs N] [--virtual-threads] [--max-errors N] [-I dir]... [--cache dir] inputs...}.
+     * Prints every diagnostic as {@code path: message} followed by a throughput summary; returns the exit code.
+     */
+    public static int run(String[] args, PrintStream out) throws IOException {
+        return run(args, out, null);
+    }
+
+    /**
+     * Same as {@link #run(String[], PrintStream)}, with relative paths on the command line resolved against
+     * {@code workingDirectory} instead of this process's, and printed relative to it; null means this process's.
+     */
+    public static int run(String[] args, PrintStream out, Path workingDirectory) throws IOException {
+        int jobs = Runtime.getRuntime().availableProcessors();
+        boolean virtual = false;
+        int maxErrors = DEFAULT_MAX_ERRORS;
+        List<Path> includePaths = new ArrayList<>();
+        Path cacheDir = null;
+        List<String> inputs = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-j", "--jobs" -> {
+                    if (i + 1 >= args.length) throw new IllegalArgumentException(args[i] + " needs a number");
+                    jobs = Integer.parseInt(args[++i]);
+                }
+                case "--virtual-threads" -> virtual = true;
+                case "--max-errors" -> {
+                    if (i + 1 >= args.length) throw new IllegalArgumentException(args[i] + " needs a number");
+                    maxErrors = Integer.parseInt(args[++i]);
+                }
+                case "-I", "--include-path" -> {
+                    if (i + 1 >= args.length) throw new IllegalArgumentException(args[i] + " needs a directory");
+                    includePaths.add(resolve(workingDirectory, args[++i]));
+                }
+                case "--cache" -> {
+                    if (i + 1 >= args.length) throw new IllegalArgumentException(args[i] + " needs a directory");
+                    cacheDir = resolve(workingDirectory, args[++i]);
+                }
+                default -> inputs.add(args[i]);
+            }
+        }
+        if (workingDirectory != null) workingDirectory = workingDirectory.toAbsolutePath().normalize();
+        List<Path> files = collectInputs(inputs, workingDirectory);
+        CompileCache cache = cacheDir == null ? null : new CompileCache(cacheDir);
+        Summary summary = new BatchCompiler(jobs, virtual, maxErrors, includePaths).setCache(cache).compile(files);
+        for (FileResult r : summary.results()) {
+            for (String d : r.diagnostics()) {
+                out.println(display(workingDirectory, r.path()) + ": " + d);
+            }
+        }
+        out.printf("%d files, %d with errors, %.1f KB in %.3f s (%.1f files/s, %.2f MB/s)%n",
+                summary.results().size(), summary.filesWithErrors(), summary.totalBytes() / 1024.0,
+                summary.elapsedNanos() / 1e9, summary.filesPerSecond(), summary.megabytesPerSecond());
+        if (cache != null) {
+            out.printf("cache: %d hits, %d misses, %d corrupt, %d evicted, %.1f KB%n", cache.hits(), cache.misses(),
+                    cache.corruptEntries(), cache.evictions(), cache.sizeBytes() / 1024.0);
+        }
+        return summary.filesWithErrors() == 0 ? 0 : 1;
+    }
+
+    /** Expands directories, globs and {@code @list} files into a sorted, de-duplicated list of files. */
+    public static List<Path> collectInputs(List<String> inputs) throws IOException {
+        return collectInputs(inputs, null);
+    }
+
+    /** Same as {@link #collectInputs(List)}, with relative inputs, list entries and globs resolved against {@code base} unless it is null. */
+    public static List<Path> collectInputs(List<String> inputs, Path base) throws IOException {
+        if (base != null) base = base.toAbsolutePath().normalize();
+        TreeSet<Path> files = new TreeSet<>();
+        for (String input : inputs) {
+            if (input.startsWith("@")) {
+                for (String line : Files.readAllLines(resolve(base, input.substring(1)))) {
+                    if (!line.isBlank()) files.add(resolve(base, line.trim()).normalize());
+                }
+            } else if (isGlob(input)) {
+                addGlob(input, files, base);
+            } else {
+                Path p = resolve(base, input).normalize();
+                if (Files.isDirectory(p)) {
+                    PathMatcher sources = FileSystems.getDefault().getPathMatcher("glob:*.{c,h}");
+                    try (Stream<Path> walk = Files.walk(p)) {
+                        walk.filter(Files::isRegularFile).filter(f -> sources.matches(f.getFileName())).forEach(files::add);
+                    }
+                } else {
+                    files.add(p);
+                }
+            }
+        }
+        return new ArrayList<>(files);
+    }
+
+    public Summary compile(List<Path> files) {
+        long start = System.nanoTime();
+        List<Callable<FileResult>> tasks = new ArrayList<>(files.size());
+        for (Path f : files) {
+            tasks.add(() -> cache != null ? compileCached(f) : compileFile(f, maxErrors, new Preprocessor(includePaths, headers)));
+        }
+
+        List<Future<FileResult>> futures;
+        if (virtualThreads) {
+            // virtual threads are unbounded, so a semaphore caps how many files are in flight
+            Semaphore permits = new Semaphore(parallelism);
+            List<Callable<FileResult>> limited = new ArrayList<>(tasks.size());
+            for (Callable<FileResult> task : tasks) {
+                limited.add(() -> {
+                    permits.acquire();
+                    try {
+                        return task.call();
+                    } finally {
+                        permits.release();
+                    }
+                });
+            }
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                futures = invokeAll(executor, limited);
+            }
+        } else {
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                futures = invokeAll(pool, tasks);
+            } finally {
+                pool.shutdown();
+            }
+        }
+
+        List<FileResult> results = new ArrayList<>(futures.size());
+        for (Future<FileResult> f : futures) {
+            try {
+                results.add(f.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("batch compilation interrupted", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("batch compilation failed", e.getCause());
+            }
+        }
+        return new Summary(results, System.nanoTime() - start);
+    }
+
+    /** Scans and parses one file; I/O, lexical and preprocessing errors become diagnostics instead of aborting the batch. */
+    public static FileResult compileFile(Path file) {
+        return compileFile(file, DEFAULT_MAX_ERRORS);
+    }
+
+    public static FileResult compileFile(Path file, int maxErrors) {
+        return compileFile(file, maxErrors, new Preprocessor(List.of(), new HeaderCache()));
+    }
+
+    public static FileResult compileFile(Path file, int maxErrors, Preprocessor preprocessor) {
+        SourceBytes code;
+        try {
+            code = Scanner.mapInputFile(file);
+        } catch (IOException | UncheckedIOException | IllegalArgumentException e) {
+            return new FileResult(file, 0, List.of("cannot read file: " + e.getMessage()));
+        }
+        return compileFile(file, code, maxErrors, preprocessor);
+    }
+
+    /** Compiles {@code code}, the contents of {@code file} already read or mapped by the caller. */
+    public static FileResult compileFile(Path file, SourceBytes code, int maxErrors, Preprocessor preprocessor) {
+        long bytes = code.length();
+        TokenBuffer tokens;
+        try {
+            tokens = preprocessor.preprocess(code, file);
+        } catch (IllegalArgumentException e) {
+            return new FileResult(file, bytes, List.of(e.getMessage()));
+        } catch (IOException | UncheckedIOException e) {
+            return new FileResult(file, bytes, List.of("cannot read include: " + e.getMessage()));
+        }
+        Parser parser = new Parser(tokens, true).setMaxErrors(maxErrors).setResolveNames(true);
+        parser.parseProgram();
+        List<String> errors = parser.getErrors();
+        if (!parser.reachedErrorLimit()) {
+            // files are already checked in parallel, so each file's functions are checked on this thread
+            errors.addAll(new TypeChecker(parser.getAst()).check().getErrors());
+        }
+        // a file with exactly maxErrors errors was still checked to the end
+        if (parser.reachedErrorLimit() || errors.size() > maxErrors) {
+            if (errors.size() > maxErrors) errors.subList(maxErrors, errors.size()).clear();
+            errors.add("too many errors, stopped after " + maxErrors);
+        }
+        return new FileResult(file, bytes, List.copyOf(errors));
+    }
+
+    // maps the file once, hashes the mapping and answers from the cache; on a miss compiles it and stores the result
+    private FileResult compileCached(Path file) {
+        SourceBytes code;
+        try {
+            code = Scanner.mapInputFile(file);
+        } catch (IOException | UncheckedIOException | IllegalArgumentException e) {
+            return new FileResult(file, 0, List.of("cannot read file: " + e.getMessage()));
+        }
+        byte[] key = CompileCache.key(code, cacheOptions(file));
+        CompileCache.Entry hit = cache.get(key);
+        if (hit != null) return new FileResult(file, hit.sourceBytes(), hit.diagnostics());
+
+        Preprocessor preprocessor = new Preprocessor(includePaths, headers);
+        FileResult result = compileFile(file, code, maxErrors, preprocessor);
+        // results of failed preprocessing may depend on files that do not exist yet, so they are not stored
+        TokenBuffer tokens = preprocessor.getSourceTokens();
+        if (tokens != null) {
+            try {
+                List<CompileCache.Dependency> dependencies = new ArrayList<>();
+                for (Path header : preprocessor.getIncludedFiles()) dependencies.add(CompileCache.Dependency.of(header));
+                for (Path miss : preprocessor.getIncludeMisses()) dependencies.add(CompileCache.Dependency.absent(miss));
+                cache.put(key, result.bytes(), tokens, result.diagnostics(), dependencies);
+            } catch (IOException | UncheckedIOException e) {
+                // a cache that cannot be written only costs speed
+            }
+        }
+        return result;
+    }
+
+    // quoted includes are searched for next to the file first, so identical files in two directories can differ
+    private String cacheOptions(Path file) {
+        StringBuilder sb = new StringBuilder("max-errors=").append(maxErrors);
+        sb.append(";dir=").append(file.toAbsolutePath().normalize().getParent());
+        for (Path p : includePaths) sb.append(";I=").append(p.toAbsolutePath().normalize());
+        return sb.toString();
+    }
+
+    private static List<Future<FileResult>> invokeAll(ExecutorService executor, List<Callable<FileResult>> tasks) {
+        try {
+            return executor.invokeAll(tasks);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("batch compilation interrupted", e);
+        }
+    }
+
+    private static Path resolve(Path base, String path) {
+        return base == null ? Paths.get(path) : base.resolve(path);
+    }
+
+    // a path under the working directory as relative to it, the way it would have been given
+    private static Path display(Path base, Path path) {
+        return base != null && path.startsWith(base) ? base.relativize(path) : path;
+    }
+
+    private static boolean isGlob(String s) {
+        return s.indexOf('*') >= 0 || s.indexOf('?') >= 0 || s.indexOf('[') >= 0 || s.indexOf('{') >= 0;
+    }
+
+    // walks from the longest wildcard-free directory prefix and matches the full pattern against each file
+    // a relative pattern given with a base is matched against paths relative to the base, and adds absolute paths
+    private static void addGlob(String pattern, TreeSet<Path> files, Path base) throws IOException {
+        String normalized = pattern.replace('\\', '/');
+        int firstWild = 0;
+        while (firstWild < normalized.length() && "*?[{".indexOf(normalized.charAt(firstWild)) < 0) firstWild++;
+        int slash = normalized.lastIndexOf('/', firstWild);
+        Path root = slash < 0 ? Paths.get(".") : Paths.get(normalized.substring(0, slash + 1));
+        boolean rebased = base != null && !root.isAbsolute();
+        Path from = rebased ? base.resolve(root).normalize() : root;
+        if (!Files.isDirectory(from)) return;
+        PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + normalized);
+        try (Stream<Path> walk = Files.walk(from)) {
+            walk.filter(Files::isRegularFile).forEach(p -> {
+                Path matched = rebased ? base.relativize(p) : slash < 0 ? root.relativize(p) : p;
+                if (matcher.matches(matched)) files.add(rebased ? p : matched.normalize());
+            });
+        }
+    }
+}
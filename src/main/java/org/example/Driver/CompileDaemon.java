@@ -0,0 +1,268 @@
+package org.example.Driver;
+
+import org.example.IR.Lowering;
+import org.example.IR.PassManager;
+import org.example.Parser.Parser;
+import org.example.Parser.TypeChecker;
+import org.example.Preprocessor.HeaderCache;
+import org.example.Preprocessor.Preprocessor;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Keeps one warm JVM answering compile requests on a Unix-domain socket, so checking a small file costs a round
+ * trip instead of JVM startup plus a cold, interpreted lexer and parser. Every connection carries one request and
+ * is handled on its own virtual thread; requests run concurrently and share the lexer automaton and the JIT-compiled
+ * code, nothing else. {@link DaemonClient} is the matching client.
+ * <p>
+ * A request is the client's working directory and command-line arguments, answered exactly as {@link BatchCompiler}
+ * or, for {@code --run}, {@link ProgramRunner} would answer them in that directory. Output is streamed back as it
+ * is printed, followed by the exit code. Both directions use {@link DataOutputStream} encoding:
+ * <pre>
+ * request:  int VERSION, UTF working directory, int n, n * UTF argument
+ * response: (byte OUTPUT, int length, bytes)*, byte EXIT, int exit code
+ * </pre>
+ * The arguments {@code --stop} alone ask the daemon to stop once it has answered.
+ */
+public final class CompileDaemon implements Closeable {
+    static final int VERSION = 1;
+    static final byte OUTPUT = 1;
+    static final byte EXIT = 2;
+    static final String STOP = "--stop";
+
+    // more arguments than any command line could carry; a larger count means the peer is not a client
+    private static final int MAX_ARGUMENTS = 1 << 16;
+
+    // something of everything the compiler does, for warmUp
+    private static final String WARM_UP_PROGRAM = """
+            #define LIMIT 40
+            #define SQUARE(x) ((x) * (x))
+            int sum() { int i; int s; s = 0; i = 0; if (i < LIMIT) { s = s + SQUARE(i); } return s; }
+            double mean() { double d; long n; n = 7; d = n / 2.0; return d > 1.5 ? d : -d; }
+            long mixed() { char c; short h; long l; c = 'a'; h = c + 1; l = h * 3; l = l % 5; return l << 2; }
+            int main() { int a; int b; a = 6; b = a * 7; if (b != 42) { return 1; } else { return 0; } }
+            """;
+
+    private final Path socket;
+    private final ServerSocketChannel server;
+    private final ExecutorService requests = Executors.newVirtualThreadPerTaskExecutor();
+    private volatile boolean closed;
+
+    private CompileDaemon(Path socket, ServerSocketChannel server) {
+        this.socket = socket;
+        this.server = server;
+    }
+
+    /**
+     * Listens on {@code socket}, readable and writable by this user only. A socket file left behind by a daemon that
+     * is gone is replaced; one a daemon still listens on is an error.
+     */
+    public static CompileDaemon bind(Path socket) throws IOException {
+        UnixDomainSocketAddress address = UnixDomainSocketAddress.of(socket);
+        if (Files.exists(socket)) {
+            if (isListening(address)) throw new IllegalStateException("a daemon is already listening on " + socket);
+            Files.delete(socket);
+        }
+        ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        try {
+            server.bind(address);
+            try {
+                Files.setPosixFilePermissions(socket, PosixFilePermissions.fromString("rw-------"));
+            } catch (UnsupportedOperationException e) {
+                // not a POSIX file system; the directory's permissions are all there is
+            }
+        } catch (IOException e) {
+            server.close();
+            throw e;
+        }
+        return new CompileDaemon(socket, server);
+    }
+
+    // whether something accepts connections on address; a socket file nobody listens on refuses them
+    private static boolean isListening(UnixDomainSocketAddress address) {
+        try {
+            SocketChannel.open(address).close();
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    public Path getSocket() {
+        return socket;
+    }
+
+    /**
+     * Preprocesses, parses, checks, lowers and optimizes a small built-in program {@code rounds} times, so the first
+     * requests already run JIT-compiled code.
+     */
+    public CompileDaemon warmUp(int rounds) {
+        HeaderCache headers = new HeaderCache();
+        for (int i = 0; i < rounds; i++) {
+            try {
+                Parser parser = new Parser(new Preprocessor(List.of(), headers).preprocess(WARM_UP_PROGRAM, null), true)
+                        .setResolveNames(true);
+                parser.parseProgram();
+                TypeChecker checker = new TypeChecker(parser.getAst()).check();
+                PassManager.standard().run(Lowering.lower(parser.getAst(), checker));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return this;
+    }
+
+    /** Answers requests until {@link #close}, or a {@code --stop} request, then waits for the requests in flight. */
+    public void serve() throws IOException {
+        try {
+            while (!closed) {
+                SocketChannel channel;
+                try {
+                    channel = server.accept();
+                } catch (ClosedChannelException e) {
+                    break;
+                }
+                requests.execute(() -> handle(channel));
+            }
+        } finally {
+            close();
+            requests.close();
+        }
+    }
+
+    /** Stops accepting requests and removes the socket file; requests already accepted still get their answer. */
+    @Override
+    public void close() throws IOException {
+        if (closed) return;
+        closed = true;
+        try {
+            server.close();
+        } finally {
+            Files.deleteIfExists(socket);
+        }
+    }
+
+    /**
+     * Command-line entry: {@code --daemon socket [--no-warm-up]}. Serves until a client sends {@code --stop}; returns
+     * the exit code.
+     */
+    public static int run(String[] args, PrintStream out) throws IOException {
+        Path socket = null;
+        boolean warmUp = true;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--daemon" -> {
+                    if (i + 1 >= args.length) throw new IllegalArgumentException(args[i] + " needs a socket path");
+                    socket = Paths.get(args[++i]);
+                }
+                case "--no-warm-up" -> warmUp = false;
+                default -> throw new IllegalArgumentException("unknown option " + args[i]);
+            }
+        }
+        if (socket == null) throw new IllegalArgumentException("--daemon needs a socket path");
+        try (CompileDaemon daemon = bind(socket)) {
+            if (warmUp) daemon.warmUp(200);
+            out.println("listening on " + socket);
+            daemon.serve();
+        }
+        return 0;
+    }
+
+    private void handle(SocketChannel channel) {
+        try (channel) {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+            PrintStream print = new PrintStream(new Frames(out), true);
+            int code;
+            boolean stop = false;
+            if (in.readInt() != VERSION) {
+                print.println("client and daemon versions differ; restart the daemon");
+                code = 1;
+            } else {
+                Path workingDirectory = Paths.get(in.readUTF());
+                int n = in.readInt();
+                if (n < 0 || n > MAX_ARGUMENTS) throw new IOException("bad argument count " + n);
+                String[] args = new String[n];
+                for (int i = 0; i < n; i++) args[i] = in.readUTF();
+                stop = n == 1 && args[0].equals(STOP);
+                code = stop ? 0 : execute(args, print, workingDirectory);
+            }
+            print.flush();
+            out.writeByte(EXIT);
+            out.writeInt(code);
+            out.flush();
+            if (stop) close();
+        } catch (IOException e) {
+            // the client went away or is not a client; there is no one left to tell
+        }
+    }
+
+    // one request, with every failure turned into a message and exit code 1 so the client always gets an answer
+    static int execute(String[] args, PrintStream out, Path workingDirectory) {
+        if (args.length == 0) {
+            out.println("no inputs; console mode is not available through the daemon");
+            return 1;
+        }
+        for (String arg : args) {
+            if (arg.startsWith("--metrics")) {
+                out.println("--metrics would count every request of the daemon; record the daemon with JFR instead");
+                return 1;
+            }
+        }
+        try {
+            return args[0].equals("--run") ? ProgramRunner.run(args, out, workingDirectory)
+                    : BatchCompiler.run(args, out, workingDirectory);
+        } catch (IOException | RuntimeException e) {
+            out.println("error: " + e);
+            return 1;
+        }
+    }
+
+    // writes every chunk of output as one OUTPUT frame
+    private static final class Frames extends OutputStream {
+        private final DataOutputStream out;
+
+        Frames(DataOutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (len == 0) return;
+            out.writeByte(OUTPUT);
+            out.writeInt(len);
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package org.example.Driver;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+/**
+ * The client side of {@link CompileDaemon}: forwards a command line and its working directory and copies the
+ * daemon's output to a stream as it arrives. It uses none of the compiler, so it starts as fast as a JVM can.
+ */
+public final class DaemonClient {
+    private DaemonClient() {
+    }
+
+    /** Runs {@code args} on the daemon at {@code socket} as if in {@code workingDirectory}; returns the exit code. */
+    public static int send(Path socket, Path workingDirectory, String[] args, OutputStream out) throws IOException {
+        try (SocketChannel channel = SocketChannel.open(UnixDomainSocketAddress.of(socket))) {
+            DataOutputStream request = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+            request.writeInt(CompileDaemon.VERSION);
+            request.writeUTF(workingDirectory.toAbsolutePath().normalize().toString());
+            request.writeInt(args.length);
+            for (String arg : args) request.writeUTF(arg);
+            request.flush();
+
+            DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+            byte[] chunk = new byte[8192];
+            while (true) {
+                byte frame;
+                try {
+                    frame = in.readByte();
+                } catch (EOFException e) {
+                    throw new IOException("the daemon closed the connection without an answer");
+                }
+                if (frame == CompileDaemon.EXIT) return in.readInt();
+                if (frame != CompileDaemon.OUTPUT) throw new IOException("unexpected frame " + frame + " from the daemon");
+                int length = in.readInt();
+                if (length > chunk.length) chunk = new byte[length];
+                in.readFully(chunk, 0, length);
+                out.write(chunk, 0, length);
+                out.flush();
+            }
+        }
+    }
+
+    /** Asks the daemon at {@code socket} to stop once it has answered the requests in flight. */
+    public static void stop(Path socket) throws IOException {
+        send(socket, Paths.get(""), new String[] {CompileDaemon.STOP}, OutputStream.nullOutputStream());
+    }
+
+    /** Command-line entry: {@code --connect socket args...}, with {@code args} as {@code Main} takes them. */
+    public static int run(String[] args, OutputStream out) throws IOException {
+        if (args.length < 2 || !args[0].equals("--connect")) throw new IllegalArgumentException("--connect needs a socket path");
+        return send(Paths.get(args[1]), Paths.get(""), Arrays.copyOfRange(args, 2, args.length), out);
+    }
+}
@@ -0,0 +1,125 @@
+package org.example.Driver;
+
+import org.example.Bytecode.BytecodeCompiler;
+import org.example.IR.IrFunction;
+import org.example.IR.Lowering;
+import org.example.IR.PassManager;
+import org.example.Interpreter.Interpreter;
+import org.example.Parser.Parser;
+import org.example.Parser.TypeChecker;
+import org.example.Preprocessor.HeaderCache;
+import org.example.Preprocessor.Preprocessor;
+import org.example.Tokens.TokenBuffer;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compiles one file down to JVM bytecode, or for the {@link Interpreter}, and calls one of its functions with every
+ * local 0, printing the result. Syntax and type errors are printed like batch mode's and nothing runs.
+ */
+public final class ProgramRunner {
+    private ProgramRunner() {
+    }
+
+    /**
+     * Command-line entry: {@code --run file [--function name] [--interpret] [--no-optimize] [--dump-classes dir] [-I dir]...};
+     * the function defaults to {@code main}. Returns the exit code.
+     */
+    public static int run(String[] args, PrintStream out) throws IOException {
+        return run(args, out, null);
+    }
+
+    /** Same as {@link #run(String[], PrintStream)}, with relative paths resolved against {@code workingDirectory} unless it is null. */
+    public static int run(String[] args, PrintStream out, Path workingDirectory) throws IOException {
+        Path file = null;
+        String function = "main";
+        boolean optimize = true;
+        boolean interpret = false;
+        Path dumpDirectory = null;
+        List<Path> includePaths = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--run" -> {
+                    if (i + 1 >= args.length) throw new IllegalArgumentException(args[i] + " needs a file");
+                    file = Paths.get(args[++i]);
+                }
+                case "--function" -> {
+                    if (i + 1 >= args.length) throw new IllegalArgumentException(args[i] + " needs a name");
+                    function = args[++i];
+                }
+                case "--no-optimize" -> optimize = false;
+                case "--interpret" -> interpret = true;
+                case "--dump-classes" -> {
+                    if (i + 1 >= args.length) throw new IllegalArgumentException(args[i] + " needs a directory");
+                    dumpDirectory = resolve(workingDirectory, args[++i]);
+                }
+                case "-I", "--include-path" -> {
+                    if (i + 1 >= args.length) throw new IllegalArgumentException(args[i] + " needs a directory");
+                    includePaths.add(resolve(workingDirectory, args[++i]));
+                }
+                default -> throw new IllegalArgumentException("unknown option " + args[i]);
+            }
+        }
+        if (file == null) throw new IllegalArgumentException("--run needs a file");
+
+        // the file is named in messages as it was given
+        Path source = resolve(workingDirectory, file.toString());
+        TokenBuffer tokens = new Preprocessor(includePaths, new HeaderCache()).preprocess(source);
+        Parser parser = new Parser(tokens, true).setResolveNames(true);
+        parser.parseProgram();
+        List<String> errors = parser.getErrors();
+        TypeChecker checker = null;
+        if (errors.isEmpty()) {
+            checker = new TypeChecker(parser.getAst()).check();
+            errors = checker.getErrors();
+        }
+        if (!errors.isEmpty()) {
+            for (String e : errors) out.println(file + ": " + e);
+            return 1;
+        }
+
+        List<IrFunction> functions = Lowering.lower(parser.getAst(), checker);
+        if (optimize) PassManager.standard().run(functions);
+        IrFunction target = null;
+        for (IrFunction f : functions) {
+            if (f.getName().equals(function)) target = f;
+        }
+        if (target == null) {
+            out.println(file + ": no function '" + function + "'");
+            return 1;
+        }
+        try {
+            long result = interpret ? new Interpreter(functions).invoke(function)
+                    : new BytecodeCompiler().setDumpDirectory(dumpDirectory).load(className(file), functions).invoke(function);
+            out.println(target.getResult() == null ? function + "() returned"
+                    : function + "() = " + IrFunction.format(target.getResult(), result));
+            return 0;
+        } catch (ArithmeticException e) {
+            out.println(function + "() failed: " + e.getMessage());
+            return 1;
+        }
+    }
+
+    private static Path resolve(Path base, String path) {
+        return base == null ? Paths.get(path) : base.resolve(path);
+    }
+
+    // the file name without its extension, made into a Java identifier
+    static String className(Path file) {
+        String name = file.getFileName().toString();
+        int dot = name.indexOf('.');
+        if (dot > 0) name = name.substring(0, dot);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            sb.append(Character.isJavaIdentifierPart(c) ? c : '_');
+        }
+        if (sb.isEmpty() || !Character.isJavaIdentifierStart(sb.charAt(0))) sb.insert(0, 'C');
+        return sb.toString();
+    }
+}
@@ -0,0 +1,82 @@
+package org.example.IR;
+
+/**
+ * Local value numbering: within a basic block, an op that computes the same operation on the same registers
+ * (or loads the same constant) as an earlier one becomes a move from that one's result, as long as none of
+ * those registers was written in between. Commutative operands are put in order first, so {@code a + b} and
+ * {@code b + a} match.
+ */
+public final class CommonSubexpressions implements Pass {
+    private long[] keys;
+    private int[] results;
+    private int[] stamps;
+    private int[] definedAt;
+    private int blockStart;
+
+    @Override
+    public String name() {
+        return "common-subexpressions";
+    }
+
+    @Override
+    public boolean run(IrFunction f) {
+        boolean[] leader = f.leaders();
+        int capacity = Integer.highestOneBit(Math.max(16, f.size * 2)) * 2;
+        keys = new long[capacity];
+        results = new int[capacity];
+        // a slot is free unless its stamp is in the current block
+        stamps = new int[capacity];
+        definedAt = new int[f.registers];
+        boolean changed = false;
+        int clock = 1;
+        blockStart = 1;
+        for (int i = 0; i < f.size; i++) {
+            clock++;
+            if (leader[i]) blockStart = clock;
+            Op op = f.op(i);
+            if (!op.defines()) continue;
+            int dst = f.dst[i];
+            if (op == Op.MOVE) {
+                definedAt[dst] = clock;
+                continue;
+            }
+            if (op.isCommutative() && f.a[i] > f.b[i]) {
+                int t = f.a[i];
+                f.a[i] = f.b[i];
+                f.b[i] = t;
+            }
+            int a = f.a[i];
+            // a constant's key includes the kind, since the same bits are a different value in another kind
+            int b = op == Op.CONST ? f.kinds[dst] : op.uses == 2 ? f.b[i] : 0;
+            long key = ((long) op.ordinal() << 56) | ((long) a << 28) | b;
+            int slot = find(key);
+            if (stamps[slot] >= blockStart && keys[slot] == key && isAvailable(slot, op, a, b) && results[slot] != dst) {
+                f.set(i, Op.MOVE, dst, results[slot], -1);
+                definedAt[dst] = clock;
+                changed = true;
+                continue;
+            }
+            definedAt[dst] = clock;
+            keys[slot] = key;
+            results[slot] = dst;
+            stamps[slot] = clock;
+        }
+        return changed;
+    }
+
+    // the slot holding key, or the free slot where it belongs
+    private int find(long key) {
+        int mask = keys.length - 1;
+        int slot = Long.hashCode(key * 0x9E3779B97F4A7C15L) & mask;
+        while (stamps[slot] >= blockStart && keys[slot] != key) slot = (slot + 1) & mask;
+        return slot;
+    }
+
+    // the remembered result still holds the value: neither it nor the operands were written after it
+    private boolean isAvailable(int slot, Op op, int a, int b) {
+        int at = stamps[slot];
+        if (definedAt[results[slot]] != at) return false;
+        if (op == Op.CONST) return true;
+        return definedAt[a] < at && (op.uses < 2 || definedAt[b] < at);
+    }
+}
@@ -0,0 +1,81 @@
+package org.example.IR;
+
+/**
+ * Evaluates ops whose operands are known constants within a basic block, replacing them with {@code CONST},
+ * turns branches on known conditions into jumps or nothing, and rewrites integer identities such as
+ * {@code x + 0} and {@code x * 1} into moves. Integer division by a constant zero is left to trap at run time.
+ */
+public final class ConstantFolding implements Pass {
+    @Override
+    public String name() {
+        return "constant-folding";
+    }
+
+    @Override
+    public boolean run(IrFunction f) {
+        boolean[] leader = f.leaders();
+        long[] value = new long[f.registers];
+        // block number (from 1) in which the register's value became known; stale once the block ends
+        int[] knownIn = new int[f.registers];
+        int block = 0;
+        boolean changed = false;
+        for (int i = 0; i < f.size; i++) {
+            if (leader[i]) block++;
+            Op op = f.op(i);
+            int a = f.a[i];
+            int b = f.b[i];
+            switch (op) {
+                case NOP, JUMP, RETURN -> {
+                }
+                case CONST -> {
+                    value[f.dst[i]] = f.constants[a];
+                    knownIn[f.dst[i]] = block;
+                }
+                // a move stays a move (a constant would undo common subexpressions); copy propagation forwards it
+                case MOVE -> {
+                    value[f.dst[i]] = value[a];
+                    knownIn[f.dst[i]] = knownIn[a] == block ? block : 0;
+                }
+                case JZ -> {
+                    if (knownIn[a] == block) {
+                        if (value[a] == 0) f.set(i, Op.JUMP, -1, b, -1);
+                        else f.delete(i);
+                        changed = true;
+                    }
+                }
+                default -> {
+                    int dst = f.dst[i];
+                    boolean knownA = knownIn[a] == block;
+                    boolean knownB = op.uses < 2 || knownIn[b] == block;
+                    long y = op.uses < 2 ? 0 : value[b];
+                    if (knownA && knownB && !(op.canTrap() && y == 0)) {
+                        long v = op.apply(value[a], y);
+                        f.set(i, Op.CONST, dst, f.constantIndex(v), -1);
+                        value[dst] = v;
+                        knownIn[dst] = block;
+                        changed = true;
+                        continue;
+                    }
+                    knownIn[dst] = 0;
+                    if (op.uses == 2 && knownB && isIdentity(op, y)) {
+                        f.set(i, Op.MOVE, dst, a, -1);
+                        changed = true;
+                    } else if (op.uses == 2 && knownA && op.isCommutative() && isIdentity(op, value[a])) {
+                        f.set(i, Op.MOVE, dst, b, -1);
+                        changed = true;
+                    }
+                }
+            }
+        }
+        return changed;
+    }
+
+    // x op c == x for every integer x (doubles are left alone because of -0.0 and NaN)
+    private static boolean isIdentity(Op op, long c) {
+        return switch (op) {
+            case ADD_I, SUB_I, OR_I, XOR_I, SHL_I, SHR_I, ADD_L, SUB_L, OR_L, XOR_L, SHL_L, SHR_L -> c == 0;
+            case MUL_I, DIV_I, MUL_L, DIV_L -> c == 1;
+            default -> false;
+        };
+    }
+}
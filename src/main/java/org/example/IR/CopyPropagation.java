@@ -0,0 +1,74 @@
+package org.example.IR;
+
+/**
+ * Within a basic block, replaces reads of the destination of {@code MOVE d, s} with {@code s} until either
+ * register is written again, and drops moves of a register to itself. The moves themselves are left for
+ * {@link DeadCodeElimination} once nothing reads them.
+ */
+public final class CopyPropagation implements Pass {
+    private int[] copyOf;
+    private int[] copyAt;
+    private int[] definedAt;
+    private int blockStart;
+
+    @Override
+    public String name() {
+        return "copy-propagation";
+    }
+
+    @Override
+    public boolean run(IrFunction f) {
+        boolean[] leader = f.leaders();
+        copyOf = new int[f.registers];
+        copyAt = new int[f.registers];
+        definedAt = new int[f.registers];
+        boolean changed = false;
+        // a clock of one tick per instruction, starting above 0 so registers never written count as older
+        int clock = 1;
+        blockStart = 1;
+        for (int i = 0; i < f.size; i++) {
+            clock++;
+            if (leader[i]) blockStart = clock;
+            Op op = f.op(i);
+            if (op == Op.NOP || op == Op.CONST || op == Op.JUMP) {
+                if (op == Op.CONST) define(f.dst[i], -1, clock);
+                continue;
+            }
+            if (op.uses >= 1 && f.a[i] >= 0) {
+                int source = source(f.a[i]);
+                if (source != f.a[i]) {
+                    f.a[i] = source;
+                    changed = true;
+                }
+            }
+            if (op.uses == 2) {
+                int source = source(f.b[i]);
+                if (source != f.b[i]) {
+                    f.b[i] = source;
+                    changed = true;
+                }
+            }
+            if (!op.defines()) continue;
+            if (op == Op.MOVE && f.a[i] == f.dst[i]) {
+                f.delete(i);
+                changed = true;
+                continue;
+            }
+            define(f.dst[i], op == Op.MOVE ? f.a[i] : -1, clock);
+        }
+        return changed;
+    }
+
+    private void define(int register, int copy, int clock) {
+        definedAt[register] = clock;
+        copyOf[register] = copy;
+        copyAt[register] = clock;
+    }
+
+    // what register holds the same value as r here: its copy source if neither was written since the copy
+    private int source(int r) {
+        int s = copyOf[r];
+        if (s < 0 || copyAt[r] < blockStart || definedAt[r] != copyAt[r] || definedAt[s] >= copyAt[r]) return r;
+        return s;
+    }
+}
@@ -0,0 +1,142 @@
+package org.example.IR;
+
+import java.util.BitSet;
+
+/**
+ * Removes instructions that can never run, jumps to the next instruction, and ops whose result is never read on
+ * any path (using liveness over the whole function, iterated to a fixed point). Ops that can trap are kept.
+ */
+public final class DeadCodeElimination implements Pass {
+    @Override
+    public String name() {
+        return "dead-code-elimination";
+    }
+
+    @Override
+    public boolean run(IrFunction f) {
+        boolean changed = removeUnreachable(f);
+        changed |= removeJumpsToNext(f);
+
+        boolean[] leader = f.leaders();
+        int[] blockStart = new int[f.size + 1];
+        int[] blockOf = new int[f.size + 1];
+        int blocks = 0;
+        for (int i = 0; i < f.size; i++) {
+            if (leader[i]) blockStart[blocks++] = i;
+            blockOf[i] = blocks - 1;
+        }
+        blockStart[blocks] = f.size;
+        blockOf[f.size] = blocks;
+
+        // uses before definition and definitions per block, then live-in = use | (live-out & ~def)
+        BitSet[] use = new BitSet[blocks];
+        BitSet[] def = new BitSet[blocks];
+        BitSet[] liveIn = new BitSet[blocks + 1];
+        for (int k = 0; k < blocks; k++) {
+            use[k] = new BitSet();
+            def[k] = new BitSet();
+            liveIn[k] = new BitSet();
+            for (int i = blockStart[k]; i < blockStart[k + 1]; i++) {
+                Op op = f.op(i);
+                if (op == Op.CONST || op == Op.JUMP) {
+                    if (op == Op.CONST) def[k].set(f.dst[i]);
+                    continue;
+                }
+                if (op.uses >= 1 && f.a[i] >= 0 && !def[k].get(f.a[i])) use[k].set(f.a[i]);
+                if (op.uses == 2 && !def[k].get(f.b[i])) use[k].set(f.b[i]);
+                if (op.defines()) def[k].set(f.dst[i]);
+            }
+        }
+        liveIn[blocks] = new BitSet();
+        BitSet[] liveOut = new BitSet[blocks];
+        boolean growing = true;
+        while (growing) {
+            growing = false;
+            // successors are mostly later blocks, so walking backwards converges in one or two sweeps
+            for (int k = blocks - 1; k >= 0; k--) {
+                BitSet out = liveOut(f, k, blockStart, blockOf, liveIn);
+                liveOut[k] = out;
+                out.andNot(def[k]);
+                out.or(use[k]);
+                if (!out.equals(liveIn[k])) {
+                    liveIn[k] = out;
+                    growing = true;
+                }
+            }
+        }
+
+        for (int k = 0; k < blocks; k++) {
+            BitSet live = liveOut(f, k, blockStart, blockOf, liveIn);
+            for (int i = blockStart[k + 1] - 1; i >= blockStart[k]; i--) {
+                Op op = f.op(i);
+                if (op.defines()) {
+                    if (!live.get(f.dst[i]) && !op.canTrap()) {
+                        f.delete(i);
+                        changed = true;
+                        continue;
+                    }
+                    live.clear(f.dst[i]);
+                }
+                if (op == Op.CONST || op == Op.JUMP) continue;
+                if (op.uses >= 1 && f.a[i] >= 0) live.set(f.a[i]);
+                if (op.uses == 2) live.set(f.b[i]);
+            }
+        }
+        return changed;
+    }
+
+    private static BitSet liveOut(IrFunction f, int k, int[] blockStart, int[] blockOf, BitSet[] liveIn) {
+        BitSet out = new BitSet();
+        int last = blockStart[k + 1] - 1;
+        Op op = f.op(last);
+        if (op.isBranch()) out.or(liveIn[blockOf[f.target(last)]]);
+        if (op != Op.JUMP && op != Op.RETURN) out.or(liveIn[k + 1]);
+        return out;
+    }
+
+    private static boolean removeUnreachable(IrFunction f) {
+        boolean[] reached = new boolean[f.size + 1];
+        int[] stack = new int[f.size + 1];
+        int top = 0;
+        stack[top++] = 0;
+        reached[0] = true;
+        while (top > 0) {
+            int i = stack[--top];
+            if (i == f.size) continue;
+            Op op = f.op(i);
+            if (op.isBranch() && !reached[f.target(i)]) {
+                reached[f.target(i)] = true;
+                stack[top++] = f.target(i);
+            }
+            if (op != Op.JUMP && op != Op.RETURN && !reached[i + 1]) {
+                reached[i + 1] = true;
+                stack[top++] = i + 1;
+            }
+        }
+        boolean changed = false;
+        for (int i = 0; i < f.size; i++) {
+            if (!reached[i] && f.op(i) != Op.NOP) {
+                f.delete(i);
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    // a branch whose target is the next instruction that is not a NOP does nothing either way
+    private static boolean removeJumpsToNext(IrFunction f) {
+        boolean changed = false;
+        for (int i = 0; i < f.size; i++) {
+            if (!f.op(i).isBranch()) continue;
+            int next = i + 1;
+            while (next < f.size && f.op(next) == Op.NOP) next++;
+            int target = f.target(i);
+            while (target < f.size && f.op(target) == Op.NOP) target++;
+            if (target == next) {
+                f.delete(i);
+                changed = true;
+            }
+        }
+        return changed;
+    }
+}
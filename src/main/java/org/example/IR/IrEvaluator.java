@@ -0,0 +1,37 @@
+package org.example.IR;
+
+/**
+ * The plainest possible reading of the IR: one {@link Op#apply} per instruction over a {@code long[]} of
+ * register values. It is the reference that optimized and compiled code is checked against, and the baseline
+ * the faster backends are measured against.
+ */
+public final class IrEvaluator {
+    private IrEvaluator() {
+    }
+
+    /**
+     * Runs {@code f} with its first locals set to {@code inputs} (the rest 0) and returns the result as a register
+     * value (see {@link Kind}), or 0 for a void function; integer division by zero throws {@link ArithmeticException}.
+     */
+    public static long run(IrFunction f, long... inputs) {
+        long[] r = new long[f.getRegisterCount()];
+        System.arraycopy(inputs, 0, r, 0, Math.min(inputs.length, f.getVariableCount()));
+        int pc = 0;
+        while (true) {
+            Op op = f.op(pc);
+            switch (op) {
+                case NOP -> pc++;
+                case CONST -> r[f.dst(pc++)] = f.constant(f.a(pc - 1));
+                case JUMP -> pc = f.a(pc);
+                case JZ -> pc = r[f.a(pc)] == 0 ? f.b(pc) : pc + 1;
+                case RETURN -> {
+                    return f.a(pc) < 0 ? 0 : r[f.a(pc)];
+                }
+                default -> {
+                    r[f.dst(pc)] = op.apply(r[f.a(pc)], op.uses == 2 ? r[f.b(pc)] : 0);
+                    pc++;
+                }
+            }
+        }
+    }
+}
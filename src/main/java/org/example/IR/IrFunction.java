@@ -0,0 +1,210 @@
+package org.example.IR;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * One function in three-address form: instructions {@code op dst, a, b} (see {@link Op}) in parallel primitive
+ * arrays, over numbered registers of a fixed {@link Kind}. Registers {@code [0, variables)} are the function's
+ * declared locals in declaration order; they start out holding the inputs of the call, so code that reads a
+ * local before assigning it is not constant. Every other register is a temporary.
+ * <p>
+ * Passes rewrite instructions in place, turning deleted ones into {@code NOP}, and call {@link #compact} to
+ * drop them and retarget jumps.
+ */
+public final class IrFunction {
+    private static final Kind[] KINDS = Kind.values();
+
+    private final String name;
+    private final Kind result;
+    private final String[] variableNames;
+
+    byte[] ops = new byte[64];
+    int[] dst = new int[64];
+    int[] a = new int[64];
+    int[] b = new int[64];
+    int size;
+
+    byte[] kinds = new byte[64];
+    int registers;
+
+    long[] constants = new long[16];
+    int constantCount;
+    private final Map<Long, Integer> constantIndex = new HashMap<>();
+
+    /** A function returning {@code result} (null for void) whose locals are named {@code variableNames}. */
+    public IrFunction(String name, Kind result, String[] variableNames, Kind[] variableKinds) {
+        this.name = name;
+        this.result = result;
+        this.variableNames = variableNames.clone();
+        for (Kind k : variableKinds) newRegister(k);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /** The kind of the returned value, or null for a void function. */
+    public Kind getResult() {
+        return result;
+    }
+
+    public int getVariableCount() {
+        return variableNames.length;
+    }
+
+    public String getVariableName(int variable) {
+        return variableNames[variable];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getRegisterCount() {
+        return registers;
+    }
+
+    public Op op(int i) {
+        return Op.of(ops[i]);
+    }
+
+    public int dst(int i) {
+        return dst[i];
+    }
+
+    public int a(int i) {
+        return a[i];
+    }
+
+    public int b(int i) {
+        return b[i];
+    }
+
+    public Kind kind(int register) {
+        return KINDS[kinds[register]];
+    }
+
+    public long constant(int index) {
+        return constants[index];
+    }
+
+    public int newRegister(Kind kind) {
+        if (registers == kinds.length) kinds = Arrays.copyOf(kinds, registers * 2);
+        kinds[registers] = (byte) kind.ordinal();
+        return registers++;
+    }
+
+    /** The pool index of {@code bits}, adding it if new. */
+    public int constantIndex(long bits) {
+        Integer index = constantIndex.get(bits);
+        if (index != null) return index;
+        if (constantCount == constants.length) constants = Arrays.copyOf(constants, constantCount * 2);
+        constants[constantCount] = bits;
+        constantIndex.put(bits, constantCount);
+        return constantCount++;
+    }
+
+    /** Appends an instruction and returns its index, e.g. to patch a jump target later. */
+    public int emit(Op op, int dst, int a, int b) {
+        if (size == ops.length) {
+            int capacity = size * 2;
+            ops = Arrays.copyOf(ops, capacity);
+            this.dst = Arrays.copyOf(this.dst, capacity);
+            this.a = Arrays.copyOf(this.a, capacity);
+            this.b = Arrays.copyOf(this.b, capacity);
+        }
+        ops[size] = (byte) op.ordinal();
+        this.dst[size] = dst;
+        this.a[size] = a;
+        this.b[size] = b;
+        return size++;
+    }
+
+    /** Sets the target of the {@code JUMP} or {@code JZ} at {@code i}. */
+    public void setTarget(int i, int target) {
+        if (op(i) == Op.JUMP) a[i] = target;
+        else b[i] = target;
+    }
+
+    public int target(int i) {
+        return op(i) == Op.JUMP ? a[i] : b[i];
+    }
+
+    void set(int i, Op op, int dst, int a, int b) {
+        ops[i] = (byte) op.ordinal();
+        this.dst[i] = dst;
+        this.a[i] = a;
+        this.b[i] = b;
+    }
+
+    void delete(int i) {
+        ops[i] = (byte) Op.NOP.ordinal();
+    }
+
+    /** Marks the first instruction of every basic block: the entry, jump targets and instructions after a jump or return. */
+    boolean[] leaders() {
+        boolean[] leader = new boolean[size + 1];
+        leader[0] = true;
+        for (int i = 0; i < size; i++) {
+            Op op = op(i);
+            if (op.isBranch()) leader[target(i)] = true;
+            if (op.endsBlock()) leader[i + 1] = true;
+        }
+        return leader;
+    }
+
+    /** Drops {@code NOP}s and retargets jumps; returns the number of instructions removed. */
+    int compact() {
+        // newIndex[i]: where instruction i, or the first kept one after it, ends up
+        int[] newIndex = new int[size + 1];
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            newIndex[i] = kept;
+            if (ops[i] != Op.NOP.ordinal()) kept++;
+        }
+        newIndex[size] = kept;
+        if (kept == size) return 0;
+        int out = 0;
+        for (int i = 0; i < size; i++) {
+            Op op = op(i);
+            if (op == Op.NOP) continue;
+            set(out, op, dst[i], a[i], b[i]);
+            if (op.isBranch()) setTarget(out, newIndex[target(i)]);
+            out++;
+        }
+        int removed = size - out;
+        size = out;
+        return removed;
+    }
+
+    /** One instruction per line, e.g. {@code 3: r5 = add.i r0, r4}, for tests and debugging. */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(name).append(":\n");
+        for (int i = 0; i < size; i++) {
+            sb.append(i).append(": ");
+            Op op = op(i);
+            String mnemonic = op.name().toLowerCase().replace('_', '.');
+            switch (op) {
+                case JUMP -> sb.append("jump @").append(a[i]);
+                case JZ -> sb.append("jz r").append(a[i]).append(", @").append(b[i]);
+                case RETURN -> sb.append(a[i] < 0 ? "return" : "return r" + a[i]);
+                case NOP -> sb.append("nop");
+                case CONST -> sb.append('r').append(dst[i]).append(" = const ").append(format(kind(dst[i]), constants[a[i]]));
+                default -> {
+                    sb.append('r').append(dst[i]).append(" = ").append(mnemonic).append(" r").append(a[i]);
+                    if (op.uses == 2) sb.append(", r").append(b[i]);
+                }
+            }
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+
+    /** A register value as source text: the integer, or the double. */
+    public static String format(Kind kind, long bits) {
+        return kind == Kind.D ? Double.toString(Double.longBitsToDouble(bits)) : Long.toString(bits);
+    }
+}
@@ -0,0 +1,25 @@
+package org.example.IR;
+
+import org.example.Parser.Type;
+
+/**
+ * Machine type of an IR register. Every value is held in a {@code long}: {@code I} and {@code L} as the
+ * sign-extended integer, {@code D} as the raw bits of a double.
+ */
+public enum Kind {
+    /** 32-bit int; char and short values are kept narrowed to their range */
+    I,
+    /** 64-bit long */
+    L,
+    /** double; float values are kept rounded to float */
+    D;
+
+    public static Kind of(Type type) {
+        return switch (type) {
+            case CHAR, SHORT, INT -> I;
+            case LONG -> L;
+            case FLOAT, DOUBLE -> D;
+            default -> throw new IllegalArgumentException("no machine type for " + type);
+        };
+    }
+}
@@ -0,0 +1,508 @@
+package org.example.IR;
+
+import org.example.Metrics.Phase;
+import org.example.Metrics.PhaseEvent;
+import org.example.Parser.Ast;
+import org.example.Parser.AstVisitor;
+import org.example.Parser.NodeKind;
+import org.example.Parser.SymbolTable;
+import org.example.Parser.Type;
+import org.example.Parser.TypeChecker;
+import org.example.Tokens.TokenBuffer;
+import org.example.Tokens.TokenKind;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Lowers a type-checked {@link Ast} into one {@link IrFunction} per function. Every implicit conversion the
+ * checker inferred becomes an explicit conversion op, values stored to char, short and float locals are
+ * narrowed, {@code &&}, {@code ||} and {@code ?:} become branches, and a function that runs off its end
+ * returns 0. Expressions are lowered with an explicit stack, so nesting depth is not limited by the Java stack.
+ * <p>
+ * String literals have no machine type, so programs that compute with them are rejected, as are programs
+ * with type errors or undeclared names.
+ */
+public final class Lowering {
+    private final Ast ast;
+    private final TokenBuffer tokens;
+    private final TypeChecker types;
+    // by name id: the register of the visible local
+    private final SymbolTable scopes = new SymbolTable();
+    private IrFunction f;
+    private Type[] variableTypes;
+    private int nextVariable;
+
+    // expression frames: node, how many children are done, and two values kept between stages
+    private int[] frameNode = new int[16];
+    private int[] frameStage = new int[16];
+    private int[] frameValue = new int[16];
+    private int[] frameJump = new int[16];
+    private int depth;
+
+    private Lowering(Ast ast, TypeChecker types) {
+        this.ast = ast;
+        this.tokens = ast.getTokens();
+        this.types = types;
+    }
+
+    /** Lowers every function of {@code ast}; {@code types} must be a finished check of the same tree. */
+    public static List<IrFunction> lower(Ast ast, TypeChecker types) {
+        if (types.hasErrors()) {
+            throw new IllegalArgumentException("cannot lower a program with type errors: " + types.getErrors().get(0));
+        }
+        PhaseEvent event = PhaseEvent.begin(Phase.LOWER);
+        Lowering lowering = new Lowering(ast, types);
+        List<IrFunction> out = new ArrayList<>();
+        for (int fn = ast.size() > 0 ? ast.firstChild(ast.root()) : Ast.NONE; fn != Ast.NONE; fn = ast.nextSibling(fn)) {
+            out.add(lowering.function(fn));
+        }
+        event.finish();
+        return out;
+    }
+
+    private IrFunction function(int fn) {
+        Type result = Type.of(tokens.getKind(ast.token(fn)));
+        int body = ast.nextSibling(ast.firstChild(fn));
+
+        // locals get registers 0..n-1 in declaration order, which is also the order they are lowered in
+        List<String> names = new ArrayList<>();
+        List<Type> declared = new ArrayList<>();
+        ast.walk(body, new AstVisitor() {
+            @Override
+            public boolean enter(Ast ast, int node) {
+                if (ast.kind(node) != NodeKind.VAR_DECL) return true;
+                Type type = Type.of(tokens.getKind(ast.token(node)));
+                for (int n = ast.firstChild(node); n != Ast.NONE; n = ast.nextSibling(n)) {
+                    names.add(ast.text(n));
+                    declared.add(type);
+                }
+                return false;
+            }
+        });
+        variableTypes = declared.toArray(new Type[0]);
+        Kind[] kinds = new Kind[variableTypes.length];
+        for (int v = 0; v < kinds.length; v++) kinds[v] = Kind.of(variableTypes[v]);
+        f = new IrFunction(ast.text(ast.firstChild(fn)), result == Type.VOID ? null : Kind.of(result),
+                names.toArray(new String[0]), kinds);
+        nextVariable = 0;
+
+        // inputs are narrowed like any value stored to the local
+        for (int v = 0; v < variableTypes.length; v++) {
+            Op narrow = narrowing(variableTypes[v]);
+            if (narrow != null) f.emit(narrow, v, v, -1);
+        }
+        statement(body, result);
+        if (result == Type.VOID) {
+            f.emit(Op.RETURN, -1, -1, -1);
+        } else {
+            f.emit(Op.RETURN, -1, constant(Kind.of(result), 0), -1);
+        }
+        return f;
+    }
+
+    // statements nest no deeper than the parser's recursion already allowed
+    private void statement(int node, Type result) {
+        switch (ast.kind(node)) {
+            case BLOCK -> {
+                scopes.pushScope();
+                for (int c = ast.firstChild(node); c != Ast.NONE; c = ast.nextSibling(c)) statement(c, result);
+                scopes.popScope();
+            }
+            case VAR_DECL -> {
+                for (int n = ast.firstChild(node); n != Ast.NONE; n = ast.nextSibling(n)) {
+                    scopes.declare(tokens.getNameId(ast.token(n)), nextVariable++);
+                }
+            }
+            case IF -> {
+                int condition = ast.firstChild(node);
+                int then = ast.nextSibling(condition);
+                int otherwise = ast.nextSibling(then);
+                int skipThen = f.emit(Op.JZ, -1, test(expression(condition), type(condition)), -1);
+                statement(then, result);
+                if (otherwise == Ast.NONE) {
+                    f.setTarget(skipThen, f.size());
+                } else {
+                    int skipElse = f.emit(Op.JUMP, -1, -1, -1);
+                    f.setTarget(skipThen, f.size());
+                    statement(otherwise, result);
+                    f.setTarget(skipElse, f.size());
+                }
+            }
+            case RETURN -> {
+                int value = ast.firstChild(node);
+                if (result == Type.VOID) {
+                    f.emit(Op.RETURN, -1, -1, -1);
+                } else {
+                    f.emit(Op.RETURN, -1, convert(expression(value), type(value), result), -1);
+                }
+            }
+            case EXPRESSION_STATEMENT -> expression(ast.firstChild(node));
+            default -> throw new IllegalArgumentException("cannot lower " + ast.kind(node));
+        }
+    }
+
+    // the register holding the value of the expression at root
+    private int expression(int root) {
+        int base = depth;
+        push(root);
+        int last = -1;
+        while (depth > base) {
+            int fr = depth - 1;
+            int node = frameNode[fr];
+            int stage = frameStage[fr]++;
+            switch (ast.kind(node)) {
+                case NAME -> {
+                    last = variable(node);
+                    depth--;
+                }
+                case LITERAL -> {
+                    last = literal(node);
+                    depth--;
+                }
+                case PAREN -> {
+                    if (stage == 0) push(ast.firstChild(node));
+                    else depth--;
+                }
+                case UNARY, POSTFIX -> {
+                    TokenKind op = tokens.getKind(ast.token(node));
+                    if (op == TokenKind.OP_INC || op == TokenKind.OP_DEC) {
+                        last = increment(node, op == TokenKind.OP_INC, ast.kind(node) == NodeKind.POSTFIX);
+                        depth--;
+                    } else if (stage == 0) {
+                        push(ast.firstChild(node));
+                    } else {
+                        last = unary(node, op, last);
+                        depth--;
+                    }
+                }
+                case BINARY -> {
+                    TokenKind op = tokens.getKind(ast.token(node));
+                    int left = ast.firstChild(node);
+                    int right = ast.nextSibling(left);
+                    if (isAssignment(op)) {
+                        if (stage == 0) {
+                            push(right);
+                        } else {
+                            last = assign(node, op, left, last);
+                            depth--;
+                        }
+                    } else if (op == TokenKind.OP_AND_AND || op == TokenKind.OP_OR_OR) {
+                        if (stage == 0) {
+                            push(left);
+                        } else if (stage == 1) {
+                            int t = test(last, type(left));
+                            // '&&' skips the right side when the left is zero, '||' when it is not
+                            if (op == TokenKind.OP_OR_OR) {
+                                int isZero = f.newRegister(Kind.I);
+                                f.emit(Op.EQ_I, isZero, t, constant(Kind.I, 0));
+                                t = isZero;
+                            }
+                            frameJump[fr] = f.emit(Op.JZ, -1, t, -1);
+                            push(right);
+                        } else {
+                            last = shortCircuit(op, frameJump[fr], test(last, type(right)));
+                            depth--;
+                        }
+                    } else if (stage == 0) {
+                        push(left);
+                    } else if (stage == 1) {
+                        frameValue[fr] = last;
+                        push(right);
+                    } else {
+                        last = binary(node, op, frameValue[fr], type(left), last, type(right));
+                        depth--;
+                    }
+                }
+                case CONDITIONAL -> {
+                    int condition = ast.firstChild(node);
+                    int then = ast.nextSibling(condition);
+                    int otherwise = ast.nextSibling(then);
+                    Type type = type(node);
+                    if (stage == 0) {
+                        push(condition);
+                    } else if (stage == 1) {
+                        frameJump[fr] = f.emit(Op.JZ, -1, test(last, type(condition)), -1);
+                        frameValue[fr] = f.newRegister(Kind.of(type));
+                        push(then);
+                    } else if (stage == 2) {
+                        move(frameValue[fr], convert(last, type(then), type));
+                        int skipElse = f.emit(Op.JUMP, -1, -1, -1);
+                        f.setTarget(frameJump[fr], f.size());
+                        frameJump[fr] = skipElse;
+                        push(otherwise);
+                    } else {
+                        move(frameValue[fr], convert(last, type(otherwise), type));
+                        f.setTarget(frameJump[fr], f.size());
+                        last = frameValue[fr];
+                        depth--;
+                    }
+                }
+                default -> throw new IllegalArgumentException("cannot lower " + ast.kind(node) + " '" + ast.text(node) + "'");
+            }
+        }
+        return last;
+    }
+
+    private void push(int node) {
+        if (depth == frameNode.length) {
+            int capacity = depth * 2;
+            frameNode = Arrays.copyOf(frameNode, capacity);
+            frameStage = Arrays.copyOf(frameStage, capacity);
+            frameValue = Arrays.copyOf(frameValue, capacity);
+            frameJump = Arrays.copyOf(frameJump, capacity);
+        }
+        frameNode[depth] = node;
+        frameStage[depth] = 0;
+        depth++;
+    }
+
+    // the result of '&&' or '||' once the right side's truth value is known; skip jumps to the left's outcome
+    private int shortCircuit(TokenKind op, int skip, int right) {
+        int r = f.newRegister(Kind.I);
+        int rightFalse = f.emit(Op.JZ, -1, right, -1);
+        int isTrue = f.emit(Op.CONST, r, f.constantIndex(1), -1);
+        int done = f.emit(Op.JUMP, -1, -1, -1);
+        int isFalse = f.emit(Op.CONST, r, f.constantIndex(0), -1);
+        f.setTarget(rightFalse, isFalse);
+        f.setTarget(done, f.size());
+        f.setTarget(skip, op == TokenKind.OP_AND_AND ? isFalse : isTrue);
+        return r;
+    }
+
+    private int variable(int name) {
+        int register = scopes.lookup(tokens.getNameId(ast.token(name)));
+        if (register == SymbolTable.UNDECLARED) {
+            throw new IllegalArgumentException("undeclared identifier '" + ast.text(name) + "'");
+        }
+        return register;
+    }
+
+    // the local an assignment or increment writes, through any parentheses
+    private int target(int node) {
+        while (ast.kind(node) == NodeKind.PAREN) node = ast.firstChild(node);
+        if (ast.kind(node) != NodeKind.NAME) throw new IllegalArgumentException("cannot assign to " + ast.kind(node));
+        return variable(node);
+    }
+
+    private int literal(int node) {
+        int token = ast.token(node);
+        String text = tokens.getValue(token);
+        return switch (tokens.getKind(token)) {
+            case INTEGER_LITERAL -> {
+                long value = TypeChecker.integerValue(text);
+                yield type(node) == Type.INT ? constant(Kind.I, (int) value) : constant(Kind.L, value);
+            }
+            case FLOAT_LITERAL -> constant(Kind.D, Double.doubleToRawLongBits(Double.parseDouble(text)));
+            case CHARACTER_LITERAL -> constant(Kind.I, characterValue(text));
+            default -> throw new IllegalArgumentException("string values are not supported: " + text);
+        };
+    }
+
+    private int unary(int node, TokenKind op, int operand) {
+        Type from = type(ast.firstChild(node));
+        if (from == Type.STRING) {
+            throw new IllegalArgumentException("string values are not supported: '" + tokens.getValue(ast.token(node)) + "'");
+        }
+        Type type = type(node);
+        Kind kind = Kind.of(type);
+        return switch (op) {
+            case OP_PLUS -> convert(operand, from, type);
+            case OP_MINUS -> op(pick(kind, Op.NEG_I, Op.NEG_L, Op.NEG_D), kind, convert(operand, from, type), -1);
+            case OP_TILDE -> op(pick(kind, Op.NOT_I, Op.NOT_L, null), kind, convert(operand, from, type), -1);
+            case OP_NOT -> {
+                Kind operandKind = Kind.of(from);
+                yield op(pick(operandKind, Op.EQ_I, Op.EQ_L, Op.EQ_D), Kind.I, operand, constant(operandKind, 0));
+            }
+            default -> throw new IllegalArgumentException("cannot lower unary '" + tokens.getValue(ast.token(node)) + "'");
+        };
+    }
+
+    private int increment(int node, boolean up, boolean postfix) {
+        int operand = ast.firstChild(node);
+        int variable = target(operand);
+        Type type = type(operand);
+        Type wide = Type.common(type, Type.INT);
+        int old = -1;
+        if (postfix) {
+            old = f.newRegister(f.kind(variable));
+            f.emit(Op.MOVE, old, variable, -1);
+        }
+        Kind kind = Kind.of(wide);
+        Op op = up ? pick(kind, Op.ADD_I, Op.ADD_L, Op.ADD_D) : pick(kind, Op.SUB_I, Op.SUB_L, Op.SUB_D);
+        int one = constant(kind, kind == Kind.D ? Double.doubleToRawLongBits(1.0) : 1);
+        int sum = rounded(op(op, kind, convert(variable, type, wide), one), wide);
+        move(variable, convert(sum, wide, type));
+        return postfix ? old : variable;
+    }
+
+    private int assign(int node, TokenKind op, int left, int value) {
+        int variable = target(left);
+        Type type = type(left);
+        Type from = type(ast.nextSibling(left));
+        if (op == TokenKind.OP_ASSIGN) {
+            move(variable, convert(value, from, type));
+            return variable;
+        }
+        TokenKind arithmetic = switch (op) {
+            case OP_PLUS_ASSIGN -> TokenKind.OP_PLUS;
+            case OP_MINUS_ASSIGN -> TokenKind.OP_MINUS;
+            case OP_STAR_ASSIGN -> TokenKind.OP_STAR;
+            case OP_SLASH_ASSIGN -> TokenKind.OP_SLASH;
+            case OP_PERCENT_ASSIGN -> TokenKind.OP_PERCENT;
+            case OP_AND_ASSIGN -> TokenKind.OP_AND;
+            case OP_OR_ASSIGN -> TokenKind.OP_OR;
+            default -> TokenKind.OP_XOR;
+        };
+        Type common = Type.common(type, from);
+        move(variable, convert(binary(node, arithmetic, variable, type, value, from, common), common, type));
+        return variable;
+    }
+
+    private int binary(int node, TokenKind op, int left, Type leftType, int right, Type rightType) {
+        return binary(node, op, left, leftType, right, rightType, type(node));
+    }
+
+    // left op right, computed in type (the operand type for comparisons, whose result is an int)
+    private int binary(int node, TokenKind op, int left, Type leftType, int right, Type rightType, Type type) {
+        if (leftType == Type.STRING || rightType == Type.STRING) {
+            throw new IllegalArgumentException("string values are not supported: '" + tokens.getValue(ast.token(node)) + "'");
+        }
+        if (op == TokenKind.OP_SHL || op == TokenKind.OP_SHR) {
+            Kind kind = Kind.of(type);
+            Op shift = op == TokenKind.OP_SHL ? pick(kind, Op.SHL_I, Op.SHL_L, null) : pick(kind, Op.SHR_I, Op.SHR_L, null);
+            return op(shift, kind, convert(left, leftType, type), convert(right, rightType, Type.INT));
+        }
+        Op compare = switch (op) {
+            case OP_EQ -> Op.EQ_I;
+            case OP_NE -> Op.NE_I;
+            case OP_LT -> Op.LT_I;
+            case OP_LE -> Op.LE_I;
+            case OP_GT -> Op.GT_I;
+            case OP_GE -> Op.GE_I;
+            default -> null;
+        };
+        if (compare != null) {
+            Type common = Type.common(leftType, rightType);
+            Kind kind = Kind.of(common);
+            // EQ_I..GE_I, EQ_L..GE_L and EQ_D..GE_D are laid out alike
+            Op typed = Op.of(compare.ordinal() + kind.ordinal() * (Op.EQ_L.ordinal() - Op.EQ_I.ordinal()));
+            return op(typed, Kind.I, convert(left, leftType, common), convert(right, rightType, common));
+        }
+        Kind kind = Kind.of(type);
+        Op arithmetic = switch (op) {
+            case OP_PLUS -> pick(kind, Op.ADD_I, Op.ADD_L, Op.ADD_D);
+            case OP_MINUS -> pick(kind, Op.SUB_I, Op.SUB_L, Op.SUB_D);
+            case OP_STAR -> pick(kind, Op.MUL_I, Op.MUL_L, Op.MUL_D);
+            case OP_SLASH -> pick(kind, Op.DIV_I, Op.DIV_L, Op.DIV_D);
+            case OP_PERCENT -> pick(kind, Op.REM_I, Op.REM_L, null);
+            case OP_AND -> pick(kind, Op.AND_I, Op.AND_L, null);
+            case OP_OR -> pick(kind, Op.OR_I, Op.OR_L, null);
+            case OP_XOR -> pick(kind, Op.XOR_I, Op.XOR_L, null);
+            default -> throw new IllegalArgumentException("cannot lower '" + tokens.getValue(ast.token(node)) + "'");
+        };
+        return rounded(op(arithmetic, kind, convert(left, leftType, type), convert(right, rightType, type)), type);
+    }
+
+    private static Op pick(Kind kind, Op i, Op l, Op d) {
+        Op op = switch (kind) {
+            case I -> i;
+            case L -> l;
+            case D -> d;
+        };
+        if (op == null) throw new IllegalStateException("no " + kind + " form");
+        return op;
+    }
+
+    private int op(Op op, Kind kind, int a, int b) {
+        int r = f.newRegister(kind);
+        f.emit(op, r, a, b);
+        return r;
+    }
+
+    private void move(int to, int from) {
+        if (to != from) f.emit(Op.MOVE, to, from, -1);
+    }
+
+    // float arithmetic is done in double and rounded back
+    private int rounded(int value, Type type) {
+        return type == Type.FLOAT ? op(Op.D2F, Kind.D, value, -1) : value;
+    }
+
+    private int constant(Kind kind, long bits) {
+        int r = f.newRegister(kind);
+        f.emit(Op.CONST, r, f.constantIndex(bits), -1);
+        return r;
+    }
+
+    /** The register holding {@code value} of type {@code from} converted to {@code to}. */
+    private int convert(int value, Type from, Type to) {
+        if (from == to) return value;
+        Kind fk = Kind.of(from);
+        Kind tk = Kind.of(to);
+        if (fk != tk) {
+            Op widen = switch (fk) {
+                case I -> tk == Kind.L ? Op.I2L : Op.I2D;
+                case L -> tk == Kind.I ? Op.L2I : Op.L2D;
+                case D -> tk == Kind.I ? Op.D2I : Op.D2L;
+            };
+            value = op(widen, tk, value, -1);
+        }
+        Op narrow = narrowing(to);
+        // a char already fits in a short, and a float in a float
+        if (narrow != null && !(to == Type.SHORT && from == Type.CHAR)) value = op(narrow, tk, value, -1);
+        return value;
+    }
+
+    private static Op narrowing(Type type) {
+        return switch (type) {
+            case CHAR -> Op.I2B;
+            case SHORT -> Op.I2S;
+            case FLOAT -> Op.D2F;
+            default -> null;
+        };
+    }
+
+    // an int register that is nonzero when value is
+    private int test(int value, Type type) {
+        Kind kind = Kind.of(type);
+        if (kind == Kind.I) return value;
+        return op(kind == Kind.L ? Op.NE_L : Op.NE_D, Kind.I, value, constant(kind, 0));
+    }
+
+    private Type type(int node) {
+        Type t = types.type(node);
+        if (t == null || t == Type.ERROR || t == Type.FUNCTION || t == Type.VOID) {
+            throw new IllegalArgumentException("cannot lower " + ast.kind(node) + " of type " + t);
+        }
+        return t;
+    }
+
+    private static boolean isAssignment(TokenKind op) {
+        return switch (op) {
+            case OP_ASSIGN, OP_PLUS_ASSIGN, OP_MINUS_ASSIGN, OP_STAR_ASSIGN, OP_SLASH_ASSIGN, OP_PERCENT_ASSIGN,
+                 OP_AND_ASSIGN, OP_OR_ASSIGN, OP_XOR_ASSIGN -> true;
+            default -> false;
+        };
+    }
+
+    /** The value of a character literal such as 'a', '\n', '\x41' or '\101', as a signed char. */
+    public static int characterValue(String literal) {
+        String body = literal.substring(1, literal.length() - 1);
+        if (body.isEmpty()) return 0;
+        if (body.charAt(0) != '\\') return (byte) body.charAt(0);
+        char c = body.charAt(1);
+        return switch (c) {
+            case 'n' -> '\n';
+            case 't' -> '\t';
+            case 'r' -> '\r';
+            case 'a' -> 7;
+            case 'b' -> '\b';
+            case 'f' -> '\f';
+            case 'v' -> 11;
+            case 'x' -> (byte) Integer.parseInt(body.substring(2), 16);
+            default -> c >= '0' && c <= '7' ? (byte) Integer.parseInt(body.substring(1), 8) : c;
+        };
+    }
+}
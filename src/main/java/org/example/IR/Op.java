@@ -0,0 +1,150 @@
+package org.example.IR;
+
+/**
+ * IR opcodes. An instruction is {@code op dst, a, b}; what {@code a} and {@code b} mean depends on the op:
+ * <ul>
+ *   <li>{@code CONST}: {@code a} indexes the function's constant pool</li>
+ *   <li>{@code JUMP}: {@code a} is the target instruction</li>
+ *   <li>{@code JZ}: jumps to {@code b} when register {@code a} (an int) is zero</li>
+ *   <li>{@code RETURN}: returns register {@code a}, or nothing if {@code a} is -1</li>
+ *   <li>everything else reads registers {@code a} (and {@code b} for binary ops) and writes {@code dst}</li>
+ * </ul>
+ * The suffix names the operand kind; comparisons produce an int 0 or 1, and shifts take an int count.
+ */
+public enum Op {
+    NOP(0), CONST(0), MOVE(1),
+
+    ADD_I(2), SUB_I(2), MUL_I(2), DIV_I(2), REM_I(2), AND_I(2), OR_I(2), XOR_I(2), SHL_I(2), SHR_I(2), NEG_I(1), NOT_I(1),
+    ADD_L(2), SUB_L(2), MUL_L(2), DIV_L(2), REM_L(2), AND_L(2), OR_L(2), XOR_L(2), SHL_L(2), SHR_L(2), NEG_L(1), NOT_L(1),
+    ADD_D(2), SUB_D(2), MUL_D(2), DIV_D(2), NEG_D(1),
+
+    EQ_I(2), NE_I(2), LT_I(2), LE_I(2), GT_I(2), GE_I(2),
+    EQ_L(2), NE_L(2), LT_L(2), LE_L(2), GT_L(2), GE_L(2),
+    EQ_D(2), NE_D(2), LT_D(2), LE_D(2), GT_D(2), GE_D(2),
+
+    /** int to long, double; long to int, double; double to int, long */
+    I2L(1), I2D(1), L2I(1), L2D(1), D2I(1), D2L(1),
+    /** narrow an int to char or short, a double to float */
+    I2B(1), I2S(1), D2F(1),
+
+    JUMP(0), JZ(1), RETURN(1);
+
+    private static final Op[] VALUES = values();
+
+    /** Number of registers read: {@code a}, then {@code b}. */
+    public final int uses;
+
+    Op(int uses) {
+        this.uses = uses;
+    }
+
+    public static Op of(int ordinal) {
+        return VALUES[ordinal];
+    }
+
+    /** Whether the op writes {@code dst}. */
+    public boolean defines() {
+        return this != NOP && this != JUMP && this != JZ && this != RETURN;
+    }
+
+    public boolean isBranch() {
+        return this == JUMP || this == JZ;
+    }
+
+    /** Whether the op ends a basic block. */
+    public boolean endsBlock() {
+        return this == JUMP || this == JZ || this == RETURN;
+    }
+
+    /** Whether the op can fail at run time (integer division by zero), so it is kept even if its result is unused. */
+    public boolean canTrap() {
+        return this == DIV_I || this == REM_I || this == DIV_L || this == REM_L;
+    }
+
+    public boolean isCommutative() {
+        return switch (this) {
+            case ADD_I, MUL_I, AND_I, OR_I, XOR_I, ADD_L, MUL_L, AND_L, OR_L, XOR_L, ADD_D, MUL_D,
+                 EQ_I, NE_I, EQ_L, NE_L, EQ_D, NE_D -> true;
+            default -> false;
+        };
+    }
+
+    /** The kind of register {@code a} reads. */
+    public Kind operandKind() {
+        return switch (this) {
+            case ADD_L, SUB_L, MUL_L, DIV_L, REM_L, AND_L, OR_L, XOR_L, SHL_L, SHR_L, NEG_L, NOT_L,
+                 EQ_L, NE_L, LT_L, LE_L, GT_L, GE_L, L2I, L2D -> Kind.L;
+            case ADD_D, SUB_D, MUL_D, DIV_D, NEG_D, EQ_D, NE_D, LT_D, LE_D, GT_D, GE_D, D2I, D2L, D2F -> Kind.D;
+            default -> Kind.I;
+        };
+    }
+
+    /**
+     * The result of a unary or binary op on register values {@code x} and {@code y} (see {@link Kind}).
+     * Integer division by zero throws {@link ArithmeticException}, like the generated code does.
+     */
+    public long apply(long x, long y) {
+        return switch (this) {
+            case MOVE -> x;
+            case ADD_I -> (int) x + (int) y;
+            case SUB_I -> (int) x - (int) y;
+            case MUL_I -> (int) x * (int) y;
+            case DIV_I -> (int) x / (int) y;
+            case REM_I -> (int) x % (int) y;
+            case AND_I -> (int) x & (int) y;
+            case OR_I -> (int) x | (int) y;
+            case XOR_I -> (int) x ^ (int) y;
+            case SHL_I -> (int) x << (int) y;
+            case SHR_I -> (int) x >> (int) y;
+            case NEG_I -> -(int) x;
+            case NOT_I -> ~(int) x;
+            case ADD_L -> x + y;
+            case SUB_L -> x - y;
+            case MUL_L -> x * y;
+            case DIV_L -> x / y;
+            case REM_L -> x % y;
+            case AND_L -> x & y;
+            case OR_L -> x | y;
+            case XOR_L -> x ^ y;
+            case SHL_L -> x << (int) y;
+            case SHR_L -> x >> (int) y;
+            case NEG_L -> -x;
+            case NOT_L -> ~x;
+            case ADD_D -> bits(d(x) + d(y));
+            case SUB_D -> bits(d(x) - d(y));
+            case MUL_D -> bits(d(x) * d(y));
+            case DIV_D -> bits(d(x) / d(y));
+            case NEG_D -> bits(-d(x));
+            case EQ_I, EQ_L -> x == y ? 1 : 0;
+            case NE_I, NE_L -> x != y ? 1 : 0;
+            case LT_I, LT_L -> x < y ? 1 : 0;
+            case LE_I, LE_L -> x <= y ? 1 : 0;
+            case GT_I, GT_L -> x > y ? 1 : 0;
+            case GE_I, GE_L -> x >= y ? 1 : 0;
+            case EQ_D -> d(x) == d(y) ? 1 : 0;
+            case NE_D -> d(x) != d(y) ? 1 : 0;
+            case LT_D -> d(x) < d(y) ? 1 : 0;
+            case LE_D -> d(x) <= d(y) ? 1 : 0;
+            case GT_D -> d(x) > d(y) ? 1 : 0;
+            case GE_D -> d(x) >= d(y) ? 1 : 0;
+            case I2L -> (int) x;
+            case I2D -> bits((int) x);
+            case L2I -> (int) x;
+            case L2D -> bits((double) x);
+            case D2I -> (int) d(x);
+            case D2L -> (long) d(x);
+            case I2B -> (byte) x;
+            case I2S -> (short) x;
+            case D2F -> bits((float) d(x));
+            default -> throw new IllegalStateException(this + " is not a value op");
+        };
+    }
+
+    private static double d(long bits) {
+        return Double.longBitsToDouble(bits);
+    }
+
+    private static long bits(double d) {
+        return Double.doubleToRawLongBits(d);
+    }
+}
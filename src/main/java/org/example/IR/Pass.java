@@ -0,0 +1,9 @@
+package org.example.IR;
+
+/** One optimization over a function's instructions; see {@link PassManager}. */
+public interface Pass {
+    String name();
+
+    /** Rewrites {@code f} in place, deleting instructions by turning them into {@code NOP}; returns whether anything changed. */
+    boolean run(IrFunction f);
+}
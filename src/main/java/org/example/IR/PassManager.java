@@ -0,0 +1,83 @@
+package org.example.IR;
+
+import org.example.Metrics.Phase;
+import org.example.Metrics.PhaseEvent;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs a pipeline of {@link Pass}es over each function, repeating it while anything changes (each pass can
+ * expose work for the others, e.g. folding a branch makes a block unreachable) up to a fixed number of rounds.
+ * After every pass the function is compacted, and the pass is charged with its time and the instructions
+ * that removed.
+ */
+public final class PassManager {
+    /** Per pass totals over every function and round. */
+    public record PassStats(String name, int runs, long nanos, long removed) {
+    }
+
+    /** What one {@link #run} did: instruction counts before and after, and each pass's share. */
+    public record Report(long instructionsBefore, long instructionsAfter, List<PassStats> passes) {
+        /** A table of passes with their time and removed instructions, then the overall reduction. */
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder(String.format("%-24s %6s %10s %8s%n", "pass", "runs", "time ms", "removed"));
+            for (PassStats p : passes) {
+                sb.append(String.format("%-24s %6d %10.3f %8d%n", p.name(), p.runs(), p.nanos() / 1e6, p.removed()));
+            }
+            double reduction = instructionsBefore == 0 ? 0 : 100.0 * (instructionsBefore - instructionsAfter) / instructionsBefore;
+            sb.append(String.format("instructions: %d -> %d (-%.1f%%)%n", instructionsBefore, instructionsAfter, reduction));
+            return sb.toString();
+        }
+    }
+
+    private final List<Pass> passes;
+    private int maxRounds = 4;
+
+    public PassManager(List<Pass> passes) {
+        if (passes.isEmpty()) throw new IllegalArgumentException("no passes");
+        this.passes = List.copyOf(passes);
+    }
+
+    /** Constant folding, copy propagation, common subexpressions, then dead code elimination. */
+    public static PassManager standard() {
+        return new PassManager(List.of(new ConstantFolding(), new CopyPropagation(), new CommonSubexpressions(),
+                new DeadCodeElimination()));
+    }
+
+    public PassManager setMaxRounds(int maxRounds) {
+        if (maxRounds < 1) throw new IllegalArgumentException("maxRounds must be positive: " + maxRounds);
+        this.maxRounds = maxRounds;
+        return this;
+    }
+
+    public Report run(List<IrFunction> functions) {
+        PhaseEvent event = PhaseEvent.begin(Phase.OPTIMIZE);
+        int n = passes.size();
+        int[] runs = new int[n];
+        long[] nanos = new long[n];
+        long[] removed = new long[n];
+        long before = 0;
+        long after = 0;
+        for (IrFunction f : functions) {
+            before += f.size();
+            boolean changed = true;
+            for (int round = 0; round < maxRounds && changed; round++) {
+                changed = false;
+                for (int p = 0; p < n; p++) {
+                    long start = System.nanoTime();
+                    changed |= passes.get(p).run(f);
+                    removed[p] += f.compact();
+                    nanos[p] += System.nanoTime() - start;
+                    runs[p]++;
+                }
+            }
+            after += f.size();
+        }
+        List<PassStats> stats = new ArrayList<>(n);
+        for (int p = 0; p < n; p++) stats.add(new PassStats(passes.get(p).name(), runs[p], nanos[p], removed[p]));
+        event.finish();
+        return new Report(before, after, List.copyOf(stats));
+    }
+}
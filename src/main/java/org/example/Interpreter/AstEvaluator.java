@@ -0,0 +1,334 @@
+package org.example.Interpreter;
+
+import org.example.IR.Lowering;
+import org.example.Parser.Ast;
+import org.example.Parser.AstVisitor;
+import org.example.Parser.NodeKind;
+import org.example.Parser.Type;
+import org.example.Parser.TypeChecker;
+import org.example.Tokens.TokenBuffer;
+import org.example.Tokens.TokenKind;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Runs a function by walking its {@link Ast} directly: every value is a boxed {@code Long} or {@code Double}, and
+ * locals live in a chain of hash maps by name, one per block. It is the obvious implementation on purpose, as the
+ * baseline {@link Interpreter} is measured against, and it shares no code with {@link Lowering}, so the two
+ * check each other. Inputs and results are register values as for {@link Interpreter#invoke}.
+ */
+public final class AstEvaluator {
+    private final Ast ast;
+    private final TokenBuffer tokens;
+    private final TypeChecker types;
+    private final Map<String, Integer> functions = new HashMap<>();
+    // declarator NAME node -> which input the local starts out as, in declaration order per function
+    private final Map<Integer, Integer> inputIndex = new HashMap<>();
+
+    private final ArrayDeque<Map<String, Object>> scopes = new ArrayDeque<>();
+    private long[] inputs;
+    private Object returned;
+
+    public AstEvaluator(Ast ast, TypeChecker types) {
+        if (types.hasErrors()) {
+            throw new IllegalArgumentException("cannot run a program with type errors: " + types.getErrors().get(0));
+        }
+        this.ast = ast;
+        this.tokens = ast.getTokens();
+        this.types = types;
+        for (int fn = ast.size() > 0 ? ast.firstChild(ast.root()) : Ast.NONE; fn != Ast.NONE; fn = ast.nextSibling(fn)) {
+            functions.putIfAbsent(ast.text(ast.firstChild(fn)), fn);
+            int[] next = {0};
+            ast.walk(ast.nextSibling(ast.firstChild(fn)), new AstVisitor() {
+                @Override
+                public boolean enter(Ast ast, int node) {
+                    if (ast.kind(node) != NodeKind.VAR_DECL) return true;
+                    for (int n = ast.firstChild(node); n != Ast.NONE; n = ast.nextSibling(n)) inputIndex.put(n, next[0]++);
+                    return false;
+                }
+            });
+        }
+    }
+
+    /** Calls the function with its first locals set to {@code inputs} (the rest 0); see {@link Interpreter#invoke}. */
+    public long invoke(String name, long... inputs) {
+        Integer fn = functions.get(name);
+        if (fn == null) throw new IllegalArgumentException("no function '" + name + "'");
+        Type result = Type.of(tokens.getKind(ast.token(fn)));
+        this.inputs = inputs;
+        returned = null;
+        scopes.clear();
+        execute(ast.nextSibling(ast.firstChild(fn)), result);
+        if (result == Type.VOID || returned == null) return 0;
+        return returned instanceof Double d ? Double.doubleToRawLongBits(d) : (Long) returned;
+    }
+
+    private void execute(int node, Type result) {
+        switch (ast.kind(node)) {
+            case BLOCK -> {
+                scopes.push(new HashMap<>());
+                for (int c = ast.firstChild(node); c != Ast.NONE && returned == null; c = ast.nextSibling(c)) {
+                    execute(c, result);
+                }
+                scopes.pop();
+            }
+            case VAR_DECL -> {
+                Type type = Type.of(tokens.getKind(ast.token(node)));
+                for (int n = ast.firstChild(node); n != Ast.NONE; n = ast.nextSibling(n)) {
+                    int input = inputIndex.get(n);
+                    long bits = input < inputs.length ? inputs[input] : 0;
+                    Object value = type.isInteger() ? (Object) bits : (Object) Double.longBitsToDouble(bits);
+                    scopes.peek().put(ast.text(n), convert(value, type.isInteger() ? Type.LONG : Type.DOUBLE, type));
+                }
+            }
+            case IF -> {
+                int condition = ast.firstChild(node);
+                int then = ast.nextSibling(condition);
+                int otherwise = ast.nextSibling(then);
+                if (isTrue(evaluate(condition))) execute(then, result);
+                else if (otherwise != Ast.NONE) execute(otherwise, result);
+            }
+            case RETURN -> {
+                int value = ast.firstChild(node);
+                returned = result == Type.VOID ? (Object) 0L : convert(evaluate(value), types.type(value), result);
+            }
+            case EXPRESSION_STATEMENT -> evaluate(ast.firstChild(node));
+            default -> throw new IllegalArgumentException("cannot run " + ast.kind(node));
+        }
+    }
+
+    private Object evaluate(int node) {
+        switch (ast.kind(node)) {
+            case NAME -> {
+                return variables(node).get(ast.text(node));
+            }
+            case LITERAL -> {
+                String text = tokens.getValue(ast.token(node));
+                return switch (tokens.getKind(ast.token(node))) {
+                    case INTEGER_LITERAL -> {
+                        long value = TypeChecker.integerValue(text);
+                        yield types.type(node) == Type.INT ? (long) (int) value : value;
+                    }
+                    case FLOAT_LITERAL -> Double.parseDouble(text);
+                    case CHARACTER_LITERAL -> (long) Lowering.characterValue(text);
+                    default -> throw new IllegalArgumentException("string values are not supported: " + text);
+                };
+            }
+            case PAREN -> {
+                return evaluate(ast.firstChild(node));
+            }
+            case UNARY, POSTFIX -> {
+                return unary(node);
+            }
+            case BINARY -> {
+                return binary(node);
+            }
+            case CONDITIONAL -> {
+                int condition = ast.firstChild(node);
+                int then = ast.nextSibling(condition);
+                int chosen = isTrue(evaluate(condition)) ? then : ast.nextSibling(then);
+                return convert(evaluate(chosen), types.type(chosen), types.type(node));
+            }
+            default -> throw new IllegalArgumentException("cannot run " + ast.kind(node) + " '" + ast.text(node) + "'");
+        }
+    }
+
+    private Object unary(int node) {
+        TokenKind op = tokens.getKind(ast.token(node));
+        int operand = ast.firstChild(node);
+        Type from = types.type(operand);
+        Type type = types.type(node);
+        if (op == TokenKind.OP_INC || op == TokenKind.OP_DEC) {
+            int name = operand;
+            while (ast.kind(name) == NodeKind.PAREN) name = ast.firstChild(name);
+            Map<String, Object> scope = variables(name);
+            Object old = scope.get(ast.text(name));
+            Type wide = Type.common(from, Type.INT);
+            Object one = wide.isInteger() ? (Object) 1L : (Object) 1.0;
+            Object sum = arithmetic(op == TokenKind.OP_INC ? TokenKind.OP_PLUS : TokenKind.OP_MINUS, convert(old, from, wide), one, wide);
+            Object updated = convert(sum, wide, from);
+            scope.put(ast.text(name), updated);
+            return ast.kind(node) == NodeKind.POSTFIX ? old : updated;
+        }
+        Object value = evaluate(operand);
+        return switch (op) {
+            case OP_PLUS -> convert(value, from, type);
+            case OP_MINUS -> negate(convert(value, from, type), type);
+            case OP_TILDE -> arithmetic(TokenKind.OP_XOR, convert(value, from, type), -1L, type);
+            case OP_NOT -> isTrue(value) ? 0L : 1L;
+            default -> throw new IllegalArgumentException("cannot run unary '" + tokens.getValue(ast.token(node)) + "'");
+        };
+    }
+
+    private Object binary(int node) {
+        TokenKind op = tokens.getKind(ast.token(node));
+        int left = ast.firstChild(node);
+        int right = ast.nextSibling(left);
+        Type leftType = types.type(left);
+        Type rightType = types.type(right);
+        switch (op) {
+            case OP_ASSIGN, OP_PLUS_ASSIGN, OP_MINUS_ASSIGN, OP_STAR_ASSIGN, OP_SLASH_ASSIGN, OP_PERCENT_ASSIGN,
+                 OP_AND_ASSIGN, OP_OR_ASSIGN, OP_XOR_ASSIGN -> {
+                Object value = evaluate(right);
+                int name = left;
+                while (ast.kind(name) == NodeKind.PAREN) name = ast.firstChild(name);
+                Map<String, Object> scope = variables(name);
+                Object updated;
+                if (op == TokenKind.OP_ASSIGN) {
+                    updated = convert(value, rightType, leftType);
+                } else {
+                    Type common = Type.common(leftType, rightType);
+                    Object current = convert(scope.get(ast.text(name)), leftType, common);
+                    updated = convert(arithmetic(compoundOperator(op), current, convert(value, rightType, common), common), common, leftType);
+                }
+                scope.put(ast.text(name), updated);
+                return updated;
+            }
+            case OP_AND_AND -> {
+                return isTrue(evaluate(left)) && isTrue(evaluate(right)) ? 1L : 0L;
+            }
+            case OP_OR_OR -> {
+                return isTrue(evaluate(left)) || isTrue(evaluate(right)) ? 1L : 0L;
+            }
+            case OP_EQ, OP_NE, OP_LT, OP_LE, OP_GT, OP_GE -> {
+                Type common = Type.common(leftType, rightType);
+                Object x = convert(evaluate(left), leftType, common);
+                Object y = convert(evaluate(right), rightType, common);
+                return compare(op, x, y) ? 1L : 0L;
+            }
+            case OP_SHL, OP_SHR -> {
+                Type type = types.type(node);
+                long x = (Long) convert(evaluate(left), leftType, type);
+                int count = (int) (long) (Long) convert(evaluate(right), rightType, Type.INT);
+                if (type == Type.LONG) return op == TokenKind.OP_SHL ? x << count : x >> count;
+                return (long) (op == TokenKind.OP_SHL ? (int) x << count : (int) x >> count);
+            }
+            default -> {
+                Type type = types.type(node);
+                Object x = convert(evaluate(left), leftType, type);
+                Object y = convert(evaluate(right), rightType, type);
+                return arithmetic(op, x, y, type);
+            }
+        }
+    }
+
+    private static TokenKind compoundOperator(TokenKind op) {
+        return switch (op) {
+            case OP_PLUS_ASSIGN -> TokenKind.OP_PLUS;
+            case OP_MINUS_ASSIGN -> TokenKind.OP_MINUS;
+            case OP_STAR_ASSIGN -> TokenKind.OP_STAR;
+            case OP_SLASH_ASSIGN -> TokenKind.OP_SLASH;
+            case OP_PERCENT_ASSIGN -> TokenKind.OP_PERCENT;
+            case OP_AND_ASSIGN -> TokenKind.OP_AND;
+            case OP_OR_ASSIGN -> TokenKind.OP_OR;
+            default -> TokenKind.OP_XOR;
+        };
+    }
+
+    // x op y for two values already of type (int or wider); float results are rounded to float
+    private static Object arithmetic(TokenKind op, Object x, Object y, Type type) {
+        if (type == Type.FLOAT || type == Type.DOUBLE) {
+            double a = (Double) x;
+            double b = (Double) y;
+            double r = switch (op) {
+                case OP_PLUS -> a + b;
+                case OP_MINUS -> a - b;
+                case OP_STAR -> a * b;
+                case OP_SLASH -> a / b;
+                default -> throw new IllegalArgumentException("no floating-point " + op);
+            };
+            return type == Type.FLOAT ? (double) (float) r : r;
+        }
+        long a = (Long) x;
+        long b = (Long) y;
+        if (type == Type.LONG) {
+            return switch (op) {
+                case OP_PLUS -> a + b;
+                case OP_MINUS -> a - b;
+                case OP_STAR -> a * b;
+                case OP_SLASH -> a / b;
+                case OP_PERCENT -> a % b;
+                case OP_AND -> a & b;
+                case OP_OR -> a | b;
+                case OP_XOR -> a ^ b;
+                default -> throw new IllegalArgumentException("no integer " + op);
+            };
+        }
+        int i = (int) a;
+        int j = (int) b;
+        return (long) switch (op) {
+            case OP_PLUS -> i + j;
+            case OP_MINUS -> i - j;
+            case OP_STAR -> i * j;
+            case OP_SLASH -> i / j;
+            case OP_PERCENT -> i % j;
+            case OP_AND -> i & j;
+            case OP_OR -> i | j;
+            case OP_XOR -> i ^ j;
+            default -> throw new IllegalArgumentException("no integer " + op);
+        };
+    }
+
+    private static Object negate(Object value, Type type) {
+        if (value instanceof Double d) return -d;
+        long x = (Long) value;
+        return type == Type.LONG ? -x : (long) -(int) x;
+    }
+
+    private static boolean compare(TokenKind op, Object x, Object y) {
+        if (x instanceof Double a) {
+            double b = (Double) y;
+            return switch (op) {
+                case OP_EQ -> a == b;
+                case OP_NE -> a != b;
+                case OP_LT -> a < b;
+                case OP_LE -> a <= b;
+                case OP_GT -> a > b;
+                default -> a >= b;
+            };
+        }
+        long a = (Long) x;
+        long b = (Long) y;
+        return switch (op) {
+            case OP_EQ -> a == b;
+            case OP_NE -> a != b;
+            case OP_LT -> a < b;
+            case OP_LE -> a <= b;
+            case OP_GT -> a > b;
+            default -> a >= b;
+        };
+    }
+
+    /** {@code value} of type {@code from} as type {@code to}, truncated or rounded to its range. */
+    private static Object convert(Object value, Type from, Type to) {
+        if (from == to) return value;
+        if (to == Type.FLOAT || to == Type.DOUBLE) {
+            double d = value instanceof Long l ? (double) l : (Double) value;
+            return to == Type.FLOAT ? (double) (float) d : d;
+        }
+        long x;
+        if (value instanceof Double d) x = to == Type.LONG ? (long) (double) d : (int) (double) d;
+        else x = (Long) value;
+        return switch (to) {
+            case CHAR -> (long) (byte) x;
+            case SHORT -> (long) (short) x;
+            case INT -> (long) (int) x;
+            default -> x;
+        };
+    }
+
+    private static boolean isTrue(Object value) {
+        return value instanceof Double d ? d != 0.0 : (Long) value != 0;
+    }
+
+    // the innermost scope declaring the name
+    private Map<String, Object> variables(int name) {
+        String text = ast.text(name);
+        for (Map<String, Object> scope : scopes) {
+            if (scope.containsKey(text)) return scope;
+        }
+        throw new IllegalArgumentException("undeclared identifier '" + text + "'");
+    }
+}
@@ -0,0 +1,470 @@
+package org.example.Interpreter;
+
+import org.example.IR.IrFunction;
+import org.example.IR.Kind;
+import org.example.IR.Op;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs {@link IrFunction}s without generating bytecode. Each function is translated once into a flat {@code int[]}
+ * of fixed-width instructions {@code opcode, dst, a, b} whose operands are register numbers, jump targets are code
+ * offsets, and nothing is decoded again while running. One loop dispatches on the opcode over a preallocated
+ * register frame, so running a function allocates nothing.
+ * <p>
+ * The translation adds superinstructions for the common shapes of lowered code. Integer ops whose other operand
+ * is a constant take it as an immediate. An integer comparison whose only use is the branch after it becomes one
+ * compare-and-branch. Everything else maps to a specialized opcode, or to a generic one that calls
+ * {@link Op#apply}.
+ * <p>
+ * Results are register values (see {@link Kind}), exactly as {@link org.example.IR.IrEvaluator#run} returns them.
+ * An instance reuses one frame for every call, so it must not be shared between threads.
+ */
+public final class Interpreter {
+    // specialized opcodes; instruction fields are dst, a, b unless noted
+    private static final int MOVE = 0, LOADK = 1;
+    private static final int ADD_I = 2, SUB_I = 3, MUL_I = 4, DIV_I = 5, REM_I = 6, AND_I = 7, OR_I = 8, XOR_I = 9,
+            SHL_I = 10, SHR_I = 11;
+    private static final int ADD_L = 12, SUB_L = 13, MUL_L = 14, DIV_L = 15, REM_L = 16, AND_L = 17, OR_L = 18,
+            XOR_L = 19, SHL_L = 20, SHR_L = 21;
+    private static final int ADD_D = 22, SUB_D = 23, MUL_D = 24, DIV_D = 25;
+    private static final int EQ_I = 26, NE_I = 27, LT_I = 28, LE_I = 29, GT_I = 30, GE_I = 31;
+    private static final int EQ_L = 32, NE_L = 33, LT_L = 34, LE_L = 35, GT_L = 36, GE_L = 37;
+    private static final int I2L = 38, L2I = 39, I2B = 40;
+    // b is the immediate
+    private static final int ADD_IK = 41, SUB_IK = 42, MUL_IK = 43, AND_IK = 44, OR_IK = 45, XOR_IK = 46,
+            SHL_IK = 47, SHR_IK = 48;
+    private static final int ADD_LK = 49, SUB_LK = 50, MUL_LK = 51, AND_LK = 52, OR_LK = 53, XOR_LK = 54,
+            SHL_LK = 55, SHR_LK = 56;
+    // jump to dst when a <cond> b holds
+    private static final int JEQ_I = 57, JNE_I = 58, JLT_I = 59, JLE_I = 60, JGT_I = 61, JGE_I = 62;
+    private static final int JEQ_L = 63, JNE_L = 64, JLT_L = 65, JLE_L = 66, JGT_L = 67, JGE_L = 68;
+    // JUMP to a; JZ to b when a is zero; RETURN a
+    private static final int JUMP = 69, JZ = 70, RETURN = 71, RETURN_VOID = 72;
+    // GENERIC + op ordinal: dst = op.apply(a, b), with b = a for unary ops
+    private static final int GENERIC = 73;
+
+    private static final Op[] OPS = Op.values();
+    private static final int WIDTH = 4;
+
+    private final String[] names;
+    private final Map<String, Integer> index = new HashMap<>();
+    private final int[][] code;
+    private final long[][] constants;
+    private final boolean[][] intVariables;
+    private final long[] frame;
+
+    public Interpreter(List<IrFunction> functions) {
+        int n = functions.size();
+        names = new String[n];
+        code = new int[n][];
+        constants = new long[n][];
+        intVariables = new boolean[n][];
+        int registers = 0;
+        for (int fn = 0; fn < n; fn++) {
+            IrFunction f = functions.get(fn);
+            if (index.putIfAbsent(f.getName(), fn) != null) {
+                throw new IllegalArgumentException("function '" + f.getName() + "' is defined twice");
+            }
+            names[fn] = f.getName();
+            Translation t = new Translation(f);
+            code[fn] = t.code;
+            constants[fn] = t.constants;
+            intVariables[fn] = new boolean[f.getVariableCount()];
+            for (int v = 0; v < f.getVariableCount(); v++) intVariables[fn][v] = f.kind(v) == Kind.I;
+            registers = Math.max(registers, f.getRegisterCount());
+        }
+        frame = new long[registers];
+    }
+
+    public List<String> getFunctionNames() {
+        return List.of(names);
+    }
+
+    /** The number {@link #run} takes for the function called {@code name}. */
+    public int functionIndex(String name) {
+        Integer fn = index.get(name);
+        if (fn == null) throw new IllegalArgumentException("no function '" + name + "'");
+        return fn;
+    }
+
+    /** Instructions after translation, including superinstructions, for comparing with the IR's size. */
+    public int getInstructionCount(int function) {
+        return code[function].length / WIDTH;
+    }
+
+    /** Calls the function with its first locals set to {@code inputs} (the rest 0), like {@code IrEvaluator.run}. */
+    public long invoke(String name, long... inputs) {
+        return run(functionIndex(name), inputs);
+    }
+
+    /**
+     * Calls function number {@code function} with its first locals set to {@code inputs} and the rest 0; integer
+     * division by zero throws {@link ArithmeticException}. Allocates nothing.
+     */
+    public long run(int function, long[] inputs) {
+        long[] r = frame;
+        boolean[] ints = intVariables[function];
+        int given = Math.min(inputs.length, ints.length);
+        for (int v = 0; v < given; v++) r[v] = ints[v] ? (int) inputs[v] : inputs[v];
+        // temporaries need no clearing: lowered code writes each one before reading it
+        Arrays.fill(r, given, ints.length, 0);
+        return execute(code[function], constants[function], r);
+    }
+
+    private static long execute(int[] code, long[] k, long[] r) {
+        int pc = 0;
+        while (true) {
+            int dst = code[pc + 1];
+            int a = code[pc + 2];
+            int b = code[pc + 3];
+            switch (code[pc]) {
+                case MOVE -> r[dst] = r[a];
+                case LOADK -> r[dst] = k[a];
+                case ADD_I -> r[dst] = (int) r[a] + (int) r[b];
+                case SUB_I -> r[dst] = (int) r[a] - (int) r[b];
+                case MUL_I -> r[dst] = (int) r[a] * (int) r[b];
+                case DIV_I -> r[dst] = (int) r[a] / (int) r[b];
+                case REM_I -> r[dst] = (int) r[a] % (int) r[b];
+                case AND_I -> r[dst] = (int) r[a] & (int) r[b];
+                case OR_I -> r[dst] = (int) r[a] | (int) r[b];
+                case XOR_I -> r[dst] = (int) r[a] ^ (int) r[b];
+                case SHL_I -> r[dst] = (int) r[a] << (int) r[b];
+                case SHR_I -> r[dst] = (int) r[a] >> (int) r[b];
+                case ADD_L -> r[dst] = r[a] + r[b];
+                case SUB_L -> r[dst] = r[a] - r[b];
+                case MUL_L -> r[dst] = r[a] * r[b];
+                case DIV_L -> r[dst] = r[a] / r[b];
+                case REM_L -> r[dst] = r[a] % r[b];
+                case AND_L -> r[dst] = r[a] & r[b];
+                case OR_L -> r[dst] = r[a] | r[b];
+                case XOR_L -> r[dst] = r[a] ^ r[b];
+                case SHL_L -> r[dst] = r[a] << (int) r[b];
+                case SHR_L -> r[dst] = r[a] >> (int) r[b];
+                case ADD_D -> r[dst] = bits(d(r[a]) + d(r[b]));
+                case SUB_D -> r[dst] = bits(d(r[a]) - d(r[b]));
+                case MUL_D -> r[dst] = bits(d(r[a]) * d(r[b]));
+                case DIV_D -> r[dst] = bits(d(r[a]) / d(r[b]));
+                case EQ_I, EQ_L -> r[dst] = r[a] == r[b] ? 1 : 0;
+                case NE_I, NE_L -> r[dst] = r[a] != r[b] ? 1 : 0;
+                case LT_I, LT_L -> r[dst] = r[a] < r[b] ? 1 : 0;
+                case LE_I, LE_L -> r[dst] = r[a] <= r[b] ? 1 : 0;
+                case GT_I, GT_L -> r[dst] = r[a] > r[b] ? 1 : 0;
+                case GE_I, GE_L -> r[dst] = r[a] >= r[b] ? 1 : 0;
+                case I2L -> r[dst] = r[a];
+                case L2I -> r[dst] = (int) r[a];
+                case I2B -> r[dst] = (byte) r[a];
+                case ADD_IK -> r[dst] = (int) r[a] + b;
+                case SUB_IK -> r[dst] = (int) r[a] - b;
+                case MUL_IK -> r[dst] = (int) r[a] * b;
+                case AND_IK -> r[dst] = (int) r[a] & b;
+                case OR_IK -> r[dst] = (int) r[a] | b;
+                case XOR_IK -> r[dst] = (int) r[a] ^ b;
+                case SHL_IK -> r[dst] = (int) r[a] << b;
+                case SHR_IK -> r[dst] = (int) r[a] >> b;
+                case ADD_LK -> r[dst] = r[a] + b;
+                case SUB_LK -> r[dst] = r[a] - b;
+                case MUL_LK -> r[dst] = r[a] * b;
+                case AND_LK -> r[dst] = r[a] & b;
+                case OR_LK -> r[dst] = r[a] | b;
+                case XOR_LK -> r[dst] = r[a] ^ b;
+                case SHL_LK -> r[dst] = r[a] << b;
+                case SHR_LK -> r[dst] = r[a] >> b;
+                // int and long registers hold sign-extended values, so both compare as longs
+                case JEQ_I, JEQ_L -> {
+                    if (r[a] == r[b]) {
+                        pc = dst;
+                        continue;
+                    }
+                }
+                case JNE_I, JNE_L -> {
+                    if (r[a] != r[b]) {
+                        pc = dst;
+                        continue;
+                    }
+                }
+                case JLT_I, JLT_L -> {
+                    if (r[a] < r[b]) {
+                        pc = dst;
+                        continue;
+                    }
+                }
+                case JLE_I, JLE_L -> {
+                    if (r[a] <= r[b]) {
+                        pc = dst;
+                        continue;
+                    }
+                }
+                case JGT_I, JGT_L -> {
+                    if (r[a] > r[b]) {
+                        pc = dst;
+                        continue;
+                    }
+                }
+                case JGE_I, JGE_L -> {
+                    if (r[a] >= r[b]) {
+                        pc = dst;
+                        continue;
+                    }
+                }
+                case JUMP -> {
+                    pc = a;
+                    continue;
+                }
+                case JZ -> {
+                    if (r[a] == 0) {
+                        pc = b;
+                        continue;
+                    }
+                }
+                case RETURN -> {
+                    return r[a];
+                }
+                case RETURN_VOID -> {
+                    return 0;
+                }
+                default -> r[dst] = OPS[code[pc] - GENERIC].apply(r[a], r[b]);
+            }
+            pc += WIDTH;
+        }
+    }
+
+    private static double d(long bits) {
+        return Double.longBitsToDouble(bits);
+    }
+
+    private static long bits(double d) {
+        return Double.doubleToRawLongBits(d);
+    }
+
+    /** One function's instructions in the interpreter's encoding. */
+    private static final class Translation {
+        final int[] code;
+        final long[] constants;
+
+        private final IrFunction f;
+        private final int[] opcode;
+        private final boolean[] immediate;
+        // defined only by one CONST, so its value is known everywhere it is read
+        private final boolean[] isConstant;
+        private final long[] constantValue;
+
+        Translation(IrFunction f) {
+            this.f = f;
+            int size = f.size();
+            int registers = f.getRegisterCount();
+            int[] defs = new int[registers];
+            int[] uses = new int[registers];
+            boolean[] target = new boolean[size + 1];
+            isConstant = new boolean[registers];
+            constantValue = new long[registers];
+            for (int i = 0; i < size; i++) {
+                Op op = f.op(i);
+                if (op.isBranch()) target[f.target(i)] = true;
+                if (op.defines()) {
+                    defs[f.dst(i)]++;
+                    if (op == Op.CONST) constantValue[f.dst(i)] = f.constant(f.a(i));
+                }
+                if (op == Op.CONST || op == Op.JUMP) continue;
+                if (op.uses >= 1 && f.a(i) >= 0) uses[f.a(i)]++;
+                if (op.uses == 2) uses[f.b(i)]++;
+            }
+            for (int i = 0; i < size; i++) {
+                int dst = f.dst(i);
+                if (f.op(i) == Op.CONST && dst >= f.getVariableCount() && defs[dst] == 1) isConstant[dst] = true;
+            }
+
+            // first pass: pick each instruction's opcode; what is left reading each constant register decides
+            // whether its LOADK is still needed
+            opcode = new int[size];
+            immediate = new boolean[size];
+            int[] registerReads = new int[registers];
+            int[] a = new int[size];
+            int[] b = new int[size];
+            for (int i = 0; i < size; i++) {
+                Op op = f.op(i);
+                a[i] = f.a(i);
+                b[i] = f.b(i);
+                if (opcode[i] < 0) continue; // a branch fused into the comparison before it
+                opcode[i] = op == Op.RETURN && a[i] < 0 ? RETURN_VOID : select(op);
+                if (op.isCommutative() && op.uses == 2 && immediateForm(op) >= 0 && isImmediate(a[i]) && !isImmediate(b[i])) {
+                    int t = a[i];
+                    a[i] = b[i];
+                    b[i] = t;
+                }
+                if (op.uses == 2 && immediateForm(op) >= 0 && isImmediate(b[i])) {
+                    opcode[i] = immediateForm(op);
+                    immediate[i] = true;
+                }
+                int branch = branchForm(op);
+                if (branch >= 0 && i + 1 < size && f.op(i + 1) == Op.JZ && f.a(i + 1) == f.dst(i) && !target[i + 1]
+                        && uses[f.dst(i)] == 1 && defs[f.dst(i)] == 1) {
+                    opcode[i] = branch;
+                    opcode[i + 1] = -1;
+                }
+            }
+            for (int i = 0; i < size; i++) {
+                Op op = f.op(i);
+                if (opcode[i] < 0 || op == Op.CONST || op == Op.JUMP) continue;
+                if (op.uses >= 1 && a[i] >= 0) registerReads[a[i]]++;
+                if (op.uses == 2 && !immediate[i]) registerReads[b[i]]++;
+            }
+            for (int i = 0; i < size; i++) {
+                if (f.op(i) == Op.CONST && isConstant[f.dst(i)] && registerReads[f.dst(i)] == 0) opcode[i] = -1;
+                if (f.op(i) == Op.NOP) opcode[i] = -1;
+            }
+
+            // second pass: emit, then turn jump targets into code offsets
+            int[] offset = new int[size + 1];
+            int count = 0;
+            for (int i = 0; i < size; i++) {
+                offset[i] = count * WIDTH;
+                if (opcode[i] >= 0) count++;
+            }
+            offset[size] = count * WIDTH;
+            // a final RETURN_VOID, so a jump past the end or running off it returns 0
+            int[] out = new int[(count + 1) * WIDTH];
+            int pc = 0;
+            for (int i = 0; i < size; i++) {
+                if (opcode[i] < 0) continue;
+                Op op = f.op(i);
+                int dst = f.dst(i);
+                int x = a[i];
+                int y = b[i];
+                switch (op) {
+                    case JUMP -> x = offset[f.target(i)];
+                    case JZ -> y = offset[f.target(i)];
+                    case MOVE, CONST, RETURN -> {
+                    }
+                    default -> {
+                        if (immediate[i]) y = (int) constantValue[y];
+                        else if (op.uses == 1) y = x;
+                        // a fused comparison jumps where the branch after it would not have
+                        if (opcode[i] >= JEQ_I && opcode[i] <= JGE_L) dst = offset[f.target(i + 1)];
+                    }
+                }
+                out[pc] = opcode[i];
+                out[pc + 1] = dst;
+                out[pc + 2] = x;
+                out[pc + 3] = y;
+                pc += WIDTH;
+            }
+            out[pc] = RETURN_VOID;
+            code = out;
+            constants = constantsOf(f);
+        }
+
+        // the function's constant pool, indexed like the CONST instructions that read it
+        private static long[] constantsOf(IrFunction f) {
+            int max = -1;
+            for (int i = 0; i < f.size(); i++) {
+                if (f.op(i) == Op.CONST) max = Math.max(max, f.a(i));
+            }
+            long[] pool = new long[max + 1];
+            for (int i = 0; i < f.size(); i++) {
+                if (f.op(i) == Op.CONST) pool[f.a(i)] = f.constant(f.a(i));
+            }
+            return pool;
+        }
+
+        private boolean isImmediate(int register) {
+            if (!isConstant[register]) return false;
+            long v = constantValue[register];
+            return v == (int) v;
+        }
+
+        private static int select(Op op) {
+            return switch (op) {
+                case MOVE -> MOVE;
+                case CONST -> LOADK;
+                case ADD_I -> ADD_I;
+                case SUB_I -> SUB_I;
+                case MUL_I -> MUL_I;
+                case DIV_I -> DIV_I;
+                case REM_I -> REM_I;
+                case AND_I -> AND_I;
+                case OR_I -> OR_I;
+                case XOR_I -> XOR_I;
+                case SHL_I -> SHL_I;
+                case SHR_I -> SHR_I;
+                case ADD_L -> ADD_L;
+                case SUB_L -> SUB_L;
+                case MUL_L -> MUL_L;
+                case DIV_L -> DIV_L;
+                case REM_L -> REM_L;
+                case AND_L -> AND_L;
+                case OR_L -> OR_L;
+                case XOR_L -> XOR_L;
+                case SHL_L -> SHL_L;
+                case SHR_L -> SHR_L;
+                case ADD_D -> ADD_D;
+                case SUB_D -> SUB_D;
+                case MUL_D -> MUL_D;
+                case DIV_D -> DIV_D;
+                case EQ_I -> EQ_I;
+                case NE_I -> NE_I;
+                case LT_I -> LT_I;
+                case LE_I -> LE_I;
+                case GT_I -> GT_I;
+                case GE_I -> GE_I;
+                case EQ_L -> EQ_L;
+                case NE_L -> NE_L;
+                case LT_L -> LT_L;
+                case LE_L -> LE_L;
+                case GT_L -> GT_L;
+                case GE_L -> GE_L;
+                case I2L -> I2L;
+                case L2I -> L2I;
+                case I2B -> I2B;
+                case JUMP -> JUMP;
+                case JZ -> JZ;
+                case RETURN -> RETURN;
+                default -> GENERIC + op.ordinal();
+            };
+        }
+
+        private static int immediateForm(Op op) {
+            return switch (op) {
+                case ADD_I -> ADD_IK;
+                case SUB_I -> SUB_IK;
+                case MUL_I -> MUL_IK;
+                case AND_I -> AND_IK;
+                case OR_I -> OR_IK;
+                case XOR_I -> XOR_IK;
+                case SHL_I -> SHL_IK;
+                case SHR_I -> SHR_IK;
+                case ADD_L -> ADD_LK;
+                case SUB_L -> SUB_LK;
+                case MUL_L -> MUL_LK;
+                case AND_L -> AND_LK;
+                case OR_L -> OR_LK;
+                case XOR_L -> XOR_LK;
+                case SHL_L -> SHL_LK;
+                case SHR_L -> SHR_LK;
+                default -> -1;
+            };
+        }
+
+        // the compare-and-branch taken when the comparison is false, i.e. when JZ would jump
+        private static int branchForm(Op op) {
+            return switch (op) {
+                case EQ_I -> JNE_I;
+                case NE_I -> JEQ_I;
+                case LT_I -> JGE_I;
+                case LE_I -> JGT_I;
+                case GT_I -> JLE_I;
+                case GE_I -> JLT_I;
+                case EQ_L -> JNE_L;
+                case NE_L -> JEQ_L;
+                case LT_L -> JGE_L;
+                case LE_L -> JGT_L;
+                case GT_L -> JLE_L;
+                case GE_L -> JLT_L;
+                default -> -1;
+            };
+        }
+    }
+}
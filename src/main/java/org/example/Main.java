@@ -1,25 +1,78 @@
 package org.example;
 
+import org.example.Driver.BatchCompiler;
+import org.example.Driver.CompileDaemon;
+import org.example.Driver.DaemonClient;
+import org.example.Driver.ProgramRunner;
+import org.example.Metrics.CompilerMetrics;
 import org.example.Parser.Parser;
+import org.example.Parser.StreamingParser;
+import org.example.Parser.TypeChecker;
+import org.example.Preprocessor.HeaderCache;
+import org.example.Preprocessor.Preprocessor;
 import org.example.Scanner.Scanner;
-import org.example.Tokens.Token;
+import org.example.Tokens.TokenBuffer;
 
 import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 public class Main {
+    /**
+     * {@code --metrics} (or {@code --metrics=json}) anywhere on the command line times every compiler phase and
+     * prints the totals to standard error once the run is done, as a table or as one line of JSON.
+     */
     public static void main(String[] args) throws IOException {
+        if (args.length > 0 && args[0].equals("--connect")) {
+            // thin client: the daemon does the work, so nothing of the compiler is loaded here
+            System.exit(DaemonClient.run(args, System.out));
+        }
+        if (args.length > 0 && args[0].equals("--daemon")) {
+            // keep a warm compiler on a Unix-domain socket for --connect
+            System.exit(CompileDaemon.run(args, System.out));
+        }
+        String metrics = null;
+        List<String> rest = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.equals("--metrics") || arg.equals("--metrics=text")) metrics = "text";
+            else if (arg.equals("--metrics=json")) metrics = "json";
+            else if (arg.startsWith("--metrics=")) throw new IllegalArgumentException("unknown metrics format: " + arg);
+            else rest.add(arg);
+        }
+        CompilerMetrics.setEnabled(metrics != null);
+        int status = run(rest.toArray(new String[0]));
+        if (metrics != null) {
+            System.err.print(metrics.equals("json") ? CompilerMetrics.toJson() + System.lineSeparator() : CompilerMetrics.summary());
+        }
+        if (!rest.isEmpty()) System.exit(status);
+    }
+
+    private static int run(String[] args) throws IOException {
+        if (args.length > 0 && args[0].equals("--run")) {
+            // compile one file to bytecode and call a function of it
+            return ProgramRunner.run(args, System.out);
+        }
+        if (args.length > 0 && args[0].equals("--stream")) {
+            // syntax-check files too large to hold as tokens, one top-level item at a time
+            return stream(Arrays.copyOfRange(args, 1, args.length));
+        }
+        if (args.length > 0) {
+            // batch mode: files, directories, globs or @lists given on the command line
+            return BatchCompiler.run(args, System.out);
+        }
 
         String code = Scanner.getInputConsole();
-        List<Token> tokens = Scanner.Tokenize(code);
+        TokenBuffer tokens = new Preprocessor(List.of(), new HeaderCache()).preprocess(code, null);
 
         System.out.println("=== Tokens ===");
         for (int i = 0; i < tokens.size(); i++) {
-            System.out.println("token[" + i + "] " + tokens.get(i));
+            System.out.println("token[" + i + "] " + tokens.getLocation(i) + " " + tokens.get(i));
         }
         System.out.println("==============");
 
-        Parser parser = new Parser(tokens);
+        Parser parser = new Parser(tokens, true).setResolveNames(true);
         parser.parseProgram();
 
         if (parser.hasErrors()) {
@@ -27,9 +80,35 @@ public class Main {
             for (String e : parser.getErrors()) {
                 System.out.println(e);
             }
+            return 0;
+        }
+        System.out.println("No syntax errors found.");
+
+        TypeChecker checker = new TypeChecker(parser.getAst()).check();
+        if (checker.hasErrors()) {
+            System.out.println("Type errors found:");
+            for (String e : checker.getErrors()) {
+                System.out.println(e);
+            }
         } else {
-            System.out.println("No syntax errors found.");
+            System.out.println("No type errors found.");
+        }
+        return 0;
+    }
+
+    private static int stream(String[] files) throws IOException {
+        if (files.length == 0) throw new IllegalArgumentException("--stream needs a file");
+        int failed = 0;
+        for (String file : files) {
+            try (StreamingParser parser = StreamingParser.of(Path.of(file))
+                    .setMaxErrors(BatchCompiler.DEFAULT_MAX_ERRORS).setResolveNames(true)) {
+                parser.parseProgram();
+                for (String e : parser.getErrors()) System.out.println(file + ": " + e);
+                System.out.printf("%s: %d tokens, at most %d held at once%n", file, parser.getTokenCount(), parser.getLargestWindow());
+                if (parser.hasErrors()) failed++;
+            }
         }
+        return failed == 0 ? 0 : 1;
     }
 }
 
@@ -0,0 +1,141 @@
+package org.example.Metrics;
+
+import org.example.Tokens.TokenType;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Process-wide totals of every {@link PhaseEvent} finished while enabled: runs, time, bytes, tokens, errors and
+ * backtracks per {@link Phase}, and tokens lexed per {@link TokenType}. Disabled by default; the counters are
+ * {@link LongAdder}s, so the files of a parallel batch add to them without contending.
+ */
+public final class CompilerMetrics {
+    private static final Phase[] PHASES = Phase.values();
+    private static final TokenType[] TYPES = TokenType.values();
+
+    private static volatile boolean enabled;
+
+    private static final LongAdder[] runs = adders(PHASES.length);
+    private static final LongAdder[] nanos = adders(PHASES.length);
+    private static final LongAdder[] bytes = adders(PHASES.length);
+    private static final LongAdder[] tokens = adders(PHASES.length);
+    private static final LongAdder[] errors = adders(PHASES.length);
+    private static final LongAdder[] backtracks = adders(PHASES.length);
+    private static final LongAdder[] tokensByType = adders(TYPES.length);
+
+    private CompilerMetrics() {
+    }
+
+    /** Phases started after this call are counted, or no longer counted. */
+    public static void setEnabled(boolean enabled) {
+        CompilerMetrics.enabled = enabled;
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /** Zeroes every counter. */
+    public static void reset() {
+        for (LongAdder[] counters : new LongAdder[][] {runs, nanos, bytes, tokens, errors, backtracks, tokensByType}) {
+            for (LongAdder c : counters) c.reset();
+        }
+    }
+
+    static void record(Phase phase, long elapsedNanos, long bytes, long tokens, int errors, int backtracks, long[] byType) {
+        int p = phase.ordinal();
+        runs[p].increment();
+        nanos[p].add(elapsedNanos);
+        CompilerMetrics.bytes[p].add(bytes);
+        CompilerMetrics.tokens[p].add(tokens);
+        CompilerMetrics.errors[p].add(errors);
+        CompilerMetrics.backtracks[p].add(backtracks);
+        if (byType != null && phase == Phase.TOKENIZE) {
+            for (int t = 0; t < byType.length; t++) {
+                if (byType[t] != 0) tokensByType[t].add(byType[t]);
+            }
+        }
+    }
+
+    public static long runs(Phase phase) {
+        return runs[phase.ordinal()].sum();
+    }
+
+    public static long nanos(Phase phase) {
+        return nanos[phase.ordinal()].sum();
+    }
+
+    public static long bytes(Phase phase) {
+        return bytes[phase.ordinal()].sum();
+    }
+
+    public static long tokens(Phase phase) {
+        return tokens[phase.ordinal()].sum();
+    }
+
+    public static long errors(Phase phase) {
+        return errors[phase.ordinal()].sum();
+    }
+
+    public static long backtracks(Phase phase) {
+        return backtracks[phase.ordinal()].sum();
+    }
+
+    /** Tokens of {@code type} produced by {@link Phase#TOKENIZE}. */
+    public static long tokens(TokenType type) {
+        return tokensByType[type.ordinal()].sum();
+    }
+
+    /** A table of the phases that ran, then the lexed tokens by type. */
+    public static String summary() {
+        StringBuilder sb = new StringBuilder(String.format("%-12s %6s %10s %12s %10s %7s %10s%n",
+                "phase", "runs", "time ms", "bytes", "tokens", "errors", "backtracks"));
+        for (Phase phase : PHASES) {
+            if (runs(phase) == 0) continue;
+            sb.append(String.format(Locale.ROOT, "%-12s %6d %10.3f %12d %10d %7d %10d%n", phase.name().toLowerCase(Locale.ROOT),
+                    runs(phase), nanos(phase) / 1e6, bytes(phase), tokens(phase), errors(phase), backtracks(phase)));
+        }
+        sb.append("tokens by type:");
+        boolean any = false;
+        for (TokenType type : TYPES) {
+            long n = tokens(type);
+            if (n == 0) continue;
+            sb.append(' ').append(type.name().toLowerCase(Locale.ROOT)).append('=').append(n);
+            any = true;
+        }
+        if (!any) sb.append(" none");
+        return sb.append(System.lineSeparator()).toString();
+    }
+
+    /**
+     * The same numbers as one JSON object: {@code {"phases":{"parse":{"runs":1,"nanos":...},...},"tokens":{...}}},
+     * with every phase and token type present so consumers need not check for missing keys.
+     */
+    public static String toJson() {
+        StringBuilder sb = new StringBuilder("{\"phases\":{");
+        for (Phase phase : PHASES) {
+            if (phase.ordinal() > 0) sb.append(',');
+            sb.append('"').append(phase.name().toLowerCase(Locale.ROOT)).append("\":{")
+              .append("\"runs\":").append(runs(phase))
+              .append(",\"nanos\":").append(nanos(phase))
+              .append(",\"bytes\":").append(bytes(phase))
+              .append(",\"tokens\":").append(tokens(phase))
+              .append(",\"errors\":").append(errors(phase))
+              .append(",\"backtracks\":").append(backtracks(phase))
+              .append('}');
+        }
+        sb.append("},\"tokens\":{");
+        for (TokenType type : TYPES) {
+            if (type.ordinal() > 0) sb.append(',');
+            sb.append('"').append(type.name().toLowerCase(Locale.ROOT)).append("\":").append(tokens(type));
+        }
+        return sb.append("}}").toString();
+    }
+
+    private static LongAdder[] adders(int n) {
+        LongAdder[] adders = new LongAdder[n];
+        for (int i = 0; i < n; i++) adders[i] = new LongAdder();
+        return adders;
+    }
+}
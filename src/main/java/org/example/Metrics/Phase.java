@@ -0,0 +1,21 @@
+package org.example.Metrics;
+
+/**
+ * The compiler phases that report a {@link PhaseEvent}, in pipeline order. Phases nest where one calls another:
+ * {@code PREPROCESS} includes the {@code TOKENIZE} of the file and of every header it lexes.
+ */
+public enum Phase {
+    /** {@link org.example.Scanner.Scanner#getInputFile}: bytes are the size of the file read */
+    READ,
+    /** lexing; bytes are characters of source, tokens are the tokens produced */
+    TOKENIZE,
+    /** tokens are the tokens left after directives and macros */
+    PREPROCESS,
+    /** tokens are the tokens parsed; backtracks are the functions {@code parseFunction} had to rewind */
+    PARSE,
+    TYPE_CHECK,
+    LOWER,
+    OPTIMIZE,
+    /** bytes are the size of the generated class file */
+    CODEGEN
+}
@@ -0,0 +1,147 @@
+package org.example.Metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import org.example.Tokens.Token;
+import org.example.Tokens.TokenBuffer;
+import org.example.Tokens.TokenType;
+
+import java.util.List;
+
+/**
+ * A JDK Flight Recorder event for one run of one {@link Phase}, also fed to {@link CompilerMetrics} while that is
+ * enabled. Instrumented code brackets the phase with {@link #begin} and {@link #finish} and only fills in the
+ * counts when {@link #isRecording} says someone will read them, so a phase nobody records costs one small
+ * allocation. Token counts per {@link TokenType} are committed as separate {@code org.example.TokenCount} events.
+ */
+@Name("org.example.CompilerPhase")
+@Label("Compiler Phase")
+@Category("C Compiler")
+@Description("Time and work of one compiler phase")
+@StackTrace(false)
+public final class PhaseEvent extends Event {
+    private static final TokenType[] TYPES = TokenType.values();
+
+    @Label("Phase")
+    String phase;
+
+    @Label("Bytes")
+    @DataAmount
+    long bytes;
+
+    @Label("Tokens")
+    long tokens;
+
+    @Label("Errors")
+    int errors;
+
+    @Label("Backtracks")
+    int backtracks;
+
+    private final transient Phase kind;
+    private final transient boolean metrics;
+    private transient long startNanos;
+    // by TokenType ordinal; null unless the tokens were counted by type
+    private transient long[] tokensByType;
+
+    private PhaseEvent(Phase kind) {
+        this.kind = kind;
+        this.phase = kind.name();
+        this.metrics = CompilerMetrics.isEnabled();
+    }
+
+    /** Starts timing a run of {@code phase}. */
+    public static PhaseEvent begin(Phase phase) {
+        PhaseEvent event = new PhaseEvent(phase);
+        if (event.metrics) event.startNanos = System.nanoTime();
+        event.begin();
+        return event;
+    }
+
+    /** True if a recording or {@link CompilerMetrics} will see this event, i.e. its counts are worth computing. */
+    public boolean isRecording() {
+        return metrics || isEnabled();
+    }
+
+    public PhaseEvent setBytes(long bytes) {
+        this.bytes = bytes;
+        return this;
+    }
+
+    public PhaseEvent setErrors(int errors) {
+        this.errors = errors;
+        return this;
+    }
+
+    public PhaseEvent setBacktracks(int backtracks) {
+        this.backtracks = backtracks;
+        return this;
+    }
+
+    /** Counts only the total; use {@link #countTokens} where the tokens are new and their types are of interest. */
+    public PhaseEvent setTokens(long tokens) {
+        this.tokens = tokens;
+        return this;
+    }
+
+    /** Sets the token count and counts the tokens by type; comments in the buffer's trivia count as tokens here. */
+    public PhaseEvent countTokens(TokenBuffer buffer) {
+        long[] counts = new long[TYPES.length];
+        for (int i = 0; i < buffer.size(); i++) counts[buffer.getType(i).ordinal()]++;
+        for (int t = 0; t < buffer.getTriviaCount(); t++) counts[buffer.getTriviaKind(t).getType().ordinal()]++;
+        tokensByType = counts;
+        tokens = buffer.size() + buffer.getTriviaCount();
+        return this;
+    }
+
+    public PhaseEvent countTokens(List<Token> list) {
+        long[] counts = new long[TYPES.length];
+        for (Token t : list) counts[t.getType().ordinal()]++;
+        tokensByType = counts;
+        tokens = list.size();
+        return this;
+    }
+
+    /** Ends the phase: commits the event to any recording and adds it to {@link CompilerMetrics} if enabled. */
+    public void finish() {
+        end();
+        if (shouldCommit()) {
+            commit();
+            if (tokensByType != null) commitTokenCounts();
+        }
+        if (metrics) CompilerMetrics.record(kind, System.nanoTime() - startNanos, bytes, tokens, errors, backtracks, tokensByType);
+    }
+
+    private void commitTokenCounts() {
+        for (int t = 0; t < tokensByType.length; t++) {
+            if (tokensByType[t] == 0) continue;
+            TokenCountEvent count = new TokenCountEvent();
+            if (!count.isEnabled()) return;
+            count.phase = phase;
+            count.tokenType = TYPES[t].name();
+            count.count = tokensByType[t];
+            count.commit();
+        }
+    }
+
+    @Name("org.example.TokenCount")
+    @Label("Token Count")
+    @Category("C Compiler")
+    @Description("Tokens of one type produced by one compiler phase")
+    @StackTrace(false)
+    static final class TokenCountEvent extends Event {
+        @Label("Phase")
+        String phase;
+
+        @Label("Token Type")
+        String tokenType;
+
+        @Label("Count")
+        long count;
+    }
+}
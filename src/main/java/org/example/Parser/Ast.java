@@ -0,0 +1,218 @@
+package org.example.Parser;
+
+import org.example.Tokens.TokenBuffer;
+
+import java.util.Arrays;
+
+/**
+ * Syntax tree stored as parallel primitive arrays: a node is an index, with a kind, the index of the token it
+ * refers to, its first child and its next sibling. That is 13 bytes per node slot and no objects, and nodes are
+ * laid out in the order the parser created them. Node 0 is the {@link NodeKind#PROGRAM} root.
+ */
+public final class Ast {
+    /** Index returned for a missing child, sibling or token. */
+    public static final int NONE = -1;
+    private static final NodeKind[] KINDS = NodeKind.values();
+
+    private final TokenBuffer tokens;
+    private byte[] kinds;
+    private int[] tokenIndex;
+    private int[] firstChild;
+    private int[] nextSibling;
+    private int size;
+
+    Ast(TokenBuffer tokens, int capacity) {
+        this.tokens = tokens;
+        capacity = Math.max(16, capacity);
+        kinds = new byte[capacity];
+        tokenIndex = new int[capacity];
+        firstChild = new int[capacity];
+        nextSibling = new int[capacity];
+    }
+
+    int add(NodeKind kind, int token) {
+        if (size == kinds.length) {
+            int capacity = size * 2;
+            kinds = Arrays.copyOf(kinds, capacity);
+            tokenIndex = Arrays.copyOf(tokenIndex, capacity);
+            firstChild = Arrays.copyOf(firstChild, capacity);
+            nextSibling = Arrays.copyOf(nextSibling, capacity);
+        }
+        kinds[size] = (byte) kind.ordinal();
+        tokenIndex[size] = token;
+        firstChild[size] = NONE;
+        nextSibling[size] = NONE;
+        return size++;
+    }
+
+    // children are pushed on the front while building, and put in source order once by finish()
+    void append(int parent, int child) {
+        if (parent == NONE || child == NONE) return;
+        nextSibling[child] = firstChild[parent];
+        firstChild[parent] = child;
+    }
+
+    /** Drops every node created at or after {@code size}; they must not be linked from older nodes. */
+    void truncate(int size) {
+        this.size = size;
+    }
+
+    /** Reverses every child list into source order; called once when parsing is done. */
+    void finish() {
+        for (int node = 0; node < size; node++) {
+            int reversed = NONE;
+            int c = firstChild[node];
+            while (c != NONE) {
+                int next = nextSibling[c];
+                nextSibling[c] = reversed;
+                reversed = c;
+                c = next;
+            }
+            firstChild[node] = reversed;
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int root() {
+        return 0;
+    }
+
+    public TokenBuffer getTokens() {
+        return tokens;
+    }
+
+    public NodeKind kind(int node) {
+        return KINDS[kinds[node]];
+    }
+
+    public int token(int node) {
+        return tokenIndex[node];
+    }
+
+    /** Text of the node's token, or null for nodes without one. */
+    public String text(int node) {
+        int t = tokenIndex[node];
+        return t == NONE ? null : tokens.getValue(t);
+    }
+
+    public int firstChild(int node) {
+        return firstChild[node];
+    }
+
+    public int nextSibling(int node) {
+        return nextSibling[node];
+    }
+
+    public int childCount(int node) {
+        int count = 0;
+        for (int c = firstChild[node]; c != NONE; c = nextSibling[c]) count++;
+        return count;
+    }
+
+    /** Visits the tree depth-first, using a heap stack so tree depth is not limited by the Java stack. */
+    public void walk(AstVisitor visitor) {
+        if (size == 0) return;
+        walk(root(), visitor);
+    }
+
+    /** Visits the subtree under {@code from} like {@link #walk(AstVisitor)}; siblings of {@code from} are not visited. */
+    public void walk(int from, AstVisitor visitor) {
+        int[] stack = new int[16];
+        int depth = 0;
+        int node = from;
+        while (true) {
+            if (visitor.enter(this, node) && firstChild[node] != NONE) {
+                if (depth == stack.length) stack = Arrays.copyOf(stack, depth * 2);
+                stack[depth++] = node;
+                node = firstChild[node];
+                continue;
+            }
+            visitor.exit(this, node);
+            while (depth > 0 && nextSibling[node] == NONE) {
+                node = stack[--depth];
+                visitor.exit(this, node);
+            }
+            if (depth == 0) return;
+            node = nextSibling[node];
+        }
+    }
+
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    /** Movable position in the tree that remembers its ancestors, so it can move back up without parent links. */
+    public final class Cursor {
+        private int[] path = new int[16];
+        private int depth;
+        private int node = root();
+
+        public int node() {
+            return node;
+        }
+
+        public NodeKind kind() {
+            return Ast.this.kind(node);
+        }
+
+        public int token() {
+            return tokenIndex[node];
+        }
+
+        public String text() {
+            return Ast.this.text(node);
+        }
+
+        public int depth() {
+            return depth;
+        }
+
+        public boolean firstChild() {
+            int child = firstChild[node];
+            if (child == NONE) return false;
+            if (depth == path.length) path = Arrays.copyOf(path, depth * 2);
+            path[depth++] = node;
+            node = child;
+            return true;
+        }
+
+        public boolean nextSibling() {
+            int sibling = nextSibling[node];
+            if (sibling == NONE) return false;
+            node = sibling;
+            return true;
+        }
+
+        public boolean parent() {
+            if (depth == 0) return false;
+            node = path[--depth];
+            return true;
+        }
+    }
+
+    /** S-expression form, e.g. {@code (BINARY + (NAME a) (LITERAL 1))}, for tests and debugging. */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        walk(new AstVisitor() {
+            @Override
+            public boolean enter(Ast ast, int node) {
+                if (sb.length() > 0) sb.append(' ');
+                sb.append('(').append(ast.kind(node));
+                if (ast.token(node) != NONE && ast.kind(node) != NodeKind.EXPRESSION_STATEMENT) {
+                    sb.append(' ').append(ast.text(node));
+                }
+                return true;
+            }
+
+            @Override
+            public void exit(Ast ast, int node) {
+                sb.append(')');
+            }
+        });
+        return sb.toString();
+    }
+}
@@ -0,0 +1,13 @@
+package org.example.Parser;
+
+/** Callbacks for {@link Ast#walk}; nodes are passed as indices into the tree. */
+public interface AstVisitor {
+    /** Called before the children of {@code node}; returning false skips them. */
+    default boolean enter(Ast ast, int node) {
+        return true;
+    }
+
+    /** Called after the children of {@code node}, or right after {@link #enter} if they were skipped. */
+    default void exit(Ast ast, int node) {
+    }
+}
@@ -0,0 +1,11 @@
+package org.example.Parser;
+
+import org.example.Tokens.TokenKind;
+
+/**
+ * One parse error: what went wrong, the token index it was reported at, the kind that was expected there (if
+ * any) and the kind actually found (null at end of input). {@code related} is a second token some messages
+ * quote, or -1.
+ */
+public record Diagnostic(DiagnosticCode code, int token, int related, TokenKind expected, TokenKind found) {
+}
@@ -0,0 +1,68 @@
+package org.example.Parser;
+
+import org.example.Tokens.TokenKind;
+
+/**
+ * Every error the parser and the {@link TypeChecker} can report. A message either follows the reported token
+ * shown as {@code <TYPE:value>} or stands alone after a colon; {@code %s} is replaced by the value of the
+ * related token.
+ */
+public enum DiagnosticCode {
+    UNEXPECTED_AT_TOP_LEVEL(true, "unexpected token at top-level", null),
+    FUNCTION_NAME_AT_EOF(false, "expected function name but found EOF", TokenKind.IDENTIFIER),
+    EXPECTED_FUNCTION_NAME(true, "expected function name (identifier or 'main')", TokenKind.IDENTIFIER),
+    EXPECTED_LPAREN_AFTER_NAME(false, "expected '(' after function name", TokenKind.P_LPAREN),
+    EXPECTED_EMPTY_PARAMETERS(false, "expected ')' (only empty parameter lists supported)", TokenKind.P_RPAREN),
+    EXPECTED_FUNCTION_BODY(false, "expected function body (block)", TokenKind.P_LBRACE),
+    MISSING_RBRACE(false, "missing '}' for block", TokenKind.P_RBRACE),
+    MISSING_SEMICOLON_AFTER_RETURN(false, "missing ';' after return", TokenKind.P_SEMICOLON),
+    MISSING_SEMICOLON_AFTER_EXPRESSION(false, "missing ';' after expression", TokenKind.P_SEMICOLON),
+    MISSING_SEMICOLON_AFTER_DECLARATION(false, "missing ';' after variable declaration", TokenKind.P_SEMICOLON),
+    EXPECTED_IDENTIFIER_AFTER_TYPE(true, "expected identifier after type '%s'", TokenKind.IDENTIFIER),
+    EXPECTED_IDENTIFIER_AFTER_COMMA(false, "expected identifier after ',' in declaration", TokenKind.IDENTIFIER),
+    EXPECTED_LPAREN_AFTER_IF(false, "expected '(' after if", TokenKind.P_LPAREN),
+    MISSING_RPAREN_AFTER_CONDITION(false, "missing ')' after if condition", TokenKind.P_RPAREN),
+    MISSING_RPAREN_IN_EXPRESSION(false, "missing ')' in expression", TokenKind.P_RPAREN),
+    EXPECTED_COLON(false, "expected ':' in conditional expression", TokenKind.OP_COLON),
+    EXPECTED_MEMBER_NAME(false, "expected member name after '->'", TokenKind.IDENTIFIER),
+    KEYWORD_IN_EXPRESSION(true, "Unexpected token inside expression: %s", null),
+    UNEXPECTED_IN_EXPRESSION(true, "unexpected token inside expression", null),
+    UNTERMINATED_COMMENT(false, "unterminated comment", null),
+    UNTERMINATED_STRING(false, "unterminated string literal", null),
+    UNDECLARED_IDENTIFIER(true, "use of undeclared identifier '%s'", null),
+    DUPLICATE_DECLARATION(true, "'%s' is already declared in this scope", null),
+    VOID_VARIABLE(true, "variable '%s' declared void", null),
+    FUNCTION_AS_VALUE(true, "function '%s' used as a value", null),
+    NOT_ASSIGNABLE(true, "left operand of assignment is not assignable", null),
+    INCOMPATIBLE_ASSIGNMENT(true, "incompatible types in assignment", null),
+    INVALID_OPERANDS(true, "invalid operand types for binary operator", null),
+    INVALID_OPERAND(true, "invalid operand type for unary operator", null),
+    ADDRESS_OF_UNSUPPORTED(true, "'&' needs pointer types, which are not supported", null),
+    INCOMPATIBLE_BRANCHES(true, "branches of '?:' have incompatible types", null),
+    MEMBER_OF_NON_STRUCT(true, "'->' needs a struct pointer", null),
+    RETURN_VALUE_IN_VOID(true, "void function returns a value", null),
+    INCOMPATIBLE_RETURN(true, "return value does not match function type '%s'", null);
+
+    private final boolean showsToken;
+    private final String message;
+    private final TokenKind expected;
+
+    DiagnosticCode(boolean showsToken, String message, TokenKind expected) {
+        this.showsToken = showsToken;
+        this.message = message;
+        this.expected = expected;
+    }
+
+    /** The kind the parser was looking for, or null when nothing specific was expected. */
+    public TokenKind getExpected() {
+        return expected;
+    }
+
+    boolean showsToken() {
+        return showsToken;
+    }
+
+    String getMessage() {
+        return message;
+    }
+}
@@ -0,0 +1,94 @@
+package org.example.Parser;
+
+import org.example.Tokens.TokenBuffer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Parse errors as parallel primitive arrays (code, token index, related token index). Reporting an error only
+ * stores three numbers; message text and {@link Diagnostic} records are built when someone asks for them, and
+ * only then is the token's line and column looked up.
+ */
+final class Diagnostics {
+    private static final DiagnosticCode[] CODES = DiagnosticCode.values();
+
+    private byte[] codes = new byte[8];
+    private int[] tokens = new int[8];
+    private int[] related = new int[8];
+    private int size;
+
+    void add(DiagnosticCode code, int token, int relatedToken) {
+        if (size == codes.length) grow(size * 2);
+        codes[size] = (byte) code.ordinal();
+        tokens[size] = token;
+        related[size] = relatedToken;
+        size++;
+    }
+
+    /** Appends entries {@code [from, to)} of {@code other} with their token indices moved by {@code delta}. */
+    void addShifted(Diagnostics other, int from, int to, int delta) {
+        int count = to - from;
+        if (size + count > codes.length) grow(Math.max(codes.length * 2, size + count));
+        for (int i = from; i < to; i++) {
+            codes[size] = other.codes[i];
+            tokens[size] = other.tokens[i] + delta;
+            related[size] = other.related[i] < 0 ? -1 : other.related[i] + delta;
+            size++;
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    void clear() {
+        size = 0;
+    }
+
+    DiagnosticCode code(int i) {
+        return CODES[codes[i]];
+    }
+
+    Diagnostic get(int i, TokenBuffer source) {
+        int t = tokens[i];
+        return new Diagnostic(code(i), t, related[i], code(i).getExpected(), t < source.size() ? source.getKind(t) : null);
+    }
+
+    List<Diagnostic> toList(TokenBuffer source) {
+        List<Diagnostic> out = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) out.add(get(i, source));
+        return out;
+    }
+
+    /** The text of entry {@code i}, e.g. {@code 3:14: missing ';' after expression}. */
+    String format(int i, TokenBuffer source) {
+        DiagnosticCode code = code(i);
+        String message = code.getMessage();
+        if (related[i] >= 0) message = message.replace("%s", source.getValue(related[i]));
+        StringBuilder sb = new StringBuilder(source.getLocation(tokens[i]));
+        if (code.showsToken()) {
+            int t = tokens[i];
+            sb.append(' ');
+            if (t >= source.size()) sb.append("<EOF>");
+            else sb.append('<').append(source.getType(t)).append(':').append(source.getValue(t)).append('>');
+            sb.append(" -> ");
+        } else {
+            sb.append(": ");
+        }
+        return sb.append(message).toString();
+    }
+
+    List<String> formatAll(TokenBuffer source) {
+        List<String> out = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) out.add(format(i, source));
+        return out;
+    }
+
+    private void grow(int capacity) {
+        codes = Arrays.copyOf(codes, capacity);
+        tokens = Arrays.copyOf(tokens, capacity);
+        related = Arrays.copyOf(related, capacity);
+    }
+}
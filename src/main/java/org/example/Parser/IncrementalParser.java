@@ -0,0 +1,135 @@
+package org.example.Parser;
+
+import org.example.Tokens.TokenBuffer;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Re-parses only the top-level items (functions, or tokens skipped at top level) that an edit can affect.
+ * <p>
+ * For each item the parse of {@link Parser#parseProgram()} is split into, this keeps its first token, its
+ * reach (one past the last token the parser looked at) and its errors. After an edit replaced old tokens
+ * {@code [from, oldTo)} with new tokens {@code [from, newTo)} (see {@code IncrementalLexer.Edit}), items that
+ * never looked at or past {@code from} are kept. Parsing resumes at the first other item and stops once an item
+ * boundary after the edit lands on an old item start, because from there the remaining tokens are the same.
+ * The reported errors are identical to a full parse of the new tokens.
+ */
+public final class IncrementalParser {
+    private TokenBuffer tokens;
+    private int[] itemStart = new int[16];
+    private int[] itemReach = new int[16];
+    private int[] itemErrorEnd = new int[16];
+    private int items;
+    private Diagnostics diagnostics = new Diagnostics();
+    private int lastReparsed;
+
+    public IncrementalParser(TokenBuffer tokens) {
+        this.tokens = tokens;
+        apply(tokens, 0, tokens.size(), tokens.size());
+    }
+
+    /** Updates the parse for {@code newTokens}, where only {@code [from, newTo)} differ from the previous tokens. */
+    public void apply(TokenBuffer newTokens, int from, int oldTo, int newTo) {
+        int delta = newTo - oldTo;
+        int oldSize = tokens.size();
+        Parser parser = new Parser(newTokens);
+
+        int keep = 0;
+        if (items > 0) {
+            int maxReach = 0;
+            while (keep < items && Math.max(maxReach, itemReach[keep]) <= from) {
+                maxReach = Math.max(maxReach, itemReach[keep]);
+                keep++;
+            }
+        }
+
+        int[] oldStart = itemStart;
+        int[] oldReach = itemReach;
+        int[] oldErrorEnd = itemErrorEnd;
+        int oldItems = items;
+        Diagnostics oldDiagnostics = diagnostics;
+
+        itemStart = new int[Math.max(16, oldItems)];
+        itemReach = new int[itemStart.length];
+        itemErrorEnd = new int[itemStart.length];
+        int keptErrors = keep == 0 ? 0 : oldErrorEnd[keep - 1];
+        diagnostics = new Diagnostics();
+        diagnostics.addShifted(oldDiagnostics, 0, keptErrors, 0);
+        System.arraycopy(oldStart, 0, itemStart, 0, keep);
+        System.arraycopy(oldReach, 0, itemReach, 0, keep);
+        System.arraycopy(oldErrorEnd, 0, itemErrorEnd, 0, keep);
+        items = keep;
+
+        if (keep > 0) parser.pos = keep < oldItems ? oldStart[keep] : oldSize;
+
+        lastReparsed = 0;
+        while (!parser.isAtEnd()) {
+            if (parser.pos >= newTo && oldItems > 0) {
+                int old = Arrays.binarySearch(oldStart, keep, oldItems, parser.pos - delta);
+                if (old >= 0) {
+                    appendShifted(old, oldItems, oldStart, oldReach, oldErrorEnd, oldDiagnostics, delta);
+                    break;
+                }
+            }
+            int start = parser.pos;
+            int firstError = parser.diagnostics.size();
+            parser.reach = 0;
+            parser.parseTopLevelItem();
+            diagnostics.addShifted(parser.diagnostics, firstError, parser.diagnostics.size(), 0);
+            addItem(start, parser.reach);
+            lastReparsed++;
+        }
+        // belongs to no item, so it is reported again after every edit
+        int firstError = parser.diagnostics.size();
+        parser.reportUnterminated();
+        diagnostics.addShifted(parser.diagnostics, firstError, parser.diagnostics.size(), 0);
+        tokens = newTokens;
+    }
+
+    public boolean hasErrors() {
+        return diagnostics.size() > 0;
+    }
+
+    /** Same messages, in the same order, as {@link Parser#getErrors()} after a full parse. */
+    public List<String> getErrors() {
+        return diagnostics.formatAll(tokens);
+    }
+
+    public List<Diagnostic> getDiagnostics() {
+        return diagnostics.toList(tokens);
+    }
+
+    /** Number of top-level items parsed again by the last {@link #apply} call. */
+    public int getLastReparsedItems() {
+        return lastReparsed;
+    }
+
+    public int getItemCount() {
+        return items;
+    }
+
+    private void appendShifted(int first, int oldItems, int[] oldStart, int[] oldReach, int[] oldErrorEnd,
+                               Diagnostics oldDiagnostics, int delta) {
+        int errorFrom = first == 0 ? 0 : oldErrorEnd[first - 1];
+        for (int i = first; i < oldItems; i++) {
+            int errorTo = oldErrorEnd[i];
+            diagnostics.addShifted(oldDiagnostics, errorFrom, errorTo, delta);
+            errorFrom = errorTo;
+            addItem(oldStart[i] + delta, oldReach[i] + delta);
+        }
+    }
+
+    private void addItem(int start, int reach) {
+        if (items == itemStart.length) {
+            int capacity = items * 2;
+            itemStart = Arrays.copyOf(itemStart, capacity);
+            itemReach = Arrays.copyOf(itemReach, capacity);
+            itemErrorEnd = Arrays.copyOf(itemErrorEnd, capacity);
+        }
+        itemStart[items] = start;
+        itemReach[items] = reach;
+        itemErrorEnd[items] = diagnostics.size();
+        items++;
+    }
+}
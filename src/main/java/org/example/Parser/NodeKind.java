@@ -0,0 +1,37 @@
+package org.example.Parser;
+
+/** Kinds of {@link Ast} nodes. The comment on each names the token the node refers to and its children. */
+public enum NodeKind {
+    /** no token; functions */
+    PROGRAM,
+    /** return type keyword; NAME, BLOCK */
+    FUNCTION,
+    /** '{'; statements */
+    BLOCK,
+    /** type keyword; one NAME per declared variable */
+    VAR_DECL,
+    /** 'if'; condition, then-statement, optional else-statement */
+    IF,
+    /** 'return'; optional expression */
+    RETURN,
+    /** first token of the expression; the expression */
+    EXPRESSION_STATEMENT,
+    /** operator; left and right operand */
+    BINARY,
+    /** prefix operator; operand */
+    UNARY,
+    /** postfix '++' or '--'; operand */
+    POSTFIX,
+    /** '->'; object, NAME of the member */
+    MEMBER,
+    /** '?'; condition, then-value, else-value */
+    CONDITIONAL,
+    /** '('; the inner expression */
+    PAREN,
+    /** identifier (or 'main'); none */
+    NAME,
+    /** literal; none */
+    LITERAL,
+    /** the unexpected token; none */
+    ERROR
+}
@@ -1,6 +1,10 @@
 package org.example.Parser;
 
+import org.example.Metrics.Phase;
+import org.example.Metrics.PhaseEvent;
 import org.example.Tokens.Token;
+import org.example.Tokens.TokenBuffer;
+import org.example.Tokens.TokenKind;
 import org.example.Tokens.TokenType;
 
 import java.util.ArrayList;
@@ -11,235 +15,638 @@ import java.util.List;
  * recursive-descent parser mainly implements parsing for functions, var-declarations, if/else and expression statements.
  */
 public class Parser {
-    private final List<Token> tokens;
-    private int pos = 0;
-    private final List<String> errors = new ArrayList<>();
+    /**
+     * Where a streaming parse gets its tokens: the parser asks for more when it runs out, and after every top-level
+     * item, which is as far back as it ever rewinds, it hands the window over to be cut down to the next item.
+     */
+    interface TokenWindow {
+        /** Appends at least one token to {@code tokens}, or returns false at the end of the input. */
+        boolean fill(TokenBuffer tokens);
+
+        /** A buffer holding tokens {@code [from, size)} of {@code tokens}, which are dropped. */
+        TokenBuffer slide(TokenBuffer tokens, int from);
+    }
+
+    private TokenBuffer tokens;
+    int pos = 0;
+    // highest token index (exclusive) the parse has looked at; IncrementalParser uses it to find reusable work
+    int reach = 0;
+    final Diagnostics diagnostics = new Diagnostics();
+    // set by an error and cleared once the parse is back in step, so one mistake reports one error
+    private boolean recovering;
+    private int maxErrors = Integer.MAX_VALUE;
+    // tokens.size(), or the stop position once maxErrors is reached so every loop sees the end of input
+    private int end;
+    // index of the ERROR token the lexer ends the tokens with when the input stops inside a comment or literal,
+    // or -1; the parse ends before it and reports it once
+    private int unterminated;
+    // null unless streaming; then tokens holds only the current top-level item and what was read after it
+    private TokenWindow window;
+    private boolean exhausted;
+    // streaming: tokens dropped from the window, and the errors formatted before their tokens were
+    private long released;
+    private List<String> releasedErrors;
+    private final Ast ast;
+    private int program = Ast.NONE;
+    // null unless names are resolved
+    private SymbolTable symbols;
+    // by name id: the function an undeclared use was last reported in, so each name is reported once per function
+    private int[] undeclaredIn;
+    private int functions;
+    // times parseFunction rewound to the start of a function it could not parse
+    private int backtracks;
+    // where the last function header stopped parsing, or -1 if it did not fail
+    private int headerFailedAt = -1;
 
     public Parser(List<Token> tokens) {
-        this.tokens = tokens != null ? tokens : new ArrayList<>();
+        this(TokenBuffer.of(tokens != null ? tokens : new ArrayList<>()));
+    }
+
+    /** Parses straight from the compact token arrays; decisions use token kinds, token text is only read for errors. */
+    public Parser(TokenBuffer tokens) {
+        this(tokens, false);
+    }
+
+    /** With {@code buildAst} set, {@link #parseProgram} also builds a flat {@link Ast} for {@link #getAst}. */
+    public Parser(TokenBuffer tokens, boolean buildAst) {
+        this.tokens = tokens;
+        int n = tokens.size();
+        this.unterminated = n > 0 && tokens.getKind(n - 1) == TokenKind.ERROR ? n - 1 : -1;
+        this.end = unterminated >= 0 ? unterminated : n;
+        // every node but the root and expression statements consumes a token, so this rarely grows
+        this.ast = buildAst ? new Ast(tokens, tokens.size() + 1) : null;
+    }
+
+    /** A streaming parse: tokens come from {@code window}, starting with those already in {@code tokens}. */
+    Parser(TokenBuffer tokens, TokenWindow window) {
+        this(tokens, false);
+        this.window = window;
+        this.releasedErrors = new ArrayList<>();
     }
 
     public void parseProgram() {
-        skipIgnorable();
+        PhaseEvent event = PhaseEvent.begin(Phase.PARSE);
+        if (symbols != null) undeclaredIn = new int[Math.max(16, tokens.getNames().size())];
+        program = node(NodeKind.PROGRAM, Ast.NONE);
         while (!isAtEnd()) {
-            // C program start with main
-            if (!parseFunction()) {
-                Token t = peek();
-                errors.add("token[" + pos + "] " + show(t) + " -> unexpected token at top-level");
-                advance();
-                skipIgnorable();
-            }
+            parseTopLevelItem();
+            if (window != null) slide();
+        }
+        reportUnterminated();
+        if (ast != null) ast.finish();
+        if (event.isRecording()) event.setTokens(released + tokens.size()).setErrors(getErrorCount()).setBacktracks(backtracks);
+        event.finish();
+    }
+
+    /** The tree built by {@link #parseProgram}, or null if this parser was not asked to build one. */
+    public Ast getAst() {
+        return ast;
+    }
+
+    // one iteration of the top-level loop: a function, or the tokens skipped up to the next one
+    void parseTopLevelItem() {
+        recovering = false;
+        headerFailedAt = -1;
+        // C program start with main
+        if (!parseFunction()) {
+            error(DiagnosticCode.UNEXPECTED_AT_TOP_LEVEL);
+            advance();
+            if (headerFailedAt >= 0) skipFailedBody();
+            while (!isAtEnd() && !isTypeKeyword(pos)) advance();
+        }
+    }
+
+    // the body after a broken header starts with local declarations, each of which would look like a new function
+    private void skipFailedBody() {
+        while (pos < headerFailedAt && !isAtEnd()) advance();
+        while (!isAtEnd() && !check(TokenKind.P_LBRACE) && !check(TokenKind.P_SEMICOLON) && !isTypeKeyword(pos)) advance();
+        if (!check(TokenKind.P_LBRACE)) return;
+        int depth = 0;
+        do {
+            if (check(TokenKind.P_LBRACE)) depth++;
+            else if (check(TokenKind.P_RBRACE)) depth--;
+            advance();
+        } while (depth > 0 && !isAtEnd());
+    }
+
+    // the comment or literal left open at the end of the input, after every error before it
+    void reportUnterminated() {
+        if (unterminated < 0 || reachedErrorLimit()) return;
+        boolean comment = tokens.getSource().charAt(tokens.getStart(unterminated)) == '/';
+        diagnostics.add(comment ? DiagnosticCode.UNTERMINATED_COMMENT : DiagnosticCode.UNTERMINATED_STRING, unterminated, -1);
+    }
+
+    // streaming: an item never looks back past its own start, so its errors are formatted and its tokens dropped
+    private void slide() {
+        releasedErrors.addAll(diagnostics.formatAll(tokens));
+        diagnostics.clear();
+        tokens = window.slide(tokens, pos);
+        released += pos;
+        reach = Math.max(0, reach - pos);
+        end -= pos;
+        if (unterminated >= 0) unterminated -= pos;
+        pos = 0;
+    }
+
+    // streaming: reads one more token into the window, or notes the end of the input
+    private void pull() {
+        if (reachedErrorLimit() || !window.fill(tokens)) {
+            exhausted = true;
+            return;
+        }
+        int n = tokens.size();
+        if (tokens.getKind(n - 1) == TokenKind.ERROR) {
+            unterminated = n - 1;
+            exhausted = true;
         }
+        end = unterminated >= 0 ? unterminated : n;
+    }
+
+    /** Stops the parse once {@code maxErrors} errors have been reported. */
+    public Parser setMaxErrors(int maxErrors) {
+        this.maxErrors = Math.max(1, maxErrors);
+        return this;
+    }
+
+    /**
+     * Also checks names against their scopes: functions are declared globally, every block opens a scope, and
+     * a use of a name with no visible declaration or a second declaration in the same scope is an error.
+     * Names are looked up by their interned id, so this adds no string hashing to the parse.
+     */
+    public Parser setResolveNames(boolean resolveNames) {
+        this.symbols = resolveNames ? new SymbolTable() : null;
+        return this;
+    }
+
+    public boolean reachedErrorLimit() {
+        return getErrorCount() >= maxErrors;
     }
 
     public boolean hasErrors() {
-        return !errors.isEmpty();
+        return getErrorCount() > 0;
     }
 
+    public int getErrorCount() {
+        return (releasedErrors != null ? releasedErrors.size() : 0) + diagnostics.size();
+    }
+
+    /** How many times a function was parsed up to an error and the parse rewound to its start. */
+    public int getBacktracks() {
+        return backtracks;
+    }
+
+    /** The errors as records, in the order they were reported. */
+    public List<Diagnostic> getDiagnostics() {
+        return diagnostics.toList(tokens);
+    }
+
+    /** The errors formatted as text; nothing is formatted until this is called. */
     public List<String> getErrors() {
+        if (releasedErrors == null) return diagnostics.formatAll(tokens);
+        List<String> errors = new ArrayList<>(releasedErrors);
+        errors.addAll(diagnostics.formatAll(tokens));
         return errors;
     }
 
+    private void error(DiagnosticCode code) {
+        error(code, -1);
+    }
+
+    private void error(DiagnosticCode code, int related) {
+        if (recovering || reachedErrorLimit()) return;
+        recovering = true;
+        diagnostics.add(code, pos, related);
+        if (reachedErrorLimit()) end = pos;
+    }
+
+    // name errors do not derail the parse, so they are reported even while recovering from a syntax error
+    private void nameError(DiagnosticCode code, int token) {
+        if (reachedErrorLimit()) return;
+        diagnostics.add(code, token, token);
+        if (reachedErrorLimit()) end = pos;
+    }
+
+    private void declare(int token) {
+        if (symbols != null && symbols.declare(tokens.getNameId(token), token) != SymbolTable.UNDECLARED) {
+            nameError(DiagnosticCode.DUPLICATE_DECLARATION, token);
+        }
+    }
+
+    private void use(int token) {
+        if (symbols == null) return;
+        int name = tokens.getNameId(token);
+        // a streaming parse meets new names as it reads
+        if (name >= undeclaredIn.length) undeclaredIn = Arrays.copyOf(undeclaredIn, Math.max(name + 1, undeclaredIn.length * 2));
+        if (symbols.lookup(name) == SymbolTable.UNDECLARED && undeclaredIn[name] != functions) {
+            undeclaredIn[name] = functions;
+            nameError(DiagnosticCode.UNDECLARED_IDENTIFIER, token);
+        }
+    }
+
+    // statement-level recovery: skip to a ';' (consumed), a '}' or a token that starts a statement
+    private void synchronize() {
+        while (!isAtEnd()) {
+            TokenKind kind = tokens.getKind(pos);
+            if (kind == TokenKind.P_SEMICOLON) {
+                advance();
+                break;
+            }
+            if (kind == TokenKind.P_RBRACE || kind == TokenKind.KW_IF || kind == TokenKind.KW_RETURN || isTypeKeyword(pos)) {
+                break;
+            }
+            advance();
+        }
+        recovering = false;
+    }
+
     // Accepts: type functionName '(' ')' block
     private boolean parseFunction() {
         int start = pos;
-        skipIgnorable();
-        Token t = peek();
-        if (t == null) return false;
+        if (isAtEnd()) return false;
 
-        if (!(t.getType() == TokenType.KEYWORD && isTypeKeyword(t.getValue()))) return false;
+        if (!isTypeKeyword(pos)) return false;
 
-        advance();
+        int mark = ast != null ? ast.size() : 0;
+        int function = node(NodeKind.FUNCTION, advance());
 
-        skipIgnorable();
-        Token nameTok = peek();
-        if (nameTok == null) {
-            errors.add("token[" + pos + "]: expected function name but found EOF");
+        if (isAtEnd()) {
+            error(DiagnosticCode.FUNCTION_NAME_AT_EOF);
+            rollback(mark);
             return false;
         }
 
-        boolean nameIsValid = (nameTok.getType() == TokenType.IDENTIFIER)
-                || (nameTok.getType() == TokenType.KEYWORD && "main".equals(nameTok.getValue()));
+        boolean nameIsValid = peekType() == TokenType.IDENTIFIER || check(TokenKind.KW_MAIN);
         if (!nameIsValid) {
-            errors.add("token[" + pos + "] " + show(nameTok) + " -> expected function name (identifier or 'main')");
+            error(DiagnosticCode.EXPECTED_FUNCTION_NAME);
+            headerFailedAt = pos;
             pos = start;
+            backtracks++;
+            rollback(mark);
             return false;
         }
-        advance();
+        int name = advance();
+        child(function, node(NodeKind.NAME, name));
 
-        skipIgnorable();
         // expect '('
-        if (!expectSpecial("(")) {
-            errors.add("token[" + pos + "]: expected '(' after function name");
+        if (!expect(TokenKind.P_LPAREN)) {
+            error(DiagnosticCode.EXPECTED_LPAREN_AFTER_NAME);
+            headerFailedAt = pos;
             pos = start;
+            backtracks++;
+            rollback(mark);
             return false;
         }
-        skipIgnorable();
-        if (!expectSpecial(")")) {
-            errors.add("token[" + pos + "]: expected ')' (only empty parameter lists supported)");
+        if (!expect(TokenKind.P_RPAREN)) {
+            error(DiagnosticCode.EXPECTED_EMPTY_PARAMETERS);
+            headerFailedAt = pos;
             pos = start;
+            backtracks++;
+            rollback(mark);
             return false;
         }
 
-        skipIgnorable();
-        if (!parseBlock()) {
-            errors.add("token[" + pos + "]: expected function body (block)");
+        // in scope from here on, so the body can refer to it
+        int symbolMark = symbols != null ? symbols.mark() : 0;
+        declare(name);
+        functions++;
+        if (!parseBlock(function)) {
+            error(DiagnosticCode.EXPECTED_FUNCTION_BODY);
             pos = start;
+            backtracks++;
+            rollback(mark);
+            if (symbols != null) symbols.undo(symbolMark);
             return false;
         }
+        child(program, function);
         return true;
     }
 
-    private boolean parseBlock() {
-        if (!expectSpecial("{")) return false;
-        skipIgnorable();
-        while (!isAtEnd() && !checkSpecial("}")) {
-            parseStatement();
-            skipIgnorable();
+    private boolean parseBlock(int parent) {
+        if (!check(TokenKind.P_LBRACE)) return false;
+        int block = node(NodeKind.BLOCK, advance());
+        child(parent, block);
+        if (symbols != null) symbols.pushScope();
+        while (!isAtEnd() && !check(TokenKind.P_RBRACE)) {
+            parseStatement(block);
         }
-        if (!expectSpecial("}")) {
-            errors.add("token[" + pos + "]: missing '}' for block");
+        if (symbols != null) symbols.popScope();
+        if (!expect(TokenKind.P_RBRACE)) {
+            error(DiagnosticCode.MISSING_RBRACE);
             return false;
         }
         return true;
     }
 
-    private void parseStatement() {
-        skipIgnorable();
-        Token t = peek();
-        if (t == null) return;
-
-        if (t.getType() == TokenType.KEYWORD && isTypeKeyword(t.getValue())) {
-            parseVarDecl();
-            return;
-        }
+    private void parseStatement(int parent) {
+        if (isAtEnd()) return;
 
-        if (t.getType() == TokenType.KEYWORD && "if".equals(t.getValue())) {
-            parseIf();
+        if (isTypeKeyword(pos)) {
+            parseVarDecl(parent);
             return;
         }
 
-        if (t.getType() == TokenType.KEYWORD && "return".equals(t.getValue())) {
-            advance();
-            parseExpression();
-            if (!expectSpecial(";")) {
-                errors.add("token[" + pos + "]: missing ';' after return");
-                skipUntil(";");
-                if (!isAtEnd()) advance();
+        switch (peekKind()) {
+            case KW_IF -> {
+                parseIf(parent);
+                return;
+            }
+            case KW_RETURN -> {
+                int ret = node(NodeKind.RETURN, advance());
+                child(parent, ret);
+                child(ret, parseExpression());
+                if (!expect(TokenKind.P_SEMICOLON)) {
+                    error(DiagnosticCode.MISSING_SEMICOLON_AFTER_RETURN);
+                    synchronize();
+                }
+                return;
+            }
+            case P_LBRACE -> {
+                parseBlock(parent);
+                return;
+            }
+            default -> {
             }
-            return;
-        }
-
-        if (checkSpecial("{")) {
-            parseBlock();
-            return;
         }
 
-        parseExpression();
-        if (!expectSpecial(";")) {
-            errors.add("token[" + pos + "]: missing ';' after expression");
-            skipUntil(";");
-            if (!isAtEnd()) advance();
+        int statement = node(NodeKind.EXPRESSION_STATEMENT, pos);
+        child(parent, statement);
+        child(statement, parseExpression());
+        if (!expect(TokenKind.P_SEMICOLON)) {
+            error(DiagnosticCode.MISSING_SEMICOLON_AFTER_EXPRESSION);
+            synchronize();
         }
     }
 
-    private void parseVarDecl() {
-        Token typeTok = advance();
-        skipIgnorable();
+    private void parseVarDecl(int parent) {
+        int typeTok = advance();
+        int decl = node(NodeKind.VAR_DECL, typeTok);
+        child(parent, decl);
 
-        if (!matchIdentifier()) {
-            errors.add("token[" + pos + "] " + show(peek()) + " -> expected identifier after type '" + typeTok.getValue() + "'");
-            // try to recover to semicolon
-            skipUntil(";");
-            if (!isAtEnd()) advance();
+        if (!matchIdentifier(decl)) {
+            error(DiagnosticCode.EXPECTED_IDENTIFIER_AFTER_TYPE, typeTok);
+            synchronize();
             return;
         }
 
-        skipIgnorable();
-        while (checkSpecial(",")) {
+        while (check(TokenKind.P_COMMA)) {
             advance();
-            skipIgnorable();
-            if (!matchIdentifier()) {
-                errors.add("token[" + pos + "]: expected identifier after ',' in declaration");
-                skipUntil(";");
-                if (!isAtEnd()) advance();
+            if (!matchIdentifier(decl)) {
+                error(DiagnosticCode.EXPECTED_IDENTIFIER_AFTER_COMMA);
+                synchronize();
                 return;
             }
-            skipIgnorable();
         }
 
-        if (!expectSpecial(";")) {
-            errors.add("token[" + pos + "]: missing ';' after variable declaration");
-            skipUntil(";");
-            if (!isAtEnd()) advance();
+        if (!expect(TokenKind.P_SEMICOLON)) {
+            error(DiagnosticCode.MISSING_SEMICOLON_AFTER_DECLARATION);
+            synchronize();
         }
     }
 
-    private void parseIf() {
-        advance();
-        skipIgnorable();
-        if (!expectSpecial("(")) {
-            errors.add("token[" + pos + "]: expected '(' after if");
+    private void parseIf(int parent) {
+        int ifNode = node(NodeKind.IF, advance());
+        child(parent, ifNode);
+        if (!expect(TokenKind.P_LPAREN)) {
+            error(DiagnosticCode.EXPECTED_LPAREN_AFTER_IF);
             return;
         }
-        parseExpression();
-        if (!expectSpecial(")")) {
-            errors.add("token[" + pos + "]: missing ')' after if condition");
+        child(ifNode, parseExpression());
+        if (!expect(TokenKind.P_RPAREN)) {
+            error(DiagnosticCode.MISSING_RPAREN_AFTER_CONDITION);
         }
-        skipIgnorable();
         // a statement (could be block or single stmt)
-        parseStatement();
-        skipIgnorable();
-        if (peek() != null && peek().getType() == TokenType.KEYWORD && "else".equals(peek().getValue())) {
+        parseStatement(ifNode);
+        if (check(TokenKind.KW_ELSE)) {
             advance(); // consume else
-            skipIgnorable();
-            parseStatement();
+            parseStatement(ifNode);
         }
     }
 
-    private void parseExpression() {
-        parsePrimary();
-        skipIgnorable();
-        while (peek() != null && peek().getType() == TokenType.OPERATOR) {
-            advance();
-            skipIgnorable();
-            parsePrimary();
-            skipIgnorable();
+    // operator stack entries of parseExpression
+    private static final byte OP_PREFIX = 0;
+    private static final byte OP_BINARY = 1;
+    private static final byte OP_PAREN = 2;
+    private static final byte OP_QUESTION = 3;
+    private static final byte OP_COLON = 4;
+    private static final int PREFIX_PRECEDENCE = 13;
+    private static final int CONDITIONAL_PRECEDENCE = 2;
+
+    // explicit stacks of parseExpression, kept across calls; operands hold AST nodes (Ast.NONE without a tree)
+    private int[] operands = new int[16];
+    private int operandCount;
+    private byte[] opTypes = new byte[16];
+    private int[] opTokens = new int[16];
+    private int[] opPrecedence = new int[16];
+    private int opCount;
+
+    /**
+     * Precedence climbing over an explicit operator stack, so parentheses, prefix operators and right-associative
+     * chains nest as deep as the heap allows. Binary operators follow C precedence and associativity; '?:' and
+     * the assignments associate to the right, '->' and postfix '++'/'--' bind tightest.
+     */
+    private int parseExpression() {
+        int operandBase = operandCount;
+        int opBase = opCount;
+        boolean expectOperand = true;
+        while (true) {
+            if (expectOperand) {
+                if (isAtEnd()) {
+                    pushOperand(Ast.NONE);
+                    break;
+                }
+                TokenKind kind = peekKind();
+                if (isPrefixOperator(kind)) {
+                    pushOperator(OP_PREFIX, advance(), PREFIX_PRECEDENCE);
+                } else if (kind == TokenKind.P_LPAREN) {
+                    pushOperator(OP_PAREN, advance(), 0);
+                } else {
+                    pushOperand(parsePrimary());
+                    expectOperand = false;
+                }
+                continue;
+            }
+
+            TokenKind kind = peekKind();
+            if (kind == null) break;
+            int precedence = binaryPrecedence(kind);
+            if (precedence > 0) {
+                // assignments (1) associate to the right, every other binary level to the left
+                reduceAbove(opBase, precedence == 1 ? precedence : precedence - 1);
+                pushOperator(OP_BINARY, advance(), precedence);
+                expectOperand = true;
+            } else if (kind == TokenKind.OP_INC || kind == TokenKind.OP_DEC) {
+                int postfix = node(NodeKind.POSTFIX, advance());
+                child(postfix, operands[operandCount - 1]);
+                operands[operandCount - 1] = postfix;
+            } else if (kind == TokenKind.OP_ARROW) {
+                int member = node(NodeKind.MEMBER, advance());
+                child(member, operands[operandCount - 1]);
+                if (peekType() == TokenType.IDENTIFIER) {
+                    child(member, node(NodeKind.NAME, advance()));
+                } else {
+                    error(DiagnosticCode.EXPECTED_MEMBER_NAME);
+                }
+                operands[operandCount - 1] = member;
+            } else if (kind == TokenKind.OP_QUESTION) {
+                reduceAbove(opBase, CONDITIONAL_PRECEDENCE);
+                pushOperator(OP_QUESTION, advance(), 0);
+                expectOperand = true;
+            } else if (kind == TokenKind.OP_COLON && reduceTo(opBase, OP_QUESTION)) {
+                // the '?' entry becomes the pending else-branch; it reduces like a level-2 operator
+                opTypes[opCount - 1] = OP_COLON;
+                opPrecedence[opCount - 1] = CONDITIONAL_PRECEDENCE;
+                advance();
+                expectOperand = true;
+            } else if (kind == TokenKind.P_RPAREN && reduceTo(opBase, OP_PAREN)) {
+                opCount--;
+                int paren = node(NodeKind.PAREN, opTokens[opCount]);
+                child(paren, operands[operandCount - 1]);
+                operands[operandCount - 1] = paren;
+                advance();
+            } else {
+                // anything else, including a ')' or ':' that belongs to the caller, ends the expression
+                break;
+            }
         }
-    }
 
-    private void parsePrimary() {
-        skipIgnorable();
-        Token t = peek();
-        if (t == null) return;
+        while (opCount > opBase) {
+            byte type = opTypes[opCount - 1];
+            if (type == OP_PAREN) {
+                error(DiagnosticCode.MISSING_RPAREN_IN_EXPRESSION);
+                opCount--;
+                int paren = node(NodeKind.PAREN, opTokens[opCount]);
+                child(paren, operands[operandCount - 1]);
+                operands[operandCount - 1] = paren;
+            } else if (type == OP_QUESTION) {
+                error(DiagnosticCode.EXPECTED_COLON);
+                opCount--;
+                int then = operands[--operandCount];
+                int conditional = node(NodeKind.CONDITIONAL, opTokens[opCount]);
+                child(conditional, operands[operandCount - 1]);
+                child(conditional, then);
+                operands[operandCount - 1] = conditional;
+            } else {
+                reduce();
+            }
+        }
+        operandCount = operandBase;
+        return operands[operandBase];
+    }
 
-        if (t.getType() == TokenType.IDENTIFIER || isLiteralType(t.getType())) {
-            advance();
-            return;
+    // pops operators bound tighter than minPrecedence, stopping at '(' and '?' entries
+    private void reduceAbove(int opBase, int minPrecedence) {
+        while (opCount > opBase) {
+            byte type = opTypes[opCount - 1];
+            if (type == OP_PAREN || type == OP_QUESTION || opPrecedence[opCount - 1] <= minPrecedence) return;
+            reduce();
         }
+    }
 
-        if (t.getType() == TokenType.KEYWORD) {
-            if ("main".equals(t.getValue())) {
-                advance();
-                return;
-            } else {
-                errors.add("token[" + pos + "] " + show(t) + " -> Unexpected token inside expression: " + t.getValue());
-                advance();
-                return;
+    // reduces everything above the innermost entry of the given type; false if the group has none
+    private boolean reduceTo(int opBase, byte type) {
+        int i = opCount - 1;
+        while (i >= opBase && opTypes[i] != OP_PAREN && opTypes[i] != OP_QUESTION) i--;
+        if (i < opBase || opTypes[i] != type) return false;
+        while (opCount - 1 > i) reduce();
+        return true;
+    }
+
+    private void reduce() {
+        opCount--;
+        int token = opTokens[opCount];
+        switch (opTypes[opCount]) {
+            case OP_PREFIX -> {
+                int unary = node(NodeKind.UNARY, token);
+                child(unary, operands[operandCount - 1]);
+                operands[operandCount - 1] = unary;
+            }
+            case OP_BINARY -> {
+                int right = operands[--operandCount];
+                int binary = node(NodeKind.BINARY, token);
+                child(binary, operands[operandCount - 1]);
+                child(binary, right);
+                operands[operandCount - 1] = binary;
             }
+            case OP_COLON -> {
+                int otherwise = operands[--operandCount];
+                int then = operands[--operandCount];
+                int conditional = node(NodeKind.CONDITIONAL, token);
+                child(conditional, operands[operandCount - 1]);
+                child(conditional, then);
+                child(conditional, otherwise);
+                operands[operandCount - 1] = conditional;
+            }
+            default -> throw new IllegalStateException("unexpected operator entry " + opTypes[opCount]);
+        }
+    }
+
+    private void pushOperand(int node) {
+        if (operandCount == operands.length) operands = Arrays.copyOf(operands, operandCount * 2);
+        operands[operandCount++] = node;
+    }
+
+    private void pushOperator(byte type, int token, int precedence) {
+        if (opCount == opTypes.length) {
+            opTypes = Arrays.copyOf(opTypes, opCount * 2);
+            opTokens = Arrays.copyOf(opTokens, opCount * 2);
+            opPrecedence = Arrays.copyOf(opPrecedence, opCount * 2);
         }
+        opTypes[opCount] = type;
+        opTokens[opCount] = token;
+        opPrecedence[opCount] = precedence;
+        opCount++;
+    }
 
-        if (checkSpecial("(")) {
-            advance();
-            parseExpression();
-            if (!expectSpecial(")")) {
-                errors.add("token[" + pos + "]: missing ')' in expression");
+    private static boolean isPrefixOperator(TokenKind kind) {
+        return switch (kind) {
+            case OP_NOT, OP_TILDE, OP_MINUS, OP_PLUS, OP_STAR, OP_AND, OP_INC, OP_DEC -> true;
+            default -> false;
+        };
+    }
+
+    // C binary precedence, higher binds tighter; 0 if the kind is not a binary operator
+    private static int binaryPrecedence(TokenKind kind) {
+        return switch (kind) {
+            case OP_STAR, OP_SLASH, OP_PERCENT -> 12;
+            case OP_PLUS, OP_MINUS -> 11;
+            case OP_SHL, OP_SHR -> 10;
+            case OP_LT, OP_GT, OP_LE, OP_GE -> 9;
+            case OP_EQ, OP_NE -> 8;
+            case OP_AND -> 7;
+            case OP_XOR -> 6;
+            case OP_OR -> 5;
+            case OP_AND_AND -> 4;
+            case OP_OR_OR -> 3;
+            case OP_ASSIGN, OP_PLUS_ASSIGN, OP_MINUS_ASSIGN, OP_STAR_ASSIGN, OP_SLASH_ASSIGN, OP_PERCENT_ASSIGN,
+                 OP_AND_ASSIGN, OP_OR_ASSIGN, OP_XOR_ASSIGN -> 1;
+            default -> 0;
+        };
+    }
+
+    // one operand: a name or literal, or an error for any other token, which is consumed
+    private int parsePrimary() {
+        TokenType type = peekType();
+
+        if (type == TokenType.IDENTIFIER) {
+            use(pos);
+            return node(NodeKind.NAME, advance());
+        }
+        if (isLiteralType(type)) {
+            return node(NodeKind.LITERAL, advance());
+        }
+
+        if (type == TokenType.KEYWORD) {
+            if (check(TokenKind.KW_MAIN)) {
+                use(pos);
+                return node(NodeKind.NAME, advance());
+            } else {
+                error(DiagnosticCode.KEYWORD_IN_EXPRESSION, pos);
+                return node(NodeKind.ERROR, advance());
             }
-            return;
         }
 
-        errors.add("token[" + pos + "] " + show(t) + " -> unexpected token inside expression");
-        advance();
+        error(DiagnosticCode.UNEXPECTED_IN_EXPRESSION);
+        return node(NodeKind.ERROR, advance());
     }
 
     private boolean isLiteralType(TokenType tt) {
@@ -247,68 +654,72 @@ public class Parser {
                 tt == TokenType.STRING_LITERAL || tt == TokenType.CHARACTER_LITERAL;
     }
 
-    private boolean matchIdentifier() {
-        Token t = peek();
-        if (t != null && t.getType() == TokenType.IDENTIFIER) {
-            advance();
-            return true;
-        }
-        if (t != null && t.getType() == TokenType.KEYWORD && "main".equals(t.getValue())) {
-            advance();
+    private boolean matchIdentifier(int parent) {
+        if (peekType() == TokenType.IDENTIFIER || check(TokenKind.KW_MAIN)) {
+            declare(pos);
+            child(parent, node(NodeKind.NAME, advance()));
             return true;
         }
         return false;
     }
 
-    private boolean expectSpecial(String s) {
-        Token t = peek();
-        if (t != null && t.getType() == TokenType.SPECIAL_CHARACTERS && s.equals(t.getValue())) {
-            advance();
-            return true;
-        }
-        return false;
+    // tree building is a no-op unless the parser was asked for an AST
+    private int node(NodeKind kind, int token) {
+        return ast != null ? ast.add(kind, token) : Ast.NONE;
     }
 
-    private boolean checkSpecial(String s) {
-        Token t = peek();
-        return t != null && t.getType() == TokenType.SPECIAL_CHARACTERS && s.equals(t.getValue());
+    private void child(int parent, int node) {
+        if (ast != null) ast.append(parent, node);
     }
 
-    private void skipUntil(String v) {
-        while (!isAtEnd()) {
-            Token t = peek();
-            if (t != null && v.equals(t.getValue())) break;
-            advance();
-        }
+    private void rollback(int mark) {
+        if (ast != null) ast.truncate(mark);
     }
 
-    private void skipIgnorable() {
-        while (!isAtEnd() && (peek().getType() == TokenType.WHITESPACE || peek().getType() == TokenType.COMMENT)) {
+    private boolean expect(TokenKind kind) {
+        if (check(kind)) {
             advance();
+            recovering = false;
+            return true;
         }
+        return false;
+    }
+
+    private boolean check(TokenKind kind) {
+        return peekKind() == kind;
+    }
+
+    private TokenType peekType() {
+        if (!available(pos)) return null;
+        return tokens.getType(pos);
     }
 
-    private Token peek() {
-        if (pos >= tokens.size()) return null;
-        return tokens.get(pos);
+    private TokenKind peekKind() {
+        if (!available(pos)) return null;
+        return tokens.getKind(pos);
     }
 
-    private Token advance() {
-        if (pos >= tokens.size()) return null;
-        return tokens.get(pos++);
+    private int advance() {
+        if (pos >= end) return -1;
+        return pos++;
     }
 
-    private boolean isAtEnd() {
-        return pos >= tokens.size();
+    boolean isAtEnd() {
+        return !available(pos);
     }
 
-    private boolean isTypeKeyword(String s) {
-        List<String> types = Arrays.asList("int", "void", "char", "float", "double", "short", "long", "unsigned", "signed");
-        return types.contains(s);
+    // whether token i can be looked at; a streaming parse reads up to it first
+    private boolean available(int i) {
+        if (i >= reach) reach = i + 1;
+        while (i >= end && window != null && !exhausted) pull();
+        return i < end;
     }
 
-    private String show(Token t) {
-        if (t == null) return "<EOF>";
-        return "<" + t.getType() + ":" + t.getValue() + ">";
+    private boolean isTypeKeyword(int i) {
+        if (!available(i)) return false;
+        return switch (tokens.getKind(i)) {
+            case KW_INT, KW_VOID, KW_CHAR, KW_FLOAT, KW_DOUBLE, KW_SHORT, KW_LONG, KW_UNSIGNED, KW_SIGNED -> true;
+            default -> false;
+        };
     }
 }
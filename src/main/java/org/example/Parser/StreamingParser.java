@@ -0,0 +1,126 @@
+package org.example.Parser;
+
+import org.example.Scanner.TokenStream;
+import org.example.Tokens.NamePool;
+import org.example.Tokens.Token;
+import org.example.Tokens.TokenBuffer;
+import org.example.Tokens.TokenKind;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Parses a source without ever holding all of its tokens, for machine-generated files too large for a
+ * {@link TokenBuffer}. Tokens are pulled from a {@link TokenStream} into a window that holds the current top-level
+ * item and the lookahead read past it. The parser only rewinds to the start of the item it is in, so once the item
+ * is done its errors are formatted and its tokens and text dropped: memory grows with the largest function, not
+ * with the file. Only interned names and global function declarations are kept for the whole file.
+ * <p>
+ * The errors are those a {@link Parser} reports over all the tokens, with the same {@code line:column} positions.
+ * There is no preprocessing and no {@link Ast}, and comments are skipped as they are read.
+ */
+public final class StreamingParser implements Closeable {
+    private final TokenStream stream;
+    private final NamePool names = new NamePool();
+    private final Parser parser;
+    // text of the current window, from the start of its first token to the end of the last one read
+    private StringBuilder text = new StringBuilder();
+    private long tokenCount;
+    private int largestWindow;
+
+    public StreamingParser(Reader reader) {
+        this(reader, TokenStream.DEFAULT_BUFFER_SIZE);
+    }
+
+    public StreamingParser(Reader reader, int bufferSize) {
+        this.stream = new TokenStream(reader, bufferSize, false);
+        this.parser = new Parser(new TokenBuffer(text, 16, names), new Window());
+    }
+
+    /** Reads {@code path} as UTF-8. */
+    public static StreamingParser of(Path path) throws IOException {
+        return new StreamingParser(Files.newBufferedReader(path, StandardCharsets.UTF_8));
+    }
+
+    public StreamingParser setMaxErrors(int maxErrors) {
+        parser.setMaxErrors(maxErrors);
+        return this;
+    }
+
+    public StreamingParser setResolveNames(boolean resolveNames) {
+        parser.setResolveNames(resolveNames);
+        return this;
+    }
+
+    public void parseProgram() {
+        parser.parseProgram();
+    }
+
+    public boolean hasErrors() {
+        return parser.hasErrors();
+    }
+
+    public int getErrorCount() {
+        return parser.getErrorCount();
+    }
+
+    public boolean reachedErrorLimit() {
+        return parser.reachedErrorLimit();
+    }
+
+    public List<String> getErrors() {
+        return parser.getErrors();
+    }
+
+    /** Tokens read so far, comments not counted. */
+    public long getTokenCount() {
+        return tokenCount;
+    }
+
+    /** The most tokens the window held at once. */
+    public int getLargestWindow() {
+        return largestWindow;
+    }
+
+    @Override
+    public void close() throws IOException {
+        stream.close();
+    }
+
+    private final class Window implements Parser.TokenWindow {
+        @Override
+        public boolean fill(TokenBuffer tokens) {
+            while (stream.hasNext()) {
+                Token t = stream.next();
+                int start = text.length();
+                // whitespace and comments stay in the text only, which positions are counted in
+                text.append(t.getValue());
+                TokenKind kind = t.getKind();
+                if (kind == TokenKind.WHITESPACE || kind == TokenKind.COMMENT) continue;
+                tokens.add(kind, start, text.length());
+                tokenCount++;
+                largestWindow = Math.max(largestWindow, tokens.size());
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        public TokenBuffer slide(TokenBuffer tokens, int from) {
+            int cut = from < tokens.size() ? tokens.getStart(from) : text.length();
+            StringBuilder rest = new StringBuilder(Math.max(16, text.length() - cut)).append(text, cut, text.length());
+            TokenBuffer next = new TokenBuffer(rest, Math.max(16, tokens.size() - from), names);
+            next.setStartPosition(tokens.getLine(from), tokens.getColumn(from));
+            for (int i = from; i < tokens.size(); i++) {
+                next.add(tokens.getKind(i), tokens.getStart(i) - cut, tokens.getEnd(i) - cut);
+            }
+            text = rest;
+            return next;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package org.example.Parser;
+
+import java.util.Arrays;
+
+/**
+ * Nested scopes over interned name ids (see {@code NamePool}). Since ids are dense, the table is a plain array
+ * indexed by id holding the innermost declaration of each name, so lookup and declare are one array access.
+ * Every declaration logs what it shadowed; {@link #popScope} replays the log back to the scope's mark, so
+ * leaving a scope costs only the declarations made in it and nothing is ever rehashed or copied.
+ */
+public final class SymbolTable {
+    public static final int UNDECLARED = -1;
+
+    // by name id: token of the visible declaration (UNDECLARED if none) and the scope depth it was made at
+    private int[] declToken = new int[64];
+    private int[] declDepth = new int[64];
+    // undo log: the name declared and the declaration it hid
+    private int[] logName = new int[64];
+    private int[] logToken = new int[64];
+    private int[] logDepth = new int[64];
+    private int logSize;
+    // log size at the start of each open scope
+    private int[] marks = new int[16];
+    private int depth;
+
+    public SymbolTable() {
+        Arrays.fill(declToken, UNDECLARED);
+    }
+
+    /** Number of open scopes; 0 is the global scope, which is never popped. */
+    public int depth() {
+        return depth;
+    }
+
+    public void pushScope() {
+        if (depth == marks.length) marks = Arrays.copyOf(marks, depth * 2);
+        marks[depth++] = logSize;
+    }
+
+    public void popScope() {
+        if (depth == 0) throw new IllegalStateException("no scope to pop");
+        undo(marks[--depth]);
+    }
+
+    // a point to undo to, for declarations made by a parse that is later rolled back
+    int mark() {
+        return logSize;
+    }
+
+    void undo(int mark) {
+        while (logSize > mark) {
+            logSize--;
+            int name = logName[logSize];
+            declToken[name] = logToken[logSize];
+            declDepth[name] = logDepth[logSize];
+        }
+    }
+
+    /**
+     * Declares {@code name} at {@code token} in the innermost scope. Returns the token of an earlier declaration
+     * of the same name in the same scope, in which case nothing changes, or {@link #UNDECLARED}.
+     */
+    public int declare(int name, int token) {
+        ensureName(name);
+        if (declToken[name] != UNDECLARED && declDepth[name] == depth) return declToken[name];
+        if (logSize == logName.length) {
+            int capacity = logSize * 2;
+            logName = Arrays.copyOf(logName, capacity);
+            logToken = Arrays.copyOf(logToken, capacity);
+            logDepth = Arrays.copyOf(logDepth, capacity);
+        }
+        logName[logSize] = name;
+        logToken[logSize] = declToken[name];
+        logDepth[logSize] = declDepth[name];
+        logSize++;
+        declToken[name] = token;
+        declDepth[name] = depth;
+        return UNDECLARED;
+    }
+
+    /** The token of the innermost visible declaration of {@code name}, or {@link #UNDECLARED}. */
+    public int lookup(int name) {
+        return name < declToken.length ? declToken[name] : UNDECLARED;
+    }
+
+    private void ensureName(int name) {
+        if (name < declToken.length) return;
+        int old = declToken.length;
+        int capacity = Math.max(old * 2, name + 1);
+        declToken = Arrays.copyOf(declToken, capacity);
+        declDepth = Arrays.copyOf(declDepth, capacity);
+        Arrays.fill(declToken, old, capacity, UNDECLARED);
+    }
+}
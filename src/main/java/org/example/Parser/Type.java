@@ -0,0 +1,57 @@
+package org.example.Parser;
+
+import org.example.Tokens.TokenKind;
+
+/**
+ * Types of the C subset {@link Parser} accepts. The arithmetic types are declared in rank order, so the usual
+ * arithmetic conversions pick the later of two operand types, never below {@code INT}.
+ */
+public enum Type {
+    CHAR,
+    SHORT,
+    INT,
+    LONG,
+    FLOAT,
+    DOUBLE,
+    /** the type of a function's result only; no expression has it */
+    VOID,
+    /** a string literal; there is no way to declare one, so it only converts to itself */
+    STRING,
+    /** a function name, which is not a value in this subset */
+    FUNCTION,
+    /** an expression that already has an error; anything involving it is not checked again */
+    ERROR;
+
+    /** The type a declaration with this type keyword has; {@code signed} and {@code unsigned} alone mean int. */
+    public static Type of(TokenKind keyword) {
+        return switch (keyword) {
+            case KW_CHAR -> CHAR;
+            case KW_SHORT -> SHORT;
+            case KW_INT, KW_SIGNED, KW_UNSIGNED -> INT;
+            case KW_LONG -> LONG;
+            case KW_FLOAT -> FLOAT;
+            case KW_DOUBLE -> DOUBLE;
+            case KW_VOID -> VOID;
+            default -> throw new IllegalArgumentException("not a type keyword: " + keyword);
+        };
+    }
+
+    public boolean isArithmetic() {
+        return ordinal() <= DOUBLE.ordinal();
+    }
+
+    public boolean isInteger() {
+        return ordinal() <= LONG.ordinal();
+    }
+
+    /** Usual arithmetic conversions of two arithmetic types. */
+    public static Type common(Type a, Type b) {
+        Type wider = a.ordinal() >= b.ordinal() ? a : b;
+        return wider.ordinal() < INT.ordinal() ? INT : wider;
+    }
+
+    /** Integer promotion of one arithmetic type. */
+    public Type promoted() {
+        return ordinal() < INT.ordinal() ? INT : this;
+    }
+}
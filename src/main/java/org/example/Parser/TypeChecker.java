@@ -0,0 +1,415 @@
+package org.example.Parser;
+
+import org.example.Metrics.Phase;
+import org.example.Metrics.PhaseEvent;
+import org.example.Tokens.TokenBuffer;
+import org.example.Tokens.TokenKind;
+
+import java.io.Serial;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Predicate;
+
+/**
+ * Infers the type of every expression in an {@link Ast} and checks operands, assignments and return values
+ * against the declared types. Functions see only their own locals and the global function names, so each
+ * body is checked on its own: {@link #check(ForkJoinPool)} splits the functions into ranges of similar tree
+ * size, checks them in parallel and concatenates the errors in source order, so the result does not depend
+ * on the schedule.
+ * <p>
+ * An expression that has an error gets {@link Type#ERROR}, and nothing built on it is reported again.
+ * Undeclared names are also {@code ERROR}; reporting them is left to {@link Parser#setResolveNames}.
+ */
+public final class TypeChecker {
+    private static final Type[] TYPES = Type.values();
+    // a range of functions with fewer tree nodes than this is checked by one task
+    private static final int LEAF_NODES = 8192;
+
+    private final Ast ast;
+    private final TokenBuffer tokens;
+    // by node: Type ordinal + 1 for expression nodes, 0 for everything else
+    private final byte[] types;
+    // FUNCTION nodes in source order
+    private final int[] functions;
+    // by name id: the type keyword token of the first function with that name, or -1
+    private final int[] functionTypes;
+    private Diagnostics diagnostics = new Diagnostics();
+
+    public TypeChecker(Ast ast) {
+        this.ast = ast;
+        this.tokens = ast.getTokens();
+        this.types = new byte[ast.size()];
+        this.functionTypes = new int[tokens.getNames().size()];
+        Arrays.fill(functionTypes, -1);
+        int count = 0;
+        int[] found = new int[16];
+        for (int f = ast.size() > 0 ? ast.firstChild(ast.root()) : Ast.NONE; f != Ast.NONE; f = ast.nextSibling(f)) {
+            if (count == found.length) found = Arrays.copyOf(found, count * 2);
+            found[count++] = f;
+            int name = tokens.getNameId(ast.token(ast.firstChild(f)));
+            if (functionTypes[name] < 0) functionTypes[name] = ast.token(f);
+        }
+        this.functions = Arrays.copyOf(found, count);
+    }
+
+    /** Checks every function on the calling thread. */
+    public TypeChecker check() {
+        PhaseEvent event = PhaseEvent.begin(Phase.TYPE_CHECK);
+        diagnostics = checkRange(0, functions.length);
+        return finish(event);
+    }
+
+    /** Checks the functions in parallel on {@code pool}; the errors are the same as {@link #check()}'s. */
+    public TypeChecker check(ForkJoinPool pool) {
+        PhaseEvent event = PhaseEvent.begin(Phase.TYPE_CHECK);
+        diagnostics = pool.invoke(new Range(0, functions.length));
+        return finish(event);
+    }
+
+    private TypeChecker finish(PhaseEvent event) {
+        if (event.isRecording()) event.setTokens(tokens.size()).setErrors(diagnostics.size());
+        event.finish();
+        return this;
+    }
+
+    /** The type of expression node {@code node}, or null for statements and unchecked nodes. */
+    public Type type(int node) {
+        return types[node] == 0 ? null : TYPES[types[node] - 1];
+    }
+
+    public int getFunctionCount() {
+        return functions.length;
+    }
+
+    public boolean hasErrors() {
+        return diagnostics.size() > 0;
+    }
+
+    public int getErrorCount() {
+        return diagnostics.size();
+    }
+
+    public List<Diagnostic> getDiagnostics() {
+        return diagnostics.toList(tokens);
+    }
+
+    public List<String> getErrors() {
+        return diagnostics.formatAll(tokens);
+    }
+
+    private Diagnostics checkRange(int from, int to) {
+        FunctionChecker checker = new FunctionChecker();
+        for (int i = from; i < to; i++) checker.check(functions[i]);
+        return checker.diagnostics;
+    }
+
+    // nodes of function i run from its FUNCTION node up to the next function's, since nodes are made in order
+    private int nodeEnd(int i) {
+        return i < functions.length ? functions[i] : ast.size();
+    }
+
+    private final class Range extends RecursiveTask<Diagnostics> {
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+
+        Range(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Diagnostics compute() {
+            int nodes = nodeEnd(to) - nodeEnd(from);
+            if (to - from <= 1 || nodes <= LEAF_NODES) return checkRange(from, to);
+            // split where half of the nodes are on each side, so one huge function does not hold up a half
+            int at = Arrays.binarySearch(functions, from + 1, to, nodeEnd(from) + nodes / 2);
+            if (at < 0) at = -at - 1;
+            at = Math.max(from + 1, Math.min(to - 1, at));
+            Range left = new Range(from, at);
+            left.fork();
+            Diagnostics right = new Range(at, to).compute();
+            Diagnostics out = left.join();
+            out.addShifted(right, 0, right.size(), 0);
+            return out;
+        }
+    }
+
+    // checks one function at a time; scopes are balanced after each, so one instance serves a whole range
+    private final class FunctionChecker implements AstVisitor {
+        final Diagnostics diagnostics = new Diagnostics();
+        // by name id: the VAR_DECL type token of the visible local declaration
+        private final SymbolTable locals = new SymbolTable();
+        private int function;
+
+        void check(int function) {
+            this.function = function;
+            ast.walk(ast.nextSibling(ast.firstChild(function)), this);
+        }
+
+        @Override
+        public boolean enter(Ast ast, int node) {
+            switch (ast.kind(node)) {
+                case BLOCK -> locals.pushScope();
+                case VAR_DECL -> {
+                    declare(node);
+                    return false;
+                }
+                default -> {
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public void exit(Ast ast, int node) {
+            switch (ast.kind(node)) {
+                case BLOCK -> locals.popScope();
+                case RETURN -> checkReturn(node);
+                case IF, EXPRESSION_STATEMENT -> value(ast.firstChild(node));
+                case NAME -> set(node, name(node));
+                case LITERAL -> set(node, literal(ast.token(node)));
+                case PAREN -> set(node, typeOf(ast.firstChild(node)));
+                case UNARY, POSTFIX -> set(node, unary(node));
+                case BINARY -> set(node, binary(node));
+                case CONDITIONAL -> set(node, conditional(node));
+                case MEMBER -> {
+                    if (value(ast.firstChild(node)) != Type.ERROR) error(DiagnosticCode.MEMBER_OF_NON_STRUCT, node, -1);
+                    set(node, Type.ERROR);
+                }
+                case ERROR -> set(node, Type.ERROR);
+                default -> {
+                }
+            }
+        }
+
+        private void declare(int decl) {
+            int typeToken = ast.token(decl);
+            boolean isVoid = tokens.getKind(typeToken) == TokenKind.KW_VOID;
+            for (int n = ast.firstChild(decl); n != Ast.NONE; n = ast.nextSibling(n)) {
+                if (isVoid) error(DiagnosticCode.VOID_VARIABLE, n, ast.token(n));
+                locals.declare(tokens.getNameId(ast.token(n)), typeToken);
+            }
+        }
+
+        private Type name(int node) {
+            int name = tokens.getNameId(ast.token(node));
+            int decl = locals.lookup(name);
+            if (decl != SymbolTable.UNDECLARED) {
+                Type t = Type.of(tokens.getKind(decl));
+                // already reported at the declaration
+                return t == Type.VOID ? Type.ERROR : t;
+            }
+            return functionTypes[name] >= 0 ? Type.FUNCTION : Type.ERROR;
+        }
+
+        private Type literal(int token) {
+            return switch (tokens.getKind(token)) {
+                case INTEGER_LITERAL -> fitsInt(tokens.getValue(token)) ? Type.INT : Type.LONG;
+                case FLOAT_LITERAL -> {
+                    String text = tokens.getValue(token);
+                    char last = text.charAt(text.length() - 1);
+                    yield last == 'f' || last == 'F' ? Type.FLOAT : Type.DOUBLE;
+                }
+                case CHARACTER_LITERAL -> Type.INT;
+                case STRING_LITERAL -> Type.STRING;
+                default -> Type.ERROR;
+            };
+        }
+
+        private Type unary(int node) {
+            int operand = ast.firstChild(node);
+            TokenKind op = tokens.getKind(ast.token(node));
+            if (op == TokenKind.OP_INC || op == TokenKind.OP_DEC) {
+                if (typeOf(operand) == Type.ERROR) return Type.ERROR;
+                if (!isAssignable(operand)) {
+                    error(DiagnosticCode.NOT_ASSIGNABLE, node, -1);
+                    return Type.ERROR;
+                }
+                return operandOf(node, typeOf(operand), Type::isArithmetic, typeOf(operand));
+            }
+            if (op == TokenKind.OP_AND) {
+                if (value(operand) != Type.ERROR) error(DiagnosticCode.ADDRESS_OF_UNSUPPORTED, node, -1);
+                return Type.ERROR;
+            }
+            Type t = value(operand);
+            return switch (op) {
+                case OP_MINUS, OP_PLUS -> operandOf(node, t, Type::isArithmetic, t.isArithmetic() ? t.promoted() : t);
+                case OP_TILDE -> operandOf(node, t, Type::isInteger, t.isInteger() ? t.promoted() : t);
+                case OP_NOT -> operandOf(node, t, TypeChecker::isScalar, Type.INT);
+                case OP_STAR -> operandOf(node, t, u -> u == Type.STRING, Type.CHAR);
+                default -> Type.ERROR;
+            };
+        }
+
+        private Type operandOf(int node, Type t, Predicate<Type> accepts, Type result) {
+            if (t == Type.ERROR) return Type.ERROR;
+            if (!accepts.test(t)) {
+                error(DiagnosticCode.INVALID_OPERAND, node, -1);
+                return Type.ERROR;
+            }
+            return result;
+        }
+
+        private Type binary(int node) {
+            int left = ast.firstChild(node);
+            int right = ast.nextSibling(left);
+            TokenKind op = tokens.getKind(ast.token(node));
+            if (isAssignment(op)) return assignment(node, op, left, right);
+            Type a = value(left);
+            Type b = value(right);
+            if (a == Type.ERROR || b == Type.ERROR) return Type.ERROR;
+            Type result = switch (op) {
+                case OP_PLUS -> a.isArithmetic() && b.isArithmetic() ? Type.common(a, b)
+                        : a == Type.STRING && b.isInteger() || a.isInteger() && b == Type.STRING ? Type.STRING : null;
+                case OP_MINUS -> a.isArithmetic() && b.isArithmetic() ? Type.common(a, b)
+                        : a == Type.STRING && b.isInteger() ? Type.STRING : null;
+                case OP_STAR, OP_SLASH -> a.isArithmetic() && b.isArithmetic() ? Type.common(a, b) : null;
+                case OP_PERCENT, OP_AND, OP_OR, OP_XOR -> a.isInteger() && b.isInteger() ? Type.common(a, b) : null;
+                case OP_SHL, OP_SHR -> a.isInteger() && b.isInteger() ? a.promoted() : null;
+                case OP_LT, OP_GT, OP_LE, OP_GE, OP_EQ, OP_NE ->
+                        a.isArithmetic() && b.isArithmetic() || a == b ? Type.INT : null;
+                case OP_AND_AND, OP_OR_OR -> isScalar(a) && isScalar(b) ? Type.INT : null;
+                default -> null;
+            };
+            if (result == null) {
+                error(DiagnosticCode.INVALID_OPERANDS, node, -1);
+                return Type.ERROR;
+            }
+            return result;
+        }
+
+        private Type assignment(int node, TokenKind op, int left, int right) {
+            Type target = typeOf(left);
+            Type v = value(right);
+            if (target == Type.ERROR) return Type.ERROR;
+            if (!isAssignable(left)) {
+                error(DiagnosticCode.NOT_ASSIGNABLE, node, -1);
+                return Type.ERROR;
+            }
+            if (v == Type.ERROR) return target;
+            boolean ok = switch (op) {
+                case OP_ASSIGN -> converts(v, target);
+                case OP_PERCENT_ASSIGN, OP_AND_ASSIGN, OP_OR_ASSIGN, OP_XOR_ASSIGN -> target.isInteger() && v.isInteger();
+                default -> target.isArithmetic() && v.isArithmetic();
+            };
+            if (!ok) {
+                error(op == TokenKind.OP_ASSIGN ? DiagnosticCode.INCOMPATIBLE_ASSIGNMENT : DiagnosticCode.INVALID_OPERANDS, node, -1);
+            }
+            return target;
+        }
+
+        private Type conditional(int node) {
+            int condition = ast.firstChild(node);
+            int then = ast.nextSibling(condition);
+            int otherwise = then == Ast.NONE ? Ast.NONE : ast.nextSibling(then);
+            Type c = value(condition);
+            Type a = value(then);
+            Type b = value(otherwise);
+            if (c == Type.ERROR || a == Type.ERROR || b == Type.ERROR) return Type.ERROR;
+            if (a.isArithmetic() && b.isArithmetic()) return Type.common(a, b);
+            if (a == b) return a;
+            error(DiagnosticCode.INCOMPATIBLE_BRANCHES, node, -1);
+            return Type.ERROR;
+        }
+
+        private void checkReturn(int node) {
+            Type v = value(ast.firstChild(node));
+            if (v == Type.ERROR) return;
+            int typeToken = ast.token(function);
+            Type result = Type.of(tokens.getKind(typeToken));
+            if (result == Type.VOID) {
+                error(DiagnosticCode.RETURN_VALUE_IN_VOID, node, -1);
+            } else if (!converts(v, result)) {
+                error(DiagnosticCode.INCOMPATIBLE_RETURN, node, typeToken);
+            }
+        }
+
+        // the type of an operand that is read; a function name is an error here, reported once
+        private Type value(int node) {
+            Type t = typeOf(node);
+            if (t == Type.FUNCTION) {
+                int name = node;
+                while (ast.kind(name) == NodeKind.PAREN) name = ast.firstChild(name);
+                error(DiagnosticCode.FUNCTION_AS_VALUE, name, ast.token(name));
+                set(node, Type.ERROR);
+                return Type.ERROR;
+            }
+            return t;
+        }
+
+        private Type typeOf(int node) {
+            if (node == Ast.NONE) return Type.ERROR;
+            Type t = type(node);
+            return t == null ? Type.ERROR : t;
+        }
+
+        private boolean isAssignable(int node) {
+            return switch (ast.kind(node)) {
+                case NAME -> typeOf(node) != Type.FUNCTION;
+                case PAREN -> isAssignable(ast.firstChild(node));
+                case MEMBER -> true;
+                case UNARY -> tokens.getKind(ast.token(node)) == TokenKind.OP_STAR;
+                default -> false;
+            };
+        }
+
+        private void set(int node, Type t) {
+            types[node] = (byte) (t.ordinal() + 1);
+        }
+
+        private void error(DiagnosticCode code, int node, int related) {
+            diagnostics.add(code, ast.token(node), related);
+        }
+    }
+
+    private static boolean isScalar(Type t) {
+        return t.isArithmetic() || t == Type.STRING;
+    }
+
+    private static boolean converts(Type from, Type to) {
+        return from.isArithmetic() && to.isArithmetic() || from == to;
+    }
+
+    private static boolean isAssignment(TokenKind op) {
+        return switch (op) {
+            case OP_ASSIGN, OP_PLUS_ASSIGN, OP_MINUS_ASSIGN, OP_STAR_ASSIGN, OP_SLASH_ASSIGN, OP_PERCENT_ASSIGN,
+                 OP_AND_ASSIGN, OP_OR_ASSIGN, OP_XOR_ASSIGN -> true;
+            default -> false;
+        };
+    }
+
+    // a constant without an L suffix that fits in int; anything else is long
+    private static boolean fitsInt(String literal) {
+        for (int i = literal.length() - 1; i > 0 && "uUlL".indexOf(literal.charAt(i)) >= 0; i--) {
+            if ((literal.charAt(i) | 0x20) == 'l') return false;
+        }
+        try {
+            long v = integerValue(literal);
+            return v >= 0 && v <= Integer.MAX_VALUE;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    /**
+     * The value of a decimal, hex ({@code 0x}), binary ({@code 0b}) or octal ({@code 0}) integer literal, ignoring
+     * {@code u} and {@code l} suffixes; a literal beyond the long range throws {@link NumberFormatException}.
+     */
+    public static long integerValue(String literal) {
+        int end = literal.length();
+        while (end > 0 && "uUlL".indexOf(literal.charAt(end - 1)) >= 0) end--;
+        if (end > 2 && (literal.startsWith("0x") || literal.startsWith("0X"))) {
+            return Long.parseUnsignedLong(literal, 2, end, 16);
+        }
+        if (end > 2 && (literal.startsWith("0b") || literal.startsWith("0B"))) {
+            return Long.parseUnsignedLong(literal, 2, end, 2);
+        }
+        if (end > 1 && literal.charAt(0) == '0') return Long.parseUnsignedLong(literal, 1, end, 8);
+        return Long.parseLong(literal, 0, end, 10);
+    }
+}
@@ -0,0 +1,155 @@
+package org.example.Preprocessor;
+
+import org.example.Tokens.Token;
+import org.example.Tokens.TokenKind;
+import org.example.Tokens.TokenType;
+
+import java.util.List;
+
+/**
+ * Evaluates the integer constant expression of an {@code #if} or {@code #elif} after {@code defined} and macros
+ * have been replaced. Remaining identifiers and keywords count as 0. Operands of {@code &&}, {@code ||} and
+ * {@code ?:} that are not evaluated may divide by zero without an error.
+ */
+final class ConditionEvaluator {
+    private final List<Token> tokens;
+    private int pos;
+
+    private ConditionEvaluator(List<Token> tokens) {
+        this.tokens = tokens;
+    }
+
+    static long evaluate(List<Token> tokens) {
+        if (tokens.isEmpty()) throw new IllegalArgumentException("#if with no expression");
+        ConditionEvaluator e = new ConditionEvaluator(tokens);
+        long value = e.conditional(true);
+        if (e.pos < tokens.size()) {
+            throw new IllegalArgumentException("unexpected '" + tokens.get(e.pos).getValue() + "' in #if expression");
+        }
+        return value;
+    }
+
+    private long conditional(boolean live) {
+        long c = binary(1, live);
+        if (!accept(TokenKind.OP_QUESTION)) return c;
+        long a = conditional(live && c != 0);
+        if (!accept(TokenKind.OP_COLON)) throw new IllegalArgumentException("expected ':' in #if expression");
+        long b = conditional(live && c == 0);
+        return c != 0 ? a : b;
+    }
+
+    // precedence climbing over the binary operators, 1 (||) binding loosest
+    private long binary(int minPrecedence, boolean live) {
+        long left = unary(live);
+        while (pos < tokens.size()) {
+            TokenKind op = tokens.get(pos).getKind();
+            int precedence = precedence(op);
+            if (precedence < minPrecedence) break;
+            pos++;
+            boolean rightLive = live && !(op == TokenKind.OP_AND_AND && left == 0) && !(op == TokenKind.OP_OR_OR && left != 0);
+            long right = binary(precedence + 1, rightLive);
+            left = apply(op, left, right, rightLive);
+        }
+        return left;
+    }
+
+    private long unary(boolean live) {
+        if (pos >= tokens.size()) throw new IllegalArgumentException("#if expression ends early");
+        Token t = tokens.get(pos++);
+        switch (t.getKind()) {
+            case OP_NOT:
+                return unary(live) == 0 ? 1 : 0;
+            case OP_TILDE:
+                return ~unary(live);
+            case OP_MINUS:
+                return -unary(live);
+            case OP_PLUS:
+                return unary(live);
+            case P_LPAREN: {
+                long value = conditional(live);
+                if (!accept(TokenKind.P_RPAREN)) throw new IllegalArgumentException("missing ')' in #if expression");
+                return value;
+            }
+            default:
+                break;
+        }
+        if (t.getType() == TokenType.INTEGER_LITERAL) return integer(t.getValue());
+        if (t.getType() == TokenType.CHARACTER_LITERAL) return character(t.getValue());
+        if (t.getType() == TokenType.IDENTIFIER || t.getType() == TokenType.KEYWORD) return 0;
+        throw new IllegalArgumentException("unexpected '" + t.getValue() + "' in #if expression");
+    }
+
+    private static int precedence(TokenKind op) {
+        switch (op) {
+            case OP_OR_OR: return 1;
+            case OP_AND_AND: return 2;
+            case OP_OR: return 3;
+            case OP_XOR: return 4;
+            case OP_AND: return 5;
+            case OP_EQ: case OP_NE: return 6;
+            case OP_LT: case OP_GT: case OP_LE: case OP_GE: return 7;
+            case OP_SHL: case OP_SHR: return 8;
+            case OP_PLUS: case OP_MINUS: return 9;
+            case OP_STAR: case OP_SLASH: case OP_PERCENT: return 10;
+            default: return -1;
+        }
+    }
+
+    private static long apply(TokenKind op, long a, long b, boolean live) {
+        switch (op) {
+            case OP_OR_OR: return a != 0 || b != 0 ? 1 : 0;
+            case OP_AND_AND: return a != 0 && b != 0 ? 1 : 0;
+            case OP_OR: return a | b;
+            case OP_XOR: return a ^ b;
+            case OP_AND: return a & b;
+            case OP_EQ: return a == b ? 1 : 0;
+            case OP_NE: return a != b ? 1 : 0;
+            case OP_LT: return a < b ? 1 : 0;
+            case OP_GT: return a > b ? 1 : 0;
+            case OP_LE: return a <= b ? 1 : 0;
+            case OP_GE: return a >= b ? 1 : 0;
+            case OP_SHL: return a << b;
+            case OP_SHR: return a >> b;
+            case OP_PLUS: return a + b;
+            case OP_MINUS: return a - b;
+            case OP_STAR: return a * b;
+            default:
+                if (b == 0) {
+                    if (!live) return 0;
+                    throw new IllegalArgumentException("division by zero in #if expression");
+                }
+                return op == TokenKind.OP_SLASH ? a / b : a % b;
+        }
+    }
+
+    private static long integer(String s) {
+        try {
+            if (s.startsWith("0x") || s.startsWith("0X")) return Long.parseUnsignedLong(s.substring(2), 16);
+            if (s.startsWith("0b") || s.startsWith("0B")) return Long.parseUnsignedLong(s.substring(2), 2);
+            if (s.length() > 1 && s.charAt(0) == '0') return Long.parseUnsignedLong(s.substring(1), 8);
+            return Long.parseUnsignedLong(s);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("integer '" + s + "' is too large for #if", e);
+        }
+    }
+
+    private static long character(String s) {
+        char c = s.charAt(1);
+        if (c != '\\') return c;
+        switch (s.charAt(2)) {
+            case 'n': return '\n';
+            case 't': return '\t';
+            case 'r': return '\r';
+            case '0': return 0;
+            default: return s.charAt(2);
+        }
+    }
+
+    private boolean accept(TokenKind kind) {
+        if (pos < tokens.size() && tokens.get(pos).getKind() == kind) {
+            pos++;
+            return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,75 @@
+package org.example.Preprocessor;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lexed headers keyed by path and last-modified time, shared by every {@link Preprocessor} of a batch.
+ * <p>
+ * The cached files are immutable, so threads read them without locking. When several threads ask for the same
+ * header at once, one lexes it and the others wait for that result; a header whose modification time changed
+ * is lexed again.
+ */
+public final class HeaderCache {
+    private record Entry(FileTime modified, FutureTask<SourceFile> file) {
+    }
+
+    private final ConcurrentHashMap<Path, Entry> entries = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /** {@code path} must be absolute and normalized, so one file has one key. */
+    SourceFile get(Path path) throws IOException {
+        FileTime modified = Files.getLastModifiedTime(path);
+        Entry entry = entries.compute(path, (p, old) -> {
+            if (old != null && old.modified.equals(modified)) {
+                hits.increment();
+                return old;
+            }
+            misses.increment();
+            return new Entry(modified, new FutureTask<>(() -> SourceFile.read(p)));
+        });
+        // only the first caller lexes; run() returns at once for the others, which then wait in get()
+        entry.file.run();
+        try {
+            return entry.file.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while reading " + path);
+        } catch (ExecutionException e) {
+            // do not keep the failure; the next include tries again
+            entries.remove(path, entry);
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException io) throw io;
+            if (cause instanceof RuntimeException runtime) throw runtime;
+            if (cause instanceof Error error) throw error;
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    /** Number of headers currently cached. */
+    public int size() {
+        return entries.size();
+    }
+
+    /** Lookups answered from the cache. */
+    public long hits() {
+        return hits.sum();
+    }
+
+    /** Lookups that had to read and lex the header. */
+    public long misses() {
+        return misses.sum();
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+}
@@ -0,0 +1,21 @@
+package org.example.Preprocessor;
+
+import org.example.Tokens.Token;
+
+import java.util.List;
+
+/**
+ * A {@code #define}: object-like when {@code params} is null. A variadic macro's last parameter is
+ * {@code __VA_ARGS__} and takes all remaining arguments.
+ */
+record Macro(String name, List<String> params, boolean variadic, List<Token> body) {
+    static final String VA_ARGS = "__VA_ARGS__";
+
+    boolean isFunctionLike() {
+        return params != null;
+    }
+
+    int paramIndex(Token t) {
+        return params == null ? -1 : params.indexOf(t.getValue());
+    }
+}
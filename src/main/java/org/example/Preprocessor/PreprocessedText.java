@@ -0,0 +1,47 @@
+package org.example.Preprocessor;
+
+/**
+ * The text under the {@link Preprocessor}'s output: the compiled file as it was read, followed by the text of macro
+ * expansions and included headers. Tokens copied through from the file keep their offsets into it, so the file is
+ * never copied.
+ */
+final class PreprocessedText implements CharSequence {
+    private final CharSequence source;
+    private final int sourceLength;
+    private final StringBuilder appended = new StringBuilder();
+
+    PreprocessedText(CharSequence source) {
+        this.source = source;
+        this.sourceLength = source.length();
+    }
+
+    /** Appends {@code value} after a separating space and returns its start offset. */
+    int append(String value) {
+        appended.append(' ');
+        int start = length();
+        appended.append(value);
+        return start;
+    }
+
+    @Override
+    public int length() {
+        return sourceLength + appended.length();
+    }
+
+    @Override
+    public char charAt(int index) {
+        return index < sourceLength ? source.charAt(index) : appended.charAt(index - sourceLength);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        if (end <= sourceLength) return source.subSequence(start, end);
+        if (start >= sourceLength) return appended.subSequence(start - sourceLength, end - sourceLength);
+        return new StringBuilder(end - start).append(source, start, sourceLength).append(appended, 0, end - sourceLength);
+    }
+
+    @Override
+    public String toString() {
+        return new StringBuilder(length()).append(source).append(appended).toString();
+    }
+}
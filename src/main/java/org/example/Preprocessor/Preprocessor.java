@@ -0,0 +1,702 @@
+package org.example.Preprocessor;
+
+import org.example.Metrics.Phase;
+import org.example.Metrics.PhaseEvent;
+import org.example.Scanner.Scanner;
+import org.example.Tokens.Token;
+import org.example.Tokens.TokenBuffer;
+import org.example.Tokens.TokenKind;
+import org.example.Tokens.TokenType;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Runs between {@link Scanner} and the parser: resolves {@code #include}, expands object-like and function-like
+ * {@code #define} macros and keeps only the taken branches of {@code #if/#ifdef/#ifndef/#elif/#else}.
+ * <p>
+ * The result is a {@link TokenBuffer} with no directives left. A file without directives, when no macro is defined,
+ * comes out as the very buffer {@link Scanner#TokenizeToBuffer} lexed. Otherwise the file's tokens outside macro
+ * invocations are copied through over its own text, and only expansions and included headers make new tokens, so
+ * the file is never copied and parse error positions do not move.
+ * <p>
+ * Comments are trivia from the scanner on and never reach the expander. The file's comments stay in the output as
+ * trivia of the tokens copied through; those in headers, in directives and inside macro invocations are dropped.
+ * <p>
+ * A preprocessor holds the macros of one translation unit and is not thread-safe; use one per file and share a
+ * {@link HeaderCache} between them. A header with an include guard or {@code #pragma once} is skipped on its
+ * second inclusion without looking it up again.
+ */
+public final class Preprocessor {
+    /** Deeper {@code #include} nesting is an error; this also ends include cycles between unguarded headers. */
+    public static final int MAX_INCLUDE_DEPTH = 200;
+
+    // conditional states; ELSE_SEEN is or-ed in after #else
+    private static final int TAKING = 0;
+    private static final int PENDING = 1;
+    private static final int DONE = 2;
+    private static final int SKIPPED = 3;
+    private static final int ELSE_SEEN = 4;
+
+    private final List<Path> includePaths;
+    private final HeaderCache headers;
+    private final Map<String, Macro> macros = new HashMap<>();
+    // guard macro of every guarded header included so far, by absolute path
+    private final Map<Path, String> guards = new HashMap<>();
+    private final Set<Path> onceOnly = new HashSet<>();
+    private final Set<Path> included = new LinkedHashSet<>();
+    // include candidates that did not exist when searched; creating one could change what an #include finds
+    private final Set<Path> missed = new LinkedHashSet<>();
+    private int[] conditions = new int[16];
+    private int conditionCount;
+    private int depth;
+    private SourceFile main;
+    private TokenBuffer sourceTokens;
+    private PreprocessedText text;
+    private TokenBuffer out;
+    // for every output token, the main file token it came from; see TokenBuffer#setOrigin
+    private int[] origins;
+    // the main file #include whose header is being processed
+    private int includeSite;
+
+    public Preprocessor(List<Path> includePaths, HeaderCache headers) {
+        this.includePaths = List.copyOf(includePaths);
+        this.headers = headers;
+    }
+
+    /** Defines an object-like macro as if by {@code #define name value}. */
+    public Preprocessor define(String name, String value) {
+        macros.put(name, new Macro(name, null, false, SourceFile.lexDirective(value)));
+        return this;
+    }
+
+    public boolean isDefined(String name) {
+        return macros.containsKey(name);
+    }
+
+    /** Preprocesses {@code file}, memory-mapped, so the tokens of the file itself are offsets of its bytes. */
+    public TokenBuffer preprocess(Path file) throws IOException {
+        return preprocess(Scanner.mapInputFile(file), file);
+    }
+
+    /**
+     * Preprocesses {@code code}; quoted includes are looked up next to {@code file} (the working directory when
+     * null) before the include paths. Lexical and preprocessing errors are thrown as
+     * {@link IllegalArgumentException}s whose message names the line.
+     */
+    public TokenBuffer preprocess(CharSequence code, Path file) throws IOException {
+        PhaseEvent event = PhaseEvent.begin(Phase.PREPROCESS);
+        sourceTokens = null;
+        included.clear();
+        missed.clear();
+        TokenBuffer lexed = Scanner.TokenizeToBuffer(code);
+        if (macros.isEmpty() && !hasDirectives(lexed)) {
+            // nothing to do: the scanner's tokens, over the text as it was read, are the output
+            sourceTokens = lexed;
+            if (event.isRecording()) event.setBytes(code.length()).setTokens(lexed.size());
+            event.finish();
+            return lexed;
+        }
+        main = SourceFile.lex(lexed, code, file);
+        conditionCount = 0;
+        depth = 0;
+        text = new PreprocessedText(code);
+        // one pool, so names of copied tokens keep their ids
+        out = new TokenBuffer(text, Math.max(16, lexed.size()), lexed.getNames());
+        origins = new int[Math.max(16, lexed.size())];
+        process(main);
+        out.setOrigin(lexed, origins);
+        origins = null;
+        text = null;
+        sourceTokens = lexed;
+        if (event.isRecording()) event.setBytes(code.length()).setTokens(out.size());
+        event.finish();
+        return out;
+    }
+
+    private static boolean hasDirectives(TokenBuffer tokens) {
+        for (int i = 0; i < tokens.size(); i++) {
+            if (tokens.getType(i) == TokenType.PREPROCESSOR) return true;
+        }
+        return false;
+    }
+
+    /** The main file's tokens as the scanner produced them, or null if the last {@link #preprocess} failed. */
+    public TokenBuffer getSourceTokens() {
+        return sourceTokens;
+    }
+
+    /** Absolute paths of the headers the last {@link #preprocess} read, in first-inclusion order. */
+    public Set<Path> getIncludedFiles() {
+        return Set.copyOf(included);
+    }
+
+    /**
+     * Absolute paths the last {@link #preprocess} searched for an included header and did not find, such as an
+     * earlier {@code -I} directory. A file created at any of them could change the output.
+     */
+    public Set<Path> getIncludeMisses() {
+        return Set.copyOf(missed);
+    }
+
+    private void process(SourceFile file) throws IOException {
+        int base = conditionCount;
+        int size = file.size();
+        int i = 0;
+        while (i < size) {
+            if (file.isDirective(i)) {
+                directive(file, i, base);
+                i++;
+                continue;
+            }
+            int runEnd = i;
+            while (runEnd < size && !file.isDirective(runEnd)) runEnd++;
+            if (isActive()) {
+                int first = i;
+                TokenSource source = new TokenSource(file, i, runEnd);
+                try {
+                    if (file == main) {
+                        // macro expansions are placed at the last token of their invocation
+                        expandCopying(source, (t, hide) -> emit(t, Math.max(first, source.pos - 1)));
+                    } else {
+                        expand(source, (t, hide) -> emit(t, includeSite));
+                    }
+                } catch (IllegalArgumentException e) {
+                    throw error(file, Math.max(i, source.pos - 1), e.getMessage());
+                }
+            }
+            i = runEnd;
+        }
+        if (conditionCount > base) {
+            throw error(file, size - 1, "unterminated #if");
+        }
+    }
+
+    private void directive(SourceFile file, int i, int base) throws IOException {
+        SourceFile.Directive d = file.directives[i];
+        switch (d.name()) {
+            case "if" -> push(!isActive() ? SKIPPED : condition(file, i) ? TAKING : PENDING);
+            case "ifdef", "ifndef" -> {
+                if (!isActive()) {
+                    push(SKIPPED);
+                } else {
+                    boolean defined = macros.containsKey(macroName(file, i));
+                    push(defined == d.name().equals("ifdef") ? TAKING : PENDING);
+                }
+            }
+            case "elif" -> {
+                int state = top(file, i, base);
+                if ((state & ELSE_SEEN) != 0) throw error(file, i, "#elif after #else");
+                if (state == TAKING) conditions[conditionCount - 1] = DONE;
+                else if (state == PENDING && condition(file, i)) conditions[conditionCount - 1] = TAKING;
+            }
+            case "else" -> {
+                int state = top(file, i, base);
+                if ((state & ELSE_SEEN) != 0) throw error(file, i, "#else after #else");
+                conditions[conditionCount - 1] = (state == PENDING ? TAKING : state == TAKING ? DONE : state) | ELSE_SEEN;
+            }
+            case "endif" -> {
+                top(file, i, base);
+                conditionCount--;
+            }
+            default -> {
+                if (isActive()) control(file, i, d);
+            }
+        }
+    }
+
+    // directives that only matter in a taken branch
+    private void control(SourceFile file, int i, SourceFile.Directive d) throws IOException {
+        switch (d.name()) {
+            case "define" -> define(file, i, d);
+            case "undef" -> macros.remove(macroName(file, i));
+            case "include" -> include(file, i, d);
+            case "error" -> throw error(file, i, "#error" + d.text().stripTrailing());
+            case "pragma", "line", "warning" -> {
+                // #pragma once is found when the header is lexed; nothing else changes the output
+            }
+            default -> throw error(file, i, "unknown directive #" + d.name());
+        }
+    }
+
+    private void define(SourceFile file, int i, SourceFile.Directive d) {
+        String name = macroName(file, i);
+        List<Token> args = d.args();
+        int at = 1;
+        List<String> params = null;
+        boolean variadic = false;
+        String text = d.text().stripLeading();
+        if (text.length() > name.length() && text.charAt(name.length()) == '(') {
+            params = new ArrayList<>();
+            at = 2;
+            while (true) {
+                if (at >= args.size()) throw error(file, i, "missing ')' in parameter list of '" + name + "'");
+                Token t = args.get(at);
+                if (t.getKind() == TokenKind.P_RPAREN && params.isEmpty()) {
+                    at++;
+                    break;
+                }
+                if (isEllipsis(args, at)) {
+                    params.add(Macro.VA_ARGS);
+                    variadic = true;
+                    at += 3;
+                } else if (t.getType() == TokenType.IDENTIFIER) {
+                    params.add(t.getValue());
+                    at++;
+                } else {
+                    throw error(file, i, "expected parameter name in '" + name + "', found '" + t.getValue() + "'");
+                }
+                if (at < args.size() && args.get(at).getKind() == TokenKind.P_RPAREN) {
+                    at++;
+                    break;
+                }
+                if (variadic || at >= args.size() || args.get(at).getKind() != TokenKind.P_COMMA) {
+                    throw error(file, i, "expected ',' or ')' in parameter list of '" + name + "'");
+                }
+                at++;
+            }
+        }
+        List<Token> body = args.subList(at, args.size());
+        Macro macro = new Macro(name, params, variadic, List.copyOf(body));
+        for (int k = 0; k < body.size(); k++) {
+            Token t = body.get(k);
+            if (isPaste(t) && (k == 0 || k == body.size() - 1)) {
+                throw error(file, i, "'##' cannot be at either end of a macro body");
+            }
+            if (params != null && isStringize(t) && (k + 1 == body.size() || macro.paramIndex(body.get(k + 1)) < 0)) {
+                throw error(file, i, "'#' is not followed by a macro parameter");
+            }
+        }
+        macros.put(name, macro);
+    }
+
+    private void include(SourceFile file, int i, SourceFile.Directive d) throws IOException {
+        String spelling = d.text().strip();
+        if (!spelling.startsWith("\"") && !spelling.startsWith("<")) {
+            // #include MACRO: expand, then read the result as one of the two forms
+            TokenList expanded = new TokenList();
+            expand(new TokenSource(d.args()), expanded);
+            StringBuilder sb = new StringBuilder();
+            for (Token t : expanded.tokens) sb.append(t.getValue());
+            spelling = sb.toString();
+        }
+        boolean quoted = spelling.startsWith("\"");
+        int close = spelling.indexOf(quoted ? '"' : '>', 1);
+        if ((!quoted && !spelling.startsWith("<")) || close < 0) {
+            throw error(file, i, "#include expects \"file\" or <file>");
+        }
+        String name = spelling.substring(1, close);
+        Path target = resolve(file, name, quoted);
+        if (target == null) throw error(file, i, "'" + name + "' not found");
+
+        String guard = guards.get(target);
+        if ((guard != null && macros.containsKey(guard)) || onceOnly.contains(target)) return;
+        if (depth >= MAX_INCLUDE_DEPTH) throw error(file, i, "#include nested too deeply");
+        SourceFile header = headers.get(target);
+        if (header.pragmaOnce) onceOnly.add(target);
+        if (header.guard != null) guards.put(target, header.guard);
+        included.add(target);
+        if (file == main) includeSite = i;
+        depth++;
+        try {
+            process(header);
+        } finally {
+            depth--;
+        }
+    }
+
+    private Path resolve(SourceFile file, String name, boolean quoted) {
+        if (quoted) {
+            Path dir = file.path == null ? null : file.path.toAbsolutePath().getParent();
+            Path candidate = found(dir == null ? Path.of(name) : dir.resolve(name));
+            if (candidate != null) return candidate;
+        }
+        for (Path dir : includePaths) {
+            Path candidate = found(dir.resolve(name));
+            if (candidate != null) return candidate;
+        }
+        return null;
+    }
+
+    // candidate as an absolute path if it is a file, else null after recording the miss
+    private Path found(Path candidate) {
+        Path absolute = candidate.toAbsolutePath().normalize();
+        if (Files.isRegularFile(absolute)) return absolute;
+        missed.add(absolute);
+        return null;
+    }
+
+    private boolean condition(SourceFile file, int i) {
+        List<Token> args = file.directives[i].args();
+        TokenSource resolved = new TokenSource();
+        TokenList replaced = new TokenList();
+        for (int k = 0; k < args.size(); k++) {
+            Token t = args.get(k);
+            if (!t.getValue().equals("defined")) {
+                replaced.accept(t, Set.of());
+                continue;
+            }
+            boolean paren = k + 1 < args.size() && args.get(k + 1).getKind() == TokenKind.P_LPAREN;
+            int at = paren ? k + 2 : k + 1;
+            if (at >= args.size() || !isName(args.get(at)) || (paren && (at + 1 >= args.size() || args.get(at + 1).getKind() != TokenKind.P_RPAREN))) {
+                throw error(file, i, "'defined' without a macro name");
+            }
+            replaced.accept(new Token(TokenKind.INTEGER_LITERAL, macros.containsKey(args.get(at).getValue()) ? "1" : "0"), Set.of());
+            k = paren ? at + 1 : at;
+        }
+        resolved.pushAll(replaced.tokens, replaced.hides, Set.of());
+        TokenList expanded = new TokenList();
+        try {
+            expand(resolved, expanded);
+            return ConditionEvaluator.evaluate(expanded.tokens) != 0;
+        } catch (IllegalArgumentException e) {
+            throw error(file, i, e.getMessage());
+        }
+    }
+
+    /** Expands macros in {@code in}, handing every resulting token and its hide set to {@code sink}. */
+    private void expand(TokenSource in, Sink sink) {
+        while (in.hasNext()) expandNext(in, sink);
+    }
+
+    /**
+     * Expands macros in a range of the main file. Tokens outside macro invocations are copied to the output as they
+     * are, over the file's own text; only the tokens an expansion produces go through {@code sink}.
+     */
+    private void expandCopying(TokenSource in, Sink sink) {
+        int copied = in.pos;
+        while (in.hasNext()) {
+            if (in.inFile()) {
+                if (!isMacro(in.pos)) {
+                    in.pop();
+                    continue;
+                }
+                copy(copied, in.pos);
+            }
+            expandNext(in, sink);
+            if (in.inFile()) copied = in.pos;
+        }
+        copy(copied, in.pos);
+    }
+
+    // reads one token of in: hands it to sink, or replaces it and its arguments with the macro's expansion
+    private void expandNext(TokenSource in, Sink sink) {
+        Token t = in.peek();
+        Set<String> hide = in.peekHide();
+        in.pop();
+        Macro m = isName(t) ? macros.get(t.getValue()) : null;
+        if (m == null || hide.contains(m.name())) {
+            sink.accept(t, hide);
+            return;
+        }
+        if (!m.isFunctionLike()) {
+            TokenList body = substitute(m, null);
+            in.pushAll(body.tokens, body.hides, with(hide, m.name()));
+            return;
+        }
+        // a function-like macro name without '(' after it is an ordinary identifier
+        if (!in.hasNext() || in.peek().getKind() != TokenKind.P_LPAREN) {
+            sink.accept(t, hide);
+            return;
+        }
+        in.pop();
+        TokenList body = substitute(m, arguments(in, m));
+        in.pushAll(body.tokens, body.hides, with(hide, m.name()));
+    }
+
+    // whether main file token i names a macro, looked up without making its value
+    private boolean isMacro(int i) {
+        TokenBuffer tokens = main.buffer;
+        int id = tokens.getNameId(i);
+        if (id >= 0) return macros.containsKey(tokens.getNames().name(id));
+        TokenKind kind = tokens.getKind(i);
+        return kind.getType() == TokenType.KEYWORD && macros.containsKey(kind.getText());
+    }
+
+    // reads the arguments after '(' up to the matching ')'
+    private static List<TokenList> arguments(TokenSource in, Macro m) {
+        List<TokenList> args = new ArrayList<>();
+        TokenList current = new TokenList();
+        int nesting = 0;
+        while (true) {
+            if (!in.hasNext()) throw new IllegalArgumentException("unterminated argument list invoking macro '" + m.name() + "'");
+            Token t = in.peek();
+            Set<String> hide = in.peekHide();
+            in.pop();
+            TokenKind kind = t.getKind();
+            if (kind == TokenKind.P_RPAREN && nesting == 0) break;
+            if (kind == TokenKind.P_LPAREN) nesting++;
+            else if (kind == TokenKind.P_RPAREN) nesting--;
+            if (kind == TokenKind.P_COMMA && nesting == 0 && !(m.variadic() && args.size() == m.params().size() - 1)) {
+                args.add(current);
+                current = new TokenList();
+            } else {
+                current.accept(t, hide);
+            }
+        }
+        args.add(current);
+        int expected = m.params().size();
+        if (expected == 0 && args.size() == 1 && args.get(0).tokens.isEmpty()) args.clear();
+        if (m.variadic() && args.size() == expected - 1) args.add(new TokenList());
+        if (args.size() != expected) {
+            throw new IllegalArgumentException("macro '" + m.name() + "' expects " + expected + " argument"
+                    + (expected == 1 ? "" : "s") + ", got " + args.size());
+        }
+        return args;
+    }
+
+    // the body with parameters replaced, '#' stringized and '##' pasted; args is null for object-like macros
+    private TokenList substitute(Macro m, List<TokenList> args) {
+        List<Token> body = m.body();
+        TokenList result = new TokenList();
+        TokenList[] expandedArgs = args == null ? null : new TokenList[args.size()];
+        int previousStart = 0;
+        for (int k = 0; k < body.size(); k++) {
+            Token t = body.get(k);
+            int start = result.tokens.size();
+            int param;
+            if (args != null && isStringize(t)) {
+                result.accept(stringize(args.get(m.paramIndex(body.get(++k)))), Set.of());
+            } else if (isPaste(t)) {
+                Token right = body.get(++k);
+                param = m.paramIndex(right);
+                List<Token> rightTokens = param >= 0 ? args.get(param).tokens : List.of(right);
+                start = previousStart;
+                if (!rightTokens.isEmpty()) {
+                    int from = 0;
+                    if (result.tokens.size() > previousStart) {
+                        Token left = result.removeLast();
+                        result.accept(paste(left, rightTokens.get(0)), Set.of());
+                        from = 1;
+                    }
+                    for (int r = from; r < rightTokens.size(); r++) result.accept(rightTokens.get(r), Set.of());
+                }
+            } else if ((param = m.paramIndex(t)) >= 0 && args != null) {
+                boolean pasted = k + 1 < body.size() && isPaste(body.get(k + 1));
+                TokenList arg = args.get(param);
+                if (!pasted) {
+                    // arguments are fully expanded before substitution, except as operands of '#' and '##'
+                    if (expandedArgs[param] == null) {
+                        expandedArgs[param] = new TokenList();
+                        expand(new TokenSource(arg), expandedArgs[param]);
+                    }
+                    arg = expandedArgs[param];
+                }
+                result.addAll(arg);
+            } else {
+                result.accept(t, Set.of());
+            }
+            previousStart = start;
+        }
+        return result;
+    }
+
+    private static Token stringize(TokenList arg) {
+        StringBuilder sb = new StringBuilder("\"");
+        for (int k = 0; k < arg.tokens.size(); k++) {
+            if (k > 0) sb.append(' ');
+            Token t = arg.tokens.get(k);
+            boolean literal = t.getType() == TokenType.STRING_LITERAL || t.getType() == TokenType.CHARACTER_LITERAL;
+            for (char c : t.getValue().toCharArray()) {
+                if (literal && (c == '"' || c == '\\')) sb.append('\\');
+                sb.append(c);
+            }
+        }
+        return new Token(TokenKind.STRING_LITERAL, sb.append('"').toString());
+    }
+
+    private static Token paste(Token left, Token right) {
+        String joined = left.getValue() + right.getValue();
+        List<Token> lexed;
+        try {
+            lexed = Scanner.Tokenize(joined);
+        } catch (IllegalArgumentException e) {
+            lexed = List.of();
+        }
+        // '/' and '/' would make a comment, which is not a token
+        if (lexed.size() != 1 || lexed.get(0).getType() == TokenType.COMMENT) {
+            throw new IllegalArgumentException("pasting '" + left.getValue() + "' and '" + right.getValue() + "' does not give a valid token");
+        }
+        return lexed.get(0);
+    }
+
+    private void emit(Token t, int origin) {
+        int start = text.append(t.getValue());
+        if (out.size() == origins.length) origins = Arrays.copyOf(origins, origins.length * 2);
+        origins[out.size()] = origin;
+        out.add(t.getKind(), start, text.length());
+    }
+
+    // appends main file tokens [from, to), and the comments before them, over the file's own text
+    private void copy(int from, int to) {
+        if (from == to) return;
+        int at = out.size();
+        if (at + to - from > origins.length) origins = Arrays.copyOf(origins, Math.max(origins.length * 2, at + to - from));
+        for (int k = from; k < to; k++) origins[at + k - from] = k;
+        out.addAll(main.buffer, from, to);
+    }
+
+    private String macroName(SourceFile file, int i) {
+        List<Token> args = file.directives[i].args();
+        if (args.isEmpty() || !isName(args.get(0))) {
+            throw error(file, i, "#" + file.directives[i].name() + " expects a macro name");
+        }
+        return args.get(0).getValue();
+    }
+
+    private boolean isActive() {
+        return conditionCount == 0 || (conditions[conditionCount - 1] & ~ELSE_SEEN) == TAKING;
+    }
+
+    private void push(int state) {
+        if (conditionCount == conditions.length) conditions = Arrays.copyOf(conditions, conditionCount * 2);
+        conditions[conditionCount++] = state;
+    }
+
+    // the innermost conditional, which must have been opened in the same file
+    private int top(SourceFile file, int i, int base) {
+        if (conditionCount <= base) throw error(file, i, "#" + file.directives[i].name() + " without #if");
+        return conditions[conditionCount - 1];
+    }
+
+    private IllegalArgumentException error(SourceFile file, int token, String message) {
+        int line = token < 0 || token >= file.size() ? 1 : file.line(token);
+        String where = file == main || file.path == null ? "line " + line : file.path + ":" + line;
+        return new IllegalArgumentException(where + ": " + message);
+    }
+
+    private static boolean isName(Token t) {
+        return t.getType() == TokenType.IDENTIFIER || t.getType() == TokenType.KEYWORD;
+    }
+
+    private static boolean isStringize(Token t) {
+        return t.getType() == TokenType.OPERATOR && t.getValue().equals(SourceFile.HASH);
+    }
+
+    private static boolean isPaste(Token t) {
+        return t.getType() == TokenType.OPERATOR && t.getValue().equals(SourceFile.HASH_HASH);
+    }
+
+    private static boolean isEllipsis(List<Token> args, int at) {
+        return at + 2 < args.size() && args.get(at).getKind() == TokenKind.P_DOT
+                && args.get(at + 1).getKind() == TokenKind.P_DOT && args.get(at + 2).getKind() == TokenKind.P_DOT;
+    }
+
+    private static Set<String> with(Set<String> hide, String name) {
+        Set<String> out = new HashSet<>(hide);
+        out.add(name);
+        return out;
+    }
+
+    /** Receives expanded tokens with the names of the macros that may no longer expand them. */
+    private interface Sink {
+        void accept(Token t, Set<String> hide);
+    }
+
+    private static final class TokenList implements Sink {
+        final List<Token> tokens = new ArrayList<>();
+        final List<Set<String>> hides = new ArrayList<>();
+
+        @Override
+        public void accept(Token t, Set<String> hide) {
+            tokens.add(t);
+            hides.add(hide);
+        }
+
+        void addAll(TokenList other) {
+            tokens.addAll(other.tokens);
+            hides.addAll(other.hides);
+        }
+
+        Token removeLast() {
+            hides.remove(hides.size() - 1);
+            return tokens.remove(tokens.size() - 1);
+        }
+    }
+
+    /**
+     * Tokens still to expand: a range of a file's tokens, read in place, under a stack of tokens that macro
+     * expansions pushed back for rescanning.
+     */
+    private static final class TokenSource {
+        private final SourceFile base;
+        private int pos;
+        private final int end;
+        private final List<Token> pushed = new ArrayList<>();
+        private final List<Set<String>> pushedHides = new ArrayList<>();
+
+        TokenSource(SourceFile base, int from, int end) {
+            this.base = base;
+            this.pos = from;
+            this.end = end;
+        }
+
+        TokenSource() {
+            this(null, 0, 0);
+        }
+
+        TokenSource(List<Token> tokens) {
+            this();
+            for (int k = tokens.size() - 1; k >= 0; k--) {
+                pushed.add(tokens.get(k));
+                pushedHides.add(Set.of());
+            }
+        }
+
+        TokenSource(TokenList tokens) {
+            this();
+            pushAll(tokens.tokens, tokens.hides, Set.of());
+        }
+
+        boolean hasNext() {
+            return !pushed.isEmpty() || pos < end;
+        }
+
+        // whether the next token is read from the file rather than from an expansion
+        boolean inFile() {
+            return pushed.isEmpty();
+        }
+
+        Token peek() {
+            return pushed.isEmpty() ? base.token(pos) : pushed.get(pushed.size() - 1);
+        }
+
+        Set<String> peekHide() {
+            return pushed.isEmpty() ? Set.of() : pushedHides.get(pushedHides.size() - 1);
+        }
+
+        void pop() {
+            if (pushed.isEmpty()) {
+                pos++;
+            } else {
+                pushed.remove(pushed.size() - 1);
+                pushedHides.remove(pushedHides.size() - 1);
+            }
+        }
+
+        // pushes tokens so the first is read next; each keeps its own hide set plus {@code extra}
+        void pushAll(List<Token> tokens, List<Set<String>> hides, Set<String> extra) {
+            for (int k = tokens.size() - 1; k >= 0; k--) {
+                Set<String> own = hides.get(k);
+                Set<String> hide = own.isEmpty() ? extra : extra.isEmpty() ? own : union(own, extra);
+                pushed.add(tokens.get(k));
+                pushedHides.add(hide);
+            }
+        }
+
+        private static Set<String> union(Set<String> a, Set<String> b) {
+            Set<String> out = new HashSet<>(a);
+            out.addAll(b);
+            return out;
+        }
+    }
+}
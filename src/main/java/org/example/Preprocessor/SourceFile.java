@@ -0,0 +1,195 @@
+package org.example.Preprocessor;
+
+import org.example.Scanner.Scanner;
+import org.example.Tokens.LineIndex;
+import org.example.Tokens.Token;
+import org.example.Tokens.TokenBuffer;
+import org.example.Tokens.TokenKind;
+import org.example.Tokens.TokenType;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One lexed source file as the {@link Preprocessor} consumes it: the scanner's tokens, and for every directive line
+ * its name and argument tokens. Token objects are made the first time one is read, so the parts of the compiled
+ * file that are copied through unchanged never get one. Nothing here depends on macros, so a header is lexed once,
+ * all its tokens made, and the same instance is shared read-only by every translation unit that includes it.
+ */
+final class SourceFile {
+    /** A {@code #name text} line; {@code args} is {@code text} lexed, with comments dropped. */
+    record Directive(String name, String text, List<Token> args) {
+    }
+
+    // '#' and '##' inside directives; the lexer has no kind for them, so they are generic operators
+    static final String HASH = "#";
+    static final String HASH_HASH = "##";
+
+    final Path path;
+    final TokenBuffer buffer;
+    // filled in as tokens are read
+    private final Token[] tokens;
+    private final CharSequence code;
+    // only needed when an error names a line
+    private LineIndex lineIndex;
+    // non-null where tokens[i] is a PREPROCESSOR token
+    final Directive[] directives;
+    // the macro of an #ifndef/#define/#endif guard around the whole file, or null
+    final String guard;
+    final boolean pragmaOnce;
+
+    private SourceFile(Path path, TokenBuffer buffer, CharSequence code, Directive[] directives) {
+        this.path = path;
+        this.buffer = buffer;
+        this.tokens = new Token[buffer.size()];
+        this.code = code;
+        this.directives = directives;
+        this.guard = findGuard();
+        boolean once = false;
+        for (Directive d : directives) {
+            if (d != null && d.name.equals("pragma") && !d.args.isEmpty() && d.args.get(0).getValue().equals("once")) {
+                once = true;
+            }
+        }
+        this.pragmaOnce = once;
+    }
+
+    /** Reads and lexes a header; lexical errors name the file, since they do not come from the file being compiled. */
+    static SourceFile read(Path path) throws IOException {
+        CharSequence code = Scanner.mapInputFile(path);
+        SourceFile file;
+        try {
+            file = lex(code, path);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException(path + ": " + e.getMessage(), e);
+        }
+        // in the compiled file the parser reports it; here it would end up in the middle of the tokens
+        int last = file.size() - 1;
+        if (last >= 0 && file.buffer.getKind(last) == TokenKind.ERROR) {
+            throw new IllegalArgumentException(path + ":" + file.line(last) + ": " + unterminated(file.token(last)));
+        }
+        // the cache publishes it to other threads, which must not race to fill it in
+        for (int i = 0; i <= last; i++) file.token(i);
+        return file;
+    }
+
+    private static String unterminated(Token error) {
+        return error.getValue().startsWith("/") ? "unterminated comment" : "unterminated string literal";
+    }
+
+    static SourceFile lex(CharSequence code, Path path) {
+        return lex(Scanner.TokenizeToBuffer(code), code, path);
+    }
+
+    /** Builds the file from {@code buffer}, the tokens of {@code code}. */
+    static SourceFile lex(TokenBuffer buffer, CharSequence code, Path path) {
+        int n = buffer.size();
+        Directive[] directives = new Directive[n];
+        for (int i = 0; i < n; i++) {
+            if (buffer.getType(i) == TokenType.PREPROCESSOR) directives[i] = directive(buffer.getValue(i));
+        }
+        return new SourceFile(path, buffer, code, directives);
+    }
+
+    int size() {
+        return tokens.length;
+    }
+
+    Token token(int i) {
+        Token t = tokens[i];
+        if (t == null) tokens[i] = t = buffer.get(i);
+        return t;
+    }
+
+    /** The line of token {@code i}; lines are counted the first time an error asks for one. */
+    int line(int i) {
+        if (lineIndex == null) lineIndex = LineIndex.of(code);
+        return lineIndex.line(buffer.getStart(i));
+    }
+
+    boolean isDirective(int i) {
+        return directives[i] != null;
+    }
+
+    private static Directive directive(String line) {
+        // splice continuation lines back into one
+        String spliced = line.replace("\\\r\n", "").replace("\\\n", "");
+        int at = 1;
+        while (at < spliced.length() && (spliced.charAt(at) == ' ' || spliced.charAt(at) == '\t')) at++;
+        int nameStart = at;
+        while (at < spliced.length() && isNameChar(spliced.charAt(at))) at++;
+        String text = spliced.substring(at);
+        return new Directive(spliced.substring(nameStart, at), text, lexDirective(text));
+    }
+
+    // the lexer would read '#x' as another directive, so '#' and '##' outside literals and comments are cut out first
+    static List<Token> lexDirective(String text) {
+        List<Token> out = new ArrayList<>();
+        int segment = 0;
+        int i = 0;
+        while (i < text.length()) {
+            char c = text.charAt(i);
+            if (c == '"' || c == '\'') {
+                i++;
+                while (i < text.length() && text.charAt(i) != c) i += text.charAt(i) == '\\' ? 2 : 1;
+                i++;
+            } else if (c == '/' && i + 1 < text.length() && text.charAt(i + 1) == '/') {
+                break;
+            } else if (c == '/' && i + 1 < text.length() && text.charAt(i + 1) == '*') {
+                int close = text.indexOf("*/", i + 2);
+                i = close < 0 ? text.length() : close + 2;
+            } else if (c == '#') {
+                addLexed(text.substring(segment, i), out);
+                boolean paste = i + 1 < text.length() && text.charAt(i + 1) == '#';
+                out.add(new Token(TokenKind.OPERATOR, paste ? HASH_HASH : HASH));
+                i += paste ? 2 : 1;
+                segment = i;
+            } else {
+                i++;
+            }
+        }
+        addLexed(text.substring(segment, Math.min(i, text.length())), out);
+        return List.copyOf(out);
+    }
+
+    private static void addLexed(String text, List<Token> out) {
+        for (Token t : Scanner.Tokenize(text)) {
+            if (t.getKind() == TokenKind.ERROR) throw new IllegalArgumentException(unterminated(t) + " in directive");
+            if (t.getType() != TokenType.COMMENT) out.add(t);
+        }
+    }
+
+    // #ifndef X, #define X as the first two lines and the matching #endif as the last; comments are trivia and not here
+    private String findGuard() {
+        int first = 0;
+        int last = size() - 1;
+        if (first >= last || !isDirective(first)) return null;
+        Directive open = directives[first];
+        if (!open.name.equals("ifndef") || open.args.size() != 1) return null;
+        String macro = open.args.get(0).getValue();
+        int second = first + 1;
+        if (!isDirective(second) || !directives[second].name.equals("define")
+                || directives[second].args.isEmpty() || !directives[second].args.get(0).getValue().equals(macro)) {
+            return null;
+        }
+        int depth = 0;
+        for (int i = first; i <= last; i++) {
+            if (!isDirective(i)) continue;
+            switch (directives[i].name) {
+                case "if", "ifdef", "ifndef" -> depth++;
+                case "endif" -> {
+                    if (--depth == 0) return i == last ? macro : null;
+                }
+                default -> {
+                }
+            }
+        }
+        return null;
+    }
+
+    static boolean isNameChar(char c) {
+        return c == '_' || (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9');
+    }
+}
@@ -0,0 +1,163 @@
+package org.example.Scanner;
+
+import org.example.Tokens.TokenBuffer;
+import org.example.Tokens.TokenKind;
+
+import java.util.Arrays;
+
+/**
+ * Keeps a tokenized source up to date under text edits by re-lexing only the region an edit can influence.
+ * <p>
+ * For every token the lexer records its reach: one past the last character the automaton examined while
+ * scanning it (and the whitespace and comments before it). Tokens whose reach, and that of all tokens before them, ends
+ * before the edit are kept as they are. Lexing restarts after them and stops as soon as a token boundary
+ * after the edit lines up with an old token start, since lexing from a boundary only depends on the text
+ * that follows it. Results are identical to {@link Scanner#TokenizeToBuffer} on the edited text.
+ */
+public final class IncrementalLexer {
+    /**
+     * Outcome of one edit: new tokens {@code [from, newTo)} replaced old tokens {@code [from, oldTo)};
+     * tokens before {@code from} are unchanged and tokens after moved by {@code newTo - oldTo}.
+     */
+    public record Edit(TokenBuffer tokens, int from, int oldTo, int newTo) {
+    }
+
+    private final LexerAutomaton automaton = LexerAutomaton.get();
+    private String source;
+    private TokenBuffer tokens;
+    private int[] reach;
+
+    // tokens lexed in one pass, their reach, and the old token index where lexing resynchronized
+    private static final class Run {
+        final TokenBuffer tokens;
+        int[] reach = new int[16];
+        int oldTo;
+
+        Run(TokenBuffer tokens) {
+            this.tokens = tokens;
+        }
+    }
+
+    public IncrementalLexer(String source) {
+        this.source = source;
+        Run run = lex(source, 0, new TokenBuffer(source), -1, -1, 0);
+        this.tokens = run.tokens;
+        this.reach = run.reach;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    public TokenBuffer getTokens() {
+        return tokens;
+    }
+
+    /** Replaces {@code removed} chars at {@code offset} with {@code inserted} and re-lexes the affected tokens. */
+    public Edit edit(int offset, int removed, String inserted) {
+        if (offset < 0 || removed < 0 || offset + removed > source.length()) {
+            throw new IndexOutOfBoundsException("edit [" + offset + ", " + (offset + removed) + ") outside source of length " + source.length());
+        }
+        String next = source.substring(0, offset) + inserted + source.substring(offset + removed);
+        int delta = inserted.length() - removed;
+
+        // keep the longest prefix of tokens whose scans never looked at the edited text
+        int from = 0;
+        int maxReach = 0;
+        while (from < tokens.size() && Math.max(maxReach, reach[from]) <= offset) {
+            maxReach = Math.max(maxReach, reach[from]);
+            from++;
+        }
+        int restart = from == 0 ? 0 : tokens.getEnd(from - 1);
+
+        // the re-lexed run interns into the same pool, so every name keeps its id across edits
+        Run run = lex(next, restart, new TokenBuffer(next, 16, tokens.getNames()), from, offset + inserted.length(), delta);
+        TokenBuffer middle = run.tokens;
+        int oldTo = run.oldTo;
+
+        int tail = tokens.size() - oldTo;
+        int[] newReach = new int[Math.max(16, from + middle.size() + tail)];
+        System.arraycopy(reach, 0, newReach, 0, from);
+        System.arraycopy(run.reach, 0, newReach, from, middle.size());
+        for (int i = 0; i < tail; i++) newReach[from + middle.size() + i] = reach[oldTo + i] + delta;
+
+        tokens = tokens.splice(next, from, oldTo, middle, delta);
+        reach = newReach;
+        source = next;
+        return new Edit(tokens, from, oldTo, from + middle.size());
+    }
+
+    /**
+     * Lexes {@code text} from {@code pos}. With {@code firstOld >= 0}, stops at the first boundary at or after
+     * {@code editEnd} that is also the start of an old token (at index {@code >= firstOld}) once shifted back
+     * by {@code delta}.
+     */
+    private Run lex(String text, int pos, TokenBuffer out, int firstOld, int editEnd, int delta) {
+        Run run = new Run(out);
+        run.oldTo = tokens == null ? 0 : tokens.size();
+        final int n = text.length();
+        // reach of the comments since the last token, which the next token takes over with them
+        int triviaReach = 0;
+        while (pos < n) {
+            if (firstOld >= 0 && pos >= editEnd) {
+                int old = findStart(pos - delta, firstOld);
+                if (old >= 0) {
+                    run.oldTo = old;
+                    return run;
+                }
+            }
+            int state = automaton.startState();
+            int bestKind = -1;
+            int bestEnd = -1;
+            int i = pos;
+            int scanned = n + 1; // running off the end means more text could have changed the token
+            while (i < n) {
+                state = automaton.step(state, text.charAt(i));
+                if (state == LexerAutomaton.DEAD) {
+                    scanned = i + 1;
+                    break;
+                }
+                i++;
+                if (automaton.acceptKind(state) >= 0) {
+                    bestKind = automaton.acceptKind(state);
+                    bestEnd = i;
+                }
+            }
+            if (automaton.isUnterminated(state)) {
+                bestKind = TokenKind.ERROR.ordinal();
+                bestEnd = n;
+            }
+            if (bestKind < 0) {
+                throw new IllegalArgumentException("Unexpected character at position " + pos + ": '" + text.charAt(pos) + "'");
+            }
+            // dropped whitespace only ever looks one char into the next token, which that token examines itself
+            TokenKind kind = LexerAutomaton.kind(bestKind);
+            if (kind == TokenKind.COMMENT) {
+                out.add(kind, pos, bestEnd);
+                triviaReach = Math.max(triviaReach, scanned);
+            } else if (kind != TokenKind.WHITESPACE) {
+                int index = out.size();
+                out.add(kind, pos, bestEnd);
+                if (index == run.reach.length) run.reach = Arrays.copyOf(run.reach, index * 2);
+                run.reach[index] = Math.max(scanned, triviaReach);
+                triviaReach = 0;
+            }
+            pos = bestEnd;
+        }
+        return run;
+    }
+
+    // index of the old token (at or after firstOld) starting exactly at oldOffset, or -1
+    private int findStart(int oldOffset, int firstOld) {
+        int lo = Math.max(firstOld, 0);
+        int hi = tokens.size() - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int s = tokens.getStart(mid);
+            if (s == oldOffset) return mid;
+            if (s < oldOffset) lo = mid + 1;
+            else hi = mid - 1;
+        }
+        return -1;
+    }
+}
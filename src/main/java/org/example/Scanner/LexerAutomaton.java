@@ -0,0 +1,474 @@
+package org.example.Scanner;
+
+import org.example.Tokens.Token;
+import org.example.Tokens.TokenBuffer;
+import org.example.Tokens.TokenKind;
+import org.example.Tokens.TokenType;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One minimized DFA recognizing every {@link TokenType} at once.
+ * <p>
+ * The automaton is built a single time from the {@code regularExpressionFactory()} patterns and then shared.
+ * Scanning keeps the semantics of the original per-pattern {@code lookingAt()} loop: the longest match wins
+ * and ties go to the type declared first in {@link TokenType}. Accepting states report a {@link TokenKind}, so
+ * keywords, operators and punctuators come out already told apart.
+ * <p>
+ * Scanning takes time linear in the input, whatever the input. Longest match reads past a token's end to learn
+ * that nothing longer matches, and the next token reads that overrun again, so a long overrun read again at every
+ * position is quadratic. Only a cycle of states that never accepts can make an overrun long. The inside of a block
+ * comment or string literal is such a cycle that cannot fail either: nothing but the end of the input stops it.
+ * A scan that reaches the end of the input there ends in one {@link TokenKind#ERROR} token to the end, instead of
+ * a short token ({@code /}) followed by the same long scan from the next position. The other cycles fail once
+ * read in full: digits after a leading {@code 0} that could still become a float fall back to an octal prefix,
+ * and the rest is one decimal literal; blanks after {@code #} with no directive name are a lexical error.
+ */
+public final class LexerAutomaton {
+    public static final int DEAD = 0;
+    private static final TokenType[] TYPES = TokenType.values();
+    private static final TokenKind[] KINDS = TokenKind.values();
+
+    private final int classCount;
+    private final int[] asciiClass = new int[128];
+    // every byte value, for SourceBytes: no branch on the character range
+    private final int[] byteClass = new int[256];
+    private final int[] rangeStart;
+    private final int[] rangeClass;
+    private final int[] next;
+    private final int[] accept;
+    // states inside an unclosed block comment or string literal: input ending here is an ERROR token
+    private final boolean[] unterminated;
+    private final int start;
+
+    private static final class Holder {
+        static final LexerAutomaton INSTANCE = new LexerAutomaton();
+    }
+
+    /** Returns the shared automaton, building it on first use. */
+    public static LexerAutomaton get() {
+        return Holder.INSTANCE;
+    }
+
+    private LexerAutomaton() {
+        RegexNfa nfa = new RegexNfa();
+        for (TokenType type : TYPES) {
+            // the generic kind of a type has the type's ordinal
+            String pattern = type.regularExpressionFactory();
+            if (pattern != null) nfa.addPattern(pattern, TokenKind.generic(type).ordinal());
+        }
+        for (TokenKind kind : KINDS) {
+            if (kind.getText() != null) nfa.addLiteral(kind.getText(), kind.ordinal());
+        }
+
+        // alphabet: split 0..0xFFFF at every range edge, then merge intervals no range can tell apart
+        BitSet cuts = new BitSet();
+        cuts.set(0);
+        List<int[]> sets = new ArrayList<>();
+        for (int s = 0; s < nfa.size(); s++) {
+            int[] r = nfa.ranges.get(s);
+            if (r == null) continue;
+            sets.add(r);
+            for (int i = 0; i < r.length; i += 2) {
+                cuts.set(r[i]);
+                if (r[i + 1] < RegexNfa.MAX_CHAR) cuts.set(r[i + 1] + 1);
+            }
+        }
+        int intervals = cuts.cardinality();
+        int[] starts = new int[intervals];
+        int[] classes = new int[intervals];
+        Map<BitSet, Integer> signatures = new HashMap<>();
+        List<Integer> representative = new ArrayList<>();
+        for (int i = 0, c = cuts.nextSetBit(0); c >= 0; i++, c = cuts.nextSetBit(c + 1)) {
+            starts[i] = c;
+            BitSet sig = new BitSet();
+            for (int k = 0; k < sets.size(); k++) {
+                if (RegexNfa.contains(sets.get(k), c)) sig.set(k);
+            }
+            Integer cls = signatures.get(sig);
+            if (cls == null) {
+                cls = representative.size();
+                signatures.put(sig, cls);
+                representative.add(c);
+            }
+            classes[i] = cls;
+        }
+        classCount = representative.size();
+        int m = 0;
+        for (int i = 0; i < intervals; i++) {
+            if (i == 0 || classes[i] != classes[m - 1]) {
+                starts[m] = starts[i];
+                classes[m++] = classes[i];
+            }
+        }
+        rangeStart = Arrays.copyOf(starts, m);
+        rangeClass = Arrays.copyOf(classes, m);
+        for (int c = 0; c < 128; c++) asciiClass[c] = lookupClass(c);
+        for (int c = 0; c < 256; c++) byteClass[c] = lookupClass(c);
+
+        // subset construction; DFA state 0 is the empty (dead) set
+        List<BitSet> states = new ArrayList<>();
+        Map<BitSet, Integer> index = new HashMap<>();
+        ArrayDeque<Integer> work = new ArrayDeque<>();
+        BitSet dead = new BitSet();
+        states.add(dead);
+        index.put(dead, DEAD);
+        BitSet seed = new BitSet();
+        for (int b = 0; b < nfa.branchStart.size(); b++) {
+            if (nfa.branchLeadingBoundary.get(b)) requireWordStart(nfa, b);
+            seed.set(nfa.branchStart.get(b));
+        }
+        int initial = intern(closure(nfa, seed), states, index, work);
+        List<int[]> rows = new ArrayList<>();
+        rows.add(new int[classCount]);
+        while (!work.isEmpty()) {
+            int id = work.poll();
+            BitSet set = states.get(id);
+            int[] row = new int[classCount];
+            for (int k = 0; k < classCount; k++) {
+                int ch = representative.get(k);
+                BitSet moved = new BitSet();
+                for (int s = set.nextSetBit(0); s >= 0; s = set.nextSetBit(s + 1)) {
+                    int[] r = nfa.ranges.get(s);
+                    if (r != null && RegexNfa.contains(r, ch)) moved.set(nfa.rangeTarget.get(s));
+                }
+                row[k] = intern(closure(nfa, moved), states, index, work);
+            }
+            while (rows.size() <= id) rows.add(null);
+            rows.set(id, row);
+        }
+
+        int[] rawAccept = new int[states.size()];
+        for (int i = 0; i < states.size(); i++) rawAccept[i] = acceptOf(nfa, states.get(i));
+        int[][] table = rows.toArray(new int[0][]);
+
+        // Moore minimization: refine the accept-kind partition until transitions agree
+        int[] block = new int[states.size()];
+        for (int i = 0; i < block.length; i++) block[i] = i == DEAD ? 0 : rawAccept[i] + 2;
+        int blocks = -1;
+        while (true) {
+            Map<List<Integer>, Integer> signature = new HashMap<>();
+            signature.put(signatureOf(DEAD, block, table), 0);
+            int[] refined = new int[block.length];
+            for (int i = 0; i < block.length; i++) {
+                refined[i] = signature.computeIfAbsent(signatureOf(i, block, table), key -> signature.size());
+            }
+            block = refined;
+            if (signature.size() == blocks) break;
+            blocks = signature.size();
+        }
+
+        next = new int[blocks * classCount];
+        accept = new int[blocks];
+        for (int i = 0; i < states.size(); i++) {
+            System.arraycopy(mapRow(table[i], block), 0, next, block[i] * classCount, classCount);
+            accept[block[i]] = rawAccept[i];
+        }
+        start = block[initial];
+        unterminated = unterminatedStates(next, accept, classCount);
+    }
+
+    /**
+     * The states inside an unclosed comment or literal: those that can go on without end but can neither accept
+     * nor fail before the input ends, and every state they lead to before accepting.
+     */
+    private static boolean[] unterminatedStates(int[] next, int[] accept, int classCount) {
+        int states = accept.length;
+        // keep the non-accepting states with a successor that is kept: what survives has an endless path
+        boolean[] endless = new boolean[states];
+        for (int s = 0; s < states; s++) endless[s] = s != DEAD && accept[s] < 0;
+        for (boolean changed = true; changed; ) {
+            changed = false;
+            for (int s = 0; s < states; s++) {
+                if (!endless[s]) continue;
+                boolean continues = false;
+                for (int k = 0; k < classCount && !continues; k++) continues = endless[next[s * classCount + k]];
+                if (!continues) {
+                    endless[s] = false;
+                    changed = true;
+                }
+            }
+        }
+        // the non-accepting states that can reach DEAD before accepting
+        boolean[] fails = new boolean[states];
+        fails[DEAD] = true;
+        for (boolean changed = true; changed; ) {
+            changed = false;
+            for (int s = 0; s < states; s++) {
+                if (fails[s] || accept[s] >= 0) continue;
+                for (int k = 0; k < classCount; k++) {
+                    if (fails[next[s * classCount + k]]) {
+                        fails[s] = true;
+                        changed = true;
+                        break;
+                    }
+                }
+            }
+        }
+        boolean[] inside = new boolean[states];
+        ArrayDeque<Integer> work = new ArrayDeque<>();
+        for (int s = 0; s < states; s++) {
+            if (endless[s] && !fails[s]) {
+                inside[s] = true;
+                work.add(s);
+            }
+        }
+        // none of these can fail either, since the state before them cannot
+        while (!work.isEmpty()) {
+            int s = work.poll();
+            for (int k = 0; k < classCount; k++) {
+                int t = next[s * classCount + k];
+                if (accept[t] < 0 && !inside[t]) {
+                    inside[t] = true;
+                    work.add(t);
+                }
+            }
+        }
+        return inside;
+    }
+
+    /** Number of states in the minimized automaton, including the dead state. */
+    public int stateCount() {
+        return accept.length;
+    }
+
+    /**
+     * Runs the automaton from {@code pos} and returns the longest match packed as
+     * {@code (kind << 32) | end}, an {@link TokenKind#ERROR} to {@code limit} when the text ends inside a comment
+     * or literal, or {@code -1} when no token starts there.
+     */
+    public long longestMatch(CharSequence text, int pos, int limit) {
+        if (text instanceof SourceBytes bytes) return longestMatch(bytes, pos, limit);
+        int state = start;
+        int bestKind = -1;
+        int bestEnd = -1;
+        for (int i = pos; i < limit; ) {
+            state = next[state * classCount + classOf(text.charAt(i))];
+            if (state == DEAD) break;
+            i++;
+            if (accept[state] >= 0) {
+                bestKind = accept[state];
+                bestEnd = i;
+            }
+        }
+        if (unterminated[state]) return ((long) TokenKind.ERROR.ordinal() << 32) | limit;
+        return bestKind < 0 ? -1 : ((long) bestKind << 32) | bestEnd;
+    }
+
+    // the same over raw bytes, reading the mapping directly instead of through charAt
+    private long longestMatch(SourceBytes bytes, int pos, int limit) {
+        int state = start;
+        int bestKind = -1;
+        int bestEnd = -1;
+        for (int i = pos; i < limit; ) {
+            state = next[state * classCount + byteClass[bytes.byteAt(i) & 0xFF]];
+            if (state == DEAD) break;
+            i++;
+            if (accept[state] >= 0) {
+                bestKind = accept[state];
+                bestEnd = i;
+            }
+        }
+        if (unterminated[state]) return ((long) TokenKind.ERROR.ordinal() << 32) | limit;
+        return bestKind < 0 ? -1 : ((long) bestKind << 32) | bestEnd;
+    }
+
+    /** Start state for incremental scanning with {@link #step}. */
+    public int startState() {
+        return start;
+    }
+
+    /** Advances {@code state} over {@code c}; returns {@link #DEAD} when no token can continue. */
+    public int step(int state, char c) {
+        return next[state * classCount + classOf(c)];
+    }
+
+    /**
+     * Whether input that ends in {@code state} ends inside a block comment or string literal. The token then
+     * runs from its start to the end of the input as {@link TokenKind#ERROR}.
+     */
+    public boolean isUnterminated(int state) {
+        return unterminated[state];
+    }
+
+    /** Ordinal of the {@link TokenKind} accepted in {@code state}, or -1 if it is not accepting. */
+    public int acceptKind(int state) {
+        return accept[state];
+    }
+
+    public static TokenType type(int kind) {
+        return KINDS[kind].getType();
+    }
+
+    public static TokenKind kind(int kind) {
+        return KINDS[kind];
+    }
+
+    public static TokenType typeOf(long match) {
+        return KINDS[(int) (match >>> 32)].getType();
+    }
+
+    public static TokenKind kindOf(long match) {
+        return KINDS[(int) (match >>> 32)];
+    }
+
+    public static int endOf(long match) {
+        return (int) match;
+    }
+
+    public List<Token> tokenize(String code, boolean skipWhitespace) {
+        List<Token> tokens = new ArrayList<>();
+        int pos = 0;
+        final int n = code.length();
+        while (pos < n) {
+            long match = longestMatch(code, pos, n);
+            if (match < 0) {
+                throw new IllegalArgumentException("Unexpected character at position " + pos + ": '" + code.charAt(pos) + "'");
+            }
+            TokenKind kind = kindOf(match);
+            int end = endOf(match);
+            if (!(skipWhitespace && kind == TokenKind.WHITESPACE)) {
+                tokens.add(new Token(kind, code.substring(pos, end)));
+            }
+            pos = end;
+        }
+        return tokens;
+    }
+
+    /** Appends the tokens of {@code code} to {@code out} as offsets, without copying any token text. */
+    public TokenBuffer tokenize(CharSequence code, TokenBuffer out, boolean skipWhitespace) {
+        int pos = 0;
+        final int n = code.length();
+        while (pos < n) {
+            long match = longestMatch(code, pos, n);
+            if (match < 0) throw unexpected(code, pos);
+            TokenKind kind = kindOf(match);
+            int end = endOf(match);
+            if (!(skipWhitespace && kind == TokenKind.WHITESPACE)) {
+                out.add(kind, pos, end);
+            }
+            pos = end;
+        }
+        return out;
+    }
+
+    /** The error for a position where no token starts. */
+    static IllegalArgumentException unexpected(CharSequence code, int pos) {
+        char c = code.charAt(pos);
+        if (code instanceof SourceBytes && c >= 0x80) {
+            return new IllegalArgumentException(String.format("Unexpected byte 0x%02X at position %d: non-ASCII text is only"
+                    + " allowed in literals and comments", (int) c, pos));
+        }
+        return new IllegalArgumentException("Unexpected character at position " + pos + ": '" + c + "'");
+    }
+
+    static boolean isWordChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_';
+    }
+
+    private int classOf(char c) {
+        return c < 128 ? asciiClass[c] : lookupClass(c);
+    }
+
+    private int lookupClass(int c) {
+        int lo = 0;
+        int hi = rangeStart.length - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (rangeStart[mid] <= c) lo = mid;
+            else hi = mid - 1;
+        }
+        return rangeClass[lo];
+    }
+
+    private static int intern(BitSet set, List<BitSet> states, Map<BitSet, Integer> index, ArrayDeque<Integer> work) {
+        Integer id = index.get(set);
+        if (id == null) {
+            id = states.size();
+            states.add(set);
+            index.put(set, id);
+            work.add(id);
+        }
+        return id;
+    }
+
+    private static BitSet closure(RegexNfa nfa, BitSet seed) {
+        BitSet set = (BitSet) seed.clone();
+        ArrayDeque<Integer> stack = new ArrayDeque<>();
+        for (int s = set.nextSetBit(0); s >= 0; s = set.nextSetBit(s + 1)) stack.push(s);
+        while (!stack.isEmpty()) {
+            for (int t : nfa.epsilon.get(stack.pop())) {
+                if (!set.get(t)) {
+                    set.set(t);
+                    stack.push(t);
+                }
+            }
+        }
+        // a lazy branch stops at its first accept: drop its remaining threads so it can't match longer
+        for (int s = set.nextSetBit(0); s >= 0; s = set.nextSetBit(s + 1)) {
+            int branch = nfa.branchOf.get(s);
+            if (nfa.acceptKind.get(s) >= 0 && nfa.branchLazy.get(branch)) {
+                for (int t = set.nextSetBit(0); t >= 0; t = set.nextSetBit(t + 1)) {
+                    if (t != s && nfa.branchOf.get(t) == branch) set.clear(t);
+                }
+            }
+        }
+        return set;
+    }
+
+    // the winning type comes from the pattern branches alone; a literal branch that ended here with the same
+    // type then narrows it to that spelling's kind
+    private static int acceptOf(RegexNfa nfa, BitSet set) {
+        int best = -1;
+        for (int s = set.nextSetBit(0); s >= 0; s = set.nextSetBit(s + 1)) {
+            int kind = nfa.acceptKind.get(s);
+            if (kind >= 0 && !nfa.branchLabel.get(nfa.branchOf.get(s)) && (best < 0 || kind < best)) best = kind;
+        }
+        if (best < 0) return best;
+        for (int s = set.nextSetBit(0); s >= 0; s = set.nextSetBit(s + 1)) {
+            int kind = nfa.acceptKind.get(s);
+            if (kind >= 0 && nfa.branchLabel.get(nfa.branchOf.get(s)) && KINDS[kind].getType() == TYPES[best]) {
+                return kind;
+            }
+        }
+        return best;
+    }
+
+    // the original scanner matched inside region(pos, n) with opaque bounds, so a leading \b always held at the
+    // token start; treating it as empty is only equivalent when the branch must begin with a word character
+    private static void requireWordStart(RegexNfa nfa, int branch) {
+        BitSet first = new BitSet();
+        first.set(nfa.branchStart.get(branch));
+        BitSet reach = closure(nfa, first);
+        for (int s = reach.nextSetBit(0); s >= 0; s = reach.nextSetBit(s + 1)) {
+            int[] r = nfa.ranges.get(s);
+            if (r == null) continue;
+            for (int i = 0; i < r.length; i += 2) {
+                for (int c = r[i]; c <= r[i + 1]; c++) {
+                    if (c > 127 || !isWordChar((char) c)) {
+                        throw new IllegalArgumentException("leading \\b must be followed by a word character");
+                    }
+                }
+            }
+        }
+    }
+
+    private static List<Integer> signatureOf(int state, int[] block, int[][] table) {
+        List<Integer> sig = new ArrayList<>(table[state].length + 1);
+        sig.add(block[state]);
+        for (int t : table[state]) sig.add(block[t]);
+        return sig;
+    }
+
+    private static int[] mapRow(int[] row, int[] block) {
+        int[] mapped = new int[row.length];
+        for (int k = 0; k < row.length; k++) mapped[k] = block[row[k]];
+        return mapped;
+    }
+}
@@ -0,0 +1,148 @@
+package org.example.Scanner;
+
+import org.example.Tokens.TokenBuffer;
+import org.example.Tokens.TokenKind;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Lexes one large source by splitting it into chunks that are scanned concurrently.
+ * <p>
+ * Every chunk except the first is lexed speculatively, as if a token started at its first character. That
+ * guess is wrong when the chunk starts inside a comment, literal or preprocessor line. The merge step walks the
+ * chunks in order and checks where the exact token stream of the previous chunks ends: if that position is a
+ * token or comment boundary of the speculative result, everything from there on is correct, because lexing from a boundary
+ * depends only on the text after it. Otherwise tokens are re-lexed one at a time from the exact position until
+ * they land on such a boundary. The result always equals {@link Scanner#TokenizeToBuffer}.
+ */
+public final class ParallelLexer {
+    /** Sources smaller than this are lexed sequentially. */
+    public static final int MIN_CHUNK_CHARS = 1 << 20;
+    // how far a chunk start may move forward to land just after a newline, where a token is likely to start
+    private static final int ALIGN_WINDOW = 4096;
+
+    private final LexerAutomaton automaton = LexerAutomaton.get();
+    private final ForkJoinPool pool;
+    private final int minChunkChars;
+
+    public ParallelLexer(ForkJoinPool pool, int minChunkChars) {
+        this.pool = pool;
+        this.minChunkChars = Math.max(1, minChunkChars);
+    }
+
+    public ParallelLexer() {
+        this(ForkJoinPool.commonPool(), MIN_CHUNK_CHARS);
+    }
+
+    // speculative tokens of one chunk and the position its last token ended at
+    private static final class Chunk {
+        final int start;
+        final int limit;
+        final TokenBuffer tokens;
+        int end;
+
+        Chunk(CharSequence code, int start, int limit) {
+            this.start = start;
+            this.limit = limit;
+            this.tokens = new TokenBuffer(code, Math.max(16, (limit - start) / 8));
+            this.end = start;
+        }
+
+        // whether a token or a comment of this chunk starts or ends at pos
+        boolean isBoundary(int pos) {
+            if (pos == start) return true;
+            return search(pos, tokens.size(), tokens::getStart) || search(pos, tokens.size(), tokens::getEnd)
+                    || search(pos, tokens.getTriviaCount(), tokens::getTriviaStart)
+                    || search(pos, tokens.getTriviaCount(), tokens::getTriviaEnd);
+        }
+
+        private static boolean search(int pos, int count, IntUnaryOperator offsets) {
+            int lo = 0;
+            int hi = count - 1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                int v = offsets.applyAsInt(mid);
+                if (v == pos) return true;
+                if (v < pos) lo = mid + 1;
+                else hi = mid - 1;
+            }
+            return false;
+        }
+    }
+
+    public TokenBuffer tokenize(CharSequence code) {
+        int n = code.length();
+        int chunkCount = (int) Math.min(pool.getParallelism() * 4L, Math.max(1, n / minChunkChars));
+        if (chunkCount <= 1) {
+            return automaton.tokenize(code, new TokenBuffer(code), true);
+        }
+
+        List<Chunk> chunks = new ArrayList<>(chunkCount);
+        int start = 0;
+        for (int c = 1; c <= chunkCount; c++) {
+            int limit = c == chunkCount ? n : align(code, (int) ((long) n * c / chunkCount));
+            if (limit <= start) continue;
+            chunks.add(new Chunk(code, start, limit));
+            start = limit;
+        }
+
+        List<ForkJoinTask<?>> tasks = new ArrayList<>(chunks.size());
+        for (Chunk chunk : chunks) {
+            tasks.add(pool.submit(() -> lexChunk(code, chunk)));
+        }
+        for (ForkJoinTask<?> task : tasks) task.join();
+
+        TokenBuffer out = new TokenBuffer(code, Math.max(16, n / 8));
+        int pos = 0;
+        for (Chunk chunk : chunks) {
+            while (pos < chunk.end) {
+                if (chunk.isBoundary(pos)) {
+                    out.addAll(chunk.tokens, pos);
+                    pos = chunk.end;
+                    break;
+                }
+                pos = lexOne(code, pos, out);
+            }
+        }
+        while (pos < n) {
+            pos = lexOne(code, pos, out);
+        }
+        return out;
+    }
+
+    // lexes tokens starting in [chunk.start, chunk.limit); a lexical error just ends the speculation early
+    private void lexChunk(CharSequence code, Chunk chunk) {
+        int pos = chunk.start;
+        int n = code.length();
+        while (pos < chunk.limit) {
+            long match = automaton.longestMatch(code, pos, n);
+            if (match < 0) break;
+            int end = LexerAutomaton.endOf(match);
+            TokenKind kind = LexerAutomaton.kindOf(match);
+            if (kind != TokenKind.WHITESPACE) chunk.tokens.add(kind, pos, end);
+            pos = end;
+        }
+        chunk.end = pos;
+    }
+
+    private int lexOne(CharSequence code, int pos, TokenBuffer out) {
+        long match = automaton.longestMatch(code, pos, code.length());
+        if (match < 0) throw LexerAutomaton.unexpected(code, pos);
+        int end = LexerAutomaton.endOf(match);
+        TokenKind kind = LexerAutomaton.kindOf(match);
+        if (kind != TokenKind.WHITESPACE) out.add(kind, pos, end);
+        return end;
+    }
+
+    private static int align(CharSequence code, int at) {
+        int stop = Math.min(code.length(), at + ALIGN_WINDOW);
+        for (int i = at; i < stop; i++) {
+            if (code.charAt(i) == '\n') return i + 1;
+        }
+        return at;
+    }
+}
@@ -0,0 +1,290 @@
+package org.example.Scanner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Thompson NFA built from the regular expressions returned by {@code TokenType.regularExpressionFactory()}.
+ * Only the regex subset used by the token definitions is supported: literals, escapes, character classes,
+ * '.' (DOTALL), groups, alternation and the '*', '+', '?' quantifiers (greedy or lazy).
+ * <p>
+ * Every top-level alternative of a pattern becomes its own branch so the automaton builder can apply
+ * lazy ('*?') shortest-match semantics and leading word-boundary anchors per branch.
+ */
+final class RegexNfa {
+    static final int MAX_CHAR = 0xFFFF;
+
+    /** ranges of ASCII word characters [A-Za-z0-9_], the definition used by '\b' */
+    static final int[] WORD = {'0', '9', 'A', 'Z', '_', '_', 'a', 'z'};
+    static final int[] SPACE = {'\t', '\r', ' ', ' '};
+
+    // per state: epsilon targets, an optional character-range edge, owning branch and accepted kind
+    final List<int[]> epsilon = new ArrayList<>();
+    final List<int[]> ranges = new ArrayList<>();
+    final List<Integer> rangeTarget = new ArrayList<>();
+    final List<Integer> branchOf = new ArrayList<>();
+    final List<Integer> acceptKind = new ArrayList<>();
+
+    // per branch
+    final List<Integer> branchStart = new ArrayList<>();
+    final List<Integer> branchKind = new ArrayList<>();
+    final List<Boolean> branchLazy = new ArrayList<>();
+    final List<Boolean> branchLeadingBoundary = new ArrayList<>();
+    final List<Boolean> branchLabel = new ArrayList<>();
+
+    private String src;
+    private int at;
+    private int branch;
+    private boolean sawLazy;
+
+    /** Adds every top-level alternative of {@code regex} as a branch accepting {@code kind}. */
+    void addPattern(String regex, int kind) {
+        src = regex;
+        at = 0;
+        do {
+            branch = branchStart.size();
+            branchStart.add(-1);
+            branchKind.add(kind);
+            sawLazy = false;
+            boolean leading = peekBoundary();
+            if (leading) at += 2;
+            int[] frag = parseConcat();
+            int accept = newState();
+            acceptKind.set(accept, kind);
+            addEpsilon(frag[1], accept);
+            branchStart.set(branch, frag[0]);
+            branchLazy.add(sawLazy);
+            branchLeadingBoundary.add(leading);
+            branchLabel.add(false);
+        } while (eat('|'));
+        if (at != src.length()) throw error("unexpected '" + src.charAt(at) + "'");
+    }
+
+    /**
+     * Adds {@code text} as a label-only branch: it never makes a state accepting on its own, it only refines
+     * which {@code kind} an accepting state reports when the matched lexeme is exactly {@code text}.
+     */
+    void addLiteral(String text, int kind) {
+        branch = branchStart.size();
+        int start = newState();
+        int end = start;
+        for (int i = 0; i < text.length(); i++) {
+            int[] piece = edge(single(text.charAt(i)));
+            addEpsilon(end, piece[0]);
+            end = piece[1];
+        }
+        acceptKind.set(end, kind);
+        branchStart.add(start);
+        branchKind.add(kind);
+        branchLazy.add(false);
+        branchLeadingBoundary.add(false);
+        branchLabel.add(true);
+    }
+
+    int size() {
+        return epsilon.size();
+    }
+
+    private int[] parseAlternation() {
+        int[] first = parseConcat();
+        if (!check('|')) return first;
+        int start = newState();
+        int end = newState();
+        addEpsilon(start, first[0]);
+        addEpsilon(first[1], end);
+        while (eat('|')) {
+            int[] next = parseConcat();
+            addEpsilon(start, next[0]);
+            addEpsilon(next[1], end);
+        }
+        return new int[]{start, end};
+    }
+
+    private int[] parseConcat() {
+        int start = newState();
+        int end = start;
+        while (at < src.length() && !check('|') && !check(')')) {
+            if (peekBoundary()) {
+                // a trailing \b is implied by maximal munch: a word character after the match would
+                // extend the IDENTIFIER alternative past it, so only leading anchors need real support
+                at += 2;
+                if (at != src.length() && !check('|')) throw error("\\b is only supported at pattern edges");
+                continue;
+            }
+            int[] piece = parseRepeat();
+            addEpsilon(end, piece[0]);
+            end = piece[1];
+        }
+        return new int[]{start, end};
+    }
+
+    private int[] parseRepeat() {
+        int[] atom = parseAtom();
+        while (at < src.length() && (check('*') || check('+') || check('?'))) {
+            char q = src.charAt(at++);
+            if (eat('?')) sawLazy = true;
+            int start = newState();
+            int end = newState();
+            addEpsilon(start, atom[0]);
+            addEpsilon(atom[1], end);
+            if (q != '+') addEpsilon(start, end);
+            if (q != '?') addEpsilon(atom[1], atom[0]);
+            atom = new int[]{start, end};
+        }
+        return atom;
+    }
+
+    private int[] parseAtom() {
+        char c = src.charAt(at++);
+        switch (c) {
+            case '(':
+                if (eat('?')) {
+                    if (!eat(':')) throw error("only (?:...) groups are supported");
+                }
+                int[] inner = parseAlternation();
+                if (!eat(')')) throw error("missing ')'");
+                return inner;
+            case '[':
+                return edge(parseClass());
+            case '.':
+                return edge(new int[]{0, MAX_CHAR});
+            case '\\':
+                return edge(parseEscape());
+            default:
+                return edge(new int[]{c, c});
+        }
+    }
+
+    private int[] parseClass() {
+        boolean negate = eat('^');
+        List<int[]> parts = new ArrayList<>();
+        boolean first = true;
+        while (first || !check(']')) {
+            if (at >= src.length()) throw error("missing ']'");
+            first = false;
+            int[] lo = parseClassAtom();
+            if (lo.length == 2 && lo[0] == lo[1] && check('-') && at + 1 < src.length() && src.charAt(at + 1) != ']') {
+                at++;
+                int[] hi = parseClassAtom();
+                parts.add(new int[]{lo[0], hi[1]});
+            } else {
+                parts.add(lo);
+            }
+        }
+        at++;
+        int[] set = union(parts);
+        return negate ? complement(set) : set;
+    }
+
+    private int[] parseClassAtom() {
+        char c = src.charAt(at++);
+        return c == '\\' ? parseEscape() : single(c);
+    }
+
+    private int[] parseEscape() {
+        char e = src.charAt(at++);
+        switch (e) {
+            case 's': return SPACE.clone();
+            case 'd': return new int[]{'0', '9'};
+            case 'w': return WORD.clone();
+            case 'n': return single('\n');
+            case 'r': return single('\r');
+            case 't': return single('\t');
+            case 'f': return single('\f');
+            case 'b': throw error("\\b is only supported at pattern edges");
+            default: return single(e);
+        }
+    }
+
+    private int[] edge(int[] set) {
+        int from = newState();
+        int to = newState();
+        ranges.set(from, set);
+        rangeTarget.set(from, to);
+        return new int[]{from, to};
+    }
+
+    private int newState() {
+        epsilon.add(new int[0]);
+        ranges.add(null);
+        rangeTarget.add(-1);
+        branchOf.add(branch);
+        acceptKind.add(-1);
+        return epsilon.size() - 1;
+    }
+
+    private void addEpsilon(int from, int to) {
+        int[] old = epsilon.get(from);
+        int[] grown = Arrays.copyOf(old, old.length + 1);
+        grown[old.length] = to;
+        epsilon.set(from, grown);
+    }
+
+    private boolean peekBoundary() {
+        return at + 1 < src.length() && src.charAt(at) == '\\' && src.charAt(at + 1) == 'b';
+    }
+
+    private boolean check(char c) {
+        return at < src.length() && src.charAt(at) == c;
+    }
+
+    private boolean eat(char c) {
+        if (!check(c)) return false;
+        at++;
+        return true;
+    }
+
+    private IllegalArgumentException error(String msg) {
+        return new IllegalArgumentException("Unsupported token regex at " + at + " in " + src + ": " + msg);
+    }
+
+    private static int[] single(char c) {
+        return new int[]{c, c};
+    }
+
+    /** Normalizes a list of [lo, hi] range arrays into one sorted, non-overlapping range array. */
+    static int[] union(List<int[]> parts) {
+        List<int[]> pairs = new ArrayList<>();
+        for (int[] p : parts) {
+            for (int i = 0; i < p.length; i += 2) pairs.add(new int[]{p[i], p[i + 1]});
+        }
+        pairs.sort((a, b) -> Integer.compare(a[0], b[0]));
+        int[] out = new int[pairs.size() * 2];
+        int n = 0;
+        for (int[] p : pairs) {
+            if (n > 0 && p[0] <= out[n - 1] + 1) {
+                out[n - 1] = Math.max(out[n - 1], p[1]);
+            } else {
+                out[n++] = p[0];
+                out[n++] = p[1];
+            }
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    static int[] complement(int[] set) {
+        int[] out = new int[set.length + 2];
+        int n = 0;
+        int next = 0;
+        for (int i = 0; i < set.length; i += 2) {
+            if (set[i] > next) {
+                out[n++] = next;
+                out[n++] = set[i] - 1;
+            }
+            next = set[i + 1] + 1;
+        }
+        if (next <= MAX_CHAR) {
+            out[n++] = next;
+            out[n++] = MAX_CHAR;
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    static boolean contains(int[] set, int c) {
+        for (int i = 0; i < set.length; i += 2) {
+            if (c >= set[i] && c <= set[i + 1]) return true;
+        }
+        return false;
+    }
+}
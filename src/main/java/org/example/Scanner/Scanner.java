@@ -1,15 +1,18 @@
 package org.example.Scanner;
 
+import org.example.Metrics.Phase;
+import org.example.Metrics.PhaseEvent;
 import org.example.Tokens.Token;
+import org.example.Tokens.TokenBuffer;
+import org.example.Tokens.TokenKind;
 import org.example.Tokens.TokenType;
 import java.io.BufferedReader;
+import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
-import java.util.ArrayList;
+import java.nio.file.Path;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 public class Scanner {
     private static final String DEFAULT_SENTINEL = "DONE";
@@ -36,7 +39,12 @@ public class Scanner {
         return inputCode.toString();
     }
 
+    /**
+     * Reads {@code filePath} as text in the platform charset, with every line ending rewritten to the platform's;
+     * {@link #mapInputFile} keeps the file's bytes as they are.
+     */
     public static String getInputFile(String filePath) throws IOException {
+        PhaseEvent event = PhaseEvent.begin(Phase.READ);
         StringBuilder inputCode = new StringBuilder();
         try (BufferedReader reader = new BufferedReader(new FileReader(filePath))) {
             String line;
@@ -47,54 +55,62 @@ public class Scanner {
                 inputCode.append(line);
             }
         }
+        if (event.isRecording()) event.setBytes(new File(filePath).length());
+        event.finish();
         return inputCode.toString();
     }
 
+    /**
+     * Memory-maps {@code file} for {@link #TokenizeToBuffer(CharSequence)}: no bytes are copied onto the heap,
+     * line endings are kept and token offsets are byte positions in the file. See {@link SourceBytes}.
+     */
+    public static SourceBytes mapInputFile(Path file) throws IOException {
+        PhaseEvent event = PhaseEvent.begin(Phase.READ);
+        SourceBytes bytes = SourceBytes.map(file);
+        event.setBytes(bytes.length()).finish();
+        return bytes;
+    }
 
+    /**
+     * Splits {@code code} into tokens using the shared {@link LexerAutomaton}; each character is examined once
+     * per token attempt instead of once per {@link TokenType} pattern. Time is linear in the length of
+     * {@code code} for any input. Input that ends inside a block comment or string literal ends the list with
+     * one {@link TokenType#ERROR} token, which the parser reports.
+     */
     public static List<Token> Tokenize(String code) {
-        List<Token> tokens = new ArrayList<>();
-        boolean skipWhitespace = true;
-
-        TokenType[] order = TokenType.values();
-
-        Pattern[] patterns = new Pattern[order.length];
-        for (int i = 0; i < order.length; ++i) {
-            String regex = order[i].regularExpressionFactory();
-            patterns[i] = Pattern.compile(regex, Pattern.DOTALL);
+        PhaseEvent event = PhaseEvent.begin(Phase.TOKENIZE);
+        List<Token> tokens = LexerAutomaton.get().tokenize(code, skipWhitespace);
+        if (event.isRecording()) {
+            boolean unterminated = !tokens.isEmpty() && tokens.get(tokens.size() - 1).getKind() == TokenKind.ERROR;
+            event.setBytes(code.length()).setErrors(unterminated ? 1 : 0).countTokens(tokens);
         }
+        event.finish();
+        return tokens;
+    }
 
-        int pos = 0;
-        final int n = code.length();
-        while (pos < n) {
-            int bestIndex = -1;
-            int bestEnd = -1;
-            String bestValue = null;
-
-            for (int i = 0; i < order.length; ++i) {
-                Matcher m = patterns[i].matcher(code);
-                m.region(pos, n);
-                if (m.lookingAt()) {
-                    int end = m.end();
-                    if (end > bestEnd || (end == bestEnd && bestIndex > i)) {
-                        bestIndex = i;
-                        bestEnd = end;
-                        bestValue = m.group();
-                    }
-                }
-            }
-
-            if (bestIndex == -1) {
-                throw new IllegalArgumentException("Unexpected character at position " + pos + ": '" + code.charAt(pos) + "'");
-            }
+    /**
+     * Same tokens as {@link #Tokenize(String)}, stored as type ids and offsets into {@code code};
+     * token text is only copied when asked for.
+     */
+    public static TokenBuffer TokenizeToBuffer(CharSequence code) {
+        PhaseEvent event = PhaseEvent.begin(Phase.TOKENIZE);
+        TokenBuffer tokens = LexerAutomaton.get().tokenize(code, new TokenBuffer(code), skipWhitespace);
+        return finish(event, code, tokens);
+    }
 
-            TokenType bestType = order[bestIndex];
-            if (!(skipWhitespace && bestType == TokenType.WHITESPACE)) {
-                tokens.add(new Token(bestType, bestValue));
-            }
+    /** Same result as {@link #TokenizeToBuffer(CharSequence)}, lexing chunks of large sources on the common fork-join pool. */
+    public static TokenBuffer TokenizeParallel(CharSequence code) {
+        PhaseEvent event = PhaseEvent.begin(Phase.TOKENIZE);
+        TokenBuffer tokens = new ParallelLexer().tokenize(code);
+        return finish(event, code, tokens);
+    }
 
-            pos = bestEnd;
+    private static TokenBuffer finish(PhaseEvent event, CharSequence code, TokenBuffer tokens) {
+        if (event.isRecording()) {
+            boolean unterminated = tokens.size() > 0 && tokens.getKind(tokens.size() - 1) == TokenKind.ERROR;
+            event.setBytes(code.length()).setErrors(unterminated ? 1 : 0).countTokens(tokens);
         }
-
+        event.finish();
         return tokens;
     }
 
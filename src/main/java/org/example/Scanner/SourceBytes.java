@@ -0,0 +1,87 @@
+package org.example.Scanner;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+
+/**
+ * Source text as the bytes of a file, normally memory-mapped, so reading and lexing it copies nothing onto the heap.
+ * <p>
+ * As a {@link CharSequence} every byte is one char from 0 to 255: offsets are exact byte positions in the file, line
+ * endings are left as they are, and {@link LexerAutomaton} reads ASCII source straight from the mapping. A multi-byte
+ * UTF-8 sequence is a run of chars above 127, which the lexer only accepts inside string and character literals and
+ * comments. {@link #toString}, and so every token value, decodes the bytes as UTF-8; its length can therefore be less
+ * than {@link #length}.
+ * <p>
+ * A mapped file must not be truncated while it is read; the JVM reports that as an {@link InternalError}.
+ */
+public final class SourceBytes implements CharSequence {
+    private final ByteBuffer bytes;
+    private final int offset;
+    private final int length;
+
+    private SourceBytes(ByteBuffer bytes, int offset, int length) {
+        this.bytes = bytes;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    /** Maps {@code file} read-only; files of 2 GB and more cannot be addressed by token offsets and are rejected. */
+    public static SourceBytes map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) throw new IllegalArgumentException(file + " is too large to lex: " + size + " bytes");
+            return new SourceBytes(channel.map(FileChannel.MapMode.READ_ONLY, 0, size), 0, (int) size);
+        }
+    }
+
+    /** Wraps {@code bytes} without copying them. */
+    public static SourceBytes of(byte[] bytes) {
+        return new SourceBytes(ByteBuffer.wrap(bytes), 0, bytes.length);
+    }
+
+    /** The UTF-8 encoding of {@code text}. */
+    public static SourceBytes of(String text) {
+        return of(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    /** The bytes as a read-only buffer over the same memory, for hashing or writing them without a copy. */
+    public ByteBuffer asByteBuffer() {
+        return bytes.slice(offset, length).asReadOnlyBuffer();
+    }
+
+    /** Byte {@code index} as a char from 0 to 255. */
+    @Override
+    public char charAt(int index) {
+        return (char) (byteAt(Objects.checkIndex(index, length)) & 0xFF);
+    }
+
+    // unchecked; callers stay within [0, length)
+    byte byteAt(int index) {
+        return bytes.get(offset + index);
+    }
+
+    /** The bytes {@code [start, end)}, sharing this sequence's memory. */
+    @Override
+    public SourceBytes subSequence(int start, int end) {
+        Objects.checkFromToIndex(start, end, length);
+        return new SourceBytes(bytes, offset + start, end - start);
+    }
+
+    /** Copies the bytes out and decodes them as UTF-8; malformed sequences become U+FFFD. */
+    @Override
+    public String toString() {
+        byte[] copy = new byte[length];
+        bytes.get(offset, copy);
+        return new String(copy, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,172 @@
+package org.example.Scanner;
+
+import org.example.Tokens.Token;
+import org.example.Tokens.TokenKind;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Pulls tokens from a {@link Reader} through a bounded refill buffer instead of materializing the whole source.
+ * <p>
+ * The buffer only has to hold the token being scanned, so memory stays constant for any input size; it grows
+ * only when a single token (a long comment or literal) is larger than the buffer. Unlike
+ * {@link Scanner#getInputFile}, the text is read as-is, so line endings are not rewritten.
+ */
+public final class TokenStream implements Iterator<Token>, Closeable {
+    public static final int DEFAULT_BUFFER_SIZE = 8192;
+
+    private final Reader reader;
+    private final boolean skipWhitespace;
+    private final LexerAutomaton automaton = LexerAutomaton.get();
+    private char[] buf;
+    private int tokenStart;
+    private int limit;
+    private long consumed;
+    private boolean eof;
+    private Token next;
+
+    public TokenStream(Reader reader, int bufferSize, boolean skipWhitespace) {
+        if (bufferSize < 1) throw new IllegalArgumentException("bufferSize must be positive");
+        this.reader = reader;
+        this.buf = new char[bufferSize];
+        this.skipWhitespace = skipWhitespace;
+    }
+
+    public static TokenStream of(Reader reader) {
+        return new TokenStream(reader, DEFAULT_BUFFER_SIZE, true);
+    }
+
+    /** Decodes {@code in} as UTF-8. */
+    public static TokenStream of(InputStream in) {
+        return of(new InputStreamReader(in, StandardCharsets.UTF_8));
+    }
+
+    public static TokenStream of(Path path) throws IOException {
+        return of(Files.newBufferedReader(path, StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null) {
+            try {
+                next = scan();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return next != null;
+    }
+
+    @Override
+    public Token next() {
+        if (!hasNext()) throw new NoSuchElementException();
+        Token t = next;
+        next = null;
+        return t;
+    }
+
+    /** Sequential stream over the remaining tokens; closing it closes the reader. */
+    public Stream<Token> stream() {
+        Spliterator<Token> split = Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL);
+        return StreamSupport.stream(split, false).onClose(() -> {
+            try {
+                close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    int bufferCapacity() {
+        return buf.length;
+    }
+
+    private Token scan() throws IOException {
+        while (true) {
+            if (tokenStart == limit && !fill()) return null;
+
+            int state = automaton.startState();
+            int i = tokenStart;
+            int bestKind = -1;
+            int bestEnd = -1;
+            while (true) {
+                if (i == limit) {
+                    int before = tokenStart;
+                    boolean more = fill();
+                    // fill() may have moved the pending token to the front of the buffer
+                    int shift = before - tokenStart;
+                    i -= shift;
+                    if (bestEnd >= 0) bestEnd -= shift;
+                    if (!more) break;
+                    continue;
+                }
+                state = automaton.step(state, buf[i]);
+                if (state == LexerAutomaton.DEAD) break;
+                i++;
+                if (automaton.acceptKind(state) >= 0) {
+                    bestKind = automaton.acceptKind(state);
+                    bestEnd = i;
+                }
+            }
+            if (automaton.isUnterminated(state)) {
+                bestKind = TokenKind.ERROR.ordinal();
+                bestEnd = i;
+            }
+
+            if (bestKind < 0) {
+                throw new IllegalArgumentException("Unexpected character at position " + (consumed + tokenStart) + ": '" + buf[tokenStart] + "'");
+            }
+            TokenKind kind = LexerAutomaton.kind(bestKind);
+            int begin = tokenStart;
+            tokenStart = bestEnd;
+            if (!(skipWhitespace && kind == TokenKind.WHITESPACE)) {
+                return new Token(kind, new String(buf, begin, bestEnd - begin));
+            }
+        }
+    }
+
+    // moves the unscanned tail to the front, grows only if a single token fills the buffer, then reads more
+    private boolean fill() throws IOException {
+        if (eof) return false;
+        if (tokenStart > 0) {
+            System.arraycopy(buf, tokenStart, buf, 0, limit - tokenStart);
+            consumed += tokenStart;
+            limit -= tokenStart;
+            tokenStart = 0;
+        }
+        if (limit == buf.length) {
+            char[] grown = new char[buf.length * 2];
+            System.arraycopy(buf, 0, grown, 0, limit);
+            buf = grown;
+        }
+        int n;
+        do {
+            n = reader.read(buf, limit, buf.length - limit);
+        } while (n == 0);
+        if (n < 0) {
+            eof = true;
+            return false;
+        }
+        limit += n;
+        return true;
+    }
+}
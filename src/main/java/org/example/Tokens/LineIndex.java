@@ -0,0 +1,71 @@
+package org.example.Tokens;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * The start offset of every line of a text, so an offset can be turned into a line and column by binary search.
+ * It costs one {@code int} per line and is only built when a position is actually shown, normally by
+ * {@link TokenBuffer#getLineIndex()} while a diagnostic is rendered; tokens themselves keep nothing but offsets.
+ * <p>
+ * Lines end at {@code '\n'}, so {@code "\r\n"} endings count once and the {@code '\r'} is the last column of its
+ * line. Lines and columns are 1-based and columns count the chars of the text: for a
+ * {@link org.example.Scanner.SourceBytes} those are bytes, as most compilers count them. An index is immutable.
+ */
+public final class LineIndex {
+    private final int[] starts;
+    private final int length;
+
+    private LineIndex(int[] starts, int length) {
+        this.starts = starts;
+        this.length = length;
+    }
+
+    /** Scans {@code text} once for line ends. */
+    public static LineIndex of(CharSequence text) {
+        int length = text.length();
+        int[] starts = new int[16];
+        int lines = 1;
+        if (text instanceof String s) {
+            for (int nl = s.indexOf('\n'); nl >= 0; nl = s.indexOf('\n', nl + 1)) {
+                if (lines == starts.length) starts = Arrays.copyOf(starts, lines * 2);
+                starts[lines++] = nl + 1;
+            }
+        } else {
+            for (int i = 0; i < length; i++) {
+                if (text.charAt(i) != '\n') continue;
+                if (lines == starts.length) starts = Arrays.copyOf(starts, lines * 2);
+                starts[lines++] = i + 1;
+            }
+        }
+        // trimmed, so a large file keeps four bytes per line and no slack
+        return new LineIndex(lines == starts.length ? starts : Arrays.copyOf(starts, lines), length);
+    }
+
+    public int lineCount() {
+        return starts.length;
+    }
+
+    /** The offset of the first char of {@code line}. */
+    public int lineStart(int line) {
+        return starts[Objects.checkIndex(line - 1, starts.length)];
+    }
+
+    /** The line of {@code offset}; the text's length, just past its last char, is a valid offset too. */
+    public int line(int offset) {
+        Objects.checkIndex(offset, length + 1);
+        int at = Arrays.binarySearch(starts, offset);
+        // a miss returns -(insertion point) - 1, and the line is the one starting before the insertion point
+        return at >= 0 ? at + 1 : -at - 1;
+    }
+
+    public int column(int offset) {
+        return offset - starts[line(offset) - 1] + 1;
+    }
+
+    /** {@code line:column} of {@code offset}, e.g. {@code 3:14}. */
+    public String format(int offset) {
+        int line = line(offset);
+        return line + ":" + (offset - starts[line - 1] + 1);
+    }
+}
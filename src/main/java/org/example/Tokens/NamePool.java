@@ -0,0 +1,94 @@
+package org.example.Tokens;
+
+import java.util.Arrays;
+
+/**
+ * Interns identifier spellings as dense ids {@code 0, 1, 2, ...}. Lookups hash and compare the characters in
+ * place, so a name already in the pool costs no allocation; each distinct name is copied out once.
+ * <p>
+ * Open addressing with linear probing over a power-of-two table of {@code id + 1} (0 marks a free slot).
+ * Not thread-safe: each {@link TokenBuffer} owns one.
+ */
+public final class NamePool {
+    private String[] names = new String[64];
+    private int[] hashes = new int[64];
+    private int[] table = new int[128];
+    private int size;
+
+    public int size() {
+        return size;
+    }
+
+    public String name(int id) {
+        return names[id];
+    }
+
+    public int intern(String name) {
+        return intern(name, 0, name.length());
+    }
+
+    /** The id of {@code source[start, end)}, adding it if new. */
+    public int intern(CharSequence source, int start, int end) {
+        int hash = hash(source, start, end);
+        int mask = table.length - 1;
+        for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+            int entry = table[slot];
+            if (entry == 0) {
+                return add(source.subSequence(start, end).toString(), hash, slot);
+            }
+            int id = entry - 1;
+            if (hashes[id] == hash && matches(names[id], source, start, end)) return id;
+        }
+    }
+
+    /** The id of {@code name}, or -1 if it was never interned. */
+    public int find(String name) {
+        int hash = hash(name, 0, name.length());
+        int mask = table.length - 1;
+        for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+            int entry = table[slot];
+            if (entry == 0) return -1;
+            int id = entry - 1;
+            if (hashes[id] == hash && names[id].equals(name)) return id;
+        }
+    }
+
+    private int add(String name, int hash, int slot) {
+        if (size == names.length) {
+            names = Arrays.copyOf(names, size * 2);
+            hashes = Arrays.copyOf(hashes, size * 2);
+        }
+        int id = size++;
+        names[id] = name;
+        hashes[id] = hash;
+        table[slot] = id + 1;
+        // keep the table at most half full
+        if (size * 2 > table.length) rehash(table.length * 2);
+        return id;
+    }
+
+    private void rehash(int capacity) {
+        table = new int[capacity];
+        int mask = capacity - 1;
+        for (int id = 0; id < size; id++) {
+            int slot = hashes[id] & mask;
+            while (table[slot] != 0) slot = (slot + 1) & mask;
+            table[slot] = id + 1;
+        }
+    }
+
+    private static int hash(CharSequence s, int start, int end) {
+        int h = 0;
+        for (int i = start; i < end; i++) h = 31 * h + s.charAt(i);
+        // spread the high bits, since the table only looks at the low ones
+        return h ^ (h >>> 16);
+    }
+
+    private static boolean matches(String name, CharSequence s, int start, int end) {
+        if (name.length() != end - start) return false;
+        for (int i = 0; i < name.length(); i++) {
+            if (name.charAt(i) != s.charAt(start + i)) return false;
+        }
+        return true;
+    }
+}
@@ -2,14 +2,24 @@ package org.example.Tokens;
 
 public class Token {
     TokenType type;
+    TokenKind kind;
     String value;
     public Token(TokenType type, String value) {
         this.type = type;
+        this.kind = TokenKind.of(type, value);
+        this.value = value;
+    }
+    public Token(TokenKind kind, String value) {
+        this.type = kind.getType();
+        this.kind = kind;
         this.value = value;
     }
     public TokenType getType() {
         return type;
     }
+    public TokenKind getKind() {
+        return kind;
+    }
     public String  getValue() {
         return value;
     }
@@ -17,4 +27,3 @@ public class Token {
         return "<Token Type: " + type + ",  Value: " + value + ">";
     }
 }
-
@@ -0,0 +1,369 @@
+package org.example.Tokens;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Compact, array-backed token list: token kinds and start/end offsets are kept in parallel primitive arrays
+ * over the original source, and a token's text is only copied out when {@link #getValue(int)} is called.
+ * Identifiers (and {@code main}) are interned as they are added, so each distinct name has one id in
+ * {@link #getNames()}.
+ * <p>
+ * Tokens carry no line or column. {@link #getLocation(int)} works them out from the start offset with a
+ * {@link LineIndex} that is built the first time a position is asked for.
+ * <p>
+ * Comments, and whitespace when the lexer keeps it, are trivia: {@link #add} puts them in a side table instead
+ * of the token arrays, so the parser sees a dense stream of the tokens that matter to it. Each piece of trivia
+ * belongs to the token that follows it, or to {@code size()} at the end of the source; a formatter or a
+ * documentation tool finds a token's comments with {@link #getFirstTrivia(int)}.
+ */
+public final class TokenBuffer {
+    private static final TokenKind[] KINDS = TokenKind.values();
+
+    private final CharSequence source;
+    private byte[] kinds;
+    private int[] starts;
+    private int[] ends;
+    // name id of each identifier token, -1 for every other token
+    private int[] nameIds;
+    private final NamePool names;
+    private int size;
+    // comments (and kept whitespace) in source order, each with the index of the token it precedes; null until the first
+    private byte[] triviaKinds;
+    private int[] triviaStarts;
+    private int[] triviaEnds;
+    private int[] triviaOwners;
+    private int triviaCount;
+    // built on first use; it is immutable, so two threads racing to build it only waste a scan
+    private LineIndex lineIndex;
+    // set by the preprocessor: the source buffer, and the index in it of the token each token came from
+    private TokenBuffer origin;
+    private int[] originTokens;
+    // false for a buffer built from token objects, whose text is their values run together
+    private boolean located = true;
+    // where the source starts in the text it was cut from; 1:1 unless it is a window of a stream
+    private int firstLine = 1;
+    private int firstColumn = 1;
+
+    public TokenBuffer(CharSequence source) {
+        this(source, Math.max(16, source.length() / 8));
+    }
+
+    public TokenBuffer(CharSequence source, int capacity) {
+        this(source, capacity, new NamePool());
+    }
+
+    /** A buffer that interns into {@code names}, which may be shared with buffers over earlier versions of the text. */
+    public TokenBuffer(CharSequence source, int capacity, NamePool names) {
+        this.source = source;
+        this.kinds = new byte[capacity];
+        this.starts = new int[capacity];
+        this.ends = new int[capacity];
+        this.nameIds = new int[capacity];
+        this.names = names;
+    }
+
+    /** Builds a buffer over the concatenated values of {@code tokens}, for callers that already hold objects. */
+    public static TokenBuffer of(List<Token> tokens) {
+        StringBuilder text = new StringBuilder();
+        for (Token t : tokens) text.append(t.getValue());
+        TokenBuffer buffer = new TokenBuffer(text.toString(), Math.max(16, tokens.size()));
+        buffer.located = false;
+        int offset = 0;
+        for (Token t : tokens) {
+            int end = offset + t.getValue().length();
+            buffer.add(t.getKind(), offset, end);
+            offset = end;
+        }
+        return buffer;
+    }
+
+    /**
+     * Returns a buffer over {@code newSource} holding this[0, from), then all of {@code middle}, then
+     * this[oldTo, size) with offsets moved by {@code offsetDelta}. Used to apply an incremental re-lex.
+     */
+    public TokenBuffer splice(CharSequence newSource, int from, int oldTo, TokenBuffer middle, int offsetDelta) {
+        int tail = size - oldTo;
+        // ids of the kept tokens stay valid because the new buffer interns into the same pool
+        TokenBuffer out = new TokenBuffer(newSource, Math.max(16, from + middle.size + tail), names);
+        System.arraycopy(kinds, 0, out.kinds, 0, from);
+        System.arraycopy(starts, 0, out.starts, 0, from);
+        System.arraycopy(ends, 0, out.ends, 0, from);
+        System.arraycopy(nameIds, 0, out.nameIds, 0, from);
+        System.arraycopy(middle.kinds, 0, out.kinds, from, middle.size);
+        System.arraycopy(middle.starts, 0, out.starts, from, middle.size);
+        System.arraycopy(middle.ends, 0, out.ends, from, middle.size);
+        out.copyNames(middle, 0, from, middle.size);
+        int at = from + middle.size;
+        System.arraycopy(kinds, oldTo, out.kinds, at, tail);
+        System.arraycopy(nameIds, oldTo, out.nameIds, at, tail);
+        for (int i = 0; i < tail; i++) {
+            out.starts[at + i] = starts[oldTo + i] + offsetDelta;
+            out.ends[at + i] = ends[oldTo + i] + offsetDelta;
+        }
+        out.size = at + tail;
+
+        // trivia before the kept tokens stays; middle lexed everything from this[from - 1]'s end to this[oldTo]'s start
+        int keep = getFirstTrivia(from);
+        int resume = getFirstTrivia(oldTo + 1);
+        out.appendTrivia(this, 0, keep, 0, 0);
+        out.appendTrivia(middle, 0, middle.triviaCount, from, 0);
+        out.appendTrivia(this, resume, triviaCount, at - oldTo, offsetDelta);
+        return out;
+    }
+
+    /** Appends a token of a generic type, narrowing it to a precise kind from its text. */
+    public void add(TokenType type, int start, int end) {
+        TokenKind kind = TokenKind.generic(type);
+        if (type == TokenType.KEYWORD || type == TokenType.OPERATOR || type == TokenType.SPECIAL_CHARACTERS) {
+            kind = TokenKind.of(type, source.subSequence(start, end).toString());
+        }
+        add(kind, start, end);
+    }
+
+    /** Appends a token, or trivia before the next token if {@code kind} is a comment or whitespace. */
+    public void add(TokenKind kind, int start, int end) {
+        if (kind == TokenKind.COMMENT || kind == TokenKind.WHITESPACE) {
+            addTrivia(kind, start, end, size);
+            return;
+        }
+        if (size == kinds.length) grow(kinds.length * 2);
+        kinds[size] = (byte) kind.ordinal();
+        starts[size] = start;
+        ends[size] = end;
+        nameIds[size] = isName(kind) ? names.intern(source, start, end) : -1;
+        size++;
+    }
+
+    /** Appends tokens {@code [from, to)} of {@code other}, which must be over the same source, with their trivia. */
+    public void addAll(TokenBuffer other, int from, int to) {
+        appendTrivia(other, other.getFirstTrivia(from), other.getFirstTrivia(to), size - from, 0);
+        appendTokens(other, from, to);
+    }
+
+    /**
+     * Appends every token and piece of trivia of {@code other}, which must be over the same source, that starts at
+     * or after {@code offset}; trivia after its last token comes before the next token added here.
+     */
+    public void addAll(TokenBuffer other, int offset) {
+        int from = lowerBound(other.starts, other.size, offset);
+        int firstTrivia = lowerBound(other.triviaStarts, other.triviaCount, offset);
+        appendTrivia(other, firstTrivia, other.triviaCount, size - from, 0);
+        appendTokens(other, from, other.size);
+    }
+
+    private void appendTokens(TokenBuffer other, int from, int to) {
+        int count = to - from;
+        if (size + count > kinds.length) grow(Math.max(kinds.length * 2, size + count));
+        System.arraycopy(other.kinds, from, kinds, size, count);
+        System.arraycopy(other.starts, from, starts, size, count);
+        System.arraycopy(other.ends, from, ends, size, count);
+        copyNames(other, from, size, count);
+        size += count;
+    }
+
+    private void addTrivia(TokenKind kind, int start, int end, int owner) {
+        if (triviaKinds == null) {
+            triviaKinds = new byte[16];
+            triviaStarts = new int[16];
+            triviaEnds = new int[16];
+            triviaOwners = new int[16];
+        } else if (triviaCount == triviaKinds.length) {
+            int capacity = triviaCount * 2;
+            triviaKinds = Arrays.copyOf(triviaKinds, capacity);
+            triviaStarts = Arrays.copyOf(triviaStarts, capacity);
+            triviaEnds = Arrays.copyOf(triviaEnds, capacity);
+            triviaOwners = Arrays.copyOf(triviaOwners, capacity);
+        }
+        triviaKinds[triviaCount] = (byte) kind.ordinal();
+        triviaStarts[triviaCount] = start;
+        triviaEnds[triviaCount] = end;
+        triviaOwners[triviaCount] = owner;
+        triviaCount++;
+    }
+
+    // appends other's trivia [from, to) with owners moved by ownerDelta and offsets by offsetDelta
+    private void appendTrivia(TokenBuffer other, int from, int to, int ownerDelta, int offsetDelta) {
+        for (int t = from; t < to; t++) {
+            addTrivia(KINDS[other.triviaKinds[t]], other.triviaStarts[t] + offsetDelta,
+                    other.triviaEnds[t] + offsetDelta, other.triviaOwners[t] + ownerDelta);
+        }
+    }
+
+    // index of the first of values[0, count), which are ascending, that is >= key
+    private static int lowerBound(int[] values, int count, int key) {
+        int lo = 0;
+        int hi = count;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (values[mid] < key) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    // copies name ids of other[from, from + count) to this[at, ...), translating them if other has its own pool
+    private void copyNames(TokenBuffer other, int from, int at, int count) {
+        if (other.names == names) {
+            System.arraycopy(other.nameIds, from, nameIds, at, count);
+            return;
+        }
+        for (int i = 0; i < count; i++) {
+            int id = other.nameIds[from + i];
+            nameIds[at + i] = id < 0 ? -1 : names.intern(other.names.name(id));
+        }
+    }
+
+    private void grow(int capacity) {
+        kinds = Arrays.copyOf(kinds, capacity);
+        starts = Arrays.copyOf(starts, capacity);
+        ends = Arrays.copyOf(ends, capacity);
+        nameIds = Arrays.copyOf(nameIds, capacity);
+    }
+
+    private static boolean isName(TokenKind kind) {
+        return kind == TokenKind.IDENTIFIER || kind == TokenKind.KW_MAIN;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public CharSequence getSource() {
+        return source;
+    }
+
+    public LineIndex getLineIndex() {
+        LineIndex index = lineIndex;
+        if (index == null) lineIndex = index = LineIndex.of(source);
+        return index;
+    }
+
+    /**
+     * Marks this buffer as derived from {@code origin}: token {@code i} stands for token {@code tokens[i]} of it,
+     * and positions are reported from there. The preprocessor uses this so that diagnostics on its output, which is
+     * over text of its own, name lines of the file that was compiled.
+     */
+    public void setOrigin(TokenBuffer origin, int[] tokens) {
+        if (tokens.length < size) throw new IllegalArgumentException(tokens.length + " origins for " + size + " tokens");
+        this.origin = origin;
+        this.originTokens = tokens;
+    }
+
+    /**
+     * Marks the source as a piece of a larger text that starts at {@code line:column} of it, so positions are
+     * reported in that text. A streaming parse uses this for the window of tokens it holds.
+     */
+    public void setStartPosition(int line, int column) {
+        if (line < 1 || column < 1) throw new IllegalArgumentException("no position " + line + ":" + column);
+        this.firstLine = line;
+        this.firstColumn = column;
+    }
+
+    /** The line of token {@code i}; {@code size()} stands for the end of the source. 0 if positions are unknown. */
+    public int getLine(int i) {
+        if (!located) return 0;
+        if (origin != null) return origin.getLine(i < size ? originTokens[i] : origin.size);
+        return getLineIndex().line(i < size ? starts[i] : source.length()) + firstLine - 1;
+    }
+
+    public int getColumn(int i) {
+        if (!located) return 0;
+        if (origin != null) return origin.getColumn(i < size ? originTokens[i] : origin.size);
+        int offset = i < size ? starts[i] : source.length();
+        int column = getLineIndex().column(offset);
+        // only the first line of the source is cut short
+        return getLineIndex().line(offset) == 1 ? column + firstColumn - 1 : column;
+    }
+
+    /**
+     * {@code line:column} of token {@code i}, or of the end of the source for {@code size()}. A buffer built
+     * {@link #of} token objects knows no lines and answers {@code token[i]}.
+     */
+    public String getLocation(int i) {
+        if (!located) return "token[" + i + "]";
+        if (origin != null) return origin.getLocation(i < size ? originTokens[i] : origin.size);
+        if (firstLine == 1 && firstColumn == 1) return getLineIndex().format(i < size ? starts[i] : source.length());
+        return getLine(i) + ":" + getColumn(i);
+    }
+
+    public TokenType getType(int i) {
+        return KINDS[kinds[i]].getType();
+    }
+
+    public TokenKind getKind(int i) {
+        return KINDS[kinds[i]];
+    }
+
+    public int getStart(int i) {
+        return starts[i];
+    }
+
+    public int getEnd(int i) {
+        return ends[i];
+    }
+
+    /** The interned id of identifier token {@code i}, or -1 if it is not an identifier. */
+    public int getNameId(int i) {
+        return nameIds[i];
+    }
+
+    public NamePool getNames() {
+        return names;
+    }
+
+    public String getValue(int i) {
+        return source.subSequence(starts[i], ends[i]).toString();
+    }
+
+    /** Compares token {@code i} with {@code s} without materializing its value. */
+    public boolean valueEquals(int i, String s) {
+        int start = starts[i];
+        int len = ends[i] - start;
+        if (len != s.length()) return false;
+        for (int k = 0; k < len; k++) {
+            if (source.charAt(start + k) != s.charAt(k)) return false;
+        }
+        return true;
+    }
+
+    public Token get(int i) {
+        return new Token(getKind(i), getValue(i));
+    }
+
+    public int getTriviaCount() {
+        return triviaCount;
+    }
+
+    /**
+     * The index of the first trivia before token {@code i}: the comments between tokens {@code i - 1} and {@code i}
+     * are trivia {@code [getFirstTrivia(i), getFirstTrivia(i + 1))}, and {@code i == size()} gives those after the
+     * last token.
+     */
+    public int getFirstTrivia(int i) {
+        return lowerBound(triviaOwners, triviaCount, i);
+    }
+
+    /** {@link TokenKind#COMMENT} or {@link TokenKind#WHITESPACE}. */
+    public TokenKind getTriviaKind(int t) {
+        return KINDS[triviaKinds[Objects.checkIndex(t, triviaCount)]];
+    }
+
+    public int getTriviaStart(int t) {
+        return triviaStarts[Objects.checkIndex(t, triviaCount)];
+    }
+
+    public int getTriviaEnd(int t) {
+        return triviaEnds[Objects.checkIndex(t, triviaCount)];
+    }
+
+    /** The token trivia {@code t} comes before, or {@code size()} if no token follows it. */
+    public int getTriviaOwner(int t) {
+        return triviaOwners[Objects.checkIndex(t, triviaCount)];
+    }
+
+    public String getTriviaValue(int t) {
+        return source.subSequence(getTriviaStart(t), triviaEnds[t]).toString();
+    }
+}
@@ -0,0 +1,151 @@
+package org.example.Tokens;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Precise token kind: one constant per keyword, operator and punctuator spelling, plus one generic kind per
+ * {@link TokenType} for everything without a fixed spelling (identifiers, literals, comments, ...).
+ * The lexer emits these directly, so the parser can switch on them instead of comparing token text.
+ */
+public enum TokenKind {
+    // generic kinds, one per TokenType, in TokenType order
+    KEYWORD(TokenType.KEYWORD, null),
+    IDENTIFIER(TokenType.IDENTIFIER, null),
+    INTEGER_LITERAL(TokenType.INTEGER_LITERAL, null),
+    FLOAT_LITERAL(TokenType.FLOAT_LITERAL, null),
+    STRING_LITERAL(TokenType.STRING_LITERAL, null),
+    CHARACTER_LITERAL(TokenType.CHARACTER_LITERAL, null),
+    OPERATOR(TokenType.OPERATOR, null),
+    PREPROCESSOR(TokenType.PREPROCESSOR, null),
+    COMMENT(TokenType.COMMENT, null),
+    WHITESPACE(TokenType.WHITESPACE, null),
+    SPECIAL_CHARACTERS(TokenType.SPECIAL_CHARACTERS, null),
+    ERROR(TokenType.ERROR, null),
+
+    KW_AUTO(TokenType.KEYWORD, "auto"),
+    KW_BREAK(TokenType.KEYWORD, "break"),
+    KW_CASE(TokenType.KEYWORD, "case"),
+    KW_CHAR(TokenType.KEYWORD, "char"),
+    KW_CONST(TokenType.KEYWORD, "const"),
+    KW_CONTINUE(TokenType.KEYWORD, "continue"),
+    KW_DEFAULT(TokenType.KEYWORD, "default"),
+    KW_DO(TokenType.KEYWORD, "do"),
+    KW_DOUBLE(TokenType.KEYWORD, "double"),
+    KW_ELSE(TokenType.KEYWORD, "else"),
+    KW_ENUM(TokenType.KEYWORD, "enum"),
+    KW_EXTERN(TokenType.KEYWORD, "extern"),
+    KW_FLOAT(TokenType.KEYWORD, "float"),
+    KW_FOR(TokenType.KEYWORD, "for"),
+    KW_GOTO(TokenType.KEYWORD, "goto"),
+    KW_IF(TokenType.KEYWORD, "if"),
+    KW_INLINE(TokenType.KEYWORD, "inline"),
+    KW_INT(TokenType.KEYWORD, "int"),
+    KW_LONG(TokenType.KEYWORD, "long"),
+    KW_MAIN(TokenType.KEYWORD, "main"),
+    KW_REGISTER(TokenType.KEYWORD, "register"),
+    KW_RETURN(TokenType.KEYWORD, "return"),
+    KW_SHORT(TokenType.KEYWORD, "short"),
+    KW_SIGNED(TokenType.KEYWORD, "signed"),
+    KW_SIZEOF(TokenType.KEYWORD, "sizeof"),
+    KW_STATIC(TokenType.KEYWORD, "static"),
+    KW_STRING(TokenType.KEYWORD, "string"),
+    KW_STRUCT(TokenType.KEYWORD, "struct"),
+    KW_SWITCH(TokenType.KEYWORD, "switch"),
+    KW_TYPEDEF(TokenType.KEYWORD, "typedef"),
+    KW_UNION(TokenType.KEYWORD, "union"),
+    KW_UNSIGNED(TokenType.KEYWORD, "unsigned"),
+    KW_VOID(TokenType.KEYWORD, "void"),
+    KW_VOLATILE(TokenType.KEYWORD, "volatile"),
+    KW_WHILE(TokenType.KEYWORD, "while"),
+
+    OP_EQ(TokenType.OPERATOR, "=="),
+    OP_NE(TokenType.OPERATOR, "!="),
+    OP_LE(TokenType.OPERATOR, "<="),
+    OP_GE(TokenType.OPERATOR, ">="),
+    OP_INC(TokenType.OPERATOR, "++"),
+    OP_DEC(TokenType.OPERATOR, "--"),
+    OP_AND_AND(TokenType.OPERATOR, "&&"),
+    OP_OR_OR(TokenType.OPERATOR, "||"),
+    OP_SHL(TokenType.OPERATOR, "<<"),
+    OP_SHR(TokenType.OPERATOR, ">>"),
+    OP_ARROW(TokenType.OPERATOR, "->"),
+    OP_PLUS_ASSIGN(TokenType.OPERATOR, "+="),
+    OP_MINUS_ASSIGN(TokenType.OPERATOR, "-="),
+    OP_STAR_ASSIGN(TokenType.OPERATOR, "*="),
+    OP_SLASH_ASSIGN(TokenType.OPERATOR, "/="),
+    OP_PERCENT_ASSIGN(TokenType.OPERATOR, "%="),
+    OP_AND_ASSIGN(TokenType.OPERATOR, "&="),
+    OP_OR_ASSIGN(TokenType.OPERATOR, "|="),
+    OP_XOR_ASSIGN(TokenType.OPERATOR, "^="),
+    OP_ASSIGN(TokenType.OPERATOR, "="),
+    OP_PLUS(TokenType.OPERATOR, "+"),
+    OP_MINUS(TokenType.OPERATOR, "-"),
+    OP_STAR(TokenType.OPERATOR, "*"),
+    OP_SLASH(TokenType.OPERATOR, "/"),
+    OP_PERCENT(TokenType.OPERATOR, "%"),
+    OP_LT(TokenType.OPERATOR, "<"),
+    OP_GT(TokenType.OPERATOR, ">"),
+    OP_NOT(TokenType.OPERATOR, "!"),
+    OP_AND(TokenType.OPERATOR, "&"),
+    OP_OR(TokenType.OPERATOR, "|"),
+    OP_XOR(TokenType.OPERATOR, "^"),
+    OP_TILDE(TokenType.OPERATOR, "~"),
+    OP_QUESTION(TokenType.OPERATOR, "?"),
+    // ':' also matches SPECIAL_CHARACTERS, but OPERATOR is declared first and wins the tie
+    OP_COLON(TokenType.OPERATOR, ":"),
+
+    P_SEMICOLON(TokenType.SPECIAL_CHARACTERS, ";"),
+    P_COMMA(TokenType.SPECIAL_CHARACTERS, ","),
+    P_LPAREN(TokenType.SPECIAL_CHARACTERS, "("),
+    P_RPAREN(TokenType.SPECIAL_CHARACTERS, ")"),
+    P_LBRACE(TokenType.SPECIAL_CHARACTERS, "{"),
+    P_RBRACE(TokenType.SPECIAL_CHARACTERS, "}"),
+    P_LBRACKET(TokenType.SPECIAL_CHARACTERS, "["),
+    P_RBRACKET(TokenType.SPECIAL_CHARACTERS, "]"),
+    P_DOT(TokenType.SPECIAL_CHARACTERS, ".");
+
+    private static final TokenKind[] KINDS = values();
+    private static final Map<TokenType, Map<String, TokenKind>> BY_TEXT = new HashMap<>();
+
+    static {
+        for (TokenKind kind : KINDS) {
+            if (kind.text != null) {
+                BY_TEXT.computeIfAbsent(kind.type, t -> new HashMap<>()).put(kind.text, kind);
+            }
+        }
+    }
+
+    private final TokenType type;
+    private final String text;
+
+    TokenKind(TokenType type, String text) {
+        this.type = type;
+        this.text = text;
+    }
+
+    public TokenType getType() {
+        return type;
+    }
+
+    /** The fixed spelling of this kind, or null for generic kinds. */
+    public String getText() {
+        return text;
+    }
+
+    public static TokenKind of(int ordinal) {
+        return KINDS[ordinal];
+    }
+
+    /** Generic kind of a token type. */
+    public static TokenKind generic(TokenType type) {
+        return KINDS[type.ordinal()];
+    }
+
+    /** Kind of a token given its type and text; for tokens built by hand rather than by the lexer. */
+    public static TokenKind of(TokenType type, String value) {
+        Map<String, TokenKind> spelled = BY_TEXT.get(type);
+        TokenKind kind = spelled == null ? null : spelled.get(value);
+        return kind != null ? kind : generic(type);
+    }
+}
@@ -16,9 +16,13 @@ public enum TokenType {
 
     WHITESPACE,
 
-    SPECIAL_CHARACTERS;
+    SPECIAL_CHARACTERS,
+
+    /** Input that ends inside a block comment or string literal, from its opening to the end of the input. */
+    ERROR;
     /**
-     * Returns a regex (String) that matches this token type.
+     * Returns a regex (String) that matches this token type, or null for {@link #ERROR}, which the lexer produces
+     * itself.
      */
     public String regularExpressionFactory() {
         switch (this) {
@@ -37,13 +41,16 @@ public enum TokenType {
             case OPERATOR:
                 return "==|!=|<=|>=|\\+\\+|--|&&|\\|\\||<<|>>|->|\\+=|-=|\\*=|/=|%=|&=|\\|=|\\^=|=|\\+|-|\\*|/|%|<|>|!|&|\\||\\^|~|\\?|:";
             case PREPROCESSOR:
-                return "#\\s*[A-Za-z_][A-Za-z0-9_]*.*";
+                // one logical line; a backslash escapes the next character, so backslash-newline continues it
+                return "#[ \\t]*[A-Za-z_][A-Za-z0-9_]*(?:\\\\.|[^\\\\\\r\\n])*";
             case COMMENT:
                 return "/\\*.*?\\*/|//[^\\r\\n]*";
             case WHITESPACE:
                 return "\\s+";
             case SPECIAL_CHARACTERS:
                 return ";|,|\\(|\\)|\\{|\\}|\\[|\\]|:|\\.";
+            case ERROR:
+                return null;
             default:
                 return "";
         }
@@ -0,0 +1,120 @@
+package org.example.Bytecode;
+
+import org.example.IR.IrEvaluator;
+import org.example.IR.IrFunction;
+import org.example.IR.PassManager;
+import org.example.IR.RandomPrograms;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BytecodeCompilerTest {
+
+    private static CompiledProgram compile(String code) {
+        return new BytecodeCompiler().load("Program", RandomPrograms.lower(code));
+    }
+
+    @Test
+    void testSimpleFunctions() {
+        CompiledProgram p = compile("""
+                int answer() { int a; a = 6; return a * 7; }
+                long wide(long x) { long x; return x << 40; }
+                double half() { int a; return a / 2.0; }
+                char narrow() { int a; return a; }
+                int max() { int a; int b; if (a > b) { return a; } else { return b; } }
+                void nothing() { int a; a++; }
+                """.replace("long x) { long x;", ") { long x;"));
+        assertEquals(List.of("answer", "wide", "half", "narrow", "max", "nothing"), p.getFunctionNames());
+        assertTrue(p.getGeneratedClass().isHidden());
+        assertEquals(42, p.invoke("answer"));
+        assertEquals(3L << 40, p.invoke("wide", 3));
+        assertEquals(3.5, Double.longBitsToDouble(p.invoke("half", 7)));
+        assertEquals(-56, p.invoke("narrow", 200));
+        assertEquals(9, p.invoke("max", 9, 4));
+        assertEquals(6, p.invoke("max", 2, 6));
+        assertEquals(0, p.invoke("nothing"));
+        assertThrows(ArithmeticException.class, () -> compile("int f() { int a; return 1 / a; }").invoke("f"));
+        assertThrows(IllegalArgumentException.class, () -> p.handle("missing"));
+    }
+
+    @Test
+    void testDoubleComparisonsWithNaN() {
+        CompiledProgram p = compile("""
+                int lt() { double a; double b; return a < b; }
+                int le() { double a; double b; return a <= b; }
+                int gt() { double a; double b; return a > b; }
+                int ge() { double a; double b; return a >= b; }
+                int eq() { double a; double b; return a == b; }
+                int ne() { double a; double b; return a != b; }
+                """);
+        long nan = Double.doubleToRawLongBits(Double.NaN);
+        long one = Double.doubleToRawLongBits(1.0);
+        for (String name : List.of("lt", "le", "gt", "ge", "eq")) {
+            assertEquals(0, p.invoke(name, nan, one), name);
+            assertEquals(0, p.invoke(name, one, nan), name);
+        }
+        assertEquals(1, p.invoke("ne", nan, nan));
+        assertEquals(1, p.invoke("le", one, one));
+    }
+
+    @Test
+    void testMatchesTheEvaluatorOnRandomPrograms() {
+        Random random = new Random(17);
+        for (int p = 0; p < 300; p++) {
+            String code = RandomPrograms.program(random);
+            List<IrFunction> plain = RandomPrograms.lower(code);
+            List<IrFunction> optimized = RandomPrograms.lower(code);
+            PassManager.standard().run(optimized);
+            CompiledProgram compiledPlain = new BytecodeCompiler().load("Plain", plain);
+            CompiledProgram compiledOptimized = new BytecodeCompiler().load("Optimized", optimized);
+            for (int run = 0; run < 10; run++) {
+                long[] inputs = RandomPrograms.inputs(random);
+                Object expected = RandomPrograms.outcome(() -> IrEvaluator.run(plain.get(0), inputs));
+                assertEquals(expected, RandomPrograms.outcome(() -> compiledPlain.invoke("f", inputs)), code);
+                assertEquals(expected, RandomPrograms.outcome(() -> compiledOptimized.invoke("f", inputs)), code);
+            }
+        }
+    }
+
+    @Test
+    void testLargeFunctionsUseWideLocals() {
+        StringBuilder sb = new StringBuilder("long f() { long s;");
+        // 150 longs take locals past 255, where loads and stores need the wide prefix
+        for (int i = 0; i < 150; i++) sb.append(" long v").append(i).append(';');
+        for (int i = 0; i < 150; i++) sb.append(" v").append(i).append(" = s * 3 + v").append(i).append("; s = v").append(i).append(" % 1000003;");
+        sb.append(" return s; }");
+        List<IrFunction> functions = RandomPrograms.lower(sb.toString());
+        long expected = IrEvaluator.run(functions.get(0), 12345);
+        assertEquals(expected, new BytecodeCompiler().load("Wide", functions).invoke("f", 12345));
+
+        sb.setLength(0);
+        sb.append("int f() { int a;");
+        for (int i = 0; i < 5000; i++) sb.append(" a = a * 3 + ").append(i).append(';');
+        List<IrFunction> huge = RandomPrograms.lower(sb.append(" return a; }").toString());
+        assertThrows(IllegalArgumentException.class, () -> new BytecodeCompiler().generate("Huge", huge));
+    }
+
+    @Test
+    void testDumpsClassFiles(@TempDir Path dir) throws IOException {
+        List<IrFunction> functions = RandomPrograms.lower("int f() { return 1; }");
+        BytecodeCompiler compiler = new BytecodeCompiler().setDumpDirectory(dir.resolve("classes"));
+        assertEquals(1, compiler.load("Dumped", functions).invoke("f"));
+        byte[] bytes = Files.readAllBytes(dir.resolve("classes").resolve("Dumped.class"));
+        assertArrayEquals(compiler.generate("Dumped", functions), bytes);
+        assertEquals(0xCAFEBABE, (bytes[0] & 0xFF) << 24 | (bytes[1] & 0xFF) << 16 | (bytes[2] & 0xFF) << 8 | bytes[3] & 0xFF);
+    }
+
+    @Test
+    void testRejectsBadInput() {
+        List<IrFunction> twice = RandomPrograms.lower("int f() { return 1; } int f() { return 2; }");
+        assertThrows(IllegalArgumentException.class, () -> new BytecodeCompiler().generate("Twice", twice));
+        assertThrows(IllegalArgumentException.class, () -> new BytecodeCompiler().generate("not a name", List.of()));
+    }
+}
@@ -0,0 +1,197 @@
+package org.example.Cache;
+
+import org.example.Driver.BatchCompiler;
+import org.example.Scanner.Scanner;
+import org.example.Scanner.SourceBytes;
+import org.example.Tokens.TokenBuffer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CompileCacheTest {
+
+    private static byte[] key(String code) {
+        return CompileCache.key(code.getBytes(StandardCharsets.UTF_8), "");
+    }
+
+    private static Path entry(Path dir, String code) {
+        return dir.resolve(HexFormat.of().formatHex(key(code)) + ".tok");
+    }
+
+    private static Path onlyEntry(Path dir) throws Exception {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(p -> p.toString().endsWith(".tok")).findFirst().orElseThrow();
+        }
+    }
+
+    @Test
+    void testTokensAndDiagnosticsRoundTrip(@TempDir Path dir) throws Exception {
+        String code = "int main() { /* note */ int x; x = 0x1F + 'a'; // end\n return x; }";
+        TokenBuffer tokens = Scanner.TokenizeToBuffer(code);
+        CompileCache cache = new CompileCache(dir);
+        cache.put(key(code), code.length(), tokens, List.of("token[3]: first", "token[9]: second é"), List.of());
+
+        CompileCache.Entry entry = new CompileCache(dir).get(key(code));
+        assertNotNull(entry);
+        assertEquals(code.length(), entry.sourceBytes());
+        assertEquals(List.of("token[3]: first", "token[9]: second é"), entry.diagnostics());
+        TokenBuffer decoded = entry.tokens(code);
+        assertEquals(tokens.size(), decoded.size());
+        for (int i = 0; i < tokens.size(); i++) {
+            assertEquals(tokens.getKind(i), decoded.getKind(i));
+            assertEquals(tokens.getStart(i), decoded.getStart(i));
+            assertEquals(tokens.getEnd(i), decoded.getEnd(i));
+        }
+        // comments are stored in line and come back as trivia of the same tokens
+        assertEquals(2, decoded.getTriviaCount());
+        for (int t = 0; t < 2; t++) {
+            assertEquals(tokens.getTriviaValue(t), decoded.getTriviaValue(t));
+            assertEquals(tokens.getTriviaOwner(t), decoded.getTriviaOwner(t));
+        }
+        // kinds and offset deltas take about three bytes a token
+        assertTrue(Files.size(onlyEntry(dir)) < 100 + 4L * tokens.size());
+        assertNull(cache.get(key(code + " ")));
+    }
+
+    @Test
+    void testCorruptEntryIsDeletedAndMissed(@TempDir Path dir) throws Exception {
+        String code = "int f() { return 1; }";
+        CompileCache cache = new CompileCache(dir);
+        cache.put(key(code), code.length(), Scanner.TokenizeToBuffer(code), List.of(), List.of());
+        Path entry = onlyEntry(dir);
+        byte[] bytes = Files.readAllBytes(entry);
+        bytes[bytes.length - 2] ^= 0x40;
+        Files.write(entry, bytes);
+
+        assertNull(cache.get(key(code)));
+        assertEquals(1, cache.corruptEntries());
+        assertFalse(Files.exists(entry));
+
+        Files.write(dir.resolve(entry.getFileName()), new byte[]{1, 2, 3});
+        assertNull(cache.get(key(code)));
+        assertEquals(2, cache.corruptEntries());
+    }
+
+    @Test
+    void testChangedDependencyMisses(@TempDir Path dir) throws Exception {
+        Path header = dir.resolve("h.h");
+        Files.writeString(header, "#define X 1\n");
+        String code = "int f() { return X; }";
+        CompileCache cache = new CompileCache(dir.resolve("cache"));
+        cache.put(key(code), code.length(), Scanner.TokenizeToBuffer(code), List.of(),
+                List.of(CompileCache.Dependency.of(header)));
+        assertNotNull(cache.get(key(code)));
+
+        Files.writeString(header, "#define X 22\n");
+        assertNull(cache.get(key(code)));
+    }
+
+    @Test
+    void testLeastRecentlyUsedEntriesAreEvicted(@TempDir Path dir) throws Exception {
+        String[] codes = {"int a() { return 1; }", "int b() { return 2; }", "int c() { return 3; }"};
+        CompileCache probe = new CompileCache(dir.resolve("probe"));
+        probe.put(key(codes[0]), 0, Scanner.TokenizeToBuffer(codes[0]), List.of(), List.of());
+        long limit = probe.sizeBytes() * 5 / 2;
+
+        Path lru = dir.resolve("lru");
+        CompileCache cache = new CompileCache(lru, limit);
+        long now = System.currentTimeMillis();
+        cache.put(key(codes[0]), 0, Scanner.TokenizeToBuffer(codes[0]), List.of(), List.of());
+        Files.setLastModifiedTime(entry(lru, codes[0]), FileTime.fromMillis(now - 20_000));
+        cache.put(key(codes[1]), 0, Scanner.TokenizeToBuffer(codes[1]), List.of(), List.of());
+        Files.setLastModifiedTime(entry(lru, codes[1]), FileTime.fromMillis(now - 10_000));
+        // reading the first entry makes the second one the least recently used
+        assertNotNull(cache.get(key(codes[0])));
+        cache.put(key(codes[2]), 0, Scanner.TokenizeToBuffer(codes[2]), List.of(), List.of());
+
+        assertEquals(1, cache.evictions());
+        assertTrue(cache.sizeBytes() <= limit);
+        assertNotNull(cache.get(key(codes[0])));
+        assertNull(cache.get(key(codes[1])));
+        assertNotNull(cache.get(key(codes[2])));
+    }
+
+    @Test
+    void testMappedFileHashesLikeItsBytes(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("f.c");
+        Files.writeString(file, "int main() { return 0; }\n");
+        assertArrayEquals(CompileCache.key(Files.readAllBytes(file), "o"), CompileCache.key(SourceBytes.map(file), "o"));
+        // only the bytes of a slice, not the whole buffer under it
+        assertArrayEquals(key("abc"), CompileCache.key(SourceBytes.of("xxabcyy").subSequence(2, 5), ""));
+    }
+
+    @Test
+    void testWarmBatchRunIsAnsweredFromCache(@TempDir Path dir) throws Exception {
+        Path src = Files.createDirectories(dir.resolve("src"));
+        Path inc = Files.createDirectories(dir.resolve("inc"));
+        Files.writeString(inc.resolve("v.h"), "#define V 1\n");
+        for (int i = 0; i < 20; i++) {
+            String body = i % 4 == 0 ? "int f" + i + "() { int ; }" : "#include <v.h>\nint f" + i + "() { return V; }";
+            Files.writeString(src.resolve("f" + i + ".c"), body);
+        }
+        List<Path> inputs = BatchCompiler.collectInputs(List.of(src.toString()));
+
+        CompileCache cache = new CompileCache(dir.resolve("cache"));
+        BatchCompiler.Summary cold = new BatchCompiler(4, false, 100, List.of(inc)).setCache(cache).compile(inputs);
+        assertEquals(20, cache.misses());
+        BatchCompiler.Summary warm = new BatchCompiler(4, false, 100, List.of(inc)).setCache(cache).compile(inputs);
+        assertEquals(20, cache.hits());
+        assertEquals(cold.results(), warm.results());
+        assertEquals(5, warm.filesWithErrors());
+
+        // another option set must not see these entries, and an edited header invalidates its includers
+        new BatchCompiler(4, false, 5, List.of(inc)).setCache(cache).compile(inputs);
+        assertEquals(20, cache.hits());
+        Files.writeString(inc.resolve("v.h"), "#define V 2 +\n");
+        BatchCompiler.Summary edited = new BatchCompiler(4, false, 100, List.of(inc)).setCache(cache).compile(inputs);
+        assertEquals(20 + 5, cache.hits());
+        assertEquals(20, edited.filesWithErrors());
+    }
+
+    @Test
+    void testSameFileInAnotherDirectoryMisses(@TempDir Path dir) throws Exception {
+        String code = "#include \"cfg.h\"\nint f() { return X; }\n";
+        Path a = Files.createDirectories(dir.resolve("a"));
+        Path b = Files.createDirectories(dir.resolve("b"));
+        Files.writeString(a.resolve("m.c"), code);
+        Files.writeString(b.resolve("m.c"), code);
+        Files.writeString(a.resolve("cfg.h"), "#define X 1\n");
+        Files.writeString(b.resolve("cfg.h"), "#define X y\n");
+
+        CompileCache cache = new CompileCache(dir.resolve("cache"));
+        BatchCompiler compiler = new BatchCompiler(1, false, 100, List.of()).setCache(cache);
+        assertFalse(compiler.compile(List.of(a.resolve("m.c"))).results().get(0).hasErrors());
+        // the same bytes next to another cfg.h are another compilation
+        assertTrue(compiler.compile(List.of(b.resolve("m.c"))).results().get(0).hasErrors());
+        assertEquals(0, cache.hits());
+    }
+
+    @Test
+    void testHeaderAddedEarlierInSearchOrderMisses(@TempDir Path dir) throws Exception {
+        Path first = Files.createDirectories(dir.resolve("first"));
+        Path second = Files.createDirectories(dir.resolve("second"));
+        Files.writeString(second.resolve("v.h"), "#define V 1\n");
+        Path file = dir.resolve("m.c");
+        Files.writeString(file, "#include <v.h>\nint f() { return V; }\n");
+
+        CompileCache cache = new CompileCache(dir.resolve("cache"));
+        BatchCompiler compiler = new BatchCompiler(1, false, 100, List.of(first, second)).setCache(cache);
+        assertFalse(compiler.compile(List.of(file)).results().get(0).hasErrors());
+        assertFalse(compiler.compile(List.of(file)).results().get(0).hasErrors());
+        assertEquals(1, cache.hits());
+
+        // first/v.h now shadows second/v.h, so the stored result no longer holds
+        Files.writeString(first.resolve("v.h"), "#define V 2 +\n");
+        assertTrue(compiler.compile(List.of(file)).results().get(0).hasErrors());
+        assertEquals(1, cache.hits());
+    }
+}
@@ -0,0 +1,110 @@
+package org.example.Driver;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BatchCompilerTest {
+
+    private static List<Path> writeTree(Path dir, int files) throws Exception {
+        List<Path> written = new ArrayList<>();
+        Files.createDirectories(dir.resolve("sub"));
+        for (int i = 0; i < files; i++) {
+            Path p = dir.resolve(i % 2 == 0 ? "sub" : ".").resolve("f" + i + ".c").normalize();
+            String body = i % 5 == 0
+                    ? "int f() { int ; }"
+                    : "int f" + i + "() { int x; x = " + i + "; return x; }";
+            Files.writeString(p, body);
+            written.add(p);
+        }
+        Files.writeString(dir.resolve("notes.txt"), "not C");
+        return written;
+    }
+
+    @Test
+    void testDiagnosticsAreOrderedAndIndependentOfParallelism(@TempDir Path dir) throws Exception {
+        writeTree(dir, 40);
+        List<Path> inputs = BatchCompiler.collectInputs(List.of(dir.toString()));
+        assertEquals(40, inputs.size(), "directories should expand to .c/.h files only");
+
+        BatchCompiler.Summary serial = new BatchCompiler(1, false).compile(inputs);
+        BatchCompiler.Summary forkJoin = new BatchCompiler(8, false).compile(inputs);
+        BatchCompiler.Summary virtual = new BatchCompiler(8, true).compile(inputs);
+
+        assertEquals(serial.results(), forkJoin.results());
+        assertEquals(serial.results(), virtual.results());
+        assertEquals(8, serial.filesWithErrors());
+        for (int i = 1; i < inputs.size(); i++) {
+            assertTrue(serial.results().get(i - 1).path().compareTo(serial.results().get(i).path()) < 0);
+        }
+    }
+
+    @Test
+    void testGlobAndListInputs(@TempDir Path dir) throws Exception {
+        List<Path> written = writeTree(dir, 6);
+        List<Path> globbed = BatchCompiler.collectInputs(List.of(dir.toString().replace('\\', '/') + "/sub/*.c"));
+        assertEquals(3, globbed.size());
+
+        Path list = dir.resolve("inputs.lst");
+        Files.writeString(list, written.get(1) + "\n\n" + written.get(3) + "\n");
+        assertEquals(List.of(written.get(1), written.get(3)), BatchCompiler.collectInputs(List.of("@" + list)));
+    }
+
+    @Test
+    void testRunPrintsDiagnosticsAndSummary(@TempDir Path dir) throws Exception {
+        writeTree(dir, 5);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        int code = BatchCompiler.run(new String[]{"-j", "2", dir.toString()}, new PrintStream(bytes, true));
+        String out = bytes.toString();
+
+        assertEquals(1, code);
+        assertTrue(out.contains("f0.c: 1:15 "), out);
+        assertTrue(out.contains("5 files, 1 with errors"), out);
+        assertTrue(out.contains("files/s"), out);
+    }
+
+    @Test
+    void testErrorLimitNoteOnlyWhenErrorsWereDropped(@TempDir Path dir) throws Exception {
+        Path exact = dir.resolve("exact.c");
+        Files.writeString(exact, "int f() { void a; void b; return 0; }");
+        List<String> errors = BatchCompiler.compileFile(exact, 2).diagnostics();
+        assertEquals(2, errors.size(), errors.toString());
+        assertTrue(errors.stream().noneMatch(e -> e.startsWith("too many errors")), errors.toString());
+
+        Path over = dir.resolve("over.c");
+        Files.writeString(over, "int f() { void a; void b; void c; return 0; }");
+        errors = BatchCompiler.compileFile(over, 2).diagnostics();
+        assertEquals(3, errors.size(), errors.toString());
+        assertEquals("too many errors, stopped after 2", errors.get(2));
+    }
+
+    @Test
+    void testIncludePathsAndSharedHeaderCache(@TempDir Path dir) throws Exception {
+        Path inc = Files.createDirectories(dir.resolve("inc"));
+        Path src = Files.createDirectories(dir.resolve("src"));
+        Files.writeString(inc.resolve("defs.h"), "#ifndef DEFS_H\n#define DEFS_H\n#define BODY { return 0; }\n#endif\n");
+        for (int i = 0; i < 10; i++) {
+            Files.writeString(src.resolve("f" + i + ".c"), "#include <defs.h>\n#include <defs.h>\nint f" + i + "() BODY\n");
+        }
+        Files.writeString(src.resolve("bad.c"), "#include <missing.h>\nint g() BODY\n");
+
+        BatchCompiler compiler = new BatchCompiler(4, false, BatchCompiler.DEFAULT_MAX_ERRORS, List.of(inc));
+        BatchCompiler.Summary summary = compiler.compile(BatchCompiler.collectInputs(List.of(src.toString())));
+        assertEquals(1, summary.filesWithErrors());
+        assertEquals(List.of("line 1: 'missing.h' not found"), summary.results().get(0).diagnostics());
+        assertEquals(1, compiler.getHeaderCache().misses());
+        assertEquals(9, compiler.getHeaderCache().hits());
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        int code = BatchCompiler.run(new String[]{"-I", inc.toString(), src.resolve("f3.c").toString()}, new PrintStream(bytes, true));
+        assertEquals(0, code, bytes.toString());
+    }
+}
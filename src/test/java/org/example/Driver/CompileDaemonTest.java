@@ -0,0 +1,131 @@
+package org.example.Driver;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CompileDaemonTest {
+    @TempDir
+    Path dir;
+    private Path socket;
+    private Thread serving;
+
+    @BeforeEach
+    void startDaemon() throws Exception {
+        socket = dir.resolve("daemon.sock");
+        CompileDaemon daemon = CompileDaemon.bind(socket).warmUp(20);
+        serving = Thread.ofPlatform().start(() -> {
+            try {
+                daemon.serve();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+    }
+
+    @AfterEach
+    void stopDaemon() throws Exception {
+        if (Files.exists(socket)) DaemonClient.stop(socket);
+        serving.join(10_000);
+        assertFalse(serving.isAlive());
+        assertFalse(Files.exists(socket));
+    }
+
+    private String send(int expectedCode, Path workingDirectory, String... args) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        assertEquals(expectedCode, DaemonClient.send(socket, workingDirectory, args, bytes), bytes.toString());
+        return bytes.toString();
+    }
+
+    // drops the timing line, which differs from run to run
+    private static List<String> diagnostics(String output) {
+        List<String> lines = new ArrayList<>(Arrays.asList(output.split(System.lineSeparator())));
+        lines.removeIf(l -> l.contains(" files, "));
+        return lines;
+    }
+
+    @Test
+    void testAnswersLikeABatchRunInTheClientsDirectory() throws Exception {
+        Path project = Files.createDirectories(dir.resolve("project"));
+        Files.createDirectories(project.resolve("src"));
+        Files.createDirectories(project.resolve("include"));
+        Files.writeString(project.resolve("include/defs.h"), "#define N 3\n");
+        Files.writeString(project.resolve("src/good.c"), "#include <defs.h>\nint main() { return N; }\n");
+        Files.writeString(project.resolve("src/bad.c"), "int main() { int a; a = \"s\"; return a; }\n");
+
+        String viaDaemon = send(1, project, "-I", "include", "src/*.c");
+        assertTrue(viaDaemon.startsWith("src/bad.c: 1:23 "), viaDaemon);
+        assertTrue(viaDaemon.contains("2 files, 1 with errors"), viaDaemon);
+
+        ByteArrayOutputStream direct = new ByteArrayOutputStream();
+        assertEquals(1, BatchCompiler.run(new String[] {"-I", "include", "src/*.c"}, new PrintStream(direct, true), project));
+        assertEquals(diagnostics(direct.toString()), diagnostics(viaDaemon));
+
+        // paths are printed relative to the client's directory
+        assertEquals(diagnostics(viaDaemon.replace("src/", "")),
+                diagnostics(send(1, project.resolve("src"), "-I", "../include", "bad.c", "good.c")));
+    }
+
+    @Test
+    void testRunsFunctions() throws Exception {
+        Files.writeString(dir.resolve("prog.c"), "int main() { int a; a = 6; return a * 7; }");
+        assertEquals("main() = 42" + System.lineSeparator(), send(0, dir, "--run", "prog.c"));
+        assertEquals("main() = 42" + System.lineSeparator(), send(0, dir, "--run", "prog.c", "--interpret"));
+    }
+
+    @Test
+    void testReportsBadRequestsWithoutStopping() throws Exception {
+        assertTrue(send(1, dir, "--run").contains("--run needs a file"));
+        assertTrue(send(1, dir, "--run", "missing.c").startsWith("error: "));
+        assertTrue(send(1, dir).contains("console mode"));
+        assertTrue(send(1, dir, "--metrics", "x.c").contains("JFR"));
+        assertTrue(Files.exists(socket));
+        Files.writeString(dir.resolve("ok.c"), "int main() { return 0; }");
+        assertTrue(send(0, dir, "ok.c").contains("1 files, 0 with errors"));
+    }
+
+    @Test
+    void testHandlesRequestsConcurrently() throws Exception {
+        int n = 32;
+        for (int i = 0; i < n; i++) {
+            Files.writeString(dir.resolve("f" + i + ".c"), "int main() { int a; a = " + i + "; return a * 2; }");
+        }
+        List<Future<String>> answers = new ArrayList<>();
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < n; i++) {
+                String file = "f" + i + ".c";
+                answers.add(clients.submit(() -> send(0, dir, "--run", file)));
+            }
+        }
+        for (int i = 0; i < n; i++) assertEquals("main() = " + 2 * i + System.lineSeparator(), answers.get(i).get());
+    }
+
+    @Test
+    void testReplacesAStaleSocketButNotALiveOne() throws Exception {
+        assertThrows(IllegalStateException.class, () -> CompileDaemon.bind(socket));
+        assertTrue(send(1, dir).contains("console mode"));
+
+        Path stale = dir.resolve("stale.sock");
+        CompileDaemon.bind(stale).close();
+        Files.createFile(stale);
+        try (CompileDaemon replacement = CompileDaemon.bind(stale)) {
+            assertEquals(stale, replacement.getSocket());
+        }
+        assertFalse(Files.exists(stale));
+    }
+}
@@ -0,0 +1,53 @@
+package org.example.Driver;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ProgramRunnerTest {
+
+    private static String run(int expectedCode, String... args) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        assertEquals(expectedCode, ProgramRunner.run(args, new PrintStream(bytes, true)), bytes.toString());
+        return bytes.toString();
+    }
+
+    @Test
+    void testRunsAFunctionAndDumpsItsClass(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("my-prog.c");
+        Files.writeString(file, """
+                #define N 6
+                int main() { int a; a = N; return a * 7; }
+                double half() { int a; a = 5; return a / 2.0; }
+                """);
+        assertEquals("main() = 42" + System.lineSeparator(), run(0, "--run", file.toString()));
+        assertEquals("half() = 2.5" + System.lineSeparator(),
+                run(0, "--run", file.toString(), "--function", "half", "--no-optimize", "--dump-classes", dir.resolve("out").toString()));
+        assertTrue(Files.size(dir.resolve("out").resolve("my_prog.class")) > 0);
+        assertEquals("half() = 2.5" + System.lineSeparator(), run(0, "--run", file.toString(), "--function", "half", "--interpret"));
+    }
+
+    @Test
+    void testReportsErrorsInsteadOfRunning(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("bad.c");
+        Files.writeString(file, "int main() { int a; a = \"s\"; return a; }");
+        assertTrue(run(1, "--run", file.toString()).contains("bad.c: 1:23 "));
+        Files.writeString(file, "int main() { int a; return 1 / a; }");
+        assertTrue(run(1, "--run", file.toString()).startsWith("main() failed: "));
+        assertTrue(run(1, "--run", file.toString(), "--function", "other").contains("no function 'other'"));
+        assertThrows(IllegalArgumentException.class, () -> run(0, "--run"));
+        assertThrows(IllegalArgumentException.class, () -> run(0, "--run", file.toString(), "--bogus"));
+    }
+
+    @Test
+    void testClassNames() {
+        assertEquals("prog", ProgramRunner.className(Path.of("a/prog.c")));
+        assertEquals("C1st_try", ProgramRunner.className(Path.of("1st try.c")));
+    }
+}
@@ -0,0 +1,88 @@
+package org.example.IR;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LoweringTest {
+
+    private static List<IrFunction> lower(String code) {
+        return RandomPrograms.lower(code);
+    }
+
+    private static long run(String code, long... inputs) {
+        return IrEvaluator.run(lower(code).get(0), inputs);
+    }
+
+    private static double runDouble(String code, long... inputs) {
+        return Double.longBitsToDouble(run(code, inputs));
+    }
+
+    @Test
+    void testArithmeticAndLocals() {
+        assertEquals(42, run("int f() { int a; a = 6; return a * 7; }"));
+        assertEquals(7, run("int f() { int a; int b; return a - b; }", 10, 3));
+        assertEquals(-56, run("int f() { char c; c = 200; return c; }"));
+        assertEquals(5_000_000_000L, run("long f() { long l; l = 5; return l * 1000000000; }"));
+        assertEquals(2, run("int f() { int a; a = 5; a -= 3; return a++; }"));
+        assertEquals(3, run("int f() { int a; a = 2; return ++a; }"));
+    }
+
+    @Test
+    void testConversions() {
+        assertEquals(3.5, runDouble("double f() { int a; a = 7; return a / 2.0; }"));
+        assertEquals(3, run("int f() { double d; d = 3.9; return d; }"));
+        // a float local holds a value rounded to float
+        assertEquals((double) 0.1f, runDouble("double f() { float x; x = 0.1; return x; }"));
+        assertEquals(-1, run("int f() { long l; l = 4294967295; return l; }"));
+    }
+
+    @Test
+    void testIntegerLiteralRadixes() {
+        assertEquals(5, run("int f() { int x; x = 0b101; return x; }"));
+        assertEquals(31 + 15 + 10, run("int f() { return 0x1F + 017 + 10; }"));
+        assertEquals(1L << 32, run("long f() { return 0b100000000000000000000000000000000; }"));
+    }
+
+    @Test
+    void testBranches() {
+        String max = "int f() { int a; int b; if (a > b) { return a; } else { return b; } }";
+        assertEquals(9, run(max, 9, 4));
+        assertEquals(6, run(max, 2, 6));
+        assertEquals(1, run("int f() { int a; int b; return a && b || !a; }", 0, 0));
+        assertEquals(0, run("int f() { int a; int b; return a && b || !a; }", 3, 0));
+        assertEquals(20, run("int f() { int a; return a ? 10 : 20; }", 0));
+        // the right side of && is not evaluated when the left is false, so the division never happens
+        assertEquals(0, run("int f() { int a; return a && 1 / a; }", 0));
+    }
+
+    @Test
+    void testScopesAndImplicitReturn() {
+        assertEquals(1, run("int f() { int a; a = 1; { int a; a = 2; } return a; }"));
+        assertEquals(0, run("int f() { int a; a = 5; }"));
+        List<IrFunction> functions = lower("void g() { } int h() { return 1; }");
+        assertEquals(List.of("g", "h"), functions.stream().map(IrFunction::getName).toList());
+        assertNull(functions.get(0).getResult());
+        assertEquals(Kind.I, functions.get(1).getResult());
+    }
+
+    @Test
+    void testDivisionByZeroTraps() {
+        assertThrows(ArithmeticException.class, () -> run("int f() { int a; return 1 / a; }", 0));
+        assertTrue(Double.isInfinite(runDouble("double f() { double d; return 1 / d; }", 0)));
+    }
+
+    @Test
+    void testRejectsUnsupportedPrograms() {
+        assertThrows(IllegalArgumentException.class, () -> lower("int f() { int a; a = \"s\"; }"));
+        assertThrows(IllegalArgumentException.class, () -> lower("int f() { \"s\"; }"));
+    }
+
+    @Test
+    void testFormat() {
+        IrFunction f = lower("int f() { int a; return a + 1; }").get(0);
+        assertEquals("f:\n0: r1 = const 1\n1: r2 = add.i r0, r1\n2: return r2\n3: r3 = const 0\n4: return r3\n", f.toString());
+    }
+}
@@ -0,0 +1,95 @@
+package org.example.IR;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PassManagerTest {
+
+    private static IrFunction optimized(String code) {
+        IrFunction f = RandomPrograms.lower(code).get(0);
+        PassManager.standard().run(List.of(f));
+        return f;
+    }
+
+    private static long count(IrFunction f, Op op) {
+        long n = 0;
+        for (int i = 0; i < f.size(); i++) {
+            if (f.op(i) == op) n++;
+        }
+        return n;
+    }
+
+    @Test
+    void testOptimizationPreservesResults() {
+        Random random = new Random(16);
+        long before = 0;
+        long after = 0;
+        for (int p = 0; p < 500; p++) {
+            String code = RandomPrograms.program(random);
+            IrFunction plain = RandomPrograms.lower(code).get(0);
+            IrFunction optimized = RandomPrograms.lower(code).get(0);
+            PassManager.Report report = PassManager.standard().run(List.of(optimized));
+            before += report.instructionsBefore();
+            after += report.instructionsAfter();
+            assertEquals(plain.size(), report.instructionsBefore());
+            for (int run = 0; run < 20; run++) {
+                long[] inputs = RandomPrograms.inputs(random);
+                Object expected = RandomPrograms.outcome(() -> IrEvaluator.run(plain, inputs));
+                assertEquals(expected, RandomPrograms.outcome(() -> IrEvaluator.run(optimized, inputs)), () -> code + "\n" + plain + "\n" + optimized);
+            }
+        }
+        assertTrue(after < before * 0.8, before + " -> " + after);
+    }
+
+    @Test
+    void testConstantProgramFoldsToItsResult() {
+        IrFunction f = optimized("int f() { int a; int b; a = 6; b = a * 7; if (b > 40) { return b - (a << 1); } return 0; }");
+        assertEquals("f:\n0: r7 = const 30\n1: return r7\n", f.toString().replaceAll("r\\d+", "r7"));
+        assertEquals(30, IrEvaluator.run(f));
+    }
+
+    @Test
+    void testCommonSubexpressionsAreComputedOnce() {
+        IrFunction f = optimized("long f() { long a; long b; return (a * b + 1) * (b * a + 1); }");
+        assertEquals(2, count(f, Op.MUL_L));
+        assertEquals(1, count(f, Op.ADD_L));
+        assertEquals(36, IrEvaluator.run(f, 5, 1));
+    }
+
+    @Test
+    void testCopiesAndDeadValuesAreRemoved() {
+        IrFunction f = optimized("int f() { int a; int b; int c; b = a; c = b + 1; a * 3; c = b; return c; }");
+        assertEquals(0, count(f, Op.MOVE));
+        assertEquals(0, count(f, Op.MUL_I));
+        assertEquals(1, count(f, Op.RETURN));
+        assertEquals(4, IrEvaluator.run(f, 4));
+    }
+
+    @Test
+    void testIdentitiesAndDivisionByZero() {
+        IrFunction f = optimized("int f() { int a; return (a + 0) * 1 - 0; }");
+        assertEquals(1, f.size());
+        // an unused division that may trap stays, and one by a constant zero is not folded
+        assertThrows(ArithmeticException.class, () -> IrEvaluator.run(optimized("int f() { int a; a / 0; return 1; }")));
+        assertThrows(ArithmeticException.class, () -> IrEvaluator.run(optimized("int f() { int a; int b; a % b; return 1; }"), 1, 0));
+    }
+
+    @Test
+    void testReport() {
+        List<IrFunction> functions = RandomPrograms.lower("int f() { return 1 + 2; } int g() { int a; return a * a + a * a; }");
+        PassManager.Report report = new PassManager(List.of(new ConstantFolding(), new DeadCodeElimination()))
+                .setMaxRounds(2).run(functions);
+        assertEquals(List.of("constant-folding", "dead-code-elimination"), report.passes().stream().map(PassManager.PassStats::name).toList());
+        assertTrue(report.passes().stream().allMatch(p -> p.runs() >= 2 && p.runs() <= 4));
+        assertEquals(report.instructionsBefore() - report.instructionsAfter(),
+                report.passes().stream().mapToLong(PassManager.PassStats::removed).sum());
+        String table = report.toString();
+        assertTrue(table.contains("constant-folding") && table.contains("instructions: "), table);
+        assertThrows(IllegalArgumentException.class, () -> new PassManager(List.of()));
+        assertThrows(IllegalArgumentException.class, () -> PassManager.standard().setMaxRounds(0));
+    }
+}
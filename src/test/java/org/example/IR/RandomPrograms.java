@@ -0,0 +1,106 @@
+package org.example.IR;
+
+import org.example.Parser.Ast;
+import org.example.Parser.Parser;
+import org.example.Parser.TypeChecker;
+import org.example.Scanner.Scanner;
+
+import java.util.List;
+import java.util.Random;
+import java.util.function.LongSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/** Seeded random programs that lower cleanly, and inputs for them, for checking backends against each other. */
+public final class RandomPrograms {
+    private static final String[] TYPES = {"int", "int", "long", "char", "double"};
+    private static final String[] INTEGER_OPS = {"+", "-", "*", "/", "%", "&", "|", "^", "<<", ">>", "<", "<=", "==", "!=", "&&", "||"};
+    private static final String[] ARITHMETIC_OPS = {"+", "-", "*", "/", "<", ">=", "==", "!=", "&&", "||"};
+
+    private RandomPrograms() {
+    }
+
+    /** A function {@code long f()} over locals v0..v4 of the types in TYPES, with assignments, ifs, ?: and short circuits. */
+    public static String program(Random random) {
+        StringBuilder sb = new StringBuilder("long f() {");
+        for (int v = 0; v < TYPES.length; v++) sb.append(' ').append(TYPES[v]).append(" v").append(v).append(';');
+        statements(random, sb, 2 + random.nextInt(5), 2);
+        sb.append(" return ").append(expression(random, 3, true)).append("; }");
+        return sb.toString();
+    }
+
+    private static void statements(Random random, StringBuilder sb, int count, int nesting) {
+        for (int s = 0; s < count; s++) {
+            int v = random.nextInt(TYPES.length);
+            boolean integer = !TYPES[v].equals("double");
+            switch (random.nextInt(nesting > 0 ? 6 : 4)) {
+                case 0, 1 -> sb.append(" v").append(v).append(" = ").append(expression(random, 3, integer)).append(';');
+                case 2 -> sb.append(" v").append(v).append(random.nextBoolean() ? " += " : " *= ")
+                            .append(expression(random, 2, integer)).append(';');
+                case 3 -> sb.append(random.nextBoolean() ? " v" + v + "++;" : " --v" + v + ";");
+                case 4 -> {
+                    sb.append(" if (").append(expression(random, 2, random.nextBoolean())).append(") {");
+                    statements(random, sb, 1 + random.nextInt(3), nesting - 1);
+                    sb.append(" } else {");
+                    statements(random, sb, random.nextInt(3), nesting - 1);
+                    sb.append(" }");
+                }
+                default -> {
+                    sb.append(" if (").append(expression(random, 2, true)).append(") { return ")
+                      .append(expression(random, 2, true)).append("; }");
+                }
+            }
+        }
+    }
+
+    // repeated operands make common subexpressions likely; integer-only where '%', bit ops or shifts may appear
+    private static String expression(Random random, int depth, boolean integer) {
+        if (depth == 0 || random.nextInt(4) == 0) {
+            return switch (random.nextInt(integer ? 3 : 4)) {
+                case 0 -> String.valueOf(random.nextInt(5));
+                case 1 -> "v" + random.nextInt(2);
+                case 2 -> "v" + (2 + random.nextInt(2));
+                default -> random.nextBoolean() ? "v4" : "2.5";
+            };
+        }
+        return switch (random.nextInt(8)) {
+            case 0 -> "(" + expression(random, depth - 1, true) + " ? " + expression(random, depth - 1, integer)
+                    + " : " + expression(random, depth - 1, integer) + ")";
+            case 1 -> "-(" + expression(random, depth - 1, integer) + ")";
+            default -> {
+                String[] ops = integer ? INTEGER_OPS : ARITHMETIC_OPS;
+                yield "(" + expression(random, depth - 1, integer) + " " + ops[random.nextInt(ops.length)] + " "
+                        + expression(random, depth - 1, integer) + ")";
+            }
+        };
+    }
+
+    public static long[] inputs(Random random) {
+        long[] inputs = new long[TYPES.length];
+        for (int v = 0; v < inputs.length; v++) {
+            inputs[v] = switch (TYPES[v]) {
+                case "long" -> random.nextInt(3) == 0 ? random.nextLong() : random.nextInt(7) - 3;
+                case "double" -> Double.doubleToRawLongBits(random.nextInt(9) - 4 + random.nextDouble());
+                default -> random.nextInt(3) == 0 ? random.nextInt() : random.nextInt(7) - 3;
+            };
+        }
+        return inputs;
+    }
+
+    /** The result bits of {@code run}, or the name of the exception it throws, so backends can be compared on both. */
+    public static Object outcome(LongSupplier run) {
+        try {
+            return run.getAsLong();
+        } catch (ArithmeticException e) {
+            return "ArithmeticException";
+        }
+    }
+
+    public static List<IrFunction> lower(String code) {
+        Parser parser = new Parser(Scanner.TokenizeToBuffer(code), true);
+        parser.parseProgram();
+        assertFalse(parser.hasErrors(), parser.getErrors().toString());
+        Ast ast = parser.getAst();
+        return Lowering.lower(ast, new TypeChecker(ast).check());
+    }
+}
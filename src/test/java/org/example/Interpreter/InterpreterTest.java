@@ -0,0 +1,143 @@
+package org.example.Interpreter;
+
+import org.example.IR.IrEvaluator;
+import org.example.IR.IrFunction;
+import org.example.IR.Lowering;
+import org.example.IR.PassManager;
+import org.example.IR.RandomPrograms;
+import org.example.Parser.Ast;
+import org.example.Parser.Parser;
+import org.example.Parser.TypeChecker;
+import org.example.Scanner.Scanner;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InterpreterTest {
+
+    private static Ast parse(String code) {
+        Parser parser = new Parser(Scanner.TokenizeToBuffer(code), true);
+        parser.parseProgram();
+        assertFalse(parser.hasErrors(), parser.getErrors().toString());
+        return parser.getAst();
+    }
+
+    private static Interpreter interpreter(String code, boolean optimize) {
+        List<IrFunction> functions = RandomPrograms.lower(code);
+        if (optimize) PassManager.standard().run(functions);
+        return new Interpreter(functions);
+    }
+
+    /** Straight-line long and int arithmetic with a branch every few statements and no division by zero. */
+    private static String arithmeticProgram(Random random, int statements) {
+        StringBuilder sb = new StringBuilder("long f() { long a; long b; long c; int i;");
+        String[] ops = {"+", "-", "*", "&", "|", "^", "+", "*"};
+        String names = "abci";
+        for (int s = 0; s < statements; s++) {
+            if (s % 4 == 3) sb.append(" if (").append(names.charAt(random.nextInt(4))).append(" < ").append(random.nextInt(100)).append(") {");
+            sb.append(' ').append(names.charAt(random.nextInt(4))).append(" = ").append(names.charAt(random.nextInt(4)));
+            for (int k = 1 + random.nextInt(4); k > 0; k--) {
+                sb.append(' ').append(ops[random.nextInt(ops.length)]).append(' ')
+                  .append(random.nextBoolean() ? String.valueOf(random.nextInt(100)) : String.valueOf(names.charAt(random.nextInt(4))));
+            }
+            if (random.nextInt(4) == 0) sb.append(" / (").append(names.charAt(random.nextInt(4))).append(" | 1)");
+            sb.append(';');
+            if (s % 4 == 3) sb.append(" }");
+        }
+        return sb.append(" return a ^ b ^ c ^ i; }").toString();
+    }
+
+    @Test
+    void testSimpleFunctions() {
+        Interpreter interpreter = interpreter("""
+                int answer() { int a; a = 6; return a * 7; }
+                double half() { int a; return a / 2.0; }
+                char narrow() { int a; return a; }
+                int max() { int a; int b; if (a > b) { return a; } else { return b; } }
+                long big() { long l; return l - 4294967296; }
+                void nothing() { int a; a++; }
+                """, true);
+        assertEquals(List.of("answer", "half", "narrow", "max", "big", "nothing"), interpreter.getFunctionNames());
+        assertEquals(42, interpreter.invoke("answer"));
+        assertEquals(3.5, Double.longBitsToDouble(interpreter.invoke("half", 7)));
+        assertEquals(-56, interpreter.invoke("narrow", 200));
+        assertEquals(9, interpreter.invoke("max", 9, 4));
+        assertEquals(6, interpreter.invoke("max", 2, 6));
+        assertEquals(-4294967295L, interpreter.invoke("big", 1));
+        assertEquals(0, interpreter.invoke("nothing"));
+        // int inputs are taken as ints, like the bytecode backend does
+        assertEquals(0, interpreter.invoke("max", 1L << 32, -1));
+        assertThrows(ArithmeticException.class, () -> interpreter("int f() { int a; return 1 / a; }", false).invoke("f"));
+        assertThrows(IllegalArgumentException.class, () -> interpreter.functionIndex("missing"));
+    }
+
+    @Test
+    void testMatchesTheEvaluatorsOnRandomPrograms() {
+        Random random = new Random(18);
+        for (int p = 0; p < 400; p++) {
+            String code = RandomPrograms.program(random);
+            IrFunction reference = RandomPrograms.lower(code).get(0);
+            Interpreter plain = interpreter(code, false);
+            Interpreter optimized = interpreter(code, true);
+            Ast ast = parse(code);
+            AstEvaluator walker = new AstEvaluator(ast, new TypeChecker(ast).check());
+            for (int run = 0; run < 10; run++) {
+                long[] inputs = RandomPrograms.inputs(random);
+                Object expected = RandomPrograms.outcome(() -> IrEvaluator.run(reference, inputs));
+                assertEquals(expected, RandomPrograms.outcome(() -> plain.run(0, inputs)), code);
+                assertEquals(expected, RandomPrograms.outcome(() -> optimized.run(0, inputs)), code);
+                assertEquals(expected, RandomPrograms.outcome(() -> walker.invoke("f", inputs)), code);
+            }
+        }
+    }
+
+    @Test
+    void testSuperinstructionsShortenCode() {
+        List<IrFunction> functions = RandomPrograms.lower("int f() { int a; int b; if (a < b) { a = a * 3 + 1; } return a << 2; }");
+        PassManager.standard().run(functions);
+        Interpreter interpreter = new Interpreter(functions);
+        // the constants become immediates and the comparison a branch; one RETURN_VOID is appended
+        assertTrue(interpreter.getInstructionCount(0) <= functions.get(0).size() - 3,
+                interpreter.getInstructionCount(0) + " vs\n" + functions.get(0));
+        assertEquals(16, interpreter.invoke("f", 1, 2));
+        assertEquals(20, interpreter.invoke("f", 5, 2));
+    }
+
+    @Test
+    void testRunDoesNotAllocate() {
+        Interpreter interpreter = interpreter(arithmeticProgram(new Random(1), 40), true);
+        long[] inputs = {3, 5, 7, 11};
+        long sum = 0;
+        for (int i = 0; i < 20_000; i++) sum += interpreter.run(0, inputs);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long before = threads.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < 100_000; i++) sum += interpreter.run(0, inputs);
+        long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+        assertTrue(allocated < 10_000, allocated + " bytes allocated for 100000 calls (" + sum + ")");
+    }
+
+    @Test
+    void testSameResultsAsWalkingTheAst() {
+        Random random = new Random(5);
+        StringBuilder program = new StringBuilder();
+        String[] names = new String[50];
+        for (int f = 0; f < names.length; f++) {
+            names[f] = "f" + f;
+            program.append(arithmeticProgram(random, 60).replace("long f()", "long " + names[f] + "()"));
+        }
+        Ast ast = parse(program.toString());
+        TypeChecker checker = new TypeChecker(ast).check();
+        AstEvaluator walker = new AstEvaluator(ast, checker);
+        List<IrFunction> functions = Lowering.lower(ast, checker);
+        PassManager.standard().run(functions);
+        Interpreter interpreter = new Interpreter(functions);
+        long[] inputs = {3, 5, 7, 11};
+        for (int fn = 0; fn < names.length; fn++) {
+            assertEquals(walker.invoke(names[fn], inputs), interpreter.run(fn, inputs), names[fn]);
+        }
+    }
+}
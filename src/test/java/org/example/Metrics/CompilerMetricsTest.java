@@ -0,0 +1,140 @@
+package org.example.Metrics;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.example.Driver.ProgramRunner;
+import org.example.Parser.Parser;
+import org.example.Scanner.Scanner;
+import org.example.Tokens.TokenType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CompilerMetricsTest {
+
+    @BeforeEach
+    void enable() {
+        CompilerMetrics.reset();
+        CompilerMetrics.setEnabled(true);
+    }
+
+    @AfterEach
+    void disable() {
+        CompilerMetrics.setEnabled(false);
+        CompilerMetrics.reset();
+    }
+
+    private static int run(Path file) throws Exception {
+        return ProgramRunner.run(new String[] {"--run", file.toString()}, new PrintStream(new ByteArrayOutputStream(), true));
+    }
+
+    @Test
+    void testCountsEveryPhaseOfACompiledRun(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("prog.c");
+        Files.writeString(file, "int main() { int a; a = 6; return a * 7; }");
+        assertEquals(0, run(file));
+
+        for (Phase phase : Phase.values()) {
+            assertEquals(1, CompilerMetrics.runs(phase), phase.name());
+            assertTrue(CompilerMetrics.nanos(phase) > 0, phase.name());
+        }
+        assertEquals(Files.size(file), CompilerMetrics.bytes(Phase.READ));
+        assertEquals(18, CompilerMetrics.tokens(Phase.TOKENIZE));
+        assertEquals(18, CompilerMetrics.tokens(Phase.PARSE));
+        assertEquals(4, CompilerMetrics.tokens(TokenType.KEYWORD));
+        assertEquals(3, CompilerMetrics.tokens(TokenType.IDENTIFIER));
+        assertEquals(2, CompilerMetrics.tokens(TokenType.INTEGER_LITERAL));
+        assertEquals(0, CompilerMetrics.errors(Phase.PARSE));
+        assertTrue(CompilerMetrics.bytes(Phase.CODEGEN) > 0);
+    }
+
+    @Test
+    void testCountsErrorsAndBacktracks(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("bad.c");
+        Files.writeString(file, "int 5() { } int x { } int main() { int a; a = \"s\"; return a; }");
+        assertEquals(1, run(file));
+
+        assertEquals(2, CompilerMetrics.errors(Phase.PARSE));
+        assertEquals(2, CompilerMetrics.backtracks(Phase.PARSE));
+        assertEquals(0, CompilerMetrics.runs(Phase.TYPE_CHECK));
+        assertEquals(0, CompilerMetrics.runs(Phase.CODEGEN));
+
+        Parser parser = new Parser(Scanner.TokenizeToBuffer("int main() { return 1; } int 2"));
+        parser.parseProgram();
+        assertEquals(1, parser.getBacktracks());
+        assertEquals(3, CompilerMetrics.backtracks(Phase.PARSE));
+    }
+
+    @Test
+    void testNothingIsCountedWhileDisabled() {
+        CompilerMetrics.setEnabled(false);
+        new Parser(Scanner.TokenizeToBuffer("int main() { return 1; }")).parseProgram();
+        for (Phase phase : Phase.values()) assertEquals(0, CompilerMetrics.runs(phase));
+        assertEquals(0, CompilerMetrics.tokens(TokenType.KEYWORD));
+    }
+
+    @Test
+    void testSummaryAndJson() {
+        Scanner.Tokenize("int x;");
+        String summary = CompilerMetrics.summary();
+        assertTrue(summary.startsWith("phase "), summary);
+        assertTrue(summary.contains("tokenize          1"), summary);
+        assertTrue(summary.contains("tokens by type: keyword=1 identifier=1 special_characters=1"), summary);
+        assertFalse(summary.contains("parse"), summary);
+
+        String json = CompilerMetrics.toJson();
+        assertTrue(json.startsWith("{\"phases\":{\"read\":{\"runs\":0,"), json);
+        assertTrue(json.contains("\"tokenize\":{\"runs\":1,\"nanos\":"), json);
+        assertTrue(json.contains("\"bytes\":6,\"tokens\":3,\"errors\":0,\"backtracks\":0}"), json);
+        assertTrue(json.endsWith(",\"whitespace\":0,\"special_characters\":1,\"error\":0}}"), json);
+    }
+
+    @Test
+    void testEmitsFlightRecorderEvents(@TempDir Path dir) throws Exception {
+        CompilerMetrics.setEnabled(false);
+        Path file = dir.resolve("prog.c");
+        Files.writeString(file, "int f { } int main() { return 2; }");
+        Path dump = dir.resolve("phases.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("org.example.CompilerPhase");
+            recording.enable("org.example.TokenCount");
+            recording.start();
+            assertEquals(1, run(file));
+            recording.stop();
+            recording.dump(dump);
+        }
+
+        Map<String, RecordedEvent> phases = new HashMap<>();
+        Map<String, Long> tokenCounts = new HashMap<>();
+        List<RecordedEvent> events = RecordingFile.readAllEvents(dump);
+        for (RecordedEvent e : events) {
+            switch (e.getEventType().getName()) {
+                case "org.example.CompilerPhase" -> assertNull(phases.put(e.getString("phase"), e));
+                case "org.example.TokenCount" -> tokenCounts.put(e.getString("tokenType"), e.getLong("count"));
+                default -> {
+                }
+            }
+        }
+        // the syntax error stops the run after parsing
+        assertEquals(Set.of("READ", "TOKENIZE", "PREPROCESS", "PARSE"), phases.keySet());
+        assertEquals(Files.size(file), phases.get("READ").getLong("bytes"));
+        assertEquals(1, phases.get("PARSE").getInt("errors"));
+        assertEquals(1, phases.get("PARSE").getInt("backtracks"));
+        assertEquals(13, phases.get("TOKENIZE").getLong("tokens"));
+        assertEquals(4L, tokenCounts.get("KEYWORD"));
+        assertNull(phases.get("READ").getEventType().getField("startNanos"));
+    }
+}
@@ -0,0 +1,153 @@
+package org.example.Parser;
+
+import org.example.Scanner.Scanner;
+import org.example.Tokens.TokenBuffer;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AstTest {
+
+    private static Ast parse(String code) {
+        Parser parser = new Parser(Scanner.TokenizeToBuffer(code), true);
+        parser.parseProgram();
+        return parser.getAst();
+    }
+
+    // what a straightforward object-per-node tree would look like
+    private static final class ObjectNode {
+        final NodeKind kind;
+        final int token;
+        final List<ObjectNode> children = new ArrayList<>();
+
+        ObjectNode(NodeKind kind, int token) {
+            this.kind = kind;
+            this.token = token;
+        }
+    }
+
+    private static ObjectNode toObjects(Ast ast, int node) {
+        ObjectNode out = new ObjectNode(ast.kind(node), ast.token(node));
+        for (int c = ast.firstChild(node); c != Ast.NONE; c = ast.nextSibling(c)) {
+            out.children.add(toObjects(ast, c));
+        }
+        return out;
+    }
+
+    @Test
+    void testBuildsTreeForSampleProgram() {
+        Ast ast = parse("int main() {\n  int x, y;\n  if (x == 42) { x = x - 3; } else { y = 3.1; }\n  return 0;\n}\n");
+        assertEquals("(PROGRAM (FUNCTION int (NAME main) (BLOCK { (VAR_DECL int (NAME x) (NAME y))"
+                + " (IF if (BINARY == (NAME x) (LITERAL 42))"
+                + " (BLOCK { (EXPRESSION_STATEMENT (BINARY = (NAME x) (BINARY - (NAME x) (LITERAL 3)))))"
+                + " (BLOCK { (EXPRESSION_STATEMENT (BINARY = (NAME y) (LITERAL 3.1)))))"
+                + " (RETURN return (LITERAL 0)))))", ast.toString());
+    }
+
+    @Test
+    void testNoAstUnlessRequested() {
+        Parser parser = new Parser(Scanner.TokenizeToBuffer(GeneratedPrograms.functions(1)));
+        parser.parseProgram();
+        assertNull(parser.getAst());
+    }
+
+    @Test
+    void testFailedFunctionsLeaveNoOrphanNodes() {
+        Ast ast = parse("int f( { }\nint g() { x = ; }\nfloat 3;\nint h() { return (1; }\n");
+        int[] visited = {0};
+        ast.walk(new AstVisitor() {
+            @Override
+            public boolean enter(Ast a, int node) {
+                visited[0]++;
+                return true;
+            }
+        });
+        assertEquals(ast.size(), visited[0], "every node must be reachable from the root");
+        assertEquals("(PROGRAM (FUNCTION int (NAME g) (BLOCK { (EXPRESSION_STATEMENT (BINARY = (NAME x) (ERROR ;)))))"
+                + " (FUNCTION int (NAME h) (BLOCK { (RETURN return (PAREN ( (LITERAL 1))))))", ast.toString());
+    }
+
+    @Test
+    void testCursorMatchesWalk() {
+        Ast ast = parse(GeneratedPrograms.functions(3));
+        List<Integer> walked = new ArrayList<>();
+        ast.walk(new AstVisitor() {
+            @Override
+            public boolean enter(Ast a, int node) {
+                walked.add(node);
+                return true;
+            }
+        });
+
+        List<Integer> cursored = new ArrayList<>();
+        Ast.Cursor cursor = ast.cursor();
+        while (true) {
+            cursored.add(cursor.node());
+            if (cursor.firstChild()) continue;
+            while (!cursor.nextSibling()) {
+                if (!cursor.parent()) break;
+            }
+            if (cursor.depth() == 0) break;
+        }
+        assertEquals(walked, cursored);
+        assertEquals(NodeKind.PROGRAM, ast.kind(walked.get(0)));
+    }
+
+    @Test
+    void testDeepTreeWalksWithoutRecursion() {
+        StringBuilder sb = new StringBuilder("int main() { a = 0");
+        for (int i = 0; i < 100_000; i++) sb.append(" + a");
+        sb.append("; }");
+        Ast ast = parse(sb.toString());
+        int[] maxDepth = {0, 0};
+        ast.walk(new AstVisitor() {
+            @Override
+            public boolean enter(Ast a, int node) {
+                maxDepth[1]++;
+                maxDepth[0] = Math.max(maxDepth[0], maxDepth[1]);
+                return true;
+            }
+
+            @Override
+            public void exit(Ast a, int node) {
+                maxDepth[1]--;
+            }
+        });
+        assertTrue(maxDepth[0] > 100_000);
+        assertEquals(0, maxDepth[1]);
+    }
+
+    @Test
+    void testFlatTreeUsesLessMemoryPerNode() {
+        com.sun.management.ThreadMXBean mx = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        TokenBuffer tokens = Scanner.TokenizeToBuffer(GeneratedPrograms.functions(2000));
+        // warm up so class loading is not measured
+        new Parser(tokens, true).parseProgram();
+        new Parser(tokens).parseProgram();
+
+        long tid = Thread.currentThread().threadId();
+        long before = mx.getThreadAllocatedBytes(tid);
+        new Parser(tokens).parseProgram();
+        long plain = mx.getThreadAllocatedBytes(tid) - before;
+
+        before = mx.getThreadAllocatedBytes(tid);
+        Parser parser = new Parser(tokens, true);
+        parser.parseProgram();
+        long withAst = mx.getThreadAllocatedBytes(tid) - before;
+        Ast ast = parser.getAst();
+
+        before = mx.getThreadAllocatedBytes(tid);
+        ObjectNode root = toObjects(ast, ast.root());
+        long objects = mx.getThreadAllocatedBytes(tid) - before;
+        assertEquals(NodeKind.PROGRAM, root.kind);
+
+        double flatPerNode = (double) (withAst - plain) / ast.size();
+        double objectPerNode = (double) objects / ast.size();
+        assertTrue(flatPerNode * 2 < objectPerNode,
+                "flat Ast should allocate well under half of an object tree per node: " + flatPerNode + " vs " + objectPerNode);
+    }
+}
@@ -0,0 +1,99 @@
+package org.example.Parser;
+
+import org.example.Scanner.Scanner;
+import org.example.Tokens.TokenBuffer;
+import org.example.Tokens.TokenKind;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DiagnosticsTest {
+
+    private static Parser parse(String code) {
+        Parser parser = new Parser(Scanner.TokenizeToBuffer(code));
+        parser.parseProgram();
+        return parser;
+    }
+
+    @Test
+    void testDiagnosticRecords() {
+        Parser parser = parse("int main() { int x, 3; x = 1 }");
+        List<Diagnostic> diagnostics = parser.getDiagnostics();
+        assertEquals(2, diagnostics.size());
+
+        Diagnostic comma = diagnostics.get(0);
+        assertEquals(DiagnosticCode.EXPECTED_IDENTIFIER_AFTER_COMMA, comma.code());
+        assertEquals(8, comma.token());
+        assertEquals(TokenKind.IDENTIFIER, comma.expected());
+        assertEquals(TokenKind.INTEGER_LITERAL, comma.found());
+
+        Diagnostic semicolon = diagnostics.get(1);
+        assertEquals(DiagnosticCode.MISSING_SEMICOLON_AFTER_EXPRESSION, semicolon.code());
+        assertEquals(TokenKind.P_SEMICOLON, semicolon.expected());
+        assertEquals(TokenKind.P_RBRACE, semicolon.found());
+
+        assertEquals(List.of("1:21: expected identifier after ',' in declaration",
+                "1:30: missing ';' after expression"), parser.getErrors());
+    }
+
+    @Test
+    void testMessagesQuotingTokens() {
+        assertEquals(List.of("1:20 <SPECIAL_CHARACTERS:;> -> expected identifier after type 'float'"),
+                parse("int main() { float ; }").getErrors());
+        assertEquals(List.of("1:18 <KEYWORD:while> -> Unexpected token inside expression: while"),
+                parse("int main() { a = while; }").getErrors());
+        Parser atEof = parse("int");
+        assertEquals(List.of("1:4: expected function name but found EOF"), atEof.getErrors());
+        assertNull(atEof.getDiagnostics().get(0).found());
+    }
+
+    @Test
+    void testOneMistakeReportsAtMostTwoErrors() {
+        String code = GeneratedPrograms.functions(30);
+        TokenBuffer tokens = Scanner.TokenizeToBuffer(code);
+        Random random = new Random(7);
+        for (int round = 0; round < 500; round++) {
+            int k = random.nextInt(tokens.size());
+            String broken = code.substring(0, tokens.getStart(k)) + " " + code.substring(tokens.getEnd(k));
+            Parser parser = parse(broken);
+            assertTrue(parser.getErrorCount() <= 2,
+                    "deleting '" + tokens.getValue(k) + "' at token " + k + " gave " + parser.getErrors());
+        }
+    }
+
+    @Test
+    void testJunkAtTopLevelIsOneError() {
+        Parser parser = parse(") ) x + 3 ; } { ]\nint main() { return 0; }\n");
+        assertEquals(List.of("1:1 <SPECIAL_CHARACTERS:)> -> unexpected token at top-level"), parser.getErrors());
+    }
+
+    @Test
+    void testBrokenHeaderIsOneError() {
+        Parser parser = parse("int f( { int x; x = 1; { int y; } return x; }\nint g() { return 0; }\n");
+        assertEquals(List.of("1:8: expected ')' (only empty parameter lists supported)"), parser.getErrors());
+        assertEquals(1, parse("int 5() { int a; char b; }\nint main() { return 0; }\n").getErrorCount());
+        // the next function after a header cut short by ';' is still found
+        assertEquals(1, parse("int f(;\nint main() { int a; return a; }\n").getErrorCount());
+    }
+
+    @Test
+    void testErrorLimitStopsTheParse() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 10_000; i++) sb.append("int f").append(i).append("( { }\n");
+        TokenBuffer tokens = Scanner.TokenizeToBuffer(sb.toString());
+
+        Parser unlimited = new Parser(tokens);
+        unlimited.parseProgram();
+        assertEquals(10_000, unlimited.getErrorCount());
+        assertFalse(unlimited.reachedErrorLimit());
+
+        Parser limited = new Parser(tokens).setMaxErrors(25);
+        limited.parseProgram();
+        assertEquals(25, limited.getErrorCount());
+        assertTrue(limited.reachedErrorLimit());
+        assertEquals(unlimited.getErrors().subList(0, 25), limited.getErrors());
+    }
+}
@@ -0,0 +1,88 @@
+package org.example.Parser;
+
+import org.example.Scanner.Scanner;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ExpressionTest {
+
+    private static Parser parse(String body) {
+        Parser parser = new Parser(Scanner.TokenizeToBuffer("int main() { " + body + " }"), true);
+        parser.parseProgram();
+        return parser;
+    }
+
+    // the expression tree of the single expression statement in body
+    private static String tree(String body) {
+        Parser parser = parse(body);
+        assertEquals(List.of(), parser.getErrors(), body);
+        Ast ast = parser.getAst();
+        int function = ast.firstChild(ast.root());
+        int block = ast.nextSibling(ast.firstChild(function));
+        int statement = ast.firstChild(block);
+        assertEquals(NodeKind.EXPRESSION_STATEMENT, ast.kind(statement));
+        String all = ast.toString();
+        int at = all.indexOf("(EXPRESSION_STATEMENT ") + "(EXPRESSION_STATEMENT ".length();
+        return all.substring(at, all.length() - "))))".length());
+    }
+
+    @Test
+    void testBinaryPrecedence() {
+        assertEquals("(BINARY + (NAME a) (BINARY * (NAME b) (NAME c)))", tree("a + b * c;"));
+        assertEquals("(BINARY || (NAME a) (BINARY && (NAME b) (NAME c)))", tree("a || b && c;"));
+        assertEquals("(BINARY & (NAME a) (BINARY == (NAME b) (NAME c)))", tree("a & b == c;"));
+        assertEquals("(BINARY < (BINARY << (NAME a) (LITERAL 1)) (BINARY + (NAME b) (LITERAL 2)))", tree("a << 1 < b + 2;"));
+        assertEquals("(BINARY | (NAME a) (BINARY ^ (NAME b) (BINARY & (NAME c) (NAME d))))", tree("a | b ^ c & d;"));
+    }
+
+    @Test
+    void testAssociativity() {
+        assertEquals("(BINARY - (BINARY - (NAME a) (NAME b)) (NAME c))", tree("a - b - c;"));
+        assertEquals("(BINARY = (NAME a) (BINARY += (NAME b) (NAME c)))", tree("a = b += c;"));
+        assertEquals("(CONDITIONAL ? (NAME a) (NAME b) (CONDITIONAL ? (NAME c) (NAME d) (NAME e)))", tree("a ? b : c ? d : e;"));
+        assertEquals("(CONDITIONAL ? (NAME a) (CONDITIONAL ? (NAME b) (NAME c) (NAME d)) (NAME e))", tree("a ? b ? c : d : e;"));
+    }
+
+    @Test
+    void testConditionalAndAssignment() {
+        assertEquals("(BINARY = (NAME x) (CONDITIONAL ? (BINARY > (NAME a) (NAME b)) (NAME a) (BINARY + (NAME b) (LITERAL 1))))",
+                tree("x = a > b ? a : b + 1;"));
+        assertEquals("(CONDITIONAL ? (NAME a) (BINARY = (NAME b) (NAME c)) (NAME d))", tree("a ? b = c : d;"));
+        assertEquals("(BINARY = (CONDITIONAL ? (NAME a) (NAME b) (NAME c)) (NAME d))", tree("a ? b : c = d;"));
+    }
+
+    @Test
+    void testUnaryPostfixAndMember() {
+        assertEquals("(BINARY * (UNARY - (NAME a)) (NAME b))", tree("-a * b;"));
+        assertEquals("(UNARY ! (POSTFIX ++ (NAME a)))", tree("!a++;"));
+        assertEquals("(BINARY = (UNARY * (NAME p)) (UNARY & (UNARY ~ (NAME x))))", tree("*p = &~x;"));
+        assertEquals("(BINARY + (MEMBER -> (MEMBER -> (NAME p) (NAME next)) (NAME v)) (LITERAL 1))", tree("p->next->v + 1;"));
+        assertEquals("(UNARY ++ (UNARY -- (NAME a)))", tree("++--a;"));
+    }
+
+    @Test
+    void testParenthesesGroup() {
+        assertEquals("(BINARY * (PAREN ( (BINARY + (NAME a) (NAME b))) (NAME c))", tree("(a + b) * c;"));
+        assertEquals("(PAREN ( (CONDITIONAL ? (NAME a) (NAME b) (NAME c)))", tree("(a ? b : c);"));
+    }
+
+    @Test
+    void testDeepNestingUsesHeapNotStack() {
+        int depth = 200_000;
+        String body = "a = " + "(".repeat(depth) + "-b" + " + c)".repeat(depth) + ";";
+        Parser parser = parse(body);
+        assertFalse(parser.hasErrors());
+        assertTrue(parser.getAst().size() > 3 * depth);
+    }
+
+    @Test
+    void testErrorsInsideExpressions() {
+        assertEquals(List.of("1:24: missing ')' in expression"), parse("a = (b + c;").getErrors());
+        assertEquals(List.of("1:23: expected ':' in conditional expression"), parse("a = b ? c;").getErrors());
+        assertEquals(List.of("1:19: expected member name after '->'"), parse("p -> 1;").getErrors());
+        assertEquals(List.of("1:18 <OPERATOR:=> -> unexpected token inside expression"), parse("a = = b;").getErrors());
+    }
+}
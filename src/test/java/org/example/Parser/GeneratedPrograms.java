@@ -0,0 +1,43 @@
+package org.example.Parser;
+
+/** Regular, valid programs of many small functions, for tests that need volume rather than variety. */
+public final class GeneratedPrograms {
+    private static final String[] TYPES = {"int", "char", "double", "void"};
+
+    private GeneratedPrograms() {
+    }
+
+    /**
+     * Functions {@code int f0()} to {@code f<n-1>()}, each with two locals, an if/else and a return, after a leading
+     * line comment and with a block and a line comment in every body.
+     */
+    public static String functions(int functions) {
+        StringBuilder sb = new StringBuilder("// generated\n");
+        for (int f = 0; f < functions; f++) {
+            sb.append("int f").append(f).append("() {\n")
+              .append("  /* locals */ int a, b;\n")
+              .append("  if (a == ").append(f).append(") { a = a + 1; } else { b = (2.5 * a); }\n")
+              .append("  return a; // result\n")
+              .append("}\n");
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Functions of every return type doing arithmetic over int, double and char locals. Every tenth function has one
+     * type error of each common kind, five in all.
+     */
+    public static String typed(int functions) {
+        StringBuilder sb = new StringBuilder();
+        for (int f = 0; f < functions; f++) {
+            String type = TYPES[f % TYPES.length];
+            sb.append(type).append(" f").append(f).append("() {\n")
+              .append("  int a; double d; char c;\n")
+              .append("  a = a * 3 + c % 7; d = d / 2.5 + a;\n")
+              .append("  if (a < d && c) { int a; a = ").append(f).append(" << 2; } else { d = -d; }\n");
+            if (f % 10 == 0) sb.append("  a = \"text\"; d = d % 2; a = f0 + 1; 5 = a; ~d;\n");
+            sb.append(type.equals("void") ? "  a++;\n" : "  return a;\n").append("}\n");
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,70 @@
+package org.example.Parser;
+
+import org.example.Scanner.IncrementalLexer;
+import org.example.Scanner.Scanner;
+import org.example.Tokens.TokenBuffer;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.example.Tokens.TokenAssertions.assertSameTokens;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IncrementalParserTest {
+
+    @Test
+    void testSingleEditReparsesOnlyTheEditedFunction() {
+        String code = GeneratedPrograms.functions(50);
+        IncrementalLexer lexer = new IncrementalLexer(code);
+        IncrementalParser parser = new IncrementalParser(lexer.getTokens());
+        assertFalse(parser.hasErrors());
+
+        int at = code.indexOf("return a;", code.indexOf("int f25()"));
+        IncrementalLexer.Edit edit = lexer.edit(at + "return a".length(), 1, "");
+        assertTrue(edit.newTo() - edit.from() <= 3, "only the edited statement should be re-lexed");
+        parser.apply(edit.tokens(), edit.from(), edit.oldTo(), edit.newTo());
+
+        assertEquals(1, parser.getLastReparsedItems());
+        Parser full = new Parser(Scanner.TokenizeToBuffer(lexer.getSource()));
+        full.parseProgram();
+        assertTrue(parser.hasErrors());
+        assertEquals(full.getErrors(), parser.getErrors());
+    }
+
+    @Test
+    void testRandomEditsMatchFullRun() {
+        String[] fragments = {
+                "", " ", "\n", "x", "1", "e", ".", "5", "+", "=", "==", ";", "{", "}", "(", ")", "int ", "if ", "else ",
+                "return ", "/*", "*/", "//", "\"s\"", "'c'", "int g() { return 1; }\n", "a = b + 2;", "0x", "3.14e-", ",",
+        };
+        Random random = new Random(1234);
+        for (int round = 0; round < 40; round++) {
+            IncrementalLexer lexer = new IncrementalLexer(GeneratedPrograms.functions(6));
+            IncrementalParser parser = new IncrementalParser(lexer.getTokens());
+            for (int step = 0; step < 60; step++) {
+                String source = lexer.getSource();
+                int offset = random.nextInt(source.length() + 1);
+                int removed = Math.min(random.nextInt(6), source.length() - offset);
+                String inserted = fragments[random.nextInt(fragments.length)];
+                String edited = source.substring(0, offset) + inserted + source.substring(offset + removed);
+
+                TokenBuffer expected;
+                try {
+                    expected = Scanner.TokenizeToBuffer(edited);
+                } catch (IllegalArgumentException e) {
+                    assertThrows(IllegalArgumentException.class, () -> lexer.edit(offset, removed, inserted));
+                    assertEquals(source, lexer.getSource(), "a failed edit must leave the lexer unchanged");
+                    continue;
+                }
+                IncrementalLexer.Edit edit = lexer.edit(offset, removed, inserted);
+                assertEquals(edited, lexer.getSource());
+                assertSameTokens(expected, edit.tokens());
+
+                parser.apply(edit.tokens(), edit.from(), edit.oldTo(), edit.newTo());
+                Parser full = new Parser(expected);
+                full.parseProgram();
+                assertEquals(full.getErrors(), parser.getErrors(), "round " + round + " step " + step);
+            }
+        }
+    }
+}
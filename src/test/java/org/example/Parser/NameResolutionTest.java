@@ -0,0 +1,77 @@
+package org.example.Parser;
+
+import org.example.Scanner.Scanner;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NameResolutionTest {
+
+    private static List<String> errors(String code) {
+        Parser parser = new Parser(Scanner.TokenizeToBuffer(code)).setResolveNames(true);
+        parser.parseProgram();
+        return parser.getErrors();
+    }
+
+    @Test
+    void testScopesShadowAndUnwind() {
+        SymbolTable table = new SymbolTable();
+        assertEquals(SymbolTable.UNDECLARED, table.declare(3, 10));
+        table.pushScope();
+        assertEquals(SymbolTable.UNDECLARED, table.declare(3, 20));
+        assertEquals(SymbolTable.UNDECLARED, table.declare(500, 21));
+        assertEquals(20, table.declare(3, 22));
+        assertEquals(20, table.lookup(3));
+        table.popScope();
+        assertEquals(10, table.lookup(3));
+        assertEquals(SymbolTable.UNDECLARED, table.lookup(500));
+        assertEquals(0, table.depth());
+        assertThrows(IllegalStateException.class, table::popScope);
+    }
+
+    @Test
+    void testDeclaredNamesResolve() {
+        assertEquals(List.of(), errors("int f() { int a, b; a = b; { int a; a = 1; } if (a) { int c; c = a; } return a; }"
+                + "int main() { int x; x = main; return x; }"));
+        // without resolution the same code parses silently
+        Parser parser = new Parser(Scanner.TokenizeToBuffer("int f() { return y; }"));
+        parser.parseProgram();
+        assertFalse(parser.hasErrors());
+    }
+
+    @Test
+    void testUndeclaredAndDuplicateNamesAreReported() {
+        assertEquals(List.of(
+                "1:22 <IDENTIFIER:y> -> use of undeclared identifier 'y'",
+                "1:33 <IDENTIFIER:a> -> 'a' is already declared in this scope",
+                "1:58 <IDENTIFIER:c> -> use of undeclared identifier 'c'",
+                "1:66 <IDENTIFIER:f> -> 'f' is already declared in this scope",
+                "1:79 <IDENTIFIER:y> -> use of undeclared identifier 'y'"),
+                errors("int f() { int a; a = y + y; int a; { int c; } return a + c; }"
+                        + "int f() { return y; }"));
+    }
+
+    @Test
+    void testNameErrorsRespectTheBudget() {
+        Parser parser = new Parser(Scanner.TokenizeToBuffer("int f() { a; b; c; d; }")).setResolveNames(true).setMaxErrors(2);
+        parser.parseProgram();
+        assertEquals(2, parser.getErrorCount());
+        assertTrue(parser.reachedErrorLimit());
+    }
+
+    @Test
+    void testFunctionWithManyLocals() {
+        int locals = 50_000;
+        StringBuilder sb = new StringBuilder("int big() {\n");
+        for (int i = 0; i < locals; i++) sb.append("  int v").append(i).append(";\n");
+        for (int i = 0; i < locals; i++) sb.append("  { int v").append(i).append("; v").append(i).append(" = v").append(locals - 1 - i).append("; }\n");
+        sb.append("  int v7;\n  return w;\n}\n");
+
+        List<String> errors = errors(sb.toString());
+        assertEquals(2, errors.size(), errors.toString());
+        assertTrue(errors.get(0).endsWith("'v7' is already declared in this scope"));
+        assertTrue(errors.get(1).endsWith("use of undeclared identifier 'w'"));
+    }
+}
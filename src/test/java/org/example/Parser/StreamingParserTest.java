@@ -0,0 +1,126 @@
+package org.example.Parser;
+
+import org.example.Scanner.Scanner;
+import org.junit.jupiter.api.Test;
+
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StreamingParserTest {
+
+    private static List<String> fullParse(String code, int maxErrors) {
+        Parser parser = new Parser(Scanner.TokenizeToBuffer(code)).setMaxErrors(maxErrors).setResolveNames(true);
+        parser.parseProgram();
+        return parser.getErrors();
+    }
+
+    private static List<String> streamingParse(String code, int maxErrors) {
+        // a tiny read buffer, so tokens are cut at every possible place
+        StreamingParser parser = new StreamingParser(new StringReader(code), 7).setMaxErrors(maxErrors).setResolveNames(true);
+        parser.parseProgram();
+        return parser.getErrors();
+    }
+
+    @Test
+    void testSameErrorsAsAFullParse() {
+        String[] sources = {
+                GeneratedPrograms.functions(20),
+                GeneratedPrograms.functions(3) + "int broken() { int ; x = ; }\n" + GeneratedPrograms.functions(2),
+                "int f() { return 1; }\nint g( { }\nint h() { return y; }\n",
+                "int f() { if (a) { return 1; }\nint g() { return 2; }\n",
+                "junk junk ; int main() { int a; a = 1; return a; }\n  stray } }\n",
+                GeneratedPrograms.functions(4) + "int tail() { /* never closed\n",
+                "int s() { char *p; p = \"open\n",
+                "int main() {\r\n  int x;\r\n  x = 1 +;\r\n  return x;\r\n}\r\n",
+                "",
+                "int",
+        };
+        for (String code : sources) {
+            assertEquals(fullParse(code, Integer.MAX_VALUE), streamingParse(code, Integer.MAX_VALUE), code);
+            assertEquals(fullParse(code, 2), streamingParse(code, 2), code);
+        }
+        // positions survive the text before them being dropped
+        assertTrue(streamingParse(sources[1], 100).get(0).startsWith("17:20 "));
+    }
+
+    @Test
+    void testRandomEditsMatchAFullParse() {
+        String[] fragments = {
+                " ", "\n", "x", "1", ";", "{", "}", "(", ")", "int ", "if ", "else ", "return ", "/*", "*/", "//",
+                "\"s\"", "int g() { return 1; }\n", "a = b + 2;", ",", "main",
+        };
+        Random random = new Random(42);
+        String base = GeneratedPrograms.functions(8);
+        for (int round = 0; round < 300; round++) {
+            StringBuilder code = new StringBuilder(base);
+            for (int edit = 0; edit < 3; edit++) {
+                code.insert(random.nextInt(code.length() + 1), fragments[random.nextInt(fragments.length)]);
+            }
+            String text = code.toString();
+            List<String> expected;
+            try {
+                expected = fullParse(text, 100);
+            } catch (IllegalArgumentException e) {
+                assertThrows(IllegalArgumentException.class, () -> streamingParse(text, 100));
+                continue;
+            }
+            assertEquals(expected, streamingParse(text, 100), text);
+        }
+    }
+
+    // many small functions and one large one, generated as they are read so the file never exists as a whole
+    private static final class GeneratedSource extends Reader {
+        private final int functions;
+        private final int large;
+        private int next;
+        private String pending = "";
+        private int at;
+
+        GeneratedSource(int functions, int large) {
+            this.functions = functions;
+            this.large = large;
+        }
+
+        @Override
+        public int read(char[] buf, int off, int len) {
+            while (at == pending.length()) {
+                if (next == functions) return -1;
+                pending = function(next++);
+                at = 0;
+            }
+            int n = Math.min(len, pending.length() - at);
+            pending.getChars(at, at + n, buf, off);
+            at += n;
+            return n;
+        }
+
+        private String function(int f) {
+            StringBuilder sb = new StringBuilder("int f").append(f).append("() { int a; a = ").append(f).append(";");
+            // 4 tokens per statement
+            if (f == functions / 2) sb.append(" a = a + 1;".repeat(large / 6));
+            return sb.append(" return a; }\n").toString();
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    @Test
+    void testWindowGrowsWithTheLargestFunctionOnly() {
+        StreamingParser parser = new StreamingParser(new GeneratedSource(100_000, 6_000)).setResolveNames(true);
+        parser.parseProgram();
+        assertEquals(List.of(), parser.getErrors());
+        assertEquals(100_000L * 16 + 6_000, parser.getTokenCount());
+        // the large function and nothing else, never the 1.6 million tokens of the file
+        assertEquals(16 + 6_000, parser.getLargestWindow());
+
+        StreamingParser small = new StreamingParser(new GeneratedSource(1_000, 0));
+        small.parseProgram();
+        assertEquals(16, small.getLargestWindow());
+    }
+}
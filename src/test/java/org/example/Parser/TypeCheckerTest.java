@@ -0,0 +1,109 @@
+package org.example.Parser;
+
+import org.example.Scanner.Scanner;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TypeCheckerTest {
+
+    private static Ast parse(String code) {
+        Parser parser = new Parser(Scanner.TokenizeToBuffer(code), true);
+        parser.parseProgram();
+        assertFalse(parser.hasErrors(), parser.getErrors().toString());
+        return parser.getAst();
+    }
+
+    private static List<String> errors(String code) {
+        return new TypeChecker(parse(code)).check().getErrors();
+    }
+
+    // the message part of each error
+    private static List<String> messages(String code) {
+        return errors(code).stream().map(e -> e.substring(e.indexOf("-> ") + 3)).toList();
+    }
+
+    @Test
+    void testExpressionTypes() {
+        Ast ast = parse("double f() { char c; long l; float x; c + c; l * 2; x + 1; 1.5 * c; 'a'; \"s\" + 1; c < x; 4000000000; 0b101; 0b100000000000000000000000000000000; }");
+        TypeChecker checker = new TypeChecker(ast).check();
+        assertEquals(List.of(), checker.getErrors());
+        List<Type> types = new ArrayList<>();
+        for (int n = 0; n < ast.size(); n++) {
+            if (ast.kind(n) == NodeKind.EXPRESSION_STATEMENT) types.add(checker.type(ast.firstChild(n)));
+        }
+        assertEquals(List.of(Type.INT, Type.LONG, Type.FLOAT, Type.DOUBLE, Type.INT, Type.STRING, Type.INT, Type.LONG, Type.INT, Type.LONG), types);
+        assertNull(checker.type(ast.root()));
+    }
+
+    @Test
+    void testWellTypedProgramHasNoErrors() {
+        assertEquals(List.of(), errors("int main() { int a, b; double d; a = b = 2; d = a; a = d; a += 1.5; a %= 3; "
+                + "if (a == d || !a) { char c; c = a ? 'x' : 2.0; (a) = c; } a++; --d; return d; }"
+                + "void g() { int x; x = 1; }"));
+    }
+
+    @Test
+    void testTypeErrorsAreReported() {
+        assertEquals(List.of(
+                "1:30 <OPERATOR:=> -> incompatible types in assignment",
+                "1:43 <OPERATOR:%> -> invalid operand types for binary operator",
+                "1:49 <IDENTIFIER:f> -> function 'f' used as a value",
+                "1:59 <OPERATOR:=> -> left operand of assignment is not assignable",
+                "1:64 <OPERATOR:~> -> invalid operand type for unary operator",
+                "1:68 <KEYWORD:return> -> return value does not match function type 'int'"),
+                errors("int f() { int a; double d; a = \"s\"; d = d % 2; (f) + 1; 1 = a; ~d; return \"s\"; }"));
+        assertEquals(List.of(
+                "variable 'v' declared void",
+                "'&' needs pointer types, which are not supported",
+                "branches of '?:' have incompatible types",
+                "'->' needs a struct pointer",
+                "invalid operand types for binary operator",
+                "void function returns a value"),
+                messages("void g() { void v; int a; &a; a ? 1 : \"s\"; a->x; a << 1.0; return 1; }"));
+    }
+
+    @Test
+    void testErrorsDoNotCascade() {
+        // the first error makes the whole enclosing expression ERROR, and undeclared names are left to the parser
+        assertEquals(List.of("invalid operand types for binary operator"), messages("int f() { int a; a = (1.5 % 2) * 3 + a; }"));
+        assertEquals(List.of(), messages("int f() { int a; a = missing + 1; return missing; }"));
+    }
+
+    @Test
+    void testScopesFollowBlocks() {
+        // the local f hides the function only inside its block
+        assertEquals(List.of("left operand of assignment is not assignable"),
+                messages("int f() { double x; { char x; x = 1; } x = 2.5; { int f; f = 1; } f = \"s\"; }"));
+    }
+
+    @Test
+    void testParallelCheckMatchesSequential() {
+        Ast ast = parse(GeneratedPrograms.typed(4000));
+        TypeChecker sequential = new TypeChecker(ast).check();
+        assertEquals(4000, sequential.getFunctionCount());
+        // every tenth function has five errors
+        assertEquals(400 * 5, sequential.getErrorCount());
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (int run = 0; run < 3; run++) {
+                assertEquals(sequential.getErrors(), new TypeChecker(ast).check(pool).getErrors());
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void testManyFunctionsGiveTheSameErrorCount() {
+        Ast ast = parse(GeneratedPrograms.typed(20_000));
+        int errors = new TypeChecker(ast).check().getErrorCount();
+        assertEquals(2000 * 5, errors);
+        assertEquals(errors, new TypeChecker(ast).check(ForkJoinPool.commonPool()).getErrorCount());
+    }
+}
@@ -0,0 +1,203 @@
+package org.example.Preprocessor;
+
+import org.example.Parser.Parser;
+import org.example.Scanner.Scanner;
+import org.example.Tokens.TokenBuffer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PreprocessorTest {
+
+    private static String render(TokenBuffer tokens) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < tokens.size(); i++) {
+            if (i > 0) sb.append(' ');
+            sb.append(tokens.getValue(i));
+        }
+        return sb.toString();
+    }
+
+    private static String run(String code) throws Exception {
+        return render(new Preprocessor(List.of(), new HeaderCache()).preprocess(code, null));
+    }
+
+    @Test
+    void testCodeWithoutDirectivesIsUnchanged() throws Exception {
+        String code = "int main() { /* c */ int x; x = 1 + 2; // tail\n return x; }";
+        TokenBuffer expected = Scanner.TokenizeToBuffer(code);
+        Preprocessor preprocessor = new Preprocessor(List.of(), new HeaderCache());
+        TokenBuffer actual = preprocessor.preprocess(code, null);
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.getKind(i), actual.getKind(i));
+            assertEquals(expected.getValue(i), actual.getValue(i));
+        }
+        // with nothing to do, the scanner's buffer is handed back as it is
+        assertSame(preprocessor.getSourceTokens(), actual);
+        assertSame(code, actual.getSource());
+    }
+
+    @Test
+    void testOnlyExpansionsAreGivenNewText() throws Exception {
+        String code = "#define N 40 + 2\nint main() { /* kept */ return N; }\n";
+        Preprocessor preprocessor = new Preprocessor(List.of(), new HeaderCache());
+        TokenBuffer tokens = preprocessor.preprocess(code, null);
+        assertEquals("int main ( ) { return 40 + 2 ; }", render(tokens));
+        TokenBuffer lexed = preprocessor.getSourceTokens();
+        // tokens outside the invocation point into the file's own text, comments with them
+        for (int i = 0; i < 6; i++) assertEquals(lexed.getStart(i + 1), tokens.getStart(i));
+        assertEquals(lexed.getStart(lexed.size() - 2), tokens.getStart(tokens.size() - 2));
+        assertTrue(tokens.getStart(6) >= code.length());
+        assertEquals("/* kept */", tokens.getTriviaValue(tokens.getFirstTrivia(5)));
+        assertEquals("2:32", tokens.getLocation(7));
+
+        // a macro defined from outside needs the expanding path even without directives
+        assertEquals("int x = 7 ;", render(new Preprocessor(List.of(), new HeaderCache()).define("N", "7").preprocess("int x = N;", null)));
+    }
+
+    @Test
+    void testCommentsStayTriviaThroughExpansion() throws Exception {
+        String code = "#define F(a) a /* in body */ + 1\nint x = F(/* in argument */ 2) /* after */;\n";
+        Preprocessor preprocessor = new Preprocessor(List.of(), new HeaderCache()).define("G", "3 // from outside");
+        TokenBuffer tokens = preprocessor.preprocess(code, null);
+        assertEquals("int x = 2 + 1 ;", render(tokens));
+        assertEquals(1, tokens.getTriviaCount());
+        assertEquals("/* after */", tokens.getTriviaValue(0));
+        assertEquals("int y = 3 ;", render(preprocessor.preprocess("int y = G;", null)));
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> run("#define C(a, b) a ## b\nC(/, /)"));
+        assertTrue(e.getMessage().contains("does not give a valid token"), e.getMessage());
+    }
+
+    @Test
+    void testDirectiveEndsAtEndOfLine() {
+        assertEquals("[<Token Type: PREPROCESSOR,  Value: #define X 1>, <Token Type: KEYWORD,  Value: int>]",
+                Scanner.Tokenize("#define X 1\nint").toString());
+        assertEquals(2, Scanner.Tokenize("#define X \\\n 1\nint").size());
+    }
+
+    @Test
+    void testObjectAndFunctionLikeMacros() throws Exception {
+        assertEquals("int x = 3 ;", run("#define N 3\nint x = N;"));
+        assertEquals("( ( a + 1 ) * ( a + 1 ) )", run("#define SQ(x) ((x) * (x))\nSQ(a + 1)"));
+        assertEquals("g ( 1 , ( 2 , 3 ) )", run("#define F(a, b) g(a, b)\nF(1, (2, 3))"));
+        assertEquals("f ;", run("#define f(x) x\nf;"));
+        assertEquals("x", run("#define E() x\nE()"));
+        assertEquals("printf ( \"%d\" , 1 , 2 )", run("#define LOG(fmt, ...) printf(fmt, __VA_ARGS__)\nLOG(\"%d\", 1, 2)"));
+        assertEquals("7", run("#define A B\n#define B 7\nA"));
+        assertEquals("int y ;", run("#define X 1\n#undef X\nint y;"));
+    }
+
+    @Test
+    void testSelfReferenceIsNotExpandedAgain() throws Exception {
+        assertEquals("x + 1", run("#define x x + 1\nx"));
+        assertEquals("f + f ( 2 )", run("#define f(x) x + f\nf(f)(2)"));
+        assertEquals("a b a", run("#define a b a\n#define b a b\na"));
+    }
+
+    @Test
+    void testStringizeAndPaste() throws Exception {
+        assertEquals("\"a + \\\"b\\\"\"", run("#define S(x) #x\nS(a + \"b\")"));
+        assertEquals("xy1 = 2 ;", run("#define CAT(a, b) a ## b\nCAT(xy, 1) = 2;"));
+        assertEquals("1", run("#define N 1\n#define P(a, b) a ## b\nP(N,)"));
+        assertThrows(IllegalArgumentException.class, () -> run("#define P(a, b) a ## b\nP(+, ;)"));
+    }
+
+    @Test
+    void testConditionals() throws Exception {
+        assertEquals("a", run("#if 1 + 1 == 2\na\n#else\nb\n#endif"));
+        assertEquals("c", run("#define V 3\n#if V < 2\na\n#elif V < 3\nb\n#elif V == 3\nc\n#else\nd\n#endif"));
+        assertEquals("b", run("#ifdef MISSING\na\n#else\nb\n#endif"));
+        assertEquals("y", run("#define X\n#if defined(X) && !defined Y\n#ifndef X\nx\n#else\ny\n#endif\n#endif"));
+        assertEquals("ok", run("#if 0\n#if 1/0\n#error no\n#endif\n#else\nok\n#endif"));
+        assertEquals("ok", run("#if 0 && 1/0 || 0x10 == 16 && (1 ? 2 : 1/0) == 2\nok\n#endif"));
+        assertEquals("", run("#if UNDEFINED_NAME\nbad\n#endif"));
+    }
+
+    @Test
+    void testErrorsNameTheLine() {
+        assertEquals("line 2: #error stop here",
+                assertThrows(IllegalArgumentException.class, () -> run("int a;\n#error stop here\n")).getMessage());
+        assertEquals("line 2: unterminated #if",
+                assertThrows(IllegalArgumentException.class, () -> run("#if 1\nint a;")).getMessage());
+        assertTrue(assertThrows(IllegalArgumentException.class, () -> run("#endif")).getMessage().contains("#endif without #if"));
+        assertTrue(assertThrows(IllegalArgumentException.class, () -> run("#else\n")).getMessage().contains("#else without #if"));
+        assertTrue(assertThrows(IllegalArgumentException.class, () -> run("#define F(a) a\nF(1, 2)")).getMessage()
+                .contains("macro 'F' expects 1 argument, got 2"));
+        assertTrue(assertThrows(IllegalArgumentException.class, () -> run("#include \"nope.h\"")).getMessage()
+                .contains("'nope.h' not found"));
+        assertTrue(assertThrows(IllegalArgumentException.class, () -> run("#bogus")).getMessage()
+                .contains("unknown directive #bogus"));
+    }
+
+    @Test
+    void testIncludeSearchOrderAndGuards(@TempDir Path dir) throws Exception {
+        Path sys = Files.createDirectories(dir.resolve("sys"));
+        Path src = Files.createDirectories(dir.resolve("src"));
+        Files.writeString(sys.resolve("a.h"), "// guarded\n#ifndef A_H\n#define A_H\nint fromSys;\n#endif\n");
+        Files.writeString(src.resolve("a.h"), "int fromLocal;\n");
+        Files.writeString(sys.resolve("once.h"), "#pragma once\nint once;\n");
+        Files.writeString(src.resolve("main.c"),
+                "#include <a.h>\n#include <a.h>\n#include \"a.h\"\n#include \"once.h\"\n#include <once.h>\n"
+                        + "#define HDR <a.h>\n#include HDR\nint main() { return 0; }\n");
+
+        HeaderCache cache = new HeaderCache();
+        TokenBuffer tokens = new Preprocessor(List.of(sys), cache).preprocess(src.resolve("main.c"));
+        assertEquals("int fromSys ; int fromLocal ; int once ; int main ( ) { return 0 ; }", render(tokens));
+        // the guarded and #pragma once headers were looked up once each, the local one once
+        assertEquals(3, cache.misses());
+        assertEquals(0, cache.hits());
+
+        Parser parser = new Parser(tokens);
+        parser.parseProgram();
+        assertTrue(parser.getErrors().stream().noneMatch(e -> e.contains("PREPROCESSOR")), parser.getErrors().toString());
+    }
+
+    @Test
+    void testCacheIsSharedAndRefreshedOnModification(@TempDir Path dir) throws Exception {
+        Path header = dir.resolve("h.h");
+        Files.writeString(header, "#define V 1\n");
+        Path main = dir.resolve("main.c");
+        Files.writeString(main, "#include \"h.h\"\nint x = V;\n");
+
+        HeaderCache cache = new HeaderCache();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 32; i++) {
+                results.add(executor.submit(() -> render(new Preprocessor(List.of(), cache).preprocess(main))));
+            }
+            for (Future<String> r : results) assertEquals("int x = 1 ;", r.get());
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(1, cache.size());
+        assertEquals(1, cache.misses());
+        assertEquals(31, cache.hits());
+
+        Files.writeString(header, "#define V 2\n");
+        Files.setLastModifiedTime(header, FileTime.fromMillis(Files.getLastModifiedTime(header).toMillis() + 10_000));
+        assertEquals("int x = 2 ;", render(new Preprocessor(List.of(), cache).preprocess(main)));
+        assertEquals(2, cache.misses());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void testRecursiveIncludeIsStopped(@TempDir Path dir) throws Exception {
+        Path self = dir.resolve("self.h");
+        Files.writeString(self, "#include \"self.h\"\n");
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> new Preprocessor(List.of(), new HeaderCache()).preprocess(self));
+        assertTrue(e.getMessage().contains("#include nested too deeply"), e.getMessage());
+    }
+}
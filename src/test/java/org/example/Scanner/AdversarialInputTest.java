@@ -0,0 +1,129 @@
+package org.example.Scanner;
+
+import org.example.Parser.IncrementalParser;
+import org.example.Parser.Parser;
+import org.example.Preprocessor.HeaderCache;
+import org.example.Preprocessor.Preprocessor;
+import org.example.Tokens.Token;
+import org.example.Tokens.TokenBuffer;
+import org.example.Tokens.TokenKind;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.example.Tokens.TokenAssertions.assertSameTokens;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Inputs built to make a longest-match lexer rescan the same text over and over. Each one is a megabyte, which a
+ * linear lexer reads in milliseconds and a quadratic one not within hours, so the time limits are loose enough
+ * for a slow machine and still far below what a single rescan per position would take.
+ */
+public class AdversarialInputTest {
+    private static final int SIZE = 1 << 20;
+    private static final Duration LIMIT = Duration.ofSeconds(5);
+
+    private static String repeat(String piece) {
+        return piece.repeat(SIZE / piece.length());
+    }
+
+    // every way the scanner can be driven, each of which must finish in time and agree with the others
+    private static TokenBuffer lexEveryWay(String code) {
+        TokenBuffer tokens = assertTimeoutPreemptively(LIMIT, () -> Scanner.TokenizeToBuffer(code), "buffer");
+        assertTimeoutPreemptively(LIMIT, () -> assertSameTokens(tokens, Scanner.TokenizeToBuffer(SourceBytes.of(code))), "bytes");
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            assertTimeoutPreemptively(LIMIT, () -> assertSameTokens(tokens, new ParallelLexer(pool, 1 << 14).tokenize(code)), "parallel");
+        } finally {
+            pool.shutdown();
+        }
+        assertTimeoutPreemptively(LIMIT, () -> assertSameTokens(tokens, new IncrementalLexer(code).getTokens()), "incremental");
+        assertTimeoutPreemptively(LIMIT, () -> {
+            List<Token> streamed = new ArrayList<>();
+            try (TokenStream stream = new TokenStream(new StringReader(code), 64, true)) {
+                stream.forEachRemaining(t -> {
+                    if (t.getKind() != TokenKind.COMMENT) streamed.add(t);
+                });
+            }
+            assertEquals(tokens.size(), streamed.size());
+            if (streamed.isEmpty()) return;
+            Token last = streamed.get(streamed.size() - 1);
+            assertEquals(tokens.getKind(tokens.size() - 1), last.getKind());
+            assertEquals(tokens.getValue(tokens.size() - 1), last.getValue());
+        }, "stream");
+        return tokens;
+    }
+
+    private static void assertEndsUnterminated(TokenBuffer tokens, int start) {
+        int last = tokens.size() - 1;
+        assertEquals(TokenKind.ERROR, tokens.getKind(last));
+        assertEquals(start, tokens.getStart(last));
+        assertEquals(tokens.getSource().length(), tokens.getEnd(last));
+    }
+
+    @Test
+    void testManyUnclosedCommentOpeners() {
+        // each '/*' used to scan to the end, fall back to '/' and start over two chars later
+        assertEndsUnterminated(lexEveryWay(repeat("/* ")), 0);
+        assertEndsUnterminated(lexEveryWay("/*" + repeat("*")), 0);
+        String code = "int a; " + repeat("x /* ");
+        assertEndsUnterminated(lexEveryWay(code), code.indexOf("/*"));
+    }
+
+    @Test
+    void testUnclosedStringLiterals() {
+        assertEndsUnterminated(lexEveryWay("\"" + repeat("a")), 0);
+        // escaped quotes and a trailing escape never close it either
+        assertEndsUnterminated(lexEveryWay("\"" + repeat("\\\"")), 0);
+        assertEndsUnterminated(lexEveryWay("s = \"" + repeat("/* ") + "\\"), 4);
+        // closed strings full of comment openers are only strings
+        TokenBuffer closed = lexEveryWay(repeat("\"/*\" "));
+        assertEquals(SIZE / 5, closed.size());
+        assertEquals(TokenKind.STRING_LITERAL, closed.getKind(closed.size() - 1));
+    }
+
+    @Test
+    void testLongTokensAndFallbacks() {
+        // a leading 0 followed by digits could still become a float; it falls back to "0" once
+        TokenBuffer digits = lexEveryWay("0" + repeat("8"));
+        assertEquals(2, digits.size());
+        assertEquals(TokenKind.INTEGER_LITERAL, digits.getKind(1));
+        assertEquals(SIZE / 3 * 2, lexEveryWay(repeat("08 ")).size());
+        assertEquals(1, lexEveryWay("//" + repeat("/* \"")).getTriviaCount());
+        assertEquals(1, lexEveryWay("#define X" + repeat(" \\\n")).size());
+        assertEquals(SIZE / 4 * 3, lexEveryWay(repeat("1e+ ")).size());
+        assertTimeoutPreemptively(LIMIT, () -> assertThrows(IllegalArgumentException.class,
+                () -> Scanner.TokenizeToBuffer("#" + repeat(" ") + "\n")));
+    }
+
+    @Test
+    void testUnterminatedInputIsReportedOnce(@TempDir Path dir) throws Exception {
+        String code = "int main() {\n    return 0;\n}\n/* never closed\nint other() { return 1; }\n";
+        Parser parser = new Parser(Scanner.TokenizeToBuffer(code));
+        parser.parseProgram();
+        assertEquals(List.of("4:1: unterminated comment"), parser.getErrors());
+        assertEquals(parser.getErrors(), new IncrementalParser(Scanner.TokenizeToBuffer(code)).getErrors());
+
+        Parser string = new Parser(Scanner.TokenizeToBuffer("int main() { char *s; s = \"abc; }"));
+        string.parseProgram();
+        assertEquals("1:27: unterminated string literal", string.getErrors().get(string.getErrorCount() - 1));
+
+        // closing it again gives the same tokens as lexing the fixed text
+        IncrementalLexer lexer = new IncrementalLexer(code);
+        IncrementalLexer.Edit edit = lexer.edit(code.indexOf("\nint other"), 0, " */");
+        assertSameTokens(Scanner.TokenizeToBuffer(lexer.getSource()), edit.tokens());
+
+        Files.writeString(dir.resolve("bad.h"), "int x;\n/* oops\n");
+        Files.writeString(dir.resolve("main.c"), "#include \"bad.h\"\nint main() { return 0; }\n");
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> new Preprocessor(List.of(), new HeaderCache()).preprocess(dir.resolve("main.c")));
+        assertTrue(e.getMessage().endsWith("bad.h:2: unterminated comment"), e.getMessage());
+    }
+}
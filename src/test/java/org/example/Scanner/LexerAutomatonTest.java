@@ -0,0 +1,146 @@
+package org.example.Scanner;
+
+import org.example.Tokens.Token;
+import org.example.Tokens.TokenBuffer;
+import org.example.Tokens.TokenKind;
+import org.example.Tokens.TokenType;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LexerAutomatonTest {
+
+    // the original per-pattern lookingAt() scanner, kept as the reference the automaton must agree with; the one
+    // difference is that input ending inside a block comment or string is a single ERROR token
+    private static List<Token> referenceTokenize(String code) {
+        List<Token> tokens = new ArrayList<>();
+        TokenType[] order = Arrays.stream(TokenType.values()).filter(t -> t != TokenType.ERROR).toArray(TokenType[]::new);
+        Pattern[] patterns = new Pattern[order.length];
+        for (int i = 0; i < order.length; ++i) {
+            patterns[i] = Pattern.compile(order[i].regularExpressionFactory(), Pattern.DOTALL);
+        }
+        Pattern string = patterns[TokenType.STRING_LITERAL.ordinal()];
+        int pos = 0;
+        while (pos < code.length()) {
+            boolean openComment = code.startsWith("/*", pos) && code.indexOf("*/", pos + 2) < 0;
+            boolean openString = code.charAt(pos) == '"' && !string.matcher(code).region(pos, code.length()).lookingAt();
+            if (openComment || openString) {
+                tokens.add(new Token(TokenKind.ERROR, code.substring(pos)));
+                break;
+            }
+            int bestIndex = -1;
+            int bestEnd = -1;
+            for (int i = 0; i < order.length; ++i) {
+                Matcher m = patterns[i].matcher(code);
+                m.region(pos, code.length());
+                if (m.lookingAt() && (m.end() > bestEnd || (m.end() == bestEnd && bestIndex > i))) {
+                    bestIndex = i;
+                    bestEnd = m.end();
+                }
+            }
+            if (bestIndex == -1) {
+                throw new IllegalArgumentException("Unexpected character at position " + pos + ": '" + code.charAt(pos) + "'");
+            }
+            if (order[bestIndex] != TokenType.WHITESPACE) {
+                tokens.add(new Token(order[bestIndex], code.substring(pos, bestEnd)));
+            }
+            pos = bestEnd;
+        }
+        return tokens;
+    }
+
+    private static String render(List<Token> tokens) {
+        StringBuilder sb = new StringBuilder();
+        for (Token t : tokens) sb.append(t).append(' ').append(t.getKind()).append('\n');
+        return sb.toString();
+    }
+
+    private static void assertSameTokens(String code) {
+        String expected;
+        try {
+            expected = render(referenceTokenize(code));
+        } catch (IllegalArgumentException e) {
+            IllegalArgumentException actual = assertThrows(IllegalArgumentException.class, () -> Scanner.Tokenize(code));
+            assertEquals(e.getMessage(), actual.getMessage());
+            return;
+        }
+        assertEquals(expected, render(Scanner.Tokenize(code)), "input: [" + code + "]");
+    }
+
+    @Test
+    void testEdgeCasesMatchRegexScanner() {
+        String[] inputs = {
+                "int main() { return 0; }",
+                "0int 1.5else doubles do double",
+                "/* a */ b */ // tail\nx",
+                "/**/ /***/ /* * / */",
+                "'\\'' '\\n' \"a\\\"b\" \"\"",
+                "0x1F 0xg 089 0b12 0b 1e+ 1e5 1.e5 .5 3.14e-2 1.",
+                "a->b <<= >>= && || != :: ? : . , ; [ ] ~ ^=",
+                "#include <stdio.h>\nint x;",
+                "#define F(a) \\\n  (a)\nint x; # define\r\n#",
+                "x # y",
+                "mainly main_ _main inline int8",
+        };
+        for (String input : inputs) {
+            assertSameTokens(input);
+        }
+    }
+
+    @Test
+    void testRandomInputsMatchRegexScanner() {
+        String[] pieces = {
+                "int", "if", "else", "return", "main", "do", "double", "x", "_y1", "0", "0x", "7", "12", "3.", ".5", "e",
+                "E", "+", "-", "*", "/", "=", "<", ">", "&", "|", "!", "?", ":", ";", ",", "(", ")", "{", "}", ".",
+                "\"", "'", "\\", "/*", "*/", "//", "#", "\n", " ", "\t", "a", "b", "f",
+        };
+        Random random = new Random(42);
+        for (int round = 0; round < 3000; round++) {
+            StringBuilder sb = new StringBuilder();
+            int len = 1 + random.nextInt(12);
+            for (int i = 0; i < len; i++) {
+                sb.append(pieces[random.nextInt(pieces.length)]);
+            }
+            assertSameTokens(sb.toString());
+        }
+    }
+
+    @Test
+    void testEverySpelledKindLexesToItself() {
+        for (TokenKind kind : TokenKind.values()) {
+            if (kind.getText() == null) continue;
+            List<Token> tokens = Scanner.Tokenize(kind.getText());
+            assertEquals(1, tokens.size(), kind.getText());
+            assertEquals(kind, tokens.get(0).getKind());
+            TokenBuffer buffer = Scanner.TokenizeToBuffer(" " + kind.getText() + " ");
+            assertEquals(kind, buffer.getKind(0));
+        }
+        assertEquals(TokenKind.IDENTIFIER, Scanner.Tokenize("iff").get(0).getKind());
+        assertEquals(TokenKind.OP_COLON, Scanner.Tokenize(":").get(0).getKind());
+    }
+
+    @Test
+    void testEveryKeywordHasItsOwnKind() {
+        String regex = TokenType.KEYWORD.regularExpressionFactory();
+        String words = regex.substring(regex.indexOf("(?:") + 3, regex.lastIndexOf(')'));
+        for (String word : words.split("\\|")) {
+            TokenKind kind = TokenKind.of(TokenType.KEYWORD, word);
+            assertNotEquals(TokenKind.KEYWORD, kind, word);
+            assertEquals(word, kind.getText());
+        }
+    }
+
+    @Test
+    void testAutomatonIsSharedAndMinimized() {
+        LexerAutomaton automaton = LexerAutomaton.get();
+        assertSame(automaton, LexerAutomaton.get());
+        assertTrue(automaton.stateCount() > 1, "automaton should have live states");
+    }
+}
@@ -0,0 +1,63 @@
+package org.example.Scanner;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.example.Tokens.TokenAssertions.assertSameTokens;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ParallelLexerTest {
+
+    // chunk boundaries land inside comments, string literals and identifiers all the time with tiny chunks
+    private static String trickySource(Random random, int pieces) {
+        String[] parts = {
+                "int x = 42;\n", "/* block comment with \"quotes\" and 'c' and // slashes */", "// line comment /* not a block\n",
+                "char* s = \"string with /* fake comment */ and \\\" escape\";\n", "'\\''", "y = x+++--z;", " ", "\t\n",
+                "3.14e-2 ", "0x1F", "identifier_name_that_is_long ", "a->b", "if (a >= b) { return 0; } else { }\n",
+        };
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < pieces; i++) sb.append(parts[random.nextInt(parts.length)]);
+        return sb.toString();
+    }
+
+    @Test
+    void testTinyChunksMatchSequentialLexing() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            Random random = new Random(99);
+            for (int round = 0; round < 200; round++) {
+                String code = trickySource(random, 40);
+                ParallelLexer lexer = new ParallelLexer(pool, 1 + random.nextInt(64));
+                assertSameTokens(Scanner.TokenizeToBuffer(code), lexer.tokenize(code));
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void testPreprocessorLineAndErrorsMatchSequentialLexing() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            ParallelLexer lexer = new ParallelLexer(pool, 8);
+            String withDirective = "int a;\nint b;\n#define X 1\nint c = X;\nint d;\n".repeat(10);
+            assertSameTokens(Scanner.TokenizeToBuffer(withDirective), lexer.tokenize(withDirective));
+
+            String bad = "int a;\n".repeat(20) + "@" + "int b;\n".repeat(20);
+            IllegalArgumentException expected = assertThrows(IllegalArgumentException.class, () -> Scanner.TokenizeToBuffer(bad));
+            IllegalArgumentException actual = assertThrows(IllegalArgumentException.class, () -> lexer.tokenize(bad));
+            assertEquals(expected.getMessage(), actual.getMessage());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void testLargeSourceUsesDefaultChunking() {
+        String code = trickySource(new Random(5), 200_000);
+        assertTrue(code.length() > 2 * ParallelLexer.MIN_CHUNK_CHARS);
+        assertSameTokens(Scanner.TokenizeToBuffer(code), Scanner.TokenizeParallel(code));
+    }
+}
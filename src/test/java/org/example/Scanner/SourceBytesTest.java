@@ -0,0 +1,131 @@
+package org.example.Scanner;
+
+import org.example.Driver.BatchCompiler;
+import org.example.Tokens.TokenBuffer;
+import org.example.Tokens.TokenKind;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.example.Tokens.TokenAssertions.assertSameTokens;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SourceBytesTest {
+
+    // mapped text decodes its own values, so they are compared too
+    private static void assertSameTokensAndValues(TokenBuffer expected, TokenBuffer actual) {
+        assertSameTokens(expected, actual);
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.getValue(i), actual.getValue(i), "value of token " + i);
+        }
+    }
+
+    @Test
+    void testMappedAsciiLexesLikeAString(@TempDir Path dir) throws Exception {
+        String code = """
+                #define N 4
+                int main() { int a; double d; a = N << 2; d = 1.5e3; /* block */ return a >= 16 ? a : -a; } // done
+                char c() { char x; x = '\\n'; return x; }
+                """;
+        Path file = dir.resolve("a.c");
+        Files.writeString(file, code);
+        SourceBytes mapped = Scanner.mapInputFile(file);
+        assertEquals(code.length(), mapped.length());
+        assertEquals(code, mapped.toString());
+        assertSameTokensAndValues(Scanner.TokenizeToBuffer(code), Scanner.TokenizeToBuffer(mapped));
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            String large = code.repeat(500);
+            Files.writeString(file, large);
+            assertSameTokensAndValues(Scanner.TokenizeToBuffer(large), new ParallelLexer(pool, 256).tokenize(Scanner.mapInputFile(file)));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void testOffsetsAreBytePositionsInTheFile(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("crlf.c");
+        byte[] content = "int a;\r\nchar *s = \"hé ✓\"; // über\r\nint b;\r\n".getBytes(StandardCharsets.UTF_8);
+        Files.write(file, content);
+        TokenBuffer tokens = Scanner.TokenizeToBuffer(Scanner.mapInputFile(file));
+
+        assertEquals(8, tokens.getStart(3));
+        for (int i = 0; i < tokens.size(); i++) {
+            byte[] text = tokens.getValue(i).getBytes(StandardCharsets.UTF_8);
+            assertArrayEquals(text, Arrays.copyOfRange(content, tokens.getStart(i), tokens.getEnd(i)), "token " + i);
+        }
+        int literal = 7;
+        assertEquals(TokenKind.STRING_LITERAL, tokens.getKind(literal));
+        assertEquals("\"hé ✓\"", tokens.getValue(literal));
+        // six characters, nine bytes
+        assertEquals(9, tokens.getEnd(literal) - tokens.getStart(literal));
+        assertEquals("// über", tokens.getTriviaValue(0));
+        assertEquals(content.length - "int b;\r\n".length(), tokens.getStart(literal + 2));
+        assertTrue(Scanner.getInputFile(file.toString()).indexOf("int b") < tokens.getStart(literal + 2),
+                "reading as text rewrites the line endings");
+    }
+
+    @Test
+    void testNonAsciiOutsideLiteralsIsAnErrorAtItsByte() {
+        SourceBytes code = SourceBytes.of("int a;\nint café;");
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> Scanner.TokenizeToBuffer(code));
+        assertTrue(e.getMessage().startsWith("Unexpected byte 0xC3 at position 14"), e.getMessage());
+        IllegalArgumentException parallel = assertThrows(IllegalArgumentException.class,
+                () -> new ParallelLexer(ForkJoinPool.commonPool(), 4).tokenize(code));
+        assertEquals(e.getMessage(), parallel.getMessage());
+    }
+
+    @Test
+    void testSubSequencesShareTheBytes() {
+        SourceBytes code = SourceBytes.of("x = \"é\";");
+        SourceBytes literal = code.subSequence(4, 8);
+        assertEquals(4, literal.length());
+        assertEquals("\"é\"", literal.toString());
+        assertEquals('"', literal.charAt(0));
+        assertEquals(0xC3, literal.charAt(1));
+        assertThrows(IndexOutOfBoundsException.class, () -> literal.charAt(4));
+        assertThrows(IndexOutOfBoundsException.class, () -> code.subSequence(5, 20));
+    }
+
+    @Test
+    void testTokenizingAMappedFileCopiesNoSource(@TempDir Path dir) throws Exception {
+        // few, long tokens: whatever the lexer allocates per token is small next to the text
+        String block = "/* " + "x".repeat(4000) + " */\nint v;\n";
+        Path file = dir.resolve("big.c");
+        Files.writeString(file, block.repeat(2000));
+        long size = Files.size(file);
+
+        // a small buffer that grows with the tokens, not with the file as Scanner's default capacity does
+        SourceBytes code = Scanner.mapInputFile(file);
+        for (int round = 0; round < 3; round++) LexerAutomaton.get().tokenize(code, new TokenBuffer(code, 16), true);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long before = threads.getCurrentThreadAllocatedBytes();
+        TokenBuffer tokens = LexerAutomaton.get().tokenize(code, new TokenBuffer(code, 16), true);
+        long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+
+        assertEquals(6000, tokens.size());
+        assertEquals(2000, tokens.getTriviaCount());
+        assertTrue(allocated < size / 4, allocated + " bytes allocated for a " + size + " byte file");
+    }
+
+    @Test
+    void testBatchModeReadsFilesAsBytes(@TempDir Path dir) throws Exception {
+        Path header = dir.resolve("defs.h");
+        Files.write(header, "#define GREETING \"grüß\"\r\n".getBytes(StandardCharsets.UTF_8));
+        Path file = dir.resolve("main.c");
+        Files.write(file, ("#include \"defs.h\"\r\n// ça va\r\nint main() { int a; a = 1; return a; }\r\n")
+                .getBytes(StandardCharsets.UTF_8));
+        BatchCompiler.FileResult result = BatchCompiler.compileFile(file);
+        assertEquals(List.of(), result.diagnostics());
+        assertEquals(Files.size(file), result.bytes());
+    }
+}
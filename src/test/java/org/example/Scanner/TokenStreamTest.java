@@ -0,0 +1,80 @@
+package org.example.Scanner;
+
+import org.example.Tokens.Token;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TokenStreamTest {
+
+    private static final String SAMPLE =
+            "int main() {\n" +
+            "  /* a block comment that is much longer than the tiny test buffer */\n" +
+            "  char* s = \"a string literal \\\" with an escaped quote\";\n" +
+            "  float f = 3.14e-2; // trailing\n" +
+            "  if (x >= 0x1F) { return 0; } else { return 'c'; }\n" +
+            "}\n";
+
+    private static List<String> render(List<Token> tokens) {
+        return tokens.stream().map(Token::toString).collect(Collectors.toList());
+    }
+
+    @Test
+    void testTinyBufferMatchesTokenize() throws Exception {
+        List<String> expected = render(Scanner.Tokenize(SAMPLE));
+        for (int size = 1; size <= 16; size++) {
+            List<Token> streamed = new ArrayList<>();
+            try (TokenStream ts = new TokenStream(new StringReader(SAMPLE), size, true)) {
+                ts.forEachRemaining(streamed::add);
+            }
+            assertEquals(expected, render(streamed), "buffer size " + size);
+        }
+    }
+
+    @Test
+    void testBufferStaysBoundedOnLargeInput() throws Exception {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 20000; i++) {
+            sb.append("int v").append(i).append(" = ").append(i).append("; // line ").append(i).append('\n');
+        }
+        TokenStream ts = new TokenStream(new StringReader(sb.toString()), 256, true);
+        long count = 0;
+        while (ts.hasNext()) {
+            ts.next();
+            count++;
+        }
+        assertEquals(Scanner.Tokenize(sb.toString()).size(), count);
+        assertEquals(256, ts.bufferCapacity(), "buffer should not grow when every token fits");
+    }
+
+    @Test
+    void testInputStreamAndPathSources(@TempDir Path tempDir) throws Exception {
+        List<String> expected = render(Scanner.Tokenize(SAMPLE));
+
+        TokenStream fromBytes = TokenStream.of(new ByteArrayInputStream(SAMPLE.getBytes(StandardCharsets.UTF_8)));
+        assertEquals(expected, render(fromBytes.stream().collect(Collectors.toList())));
+
+        Path file = tempDir.resolve("sample.c");
+        Files.writeString(file, SAMPLE);
+        try (var tokens = TokenStream.of(file).stream()) {
+            assertEquals(expected, render(tokens.collect(Collectors.toList())));
+        }
+    }
+
+    @Test
+    void testUnexpectedCharacterReportsAbsolutePosition() {
+        TokenStream ts = new TokenStream(new StringReader("int x; @"), 2, true);
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> ts.forEachRemaining(t -> { }));
+        assertTrue(e.getMessage().contains("position 7"), e.getMessage());
+    }
+}
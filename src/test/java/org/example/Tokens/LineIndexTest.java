@@ -0,0 +1,111 @@
+package org.example.Tokens;
+
+import org.example.Parser.Parser;
+import org.example.Preprocessor.HeaderCache;
+import org.example.Preprocessor.Preprocessor;
+import org.example.Scanner.Scanner;
+import org.example.Scanner.SourceBytes;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LineIndexTest {
+
+    @Test
+    void testResolvesOffsetsToLinesAndColumns() {
+        String text = "int a;\r\n\nchar b;\nx";
+        LineIndex index = LineIndex.of(text);
+        assertEquals(4, index.lineCount());
+        assertEquals("1:1", index.format(0));
+        // the '\r' belongs to its line
+        assertEquals("1:7", index.format(6));
+        assertEquals("2:1", index.format(8));
+        assertEquals("3:1", index.format(9));
+        assertEquals("3:8", index.format(16));
+        assertEquals(4, index.line(17));
+        // the end of the text is a position too
+        assertEquals("4:2", index.format(text.length()));
+        assertEquals(9, index.lineStart(3));
+        assertThrows(IndexOutOfBoundsException.class, () -> index.line(text.length() + 1));
+        assertThrows(IndexOutOfBoundsException.class, () -> index.lineStart(5));
+
+        assertEquals("1:1", LineIndex.of("").format(0));
+    }
+
+    @Test
+    void testColumnsOfMappedSourceAreBytes() {
+        String text = "// ünïcode\nint café_x;\n";
+        SourceBytes bytes = SourceBytes.of(text);
+        LineIndex chars = LineIndex.of(text);
+        LineIndex mapped = LineIndex.of(bytes);
+        assertEquals(chars.lineCount(), mapped.lineCount());
+        assertEquals("2:1", chars.format(text.indexOf("int")));
+        // two two-byte characters before the line end
+        assertEquals("2:1", mapped.format(text.indexOf("int") + 2));
+    }
+
+    @Test
+    void testParseErrorsNameTheirLine() {
+        TokenBuffer tokens = Scanner.TokenizeToBuffer("int main() {\n    int a;\n    a = 1 +;\n    return a;\n}\n");
+        Parser parser = new Parser(tokens);
+        parser.parseProgram();
+        assertEquals(List.of("3:12 <SPECIAL_CHARACTERS:;> -> unexpected token inside expression"), parser.getErrors());
+        assertEquals(3, tokens.getLine(parser.getDiagnostics().get(0).token()));
+        assertEquals(12, tokens.getColumn(parser.getDiagnostics().get(0).token()));
+        assertEquals("6:1", tokens.getLocation(tokens.size()));
+    }
+
+    @Test
+    void testPreprocessedTokensPointIntoTheCompiledFile(@TempDir Path dir) throws Exception {
+        Files.writeString(dir.resolve("defs.h"), "#define ONE 1\nint helper() { return ONE; }\nint broken( { }\n");
+        Path file = dir.resolve("main.c");
+        Files.writeString(file, """
+                #define TWICE(x) ((x) + (x))
+                int main() {
+                    int a;
+                    a = TWICE(2) + ;
+                }
+                #include "defs.h"
+                """);
+        Preprocessor preprocessor = new Preprocessor(List.of(), new HeaderCache());
+        TokenBuffer tokens = preprocessor.preprocess(file);
+        Parser parser = new Parser(tokens);
+        parser.parseProgram();
+        List<String> errors = parser.getErrors();
+        // lines of main.c, not of the preprocessor's text; a header's errors are placed at its #include
+        assertTrue(errors.get(0).startsWith("4:20 "), errors.toString());
+        assertTrue(errors.get(errors.size() - 1).startsWith("6:1:"), errors.toString());
+
+        // an expansion is placed at the end of its invocation
+        int plus = 0;
+        while (!tokens.valueEquals(plus, "+")) plus++;
+        assertEquals("4:16", tokens.getLocation(plus));
+        assertEquals("7:1", tokens.getLocation(tokens.size()));
+    }
+
+    @Test
+    void testIndexCostsFourBytesPerLine() {
+        int lines = 1_000_000;
+        String text = "x = y;\n".repeat(lines);
+        TokenBuffer tokens = Scanner.TokenizeToBuffer(text);
+        for (int round = 0; round < 3; round++) LineIndex.of(text);
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long before = threads.getCurrentThreadAllocatedBytes();
+        LineIndex index = tokens.getLineIndex();
+        long retained = 4L * index.lineCount();
+        long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+
+        assertEquals(lines + 1, index.lineCount());
+        assertSame(index, tokens.getLineIndex());
+        // growing by doubling and trimming once allocates at most four times what is kept
+        assertTrue(allocated < 4 * retained, allocated + " bytes allocated for " + lines + " lines");
+        assertEquals(lines + ":6", tokens.getLocation(tokens.size() - 1));
+    }
+}
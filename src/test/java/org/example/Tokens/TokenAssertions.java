@@ -0,0 +1,26 @@
+package org.example.Tokens;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/** Assertions on whole token buffers, for tests that lex the same text two ways. */
+public final class TokenAssertions {
+    private TokenAssertions() {
+    }
+
+    /** The same tokens and the same trivia, each with the same kind and offsets. */
+    public static void assertSameTokens(TokenBuffer expected, TokenBuffer actual) {
+        assertEquals(expected.size(), actual.size(), "token count");
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.getKind(i), actual.getKind(i), "kind of token " + i);
+            assertEquals(expected.getStart(i), actual.getStart(i), "start of token " + i);
+            assertEquals(expected.getEnd(i), actual.getEnd(i), "end of token " + i);
+        }
+        assertEquals(expected.getTriviaCount(), actual.getTriviaCount(), "comment count");
+        for (int t = 0; t < expected.getTriviaCount(); t++) {
+            assertEquals(expected.getTriviaKind(t), actual.getTriviaKind(t), "kind of comment " + t);
+            assertEquals(expected.getTriviaStart(t), actual.getTriviaStart(t), "start of comment " + t);
+            assertEquals(expected.getTriviaEnd(t), actual.getTriviaEnd(t), "end of comment " + t);
+            assertEquals(expected.getTriviaOwner(t), actual.getTriviaOwner(t), "owner of comment " + t);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package org.example.Tokens;
+
+import org.example.Parser.GeneratedPrograms;
+import org.example.Parser.Parser;
+import org.example.Scanner.Scanner;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TokenBufferTest {
+
+    @Test
+    void testBufferMatchesTokenList() {
+        String code = GeneratedPrograms.functions(20);
+        List<Token> list = Scanner.Tokenize(code);
+        TokenBuffer buffer = Scanner.TokenizeToBuffer(code);
+
+        // the list keeps comments in line; the buffer keeps them as trivia of the token after them
+        assertEquals(list.size(), buffer.size() + buffer.getTriviaCount());
+        int i = 0;
+        int t = 0;
+        for (Token token : list) {
+            if (token.getType() == TokenType.COMMENT) {
+                assertEquals(token.getValue(), buffer.getTriviaValue(t));
+                assertEquals(i, buffer.getTriviaOwner(t++));
+                continue;
+            }
+            assertEquals(token.getType(), buffer.getType(i));
+            assertEquals(token.getValue(), buffer.getValue(i));
+            assertEquals(token.getValue(), code.substring(buffer.getStart(i), buffer.getEnd(i)));
+            assertTrue(buffer.valueEquals(i++, token.getValue()));
+        }
+    }
+
+    @Test
+    void testParserAcceptsBufferDirectly() {
+        String code = GeneratedPrograms.functions(5) + "int broken() { int ; x = ; }";
+        Parser fromList = new Parser(Scanner.Tokenize(code));
+        fromList.parseProgram();
+        Parser fromBuffer = new Parser(Scanner.TokenizeToBuffer(code));
+        fromBuffer.parseProgram();
+
+        assertTrue(fromBuffer.hasErrors());
+        assertEquals(fromList.getDiagnostics(), fromBuffer.getDiagnostics());
+        // token objects carry no position, so only the lexed buffer can name lines
+        assertEquals("token[201] <SPECIAL_CHARACTERS:;> -> expected identifier after type 'int'", fromList.getErrors().get(0));
+        assertEquals("27:20 <SPECIAL_CHARACTERS:;> -> expected identifier after type 'int'", fromBuffer.getErrors().get(0));
+    }
+
+    @Test
+    void testIdentifiersAreInternedOnce() {
+        TokenBuffer buffer = Scanner.TokenizeToBuffer(GeneratedPrograms.functions(50));
+        NamePool names = buffer.getNames();
+        // f0..f49, a, b and nothing for keywords, literals or operators
+        assertEquals(52, names.size());
+        for (int i = 0; i < buffer.size(); i++) {
+            int id = buffer.getNameId(i);
+            if (buffer.getType(i) == TokenType.IDENTIFIER) assertEquals(buffer.getValue(i), names.name(id));
+            else assertEquals(-1, id);
+        }
+        assertEquals(names.find("a"), names.intern("xa", 1, 2));
+        assertEquals(-1, names.find("c"));
+
+        // a buffer with its own pool is translated into this one
+        TokenBuffer other = Scanner.TokenizeToBuffer("int c; a = c;");
+        buffer.addAll(other, 0, other.size());
+        assertEquals(53, names.size());
+        assertEquals(names.find("a"), buffer.getNameId(buffer.size() - 4));
+        assertEquals(names.find("c"), buffer.getNameId(buffer.size() - 2));
+    }
+
+    @Test
+    void testBufferAllocatesLessPerToken() {
+        com.sun.management.ThreadMXBean mx = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        String code = GeneratedPrograms.functions(2000);
+        // warm up both paths so class loading and the automaton build are not measured
+        Scanner.Tokenize(code);
+        Scanner.TokenizeToBuffer(code);
+
+        long tid = Thread.currentThread().threadId();
+        long before = mx.getThreadAllocatedBytes(tid);
+        List<Token> list = Scanner.Tokenize(code);
+        long listBytes = mx.getThreadAllocatedBytes(tid) - before;
+
+        before = mx.getThreadAllocatedBytes(tid);
+        TokenBuffer buffer = Scanner.TokenizeToBuffer(code);
+        long bufferBytes = mx.getThreadAllocatedBytes(tid) - before;
+
+        double listPerToken = (double) listBytes / list.size();
+        double bufferPerToken = (double) bufferBytes / buffer.size();
+        assertTrue(bufferPerToken * 2 < listPerToken,
+                "TokenBuffer should allocate well under half of List<Token> per token: " + bufferPerToken + " vs " + listPerToken);
+    }
+}
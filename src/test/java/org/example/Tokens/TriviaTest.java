@@ -0,0 +1,92 @@
+package org.example.Tokens;
+
+import org.example.Parser.Parser;
+import org.example.Scanner.LexerAutomaton;
+import org.example.Scanner.Scanner;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TriviaTest {
+    private static final String CODE = """
+            // leading comment
+            int main() { /* before the declaration */ int a;
+                a = 1 /* inside */ + // after the operator
+                    2;
+                return a;
+            }
+            /* trailing */""";
+
+    @Test
+    void testCommentsBelongToTheFollowingToken() {
+        TokenBuffer tokens = Scanner.TokenizeToBuffer(CODE);
+        for (int i = 0; i < tokens.size(); i++) assertNotEquals(TokenType.COMMENT, tokens.getType(i));
+        assertEquals(5, tokens.getTriviaCount());
+
+        assertEquals(0, tokens.getFirstTrivia(0));
+        assertEquals(1, tokens.getFirstTrivia(1));
+        assertEquals("// leading comment", tokens.getTriviaValue(0));
+        assertEquals("int", tokens.getValue(tokens.getTriviaOwner(0)));
+        assertEquals("int", tokens.getValue(tokens.getTriviaOwner(1)));
+        assertEquals(TokenKind.COMMENT, tokens.getTriviaKind(1));
+
+        // the block comment comes before '+', the line comment after it before '2'
+        int two = tokens.getTriviaOwner(3);
+        assertEquals("2", tokens.getValue(two));
+        assertEquals("+", tokens.getValue(tokens.getTriviaOwner(2)));
+        assertEquals(1, tokens.getFirstTrivia(two + 1) - tokens.getFirstTrivia(two));
+
+        // after the last token
+        assertEquals(tokens.size(), tokens.getTriviaOwner(4));
+        assertEquals(4, tokens.getFirstTrivia(tokens.size()));
+        assertEquals(5, tokens.getFirstTrivia(tokens.size() + 1));
+        assertThrows(IndexOutOfBoundsException.class, () -> tokens.getTriviaStart(5));
+    }
+
+    @Test
+    void testTokensAndKeptWhitespaceRebuildTheSource() {
+        TokenBuffer tokens = LexerAutomaton.get().tokenize(CODE, new TokenBuffer(CODE), false);
+        List<int[]> pieces = new ArrayList<>();
+        for (int i = 0; i < tokens.size(); i++) pieces.add(new int[]{tokens.getStart(i), tokens.getEnd(i)});
+        for (int t = 0; t < tokens.getTriviaCount(); t++) pieces.add(new int[]{tokens.getTriviaStart(t), tokens.getTriviaEnd(t)});
+        pieces.sort((a, b) -> Integer.compare(a[0], b[0]));
+
+        StringBuilder rebuilt = new StringBuilder();
+        for (int[] piece : pieces) {
+            assertEquals(rebuilt.length(), piece[0], "pieces are contiguous");
+            rebuilt.append(CODE, piece[0], piece[1]);
+        }
+        assertEquals(CODE, rebuilt.toString());
+        assertEquals(Scanner.TokenizeToBuffer(CODE).size(), tokens.size());
+    }
+
+    @Test
+    void testParserSeesTheSameTokensWithOrWithoutComments() {
+        String plain = CODE.replaceAll("//[^\n]*|/\\*.*?\\*/", "");
+        Parser commented = new Parser(Scanner.TokenizeToBuffer(CODE), true);
+        commented.parseProgram();
+        Parser stripped = new Parser(Scanner.TokenizeToBuffer(plain), true);
+        stripped.parseProgram();
+        assertEquals(List.of(), commented.getErrors());
+        assertEquals(stripped.getAst().size(), commented.getAst().size());
+
+        // token indices are the same, so diagnostics are too apart from their positions
+        Parser broken = new Parser(Scanner.TokenizeToBuffer(CODE.replace("2;", "2")));
+        broken.parseProgram();
+        Parser brokenPlain = new Parser(Scanner.TokenizeToBuffer(plain.replace("2;", "2")));
+        brokenPlain.parseProgram();
+        assertEquals(brokenPlain.getDiagnostics().get(0).token(), broken.getDiagnostics().get(0).token());
+        assertEquals("5:5: missing ';' after expression", broken.getErrors().get(0));
+    }
+
+    @Test
+    void testTokenListsKeepTheirComments() {
+        List<Token> list = Scanner.Tokenize(CODE);
+        TokenBuffer fromList = TokenBuffer.of(list);
+        assertEquals(list.size(), fromList.size() + fromList.getTriviaCount());
+        assertEquals("/* trailing */", fromList.getTriviaValue(fromList.getTriviaCount() - 1));
+    }
+}